@@ -24,21 +24,20 @@
 package com.sonyericsson.hudson.plugins.gerrit.trigger;
 
 import com.sonyericsson.hudson.plugins.gerrit.trigger.utils.StringUtil;
+import com.sonyericsson.hudson.plugins.gerrit.trigger.utils.TaskScheduler;
 import com.sonymobile.tools.gerrit.gerritevents.ConnectionListener;
 import com.sonymobile.tools.gerrit.gerritevents.GerritEventListener;
 import com.sonymobile.tools.gerrit.gerritevents.dto.GerritEvent;
 import com.sonymobile.tools.gerrit.gerritevents.dto.events.ProjectCreated;
-import com.sonymobile.tools.gerrit.gerritevents.ssh.SshConnection;
-import com.sonymobile.tools.gerrit.gerritevents.ssh.SshConnectionFactory;
 import com.sonymobile.tools.gerrit.gerritevents.ssh.SshException;
 import com.sonyericsson.hudson.plugins.gerrit.trigger.config.IGerritHudsonTriggerConfig;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.Reader;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.Timer;
-import java.util.TimerTask;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -50,6 +49,14 @@ import org.slf4j.LoggerFactory;
  * available Gerrit projects. Executed periodically on a timely basis
  * and every time the connection to the Gerrit server has been restored.
  *
+ * When the server sends project-created events, the list is kept up to date with them
+ * and the whole list is only reloaded every {@link #DEFAULT_RECONCILIATION_HOURS} hours
+ * and after the connection has been restored, in case events were missed or projects were deleted.
+ *
+ * The updates run as a blocking task on the shared {@link TaskScheduler}, since reading the list can take long.
+ * An update is skipped while the server isn't connected, instead of holding a thread to wait for it,
+ * and is run as soon as the connection is restored.
+ *
  * @author Gustaf Lundh &lt;Gustaf.Lundh@sonyericsson.com&gt;
  */
 public class GerritProjectListUpdater implements ConnectionListener, NamedGerritEventListener {
@@ -57,25 +64,59 @@ public class GerritProjectListUpdater implements ConnectionListener, NamedGerrit
      * The command for fetching projects.
      */
     public static final String GERRIT_LS_PROJECTS = "gerrit ls-projects";
-    private static final int MAX_WAIT_TIME = 64;
+    private static final int MIN_INDEX_CAPACITY = 16;
 
     /**
      * Default period for updates, in minutes.
      */
     private static final int DEFAULT_TIMER_PERIOD = 5;
 
+    /**
+     * Default period for reloading the whole list when it is kept up to date by events, in hours.
+     * Can be tuned with the system property
+     * <code>com.sonyericsson.hudson.plugins.gerrit.trigger.GerritProjectListUpdater.reconciliationHours</code>.
+     */
+    static final int DEFAULT_RECONCILIATION_HOURS = 24;
+
+    private static final long RECONCILIATION_INTERVAL = TimeUnit.HOURS.toMillis(Integer.getInteger(
+            GerritProjectListUpdater.class.getName() + ".reconciliationHours", DEFAULT_RECONCILIATION_HOURS));
+
     /**
      * Holds the period to update the project list, in minutes.
      */
     private int timerUpdatePeriod = DEFAULT_TIMER_PERIOD;
 
-    private Timer timer;
+    /**
+     * The periodic update, null when the updater isn't started. Guarded by this.
+     */
+    private TaskScheduler.Task updateTask;
+    /**
+     * The update run when the connection is restored, null if there is none. Guarded by this.
+     */
+    private TaskScheduler.Task reloadTask;
+    private boolean started = false;
+    /**
+     * If an update was skipped because the server wasn't connected.
+     */
+    private volatile boolean updateMissed = false;
+    private final AtomicBoolean loading = new AtomicBoolean(false);
 
     private AtomicBoolean connected = new AtomicBoolean(false);
-    private boolean shutdown = false;
     private static final Logger logger = LoggerFactory.getLogger(GerritProjectListUpdater.class);
-    private List<String> gerritProjects;
+    /**
+     * The projects, sorted and without duplicates. Replaced, never modified.
+     */
+    private String[] gerritProjects = new String[0];
     private String serverName;
+    /**
+     * If this is listening to project-created events.
+     */
+    private volatile boolean incremental = false;
+    /**
+     * If the whole list needs to be reloaded on the next update even though it is kept up to date by events.
+     */
+    private volatile boolean reconcile = true;
+    private volatile long lastFullLoad = 0;
 
     /**
      * Default constructor.
@@ -148,7 +189,16 @@ public class GerritProjectListUpdater implements ConnectionListener, NamedGerrit
     @Override
     public synchronized void connectionEstablished() {
         setConnected(true);
-        notify();
+        // Events may have been missed while disconnected.
+        reconcile = true;
+        if (started && updateMissed) {
+            updateMissed = false;
+            if (reloadTask != null) {
+                reloadTask.cancel();
+            }
+            reloadTask = TaskScheduler.getInstance().scheduleBlocking(getTaskName(), this::tryLoadProjectList,
+                    0, TimeUnit.SECONDS);
+        }
     }
 
     @Override
@@ -165,6 +215,9 @@ public class GerritProjectListUpdater implements ConnectionListener, NamedGerrit
      * @param gerritEvent the event.
      */
     public void gerritEvent(ProjectCreated gerritEvent) {
+        if (gerritEvent.getProjectName() == null) {
+            return;
+        }
         addGerritProject(gerritEvent.getProjectName());
         logger.debug("Added project {} to project lists", gerritEvent.getProjectName());
     }
@@ -172,14 +225,14 @@ public class GerritProjectListUpdater implements ConnectionListener, NamedGerrit
     /**
      * Initialize project list updater.
      */
-    public void initProjectListUpdater() {
+    public synchronized void initProjectListUpdater() {
         logger.info("Init project list updater");
-        if (timer == null) {
+        if (!started) {
             // Never query this Gerrit-server for project list.
             if (!getConfig().isEnableProjectAutoCompletion()) {
                 return;
             }
-            timer = new Timer(serverName);
+            started = true;
             scheduleProjectListUpdate(getConfig().getProjectListFetchDelay(),
                                       getConfig().getProjectListRefreshInterval());
         } else {
@@ -190,14 +243,28 @@ public class GerritProjectListUpdater implements ConnectionListener, NamedGerrit
     /**
      * Cancel project list update timer.
      */
-    public void cancelProjectListUpdater() {
+    public synchronized void cancelProjectListUpdater() {
         try {
-            if (timer != null) {
-                timer.cancel();
-                shutdown = true;
-                timer = null;
+            if (incremental) {
+                GerritServer server = PluginImpl.getServer_(serverName);
+                if (server != null) {
+                    server.removeListener(gerritEventListener());
+                }
+                incremental = false;
+            }
+            if (started) {
+                started = false;
+                updateMissed = false;
+                if (updateTask != null) {
+                    updateTask.cancel();
+                    updateTask = null;
+                }
+                if (reloadTask != null) {
+                    reloadTask.cancel();
+                    reloadTask = null;
+                }
             } else {
-                logger.error("Unable to cancel project list update task because timer is null");
+                logger.error("Unable to cancel project list update task because the updater isn't started");
             }
         } catch (Exception e) {
             logger.error("Error canceling project list updater: ", e);
@@ -205,82 +272,108 @@ public class GerritProjectListUpdater implements ConnectionListener, NamedGerrit
     }
 
     /**
-     * This method creates a timer that schedule the update of the gerrit project list.
+     * This method schedules the update of the gerrit project list, replacing the current schedule.
      *
      * @param initDelay the initial delay, in seconds.
      * @param updatePeriod the update period, in seconds.
      */
-    public void scheduleProjectListUpdate(int initDelay, int updatePeriod) {
+    public synchronized void scheduleProjectListUpdate(int initDelay, int updatePeriod) {
         logger.info("Start timer to update project list");
-        if (timer != null) {
-            timer.cancel();
-            timer = new Timer(serverName);
-            timer.scheduleAtFixedRate(new TimerTask() {
-                @Override
-                public void run() {
-                    tryLoadProjectList();
-                }
-            }, TimeUnit.SECONDS.toMillis(initDelay), TimeUnit.SECONDS.toMillis(updatePeriod));
+        reconcile = true;
+        if (started) {
+            if (updateTask != null) {
+                updateTask.cancel();
+            }
+            updateTask = TaskScheduler.getInstance().scheduleBlockingWithFixedDelay(getTaskName(),
+                    this::tryLoadProjectList, initDelay, updatePeriod, TimeUnit.SECONDS);
         } else {
-            logger.error("Unable to schedule project list update task because timer is null");
+            logger.error("Unable to schedule project list update task because the updater isn't started");
         }
     }
 
     /**
-     * Wait for 'delay' seconds.
-     * @param delay seconds to wait.
+     * The name of the update task.
+     *
+     * @return the name.
      */
-    private void waitFor(long delay) {
-        try {
-            synchronized (this) {
-                long startTime = System.nanoTime();
-                // Continuously refetching the refresh interval allows us to pick up configuration
-                // changes on the fly, keeping us from getting stuck on accidentally entered very
-                // high values.
-                while (System.nanoTime() - startTime
-                        < TimeUnit.SECONDS.toNanos(delay)
-                        && !shutdown) {
-                    wait(TimeUnit.SECONDS.toMillis(1));
-                }
-            }
-        } catch (InterruptedException ex) {
-            logger.warn("InterruptedException: ", ex);
+    private String getTaskName() {
+        return "Gerrit project list update " + serverName;
+    }
+
+    /**
+     * Starts listening to project-created events, if the server sends them.
+     * Done before loading the list so that no project is missed in between.
+     */
+    private void enableIncrementalUpdates() {
+        if (incremental) {
+            return;
+        }
+        GerritServer server = PluginImpl.getServer_(serverName);
+        if (server != null && server.isProjectCreatedEventsSupported()) {
+            server.addListener(gerritEventListener());
+            incremental = true;
+            logger.info("Keeping project list of {} up to date with project-created events", serverName);
         }
     }
 
+    /**
+     * If the whole project list should be reloaded.
+     *
+     * @param now the current time.
+     * @return true unless the list is kept up to date by events and was reloaded recently.
+     */
+    /*package*/ boolean isReconciliationDue(long now) {
+        return !incremental || reconcile || now - lastFullLoad >= RECONCILIATION_INTERVAL;
+    }
+
     /**
      * Try to load entire project list from Gerrit server.
+     * Skipped if it is already being loaded, and postponed until the connection is restored if not connected.
      */
     private void tryLoadProjectList() {
-        int interval = 1;
-        while (!isConnected() && !shutdown) {
-            logger.info("Not connected to {}, waiting for {} second(s)", serverName, interval);
-            waitFor(interval);
-            if (interval < MAX_WAIT_TIME) {
-                interval = interval * 2;
-            }
+        if (!loading.compareAndSet(false, true)) {
+            logger.debug("Project list of {} is already being loaded", serverName);
+            return;
+        }
+        try {
+            loadProjectList();
+        } finally {
+            loading.set(false);
+        }
+    }
+
+    /**
+     * Loads entire project list from Gerrit server.
+     */
+    private void loadProjectList() {
+        enableIncrementalUpdates();
+        if (!isReconciliationDue(System.currentTimeMillis())) {
+            logger.debug("Project list of {} is kept up to date by events", serverName);
+            return;
         }
         try {
             if (isConnected()) {
                 logger.info("Trying to load project list.");
-                IGerritHudsonTriggerConfig activeConfig = getConfig();
-                SshConnection sshConnection = SshConnectionFactory.getConnection(
-                        activeConfig.getGerritHostName(),
-                        activeConfig.getGerritSshPort(),
-                        activeConfig.getGerritProxy(),
-                        activeConfig.getGerritAuthentication()
-                );
-                List<String> projects = readProjects(sshConnection.executeCommandReader(GERRIT_LS_PROJECTS));
-                if (!projects.isEmpty()) {
-                    setGerritProjects(projects);
-                    logger.info("Project list from {} contains {} entries", serverName, projects.size());
+                GerritServer server = PluginImpl.getServer_(serverName);
+                if (server == null) {
+                    logger.warn("Could not find server {} when updating Gerrit project list", serverName);
+                    return;
+                }
+                String[] projects = server.getSshCommandSession().execute(server.getConfig(), GERRIT_LS_PROJECTS,
+                        this::readProjectIndex);
+                if (projects.length > 0) {
+                    synchronized (this) {
+                        gerritProjects = projects;
+                    }
+                    lastFullLoad = System.currentTimeMillis();
+                    reconcile = false;
+                    logger.info("Project list from {} contains {} entries", serverName, projects.length);
                 } else {
                     logger.warn("Project list from {} contains 0 projects", serverName);
                 }
-                sshConnection.disconnect();
             } else {
-                logger.warn("Could not connect to Gerrit server when updating Gerrit project list: "
-                        + "Server is not connected (timeout)");
+                updateMissed = true;
+                logger.info("Not connected to {}, updating project list when connected", serverName);
             }
         } catch (SshException ex) {
             logger.warn("Could not connect to Gerrit server when updating Gerrit project list: ", ex);
@@ -329,6 +422,57 @@ public class GerritProjectListUpdater implements ConnectionListener, NamedGerrit
         return projects;
     }
 
+    /**
+     * Reads Gerrit projects from a Reader straight into a new index, one project per line.
+     * As from command: gerrit ls-projects, which lists them in order.
+     * The names that are in the current index are shared with it instead of being kept twice.
+     *
+     * @param commandReader the Reader.
+     * @return the projects, sorted and without duplicates.
+     * @throws IOException if something unfortunate happens.
+     */
+    /*package*/ String[] readProjectIndex(Reader commandReader) throws IOException {
+        String[] current;
+        synchronized (this) {
+            current = gerritProjects;
+        }
+        String[] projects = new String[Math.max(current.length, MIN_INDEX_CAPACITY)];
+        int size = 0;
+        boolean sorted = true;
+        BufferedReader br = new BufferedReader(commandReader);
+        String line = br.readLine();
+        while (line != null) {
+            if (!line.isEmpty()) {
+                int known = Arrays.binarySearch(current, line);
+                if (known >= 0) {
+                    line = current[known];
+                }
+                if (size > 0 && projects[size - 1].compareTo(line) >= 0) {
+                    sorted = false;
+                }
+                if (size == projects.length) {
+                    projects = Arrays.copyOf(projects, size * 2);
+                }
+                projects[size++] = line;
+            }
+            line = br.readLine();
+        }
+        if (!sorted) {
+            Arrays.sort(projects, 0, size);
+            int unique = 0;
+            for (int i = 0; i < size; i++) {
+                if (unique == 0 || !projects[i].equals(projects[unique - 1])) {
+                    projects[unique++] = projects[i];
+                }
+            }
+            size = unique;
+        }
+        if (size == projects.length) {
+            return projects;
+        }
+        return Arrays.copyOf(projects, size);
+    }
+
     /**
      * @return if connected to Gerrit.
      */
@@ -344,11 +488,20 @@ public class GerritProjectListUpdater implements ConnectionListener, NamedGerrit
     }
 
     /**
-     * Adds a Gerrit project to this.gerritProjects.
+     * Adds a Gerrit project to this.gerritProjects, unless it is already in it.
      * @param gerritProject the Gerrit project to add.
      */
     public synchronized void addGerritProject(String gerritProject) {
-        gerritProjects.add(gerritProject);
+        int index = Arrays.binarySearch(gerritProjects, gerritProject);
+        if (index >= 0) {
+            return;
+        }
+        int insertion = -index - 1;
+        String[] projects = new String[gerritProjects.length + 1];
+        System.arraycopy(gerritProjects, 0, projects, 0, insertion);
+        projects[insertion] = gerritProject;
+        System.arraycopy(gerritProjects, insertion, projects, insertion + 1, gerritProjects.length - insertion);
+        gerritProjects = projects;
     }
 
     /**
@@ -356,18 +509,45 @@ public class GerritProjectListUpdater implements ConnectionListener, NamedGerrit
      * @param projects The list of projects
      */
     public synchronized void setGerritProjects(List<String> projects) {
-        gerritProjects = projects;
+        String[] sorted = projects.toArray(new String[0]);
+        Arrays.sort(sorted);
+        int size = 0;
+        for (String project : sorted) {
+            if (size == 0 || !project.equals(sorted[size - 1])) {
+                sorted[size++] = project;
+            }
+        }
+        gerritProjects = Arrays.copyOf(sorted, size);
     }
 
     /**
      * Returns a string list of Gerrit projects.
-     * @return list of gerrit projects
+     * @return sorted, unmodifiable list of gerrit projects
      */
     public synchronized List<String> getGerritProjects() {
-        if (gerritProjects == null) {
-            gerritProjects = new ArrayList<>();
+        return Collections.unmodifiableList(Arrays.asList(gerritProjects));
+    }
+
+    /**
+     * Returns the Gerrit projects whose names start with a prefix, found by binary search.
+     * @param prefix the prefix.
+     * @param limit the maximum number of projects to return.
+     * @return sorted list of at most <code>limit</code> projects.
+     */
+    public List<String> getGerritProjects(String prefix, int limit) {
+        String[] projects;
+        synchronized (this) {
+            projects = gerritProjects;
+        }
+        int index = Arrays.binarySearch(projects, prefix);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        List<String> found = new ArrayList<>();
+        while (index < projects.length && found.size() < limit && projects[index].startsWith(prefix)) {
+            found.add(projects[index++]);
         }
-        return gerritProjects;
+        return found;
     }
 
     @Override
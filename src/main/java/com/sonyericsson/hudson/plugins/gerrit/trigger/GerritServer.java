@@ -57,8 +57,6 @@ import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Timer;
-import java.util.TimerTask;
 import java.util.Map.Entry;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
@@ -116,6 +114,7 @@ import com.sonyericsson.hudson.plugins.gerrit.trigger.hudsontrigger.GerritConnec
 import com.sonyericsson.hudson.plugins.gerrit.trigger.hudsontrigger.GerritTrigger;
 import com.sonyericsson.hudson.plugins.gerrit.trigger.hudsontrigger.data.GerritSlave;
 import com.sonyericsson.hudson.plugins.gerrit.trigger.playback.GerritMissedEventsPlaybackManager;
+import com.sonyericsson.hudson.plugins.gerrit.trigger.utils.TaskScheduler;
 import com.sonyericsson.hudson.plugins.gerrit.trigger.version.GerritVersionChecker;
 
 /**
@@ -158,6 +157,7 @@ public class GerritServer implements Describable<GerritServer>, Action {
     private transient GerritConnectionListener gerritConnectionListener;
     private transient GerritMissedEventsPlaybackManager missedEventsPlaybackManager;
     private transient GerritQueryHandler gerritQueryHnadler;
+    private transient SshCommandSession sshCommandSession;
 
     @Override
     public DescriptorImpl getDescriptor() {
@@ -253,6 +253,7 @@ public class GerritServer implements Describable<GerritServer>, Action {
         checkPermission();
         this.config = config;
         gerritQueryHnadler = new GerritQueryHandler(config);
+        closeSshCommandSession();
     }
 
     /**
@@ -267,6 +268,27 @@ public class GerritServer implements Describable<GerritServer>, Action {
         return gerritQueryHnadler;
     }
 
+    /**
+     * Gets the SSH session this server keeps for commands run outside of the stream of events.
+     *
+     * @return the session.
+     */
+    public synchronized SshCommandSession getSshCommandSession() {
+        if (sshCommandSession == null) {
+            sshCommandSession = new SshCommandSession(name);
+        }
+        return sshCommandSession;
+    }
+
+    /**
+     * Closes the SSH session kept for commands, if any.
+     */
+    private synchronized void closeSshCommandSession() {
+        if (sshCommandSession != null) {
+            sshCommandSession.close();
+        }
+    }
+
     /**
      * Get the name of the server.
      *
@@ -524,6 +546,7 @@ public class GerritServer implements Describable<GerritServer>, Action {
             gerritConnection.shutdown(false);
             gerritConnection = null;
         }
+        closeSshCommandSession();
 
         logger.info(name + " stopped");
         started = false;
@@ -672,6 +695,21 @@ public class GerritServer implements Describable<GerritServer>, Action {
         }
     }
 
+    /**
+     * Returns the Gerrit projects whose names start with a prefix.
+     *
+     * @param prefix the prefix.
+     * @param limit the maximum number of projects to return.
+     * @return sorted list of at most <code>limit</code> gerrit projects.
+     */
+    public List<String> getGerritProjects(String prefix, int limit) {
+        if (projectListUpdater != null) {
+            return projectListUpdater.getGerritProjects(prefix, limit);
+        } else {
+            return new ArrayList<>();
+        }
+    }
+
     /**
      * Adds the given event to the stream of events.
      * It gets added to the same event queue as any event coming from the stream-events command in Gerrit.
@@ -1062,19 +1100,16 @@ public class GerritServer implements Describable<GerritServer>, Action {
     @RequirePOST
     public JSONObject doWakeup() {
         checkPermission();
-        Timer timer = new Timer();
+        TaskScheduler.Task poll = null;
         try {
             startConnection();
 
             final CountDownLatch responseLatch = new CountDownLatch(RESPONSE_COUNT);
-            timer.schedule(new TimerTask() {
-                @Override
-                public void run() {
-                    if (gerritConnectionListener != null && gerritConnectionListener.isConnected()) {
-                        responseLatch.countDown();
-                    }
+            poll = TaskScheduler.getInstance().scheduleWithFixedDelay("Gerrit wakeup " + name, () -> {
+                if (gerritConnectionListener != null && gerritConnectionListener.isConnected()) {
+                    responseLatch.countDown();
                 }
-            }, RESPONSE_INTERVAL_MS, RESPONSE_INTERVAL_MS);
+            }, RESPONSE_INTERVAL_MS, RESPONSE_INTERVAL_MS, TimeUnit.MILLISECONDS);
 
             if (responseLatch.await(RESPONSE_TIMEOUT_S, TimeUnit.SECONDS)) {
                 timeoutWakeup = false;
@@ -1086,8 +1121,11 @@ public class GerritServer implements Describable<GerritServer>, Action {
         } catch (Exception ex) {
             setConnectionResponse(START_FAILURE);
             logger.error("Could not start connection. ", ex);
+        } finally {
+            if (poll != null) {
+                poll.cancel();
+            }
         }
-        timer.cancel();
 
         JSONObject obj = new JSONObject();
         String status = "down";
@@ -1109,19 +1147,16 @@ public class GerritServer implements Describable<GerritServer>, Action {
     @RequirePOST
     public JSONObject doSleep() {
         checkPermission();
-        Timer timer = new Timer();
+        TaskScheduler.Task poll = null;
         try {
             stopConnection();
 
             final CountDownLatch responseLatch = new CountDownLatch(RESPONSE_COUNT);
-            timer.schedule(new TimerTask() {
-                @Override
-                public void run() {
-                    if (gerritConnectionListener == null || !gerritConnectionListener.isConnected()) {
-                        responseLatch.countDown();
-                    }
+            poll = TaskScheduler.getInstance().scheduleWithFixedDelay("Gerrit sleep " + name, () -> {
+                if (gerritConnectionListener == null || !gerritConnectionListener.isConnected()) {
+                    responseLatch.countDown();
                 }
-            }, RESPONSE_INTERVAL_MS, RESPONSE_INTERVAL_MS);
+            }, RESPONSE_INTERVAL_MS, RESPONSE_INTERVAL_MS, TimeUnit.MILLISECONDS);
 
             if (responseLatch.await(RESPONSE_TIMEOUT_S, TimeUnit.SECONDS)) {
                 setConnectionResponse(STOP_SUCCESS);
@@ -1131,8 +1166,11 @@ public class GerritServer implements Describable<GerritServer>, Action {
         } catch (Exception ex) {
             setConnectionResponse(STOP_FAILURE);
             logger.error("Could not stop connection. ", ex);
+        } finally {
+            if (poll != null) {
+                poll.cancel();
+            }
         }
-        timer.cancel();
 
         JSONObject obj = new JSONObject();
         String status = "down";
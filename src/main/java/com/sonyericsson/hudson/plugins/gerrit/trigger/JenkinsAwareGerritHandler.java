@@ -28,10 +28,14 @@ import hudson.security.ACLContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
 import com.sonymobile.tools.gerrit.gerritevents.GerritHandler;
 import com.sonymobile.tools.gerrit.gerritevents.dto.GerritEvent;
 import com.sonymobile.tools.gerrit.gerritevents.workers.EventThread;
 import com.sonyericsson.hudson.plugins.gerrit.trigger.events.lifecycle.GerritEventLifecycle;
+import com.sonyericsson.hudson.plugins.gerrit.trigger.events.lifecycle.GerritEventLifecycleListener;
 
 /**
  * Specialization of GerritHandler that supports gerrit event's
@@ -43,6 +47,8 @@ public class JenkinsAwareGerritHandler extends GerritHandler {
 
     private static final Logger logger = LoggerFactory.getLogger(JenkinsAwareGerritHandler.class);
 
+    private final List<GerritEventLifecycleListener> scanListeners = new CopyOnWriteArrayList<>();
+
     /**
      * Standard Constructor.
      *
@@ -64,8 +70,36 @@ public class JenkinsAwareGerritHandler extends GerritHandler {
         return new SystemEventThread(this, threadName);
     }
 
+    /**
+     * Adds a listener that is told when the listeners start and are done being notified of any event,
+     * regardless of if the event has a lifecycle or not.
+     * Only {@link GerritEventLifecycleListener#triggerScanStarting(GerritEvent)} and
+     * {@link GerritEventLifecycleListener#triggerScanDone(GerritEvent)} are called.
+     *
+     * @param listener the listener.
+     */
+    public void addScanListener(GerritEventLifecycleListener listener) {
+        scanListeners.add(listener);
+    }
+
+    /**
+     * Removes a listener added by {@link #addScanListener(GerritEventLifecycleListener)}.
+     *
+     * @param listener the listener.
+     */
+    public void removeScanListener(GerritEventLifecycleListener listener) {
+        scanListeners.remove(listener);
+    }
+
     @Override
     public void notifyListeners(GerritEvent event) {
+        for (GerritEventLifecycleListener listener : scanListeners) {
+            try {
+                listener.triggerScanStarting(event);
+            } catch (Exception ex) {
+                logger.error("Error when notifying scan listeners. ", ex);
+            }
+        }
         // Notify lifecycle listeners.
         if (event instanceof GerritEventLifecycle) {
             try {
@@ -78,14 +112,21 @@ public class JenkinsAwareGerritHandler extends GerritHandler {
         try (ACLContext ctx = ACL.as2(ACL.SYSTEM2)) {
             // The read deal
             super.notifyListeners(event);
-        }
-
-        // //Notify lifecycle listeners.
-        if (event instanceof GerritEventLifecycle) {
-            try {
-                ((GerritEventLifecycle)event).fireTriggerScanDone();
-            } catch (Exception ex) {
-                logger.error("Error when notifying LifecycleListeners. ", ex);
+        } finally {
+            // Always tell that the scan is done, or builds waiting for it would wait forever.
+            if (event instanceof GerritEventLifecycle) {
+                try {
+                    ((GerritEventLifecycle)event).fireTriggerScanDone();
+                } catch (Exception ex) {
+                    logger.error("Error when notifying LifecycleListeners. ", ex);
+                }
+            }
+            for (GerritEventLifecycleListener listener : scanListeners) {
+                try {
+                    listener.triggerScanDone(event);
+                } catch (Exception ex) {
+                    logger.error("Error when notifying scan listeners. ", ex);
+                }
             }
         }
     }
@@ -33,6 +33,7 @@ import com.sonyericsson.hudson.plugins.gerrit.trigger.config.IGerritHudsonTrigge
 import com.sonyericsson.hudson.plugins.gerrit.trigger.config.PluginConfig;
 import com.sonyericsson.hudson.plugins.gerrit.trigger.events.ManualPatchsetCreated;
 import com.sonyericsson.hudson.plugins.gerrit.trigger.hudsontrigger.GerritTrigger;
+import com.sonyericsson.hudson.plugins.gerrit.trigger.hudsontrigger.SupersededBuildsCanceller;
 import com.sonyericsson.hudson.plugins.gerrit.trigger.hudsontrigger.data.TriggerContextConverter;
 
 import com.sonymobile.tools.gerrit.gerritevents.dto.attr.Provider;
@@ -49,6 +50,7 @@ import hudson.model.Job;
 import hudson.model.Api;
 import hudson.model.Items;
 import hudson.model.Run;
+import hudson.model.queue.QueueTaskDispatcher;
 import hudson.security.Permission;
 import hudson.security.PermissionGroup;
 import hudson.security.PermissionScope;
@@ -584,7 +586,10 @@ public class PluginImpl extends GlobalConfiguration {
         logger.trace("Loading configs");
         load();
         GerritSendCommandQueue.initialize(pluginConfig);
-        gerritEventManager = new JenkinsAwareGerritHandler(pluginConfig.getNumberOfReceivingWorkerThreads());
+        JenkinsAwareGerritHandler handler =
+                new JenkinsAwareGerritHandler(pluginConfig.getNumberOfReceivingWorkerThreads());
+        handler.addScanListener(SupersededBuildsCanceller.getInstance());
+        gerritEventManager = handler;
         for (GerritServer s : servers) {
             s.start();
         }
@@ -684,6 +689,21 @@ public class PluginImpl extends GlobalConfiguration {
         }
         GerritSendCommandQueue.shutdown();
         servers.clear();
+        closeReplicationCache();
+    }
+
+    /**
+     * Closes the replication cache of the dispatcher, so the events not yet written to its persistent store are.
+     */
+    private static void closeReplicationCache() {
+        if (Jenkins.getInstanceOrNull() == null) {
+            return;
+        }
+        ReplicationQueueTaskDispatcher dispatcher =
+                ExtensionList.lookup(QueueTaskDispatcher.class).get(ReplicationQueueTaskDispatcher.class);
+        if (dispatcher != null) {
+            dispatcher.getReplicationCache().close();
+        }
     }
 
     /**
@@ -0,0 +1,203 @@
+/*
+ *  The MIT License
+ *
+ *  Copyright 2026 Sony Mobile Communications Inc. All rights reserved.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.sonyericsson.hudson.plugins.gerrit.trigger;
+
+import com.sonyericsson.hudson.plugins.gerrit.trigger.config.IGerritHudsonTriggerConfig;
+import com.sonymobile.tools.gerrit.gerritevents.ssh.SshConnection;
+import com.sonymobile.tools.gerrit.gerritevents.ssh.SshConnectionFactory;
+import com.sonymobile.tools.gerrit.gerritevents.ssh.SshException;
+
+import java.io.IOException;
+import java.io.Reader;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An SSH connection to a Gerrit server that is kept open and reused by the commands
+ * that are run outside of the stream of events, so that they don't connect and authenticate every time.
+ *
+ * The connection is opened when first needed and opened again if it has been lost.
+ * Commands are run one at a time.
+ */
+public class SshCommandSession {
+
+    private static final Logger logger = LoggerFactory.getLogger(SshCommandSession.class);
+
+    private final String serverName;
+    private final ConnectionFactory factory;
+    private SshConnection connection;
+
+    /**
+     * Standard constructor.
+     *
+     * @param serverName the name of the server.
+     */
+    public SshCommandSession(String serverName) {
+        this(serverName, config -> SshConnectionFactory.getConnection(
+                config.getGerritHostName(),
+                config.getGerritSshPort(),
+                config.getGerritProxy(),
+                config.getGerritAuthentication()));
+    }
+
+    /**
+     * Constructor for tests.
+     *
+     * @param serverName the name of the server.
+     * @param factory    opens the connections.
+     */
+    SshCommandSession(String serverName, ConnectionFactory factory) {
+        this.serverName = serverName;
+        this.factory = factory;
+    }
+
+    /**
+     * Runs a command and reads its output.
+     * If the command can't be started on the connection that was kept, it is retried once on a new connection.
+     *
+     * @param config  the config of the server to connect to.
+     * @param command the command.
+     * @param output  reads the output of the command.
+     * @param <T>     the type of what is read.
+     * @return what was read.
+     * @throws SshException if the command couldn't be run.
+     * @throws IOException  if the output couldn't be read.
+     */
+    public synchronized <T> T execute(IGerritHudsonTriggerConfig config, String command, OutputReader<T> output)
+            throws SshException, IOException {
+        boolean reused = connection != null && connection.isConnected();
+        Reader reader;
+        try {
+            reader = open(config, command);
+        } catch (SshException e) {
+            if (!reused) {
+                throw e;
+            }
+            logger.debug("Kept SSH connection to {} is lost, connecting again", serverName, e);
+            reader = open(config, command);
+        } catch (IOException e) {
+            if (!reused) {
+                throw e;
+            }
+            logger.debug("Kept SSH connection to {} is lost, connecting again", serverName, e);
+            reader = open(config, command);
+        }
+        boolean done = false;
+        try (Reader r = reader) {
+            T read = output.read(r);
+            done = true;
+            return read;
+        } finally {
+            if (!done) {
+                close();
+            }
+        }
+    }
+
+    /**
+     * Starts a command on the connection that is kept, which is closed if it fails.
+     *
+     * @param config  the config of the server to connect to.
+     * @param command the command.
+     * @return the output of the command.
+     * @throws SshException if the command couldn't be run.
+     * @throws IOException  if the connection couldn't be opened.
+     */
+    private Reader open(IGerritHudsonTriggerConfig config, String command) throws SshException, IOException {
+        boolean started = false;
+        try {
+            Reader reader = connect(config).executeCommandReader(command);
+            started = true;
+            return reader;
+        } finally {
+            if (!started) {
+                close();
+            }
+        }
+    }
+
+    /**
+     * The connection that is kept, opened if needed.
+     *
+     * @param config the config of the server to connect to.
+     * @return the connection.
+     * @throws IOException if the connection couldn't be opened.
+     */
+    private SshConnection connect(IGerritHudsonTriggerConfig config) throws IOException {
+        if (connection == null || !connection.isConnected()) {
+            close();
+            logger.debug("Opening SSH connection to {} for commands", serverName);
+            connection = factory.open(config);
+        }
+        return connection;
+    }
+
+    /**
+     * Closes the connection that is kept, if any.
+     * The next command opens a new one.
+     */
+    public synchronized void close() {
+        if (connection != null) {
+            try {
+                connection.disconnect();
+            } catch (Exception e) {
+                logger.debug("Error closing SSH connection to {}", serverName, e);
+            }
+            connection = null;
+        }
+    }
+
+    /**
+     * Reads the output of a command.
+     *
+     * @param <T> the type of what is read.
+     */
+    @FunctionalInterface
+    public interface OutputReader<T> {
+        /**
+         * Reads the output.
+         *
+         * @param reader the output, closed when done.
+         * @return what was read.
+         * @throws IOException if so.
+         */
+        T read(Reader reader) throws IOException;
+    }
+
+    /**
+     * Opens connections.
+     */
+    @FunctionalInterface
+    interface ConnectionFactory {
+        /**
+         * Opens a connection.
+         *
+         * @param config the config of the server to connect to.
+         * @return the connection.
+         * @throws IOException if so.
+         */
+        SshConnection open(IGerritHudsonTriggerConfig config) throws IOException;
+    }
+}
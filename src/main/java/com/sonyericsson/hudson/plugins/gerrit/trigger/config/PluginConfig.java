@@ -40,6 +40,7 @@ import com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventType;
 import com.sonymobile.tools.gerrit.gerritevents.workers.GerritWorkersConfig;
 import com.sonyericsson.hudson.plugins.gerrit.trigger.PluginImpl;
 import com.sonyericsson.hudson.plugins.gerrit.trigger.replication.ReplicationCache;
+import com.sonyericsson.hudson.plugins.gerrit.trigger.replication.ReplicationCacheStore;
 
 /**
  * Configuration bean for the global plugin configuration.
@@ -69,6 +70,9 @@ public class PluginConfig implements GerritWorkersConfig {
     private int numberOfReceivingWorkerThreads;
     private int numberOfSendingWorkerThreads;
     private int replicationCacheExpirationInMinutes;
+    private boolean replicationCachePersistent;
+    private int replicationCacheMaxPersistedEntries;
+    private long replicationCacheMaximumSize;
     private List<String> filterIn;
 
     /**
@@ -97,6 +101,9 @@ public class PluginConfig implements GerritWorkersConfig {
         numberOfReceivingWorkerThreads = pluginConfig.getNumberOfReceivingWorkerThreads();
         numberOfSendingWorkerThreads = pluginConfig.getNumberOfSendingWorkerThreads();
         replicationCacheExpirationInMinutes = pluginConfig.getReplicationCacheExpirationInMinutes();
+        replicationCachePersistent = pluginConfig.isReplicationCachePersistent();
+        replicationCacheMaxPersistedEntries = pluginConfig.getReplicationCacheMaxPersistedEntries();
+        replicationCacheMaximumSize = pluginConfig.getReplicationCacheMaximumSize();
         filterIn = pluginConfig.getFilterIn();
     }
 
@@ -136,6 +143,18 @@ public class PluginConfig implements GerritWorkersConfig {
             replicationCacheExpirationInMinutes = ReplicationCache.DEFAULT_EXPIRATION_IN_MINUTES;
         }
 
+        replicationCachePersistent = formData.optBoolean("replicationCachePersistent", false);
+        replicationCacheMaxPersistedEntries = formData.optInt("replicationCacheMaxPersistedEntries",
+            ReplicationCacheStore.DEFAULT_MAX_ENTRIES);
+        if (replicationCacheMaxPersistedEntries <= 0) {
+            replicationCacheMaxPersistedEntries = ReplicationCacheStore.DEFAULT_MAX_ENTRIES;
+        }
+        replicationCacheMaximumSize = formData.optLong("replicationCacheMaximumSize",
+            ReplicationCache.DEFAULT_MAXIMUM_SIZE);
+        if (replicationCacheMaximumSize <= 0) {
+            replicationCacheMaximumSize = ReplicationCache.DEFAULT_MAXIMUM_SIZE;
+        }
+
         setInterestingEvents(getFilterInFromFormData(formData));
         updateEventFilter();
     }
@@ -205,6 +224,60 @@ public class PluginConfig implements GerritWorkersConfig {
         this.replicationCacheExpirationInMinutes = replicationCacheExpirationInMinutes;
     }
 
+    /**
+     * If the replication cache should be persisted to disk and restored when Jenkins is restarted.
+     * @return true if persistent
+     */
+    public boolean isReplicationCachePersistent() {
+        return replicationCachePersistent;
+    }
+
+    /**
+     * If the replication cache should be persisted to disk and restored when Jenkins is restarted.
+     * @param replicationCachePersistent true if persistent
+     */
+    public void setReplicationCachePersistent(boolean replicationCachePersistent) {
+        this.replicationCachePersistent = replicationCachePersistent;
+    }
+
+    /**
+     * The max number of replication events to keep in the persisted replication cache.
+     * @return the max number of entries
+     */
+    public int getReplicationCacheMaxPersistedEntries() {
+        if (replicationCacheMaxPersistedEntries <= 0) {
+            replicationCacheMaxPersistedEntries = ReplicationCacheStore.DEFAULT_MAX_ENTRIES;
+        }
+        return replicationCacheMaxPersistedEntries;
+    }
+
+    /**
+     * The max number of replication events to keep in the persisted replication cache.
+     * @param replicationCacheMaxPersistedEntries the max number of entries
+     */
+    public void setReplicationCacheMaxPersistedEntries(int replicationCacheMaxPersistedEntries) {
+        this.replicationCacheMaxPersistedEntries = replicationCacheMaxPersistedEntries;
+    }
+
+    /**
+     * The max number of replication events to keep in the replication cache.
+     * @return the max number of events
+     */
+    public long getReplicationCacheMaximumSize() {
+        if (replicationCacheMaximumSize <= 0) {
+            replicationCacheMaximumSize = ReplicationCache.DEFAULT_MAXIMUM_SIZE;
+        }
+        return replicationCacheMaximumSize;
+    }
+
+    /**
+     * The max number of replication events to keep in the replication cache.
+     * @param replicationCacheMaximumSize the max number of events
+     */
+    public void setReplicationCacheMaximumSize(long replicationCacheMaximumSize) {
+        this.replicationCacheMaximumSize = replicationCacheMaximumSize;
+    }
+
     /**
      * Get the number of events that are supported.
      *
@@ -0,0 +1,320 @@
+/*
+ *  The MIT License
+ *
+ *  Copyright 2026 Sony Mobile Communications Inc. All rights reserved.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.sonyericsson.hudson.plugins.gerrit.trigger.dependency;
+
+import hudson.Extension;
+import hudson.model.Item;
+import hudson.model.Job;
+import hudson.model.listeners.ItemListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.StringTokenizer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.sonyericsson.hudson.plugins.gerrit.trigger.hudsontrigger.GerritTrigger;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+/**
+ * The graph of dependencies between the jobs with a Gerrit trigger.
+ *
+ * The comma separated job names of a trigger's dependency configuration are parsed and resolved
+ * once per configuration, instead of each time a queued build is checked. A job's edges are replaced
+ * as soon as its configured names are seen to have changed. Since what the names resolve to changes
+ * when jobs come and go, everything is resolved again after any item is renamed or deleted, or all are loaded.
+ * When a job is updated only its own edges are resolved again, and when an item is created
+ * only the edges of the jobs with names that didn't resolve to a job.
+ *
+ * The graph should not have any cycles, which is validated when a trigger is configured.
+ * The depth of a job in the graph is the length of the longest chain of dependencies below it,
+ * so building the jobs in the order of their depth builds every job after all its dependencies.
+ */
+public final class DependencyGraph {
+
+    private static final DependencyGraph INSTANCE = new DependencyGraph();
+
+    private final ConcurrentMap<Job, Resolved> resolved = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Job, Integer> depths = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor use by {@link #getInstance()} and for unit tests.
+     */
+    /*package*/ DependencyGraph() {
+    }
+
+    /**
+     * The graph of all jobs.
+     *
+     * @return the instance.
+     */
+    @NonNull
+    public static DependencyGraph getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * The dependency jobs of a job.
+     *
+     * @param job   the job.
+     * @param names the comma separated dependency job names configured in the job's trigger.
+     * @return the dependencies, or null if there are no configured names.
+     * @see DependencyQueueTaskDispatcher#getProjectsFromString(String, Item)
+     */
+    @CheckForNull
+    public List<Job> getDependencies(@NonNull Job job, @CheckForNull String names) {
+        if (names == null || names.isEmpty()) {
+            if (resolved.remove(job) != null) {
+                depths.clear();
+            }
+            return null;
+        }
+        Resolved current = resolved.get(job);
+        if (current == null || !current.names.equals(names)) {
+            List<Job> dependencies = DependencyQueueTaskDispatcher.getProjectsFromString(names, job);
+            current = new Resolved(names, Collections.unmodifiableList(dependencies),
+                    dependencies.size() == countNames(names));
+            resolved.put(job, current);
+            depths.clear();
+        }
+        return current.dependencies;
+    }
+
+    /**
+     * The number of job names in a comma separated dependency configuration.
+     *
+     * @param names the comma separated job names.
+     * @return the number of names.
+     * @see DependencyQueueTaskDispatcher#getProjectsFromString(String, Item)
+     */
+    private static int countNames(String names) {
+        int count = 0;
+        StringTokenizer tokens = new StringTokenizer(names, ",");
+        while (tokens.hasMoreTokens()) {
+            if (!tokens.nextToken().trim().isEmpty()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * The dependency jobs of a job as currently configured in its trigger.
+     *
+     * @param job the job.
+     * @return the dependencies, empty if there are none.
+     */
+    @NonNull
+    private List<Job> getConfiguredDependencies(@NonNull Job job) {
+        GerritTrigger trigger = GerritTrigger.getTrigger(job);
+        if (trigger == null) {
+            return Collections.emptyList();
+        }
+        List<Job> dependencies = getDependencies(job, trigger.getDependencyJobsNames());
+        if (dependencies == null) {
+            return Collections.emptyList();
+        }
+        return dependencies;
+    }
+
+    /**
+     * The depth of a job in the graph.
+     *
+     * @param job the job.
+     * @return 0 if the job has no dependencies, otherwise one more than the depth of its deepest dependency.
+     */
+    public int getDepth(@NonNull Job job) {
+        return getDepth(job, new HashSet<>());
+    }
+
+    /**
+     * The depth of a job in the graph, ignoring dependencies back to a job that is being visited.
+     *
+     * @param job      the job.
+     * @param visiting the jobs that depend on this job through the current chain of dependencies.
+     * @return the depth.
+     */
+    private int getDepth(Job job, Set<Job> visiting) {
+        Integer depth = depths.get(job);
+        if (depth != null) {
+            return depth;
+        }
+        visiting.add(job);
+        int max = -1;
+        boolean cycle = false;
+        for (Job dependency : getConfiguredDependencies(job)) {
+            if (visiting.contains(dependency)) {
+                cycle = true;
+            } else {
+                max = Math.max(max, getDepth(dependency, visiting));
+            }
+        }
+        visiting.remove(job);
+        depth = max + 1;
+        if (!cycle) {
+            depths.put(job, depth);
+        }
+        return depth;
+    }
+
+    /**
+     * Finds the cycle that would be created by letting a job depend on the given jobs.
+     *
+     * @param job          the job.
+     * @param dependencies the would be dependencies of the job.
+     * @return the chain of dependencies from one of the given dependencies back to a job that depends on the job,
+     *         or null if there would be no cycle. If the job would depend on itself the chain is just the job.
+     */
+    @CheckForNull
+    public List<Job> findCycle(@NonNull Job job, @NonNull List<Job> dependencies) {
+        Set<Job> explored = new HashSet<>();
+        for (Job dependency : dependencies) {
+            if (isSame(dependency, job)) {
+                return Collections.singletonList(dependency);
+            }
+            //Breadth first, remembering how each job was reached to be able to tell the chain.
+            java.util.Queue<List<Job>> toExplore = new LinkedList<>();
+            toExplore.add(Collections.singletonList(dependency));
+            while (!toExplore.isEmpty()) {
+                List<Job> chain = toExplore.remove();
+                Job current = chain.get(chain.size() - 1);
+                if (!explored.add(current)) {
+                    continue;
+                }
+                for (Job next : getConfiguredDependencies(current)) {
+                    if (isSame(next, job)) {
+                        return chain;
+                    }
+                    if (!explored.contains(next)) {
+                        List<Job> longer = new ArrayList<>(chain);
+                        longer.add(next);
+                        toExplore.add(longer);
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * If the two jobs are the same job.
+     *
+     * @param a a job
+     * @param b another job
+     * @return true if so.
+     */
+    private static boolean isSame(Job a, Job b) {
+        return a == b || (a.getFullName() != null && a.getFullName().equals(b.getFullName()));
+    }
+
+    /**
+     * Forgets all resolved dependencies.
+     */
+    public void invalidate() {
+        resolved.clear();
+        depths.clear();
+    }
+
+    /**
+     * Forgets the resolved dependencies of a job, so they are resolved again from its current configuration.
+     *
+     * @param job the job.
+     */
+    public void invalidate(@NonNull Job job) {
+        resolved.remove(job);
+        depths.clear();
+    }
+
+    /**
+     * Forgets the resolved dependencies of the jobs with configured names that didn't resolve to a job,
+     * since they may resolve to a job that has been created since.
+     */
+    public void invalidateUnresolved() {
+        if (resolved.values().removeIf(r -> !r.complete)) {
+            depths.clear();
+        }
+    }
+
+    /**
+     * The dependency names of a job and what they resolved to.
+     */
+    private static final class Resolved {
+        private final String names;
+        private final List<Job> dependencies;
+        private final boolean complete;
+
+        /**
+         * Standard constructor.
+         *
+         * @param names        the configured names.
+         * @param dependencies the resolved jobs.
+         * @param complete     if every name resolved to a job.
+         */
+        Resolved(String names, List<Job> dependencies, boolean complete) {
+            this.names = names;
+            this.dependencies = dependencies;
+            this.complete = complete;
+        }
+    }
+
+    /**
+     * Invalidates the {@link DependencyGraph}, or the parts of it that may have changed, when items change.
+     */
+    @Extension
+    public static final class InvalidatingItemListener extends ItemListener {
+
+        @Override
+        public void onCreated(Item item) {
+            getInstance().invalidateUnresolved();
+        }
+
+        @Override
+        public void onDeleted(Item item) {
+            getInstance().invalidate();
+        }
+
+        @Override
+        public void onUpdated(Item item) {
+            if (item instanceof Job) {
+                getInstance().invalidate((Job)item);
+            }
+        }
+
+        @Override
+        public void onLocationChanged(Item item, String oldFullName, String newFullName) {
+            getInstance().invalidate();
+        }
+
+        @Override
+        public void onLoaded() {
+            getInstance().invalidate();
+        }
+    }
+}
@@ -30,32 +30,37 @@ import hudson.model.Item;
 import hudson.model.Job;
 import hudson.model.Queue;
 import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.model.listeners.RunListener;
+import hudson.model.queue.QueueListener;
 import hudson.model.queue.QueueTaskDispatcher;
 import hudson.model.queue.CauseOfBlockage;
 import jenkins.model.Jenkins;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.Collections;
 import java.util.StringTokenizer;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.sonymobile.tools.gerrit.gerritevents.GerritDefaultValues;
-import com.sonymobile.tools.gerrit.gerritevents.GerritEventListener;
 import com.sonymobile.tools.gerrit.gerritevents.dto.events.GerritTriggeredEvent;
 import com.sonymobile.tools.gerrit.gerritevents.dto.GerritEvent;
 import com.sonymobile.tools.gerrit.gerritevents.GerritHandler;
 import com.sonyericsson.hudson.plugins.gerrit.trigger.events.lifecycle.GerritEventLifecycleListener;
-import com.sonyericsson.hudson.plugins.gerrit.trigger.events.lifecycle.GerritEventLifecycle;
 import com.sonyericsson.hudson.plugins.gerrit.trigger.hudsontrigger.GerritCause;
 import com.sonyericsson.hudson.plugins.gerrit.trigger.hudsontrigger.GerritTrigger;
 import com.sonyericsson.hudson.plugins.gerrit.trigger.gerritnotifier.ToGerritRunListener;
+import com.sonyericsson.hudson.plugins.gerrit.trigger.JenkinsAwareGerritHandler;
 import com.sonyericsson.hudson.plugins.gerrit.trigger.PluginImpl;
+import com.sonyericsson.hudson.plugins.gerrit.trigger.utils.QueueMaintenanceScheduler;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
 
 /**
  * Blocks builds from running until the projects on which they depend have finished building.
@@ -67,10 +72,15 @@ import com.sonyericsson.hudson.plugins.gerrit.trigger.PluginImpl;
  */
 @Extension
 public final class DependencyQueueTaskDispatcher extends QueueTaskDispatcher
-    implements GerritEventLifecycleListener, GerritEventListener {
+    implements GerritEventLifecycleListener {
 
     private static final Logger logger = LoggerFactory.getLogger(DependencyQueueTaskDispatcher.class);
     private Set<GerritTriggeredEvent> currentlyTriggeringEvents;
+    private final Set<GerritTriggeredEvent> waitingForTriggering = ConcurrentHashMap.newKeySet();
+    private final DependencyGraph dependencyGraph = DependencyGraph.getInstance();
+    private final Map<Long, BlockedItem> blockedItems = new ConcurrentHashMap<>();
+    private final AtomicLong releases = new AtomicLong();
+    private final QueueMaintenanceScheduler maintenanceScheduler;
 
     /**
      * Default constructor.
@@ -80,19 +90,31 @@ public final class DependencyQueueTaskDispatcher extends QueueTaskDispatcher
     }
 
     /**
-     * Constructor use by default constructor and for unit tests.
+     * Constructor use by default constructor.
      *
      * @param gerritHandler the handler
      */
     DependencyQueueTaskDispatcher(GerritHandler gerritHandler) {
+        this(gerritHandler, QueueMaintenanceScheduler.getInstance());
+    }
+
+    /**
+     * Constructor use by unit tests.
+     *
+     * @param gerritHandler the handler
+     * @param maintenanceScheduler the scheduler of queue maintenances when items are released
+     */
+    DependencyQueueTaskDispatcher(GerritHandler gerritHandler,
+                                  @NonNull QueueMaintenanceScheduler maintenanceScheduler) {
         this.currentlyTriggeringEvents = Collections.newSetFromMap(
                 new ConcurrentHashMap<>());
-        if (gerritHandler == null) {
-            logger.error("Gerrit Handler was not available to construct DependencyQueueTaskDispatcher");
+        this.maintenanceScheduler = maintenanceScheduler;
+        if (gerritHandler instanceof JenkinsAwareGerritHandler) {
+            ((JenkinsAwareGerritHandler)gerritHandler).addScanListener(this);
+            logger.debug("Registered to trigger scans");
         } else {
-            gerritHandler.addListener(this);
+            logger.error("Gerrit Handler was not available to construct DependencyQueueTaskDispatcher");
         }
-        logger.debug("Registered to gerrit events");
     }
 
     /**
@@ -115,6 +137,16 @@ public final class DependencyQueueTaskDispatcher extends QueueTaskDispatcher
         return dispatchers.get(0);
     }
 
+    /**
+     * The resolved dependencies of the jobs.
+     *
+     * @return the graph.
+     */
+    @NonNull
+    public DependencyGraph getDependencyGraph() {
+        return dependencyGraph;
+    }
+
     @Override
     public CauseOfBlockage canRun(Queue.Item item) {
         //Job check
@@ -150,41 +182,46 @@ public final class DependencyQueueTaskDispatcher extends QueueTaskDispatcher
             return null;
         }
         //Dependency projects in the build queue
-        List<Job> dependencies = getProjectsFromString(trigger.getDependencyJobsNames(), p);
+        List<Job> dependencies = dependencyGraph.getDependencies(p, trigger.getDependencyJobsNames());
         if (dependencies == null || dependencies.isEmpty()) {
             logger.debug("No dependencies on project: {} for event {}", p, event);
             return null;
         }
         //logger.debug("We have dependencies on project {} : {}", p, trigger.getDependencyJobsNames());
 
-        // We ensure that we wait until other jobs have been put into queue.
-        // We use the default Gerrit Build Schedule Delay value
-        long inQueueSince = item.getInQueueSince();
-        if (System.currentTimeMillis() - inQueueSince < TimeUnit.SECONDS
-                .toMillis(GerritDefaultValues.DEFAULT_BUILD_SCHEDULE_DELAY)) {
-            logger.debug("We need to wait to ensure dependent jobs {} are in queue for {}", event, p);
-            return new BecauseWaitingToEnsureOtherJobsAreInQueue();
-        }
-
-        /* we really should first check for other projects which will be triggered
-         * for the same event, and haven't yet. Unfortunately, this requires some kind
-         * of event notification - GerritEventLifecycle like - which is not available
-         * at this time. Fortunately, triggering is near instant, and projects are kept
-         * long enough in the queue  for us to not worry too much about this at this time.
-         * We can do this check for the retrigger.all action however, which does not have a quiet
-         * time, because specific code exists for it in GerritTrigger, fortunately.
+        /* Until all the jobs have seen the event we can't tell which of the dependencies
+         * will be triggered by it. The handler tells us when it starts and is done
+         * notifying its listeners of each event, and the retrigger.all action does
+         * the same for its event.
          */
         if (currentlyTriggeringEvents.contains(event)) {
-            logger.debug("We need to wait while {} is being triggered for {}", event, p);
-            return new BecauseWaitingForOtherProjectsToTrigger();
+            waitingForTriggering.add(event);
+            //Recheck in case the triggering was done before we started waiting for it.
+            if (currentlyTriggeringEvents.contains(event)) {
+                logger.debug("We need to wait while {} is being triggered for {}", event, p);
+                return new BecauseWaitingForOtherProjectsToTrigger();
+            }
         }
 
-
-        CauseOfBlockage causeOfBlockage = getCauseOfBlockage(dependencies, event);
+        //Once blocked by a dependency, the item stays blocked until a build of the event ends,
+        //so the build memory doesn't need to be asked again on every queue maintenance.
+        BlockedItem blockedItem = blockedItems.computeIfAbsent(item.getId(), id -> new BlockedItem(event));
+        CauseOfBlockage causeOfBlockage = blockedItem.causeOfBlockage;
+        if (causeOfBlockage != null) {
+            return causeOfBlockage;
+        }
+        long releasesBefore = releases.get();
+        causeOfBlockage = getCauseOfBlockage(dependencies, event, blockedItem);
 
         if (causeOfBlockage != null) {
+            blockedItem.causeOfBlockage = causeOfBlockage;
+            if (releases.get() != releasesBefore) {
+                //A build ended while we were checking, so check again next time.
+                blockedItem.causeOfBlockage = null;
+            }
             return causeOfBlockage;
         } else {
+            blockedItems.remove(item.getId());
             ToGerritRunListener toGerritRunListener = ToGerritRunListener.getInstance();
 
             if (toGerritRunListener != null) {
@@ -229,9 +266,11 @@ public final class DependencyQueueTaskDispatcher extends QueueTaskDispatcher
      * Gets the cause of blockage if one of dependant project was not triggered or was not finished yet.
      * @param dependencies The list of projects which need to be checked
      * @param event The event should have also caused the blocking builds.
+     * @param blockedItem The item being checked, remembering which dependencies are interested in the event.
      * @return the cause of blockage.
      */
-    private CauseOfBlockage getCauseOfBlockage(List<Job> dependencies, GerritTriggeredEvent event) {
+    private CauseOfBlockage getCauseOfBlockage(List<Job> dependencies, GerritTriggeredEvent event,
+                                               BlockedItem blockedItem) {
         ToGerritRunListener toGerritRunListener = ToGerritRunListener.getInstance();
         if (toGerritRunListener != null) {
             for (Job dependency : dependencies) {
@@ -240,8 +279,11 @@ public final class DependencyQueueTaskDispatcher extends QueueTaskDispatcher
                         return new BecauseDependentBuildIsBuilding(dependency);
                     }
                 } else {
-                    GerritTrigger gerritTrigger = GerritTrigger.getTrigger(dependency);
-                    if (gerritTrigger != null && gerritTrigger.isInteresting(event)) {
+                    boolean interesting = blockedItem.interesting.computeIfAbsent(dependency, d -> {
+                        GerritTrigger gerritTrigger = GerritTrigger.getTrigger(d);
+                        return gerritTrigger != null && gerritTrigger.isInteresting(event);
+                    });
+                    if (interesting) {
                         return new BecauseWaitingForOtherProjectsToTrigger();
                     }
                 }
@@ -309,62 +351,67 @@ public final class DependencyQueueTaskDispatcher extends QueueTaskDispatcher
     public void onDoneTriggeringAll(GerritTriggeredEvent event) {
         currentlyTriggeringEvents.remove(event);
         logger.debug("Done triggering all projects for {}", event);
+        if (waitingForTriggering.remove(event)) {
+            maintenanceScheduler.requestMaintenance();
+        }
     }
 
-    /*
-     * GerritEventListener interface
-     */
-
     /**
-     * Process lifecycle events. We register to these events
-     * so we can get notified of the beginning of the scanning and end of
-     * scanning.
-     * @param event the event to which we subscribe.
+     * Signals that a build of a project for this event has ended, or was cancelled before it started.
+     * Items blocked by the dependencies of the event are checked again on the next queue maintenance,
+     * which is requested if there are any.
+     * @param event the event of the build
+     * @param project the project of the build
      */
-    @Override
-    public void gerritEvent(GerritEvent event) {
-        //we are only interested in the ManualPatchsetCreated events for now
-        //as they are the only ones which have event scanning information.
-        if (event instanceof GerritEventLifecycle) {
-            logger.debug("registering to lifecycle");
-            // Registering to get the ScanDone event.
-            ((GerritEventLifecycle)event).addListener(this);
-            // while this is most likely a ManualPatchSetCreated, which is
-            // a GerritTriggeredEvent, we don't have a guarantee that this
-            // will necessarily be the case in the future.
-            if (event instanceof GerritTriggeredEvent) {
-                //We only can setup this "barrier" if we are certain to be able to
-                //lift it, which only happens for Lifecycle events for which we
-                //will get the ScanDone.
-                onTriggeringAll((GerritTriggeredEvent)event);
+    public void onBuildEnded(GerritTriggeredEvent event, Job project) {
+        releases.incrementAndGet();
+        boolean released = false;
+        for (BlockedItem blockedItem : blockedItems.values()) {
+            if (blockedItem.causeOfBlockage != null && blockedItem.event.equals(event)) {
+                blockedItem.causeOfBlockage = null;
+                released = true;
             }
         }
+        if (released) {
+            logger.debug("Build of {} ended for {}, releasing blocked items", project, event);
+            maintenanceScheduler.requestMaintenance();
+        }
     }
 
-
+    /**
+     * Signals that an item has left the queue, so there is no need to remember it any more.
+     * @param itemId the id of the item
+     */
+    public void onLeft(long itemId) {
+        blockedItems.remove(itemId);
+    }
 
     /*
      * GerritEventLifecycleListener interface
      */
 
+    /**
+     * Called by the {@link JenkinsAwareGerritHandler} before any listener is notified of an event.
+     * No builds with dependencies for the event are allowed to start until the scan is done.
+     * @param event the event.
+     */
     @Override
     public void triggerScanStarting(GerritEvent event) {
-        // While it would make sense to call the onTriggeringAll, this event (ScanStarting)
-        // is fired before the event even makes it to the gerritEvent above, meaning
-        // nothing here will execute because we aren't registered yet.
+        if (event instanceof GerritTriggeredEvent) {
+            onTriggeringAll((GerritTriggeredEvent)event);
+        }
     }
 
+    /**
+     * Called by the {@link JenkinsAwareGerritHandler} when all listeners have been notified of an event,
+     * so all the jobs that are triggered by the event have been.
+     * @param event the event.
+     */
     @Override
     public void triggerScanDone(GerritEvent event) {
-        // while this is most likely a ManualPatchSetCreated, which is
-        // a GerritTriggeredEvent, we don't have a guarantee that this
-        // will necessarily be the case in the future.
-        logger.debug("trigger scan done");
         if (event instanceof GerritTriggeredEvent) {
             onDoneTriggeringAll((GerritTriggeredEvent)event);
         }
-        // But, we do know this is a Lifecycle because this method is for lifecyle events
-        ((GerritEventLifecycle)event).removeListener(this);
     }
 
     @Override
@@ -382,4 +429,70 @@ public final class DependencyQueueTaskDispatcher extends QueueTaskDispatcher
     @Override
     public void allBuildsCompleted(GerritEvent event) {
     }
+
+    /**
+     * An item blocked by its dependencies.
+     */
+    private static final class BlockedItem {
+        private final GerritTriggeredEvent event;
+        private final Map<Job, Boolean> interesting = new ConcurrentHashMap<>();
+        private volatile CauseOfBlockage causeOfBlockage;
+
+        /**
+         * Standard constructor.
+         * @param event the event that caused the item
+         */
+        BlockedItem(GerritTriggeredEvent event) {
+            this.event = event;
+        }
+    }
+
+    /**
+     * Releases the items waiting for a build when it completes.
+     */
+    @Extension(ordinal = BuildEndedRunListener.ORDINAL)
+    public static final class BuildEndedRunListener extends RunListener<Run> {
+
+        /**
+         * The ordering of this extension.
+         * Listeners with a higher ordinal are notified first, and this one must be notified after
+         * {@link ToGerritRunListener} has recorded the build as completed in the build memory.
+         * Otherwise a blocked item could check the memory after the release but before the build is recorded,
+         * and keep the cached cause of its blockage although nothing is left to release it.
+         */
+        public static final int ORDINAL = ToGerritRunListener.ORDINAL - 1;
+
+        @Override
+        public void onCompleted(Run r, @NonNull TaskListener listener) {
+            GerritCause cause = (GerritCause)r.getCause(GerritCause.class);
+            if (cause != null && cause.getEvent() != null) {
+                DependencyQueueTaskDispatcher dispatcher = getInstance();
+                if (dispatcher != null) {
+                    dispatcher.onBuildEnded(cause.getEvent(), r.getParent());
+                }
+            }
+        }
+    }
+
+    /**
+     * Forgets items that leave the queue, and releases the items waiting for a cancelled one.
+     */
+    @Extension
+    public static final class LeftQueueListener extends QueueListener {
+
+        @Override
+        public void onLeft(Queue.LeftItem li) {
+            DependencyQueueTaskDispatcher dispatcher = getInstance();
+            if (dispatcher == null) {
+                return;
+            }
+            dispatcher.onLeft(li.getId());
+            if (li.isCancelled() && li.task instanceof Job) {
+                GerritCause cause = dispatcher.getGerritCause(li);
+                if (cause != null && cause.getEvent() != null) {
+                    dispatcher.onBuildEnded(cause.getEvent(), (Job)li.task);
+                }
+            }
+        }
+    }
 }
@@ -86,6 +86,11 @@ public class Diagnostics implements ModelObjectWithChildren, ModelObjectWithCont
                          .withUrl(url)
                          .withIconClass("symbol-clipboard-outline plugin-ionicons-api")
                          .withDisplayName(Messages.EventListenersReport_DisplayName()));
+        url = makeRelativeUrl(context, "statistics");
+        menu.add(new MenuItem()
+                         .withUrl(url)
+                         .withIconClass("symbol-clipboard-outline plugin-ionicons-api")
+                         .withDisplayName(Messages.StatisticsReport_DisplayName()));
         if (isDebugMode()) {
             MenuItem item = new MenuItem()
                                     .withUrl("triggerDebugEvent")
@@ -157,6 +162,18 @@ public class Diagnostics implements ModelObjectWithChildren, ModelObjectWithCont
         return EventListenersReport.report();
     }
 
+    /**
+     * A report of counters from the internal machinery of the plugin.
+     *
+     * Intended to be accessed via Stapler URL mapping.
+     *
+     * @return the statistics report.
+     */
+    @NonNull
+    public StatisticsReport getStatistics() {
+        return StatisticsReport.report();
+    }
+
     @Override
     public ContextMenu doContextMenu(StaplerRequest2 request, StaplerResponse2 response) throws Exception {
         return getContextMenu(null);
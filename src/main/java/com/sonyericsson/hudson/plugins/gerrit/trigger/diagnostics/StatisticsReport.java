@@ -0,0 +1,160 @@
+/*
+ *  The MIT License
+ *
+ *  Copyright 2026 Sony Mobile Communications Inc. All rights reserved.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.sonyericsson.hudson.plugins.gerrit.trigger.diagnostics;
+
+import com.sonyericsson.hudson.plugins.gerrit.trigger.Messages;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.sonyericsson.hudson.plugins.gerrit.trigger.replication.ReplicationCache;
+import com.sonyericsson.hudson.plugins.gerrit.trigger.replication.ReplicationQueueTaskDispatcher;
+import com.sonyericsson.hudson.plugins.gerrit.trigger.utils.QueueMaintenanceScheduler;
+import com.sonyericsson.hudson.plugins.gerrit.trigger.utils.TaskScheduler;
+import hudson.ExtensionList;
+import hudson.model.ModelObject;
+import hudson.model.queue.QueueTaskDispatcher;
+import jenkins.model.Jenkins;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A {@link Diagnostics} page showing counters from some of the internal machinery of the plugin.
+ *
+ * @see Diagnostics
+ */
+public class StatisticsReport implements ModelObject {
+
+    private final Map<String, Map<String, Object>> sections = new LinkedHashMap<>();
+
+    /**
+     * The constructor.
+     */
+    /*package*/ StatisticsReport() {
+    }
+
+    /**
+     * The statistics, grouped by section title.
+     *
+     * @return section title to name/value pairs, in insertion order.
+     */
+    @NonNull
+    public Map<String, Map<String, Object>> getSections() {
+        return Collections.unmodifiableMap(sections);
+    }
+
+    /**
+     * Adds a statistic value.
+     *
+     * @param section the title of the section to put the value in.
+     * @param name the name of the value
+     * @param value the value
+     * @return this report for chaining
+     */
+    /*package*/ StatisticsReport put(@NonNull String section, @NonNull String name, Object value) {
+        sections.computeIfAbsent(section, k -> new LinkedHashMap<>()).put(name, value);
+        return this;
+    }
+
+    /**
+     * Produces a report from the current state of the plugin.
+     *
+     * @return the report.
+     */
+    @NonNull
+    public static StatisticsReport report() {
+        StatisticsReport report = new StatisticsReport();
+        QueueMaintenanceScheduler scheduler = QueueMaintenanceScheduler.getInstance();
+        String section = "Queue maintenance";
+        report.put(section, "Coalescing window (ms)", scheduler.getWindowMillis())
+                .put(section, "Requested", scheduler.getRequestCount())
+                .put(section, "Performed", scheduler.getMaintenanceCount())
+                .put(section, "Avoided", scheduler.getAvoidedCount());
+        ReplicationCache cache = findReplicationCache();
+        if (cache != null) {
+            CacheStats stats = cache.getStats();
+            section = "Replication cache";
+            report.put(section, "Size", cache.getEstimatedSize())
+                    .put(section, "Maximum size", cache.getMaximumSize())
+                    .put(section, "Distinct names", cache.getNameCount())
+                    .put(section, "Hits", stats.hitCount())
+                    .put(section, "Misses", stats.missCount())
+                    .put(section, "Hit rate", String.format("%.3f", stats.hitRate()))
+                    .put(section, "Evictions", stats.evictionCount());
+        }
+        TaskScheduler tasks = TaskScheduler.getInstance();
+        section = "Scheduled tasks";
+        report.put(section, "Scheduled", tasks.getScheduledCount())
+                .put(section, "Runs", tasks.getRunCount())
+                .put(section, "Failures", tasks.getFailureCount())
+                .put(section, "Cancelled", tasks.getCancelledCount());
+        // tasks scheduled per item or job share a name, so they are summed up
+        Map<String, List<TaskScheduler.Task>> byName = new TreeMap<>();
+        for (TaskScheduler.Task task : tasks.getActiveTasks()) {
+            byName.computeIfAbsent(task.getName(), k -> new ArrayList<>()).add(task);
+        }
+        for (Map.Entry<String, List<TaskScheduler.Task>> entry : byName.entrySet()) {
+            List<TaskScheduler.Task> named = entry.getValue();
+            if (named.size() == 1) {
+                TaskScheduler.Task task = named.get(0);
+                report.put(section, entry.getKey(),
+                        task.getRuns() + " runs, " + task.getAverageMillis() + " ms on average");
+            } else {
+                long runs = 0;
+                for (TaskScheduler.Task task : named) {
+                    runs += task.getRuns();
+                }
+                report.put(section, entry.getKey(), named.size() + " active, " + runs + " runs");
+            }
+        }
+        return report;
+    }
+
+    /**
+     * Finds the cache of the registered {@link ReplicationQueueTaskDispatcher}.
+     *
+     * @return the cache, or null if there is no dispatcher.
+     */
+    @CheckForNull
+    private static ReplicationCache findReplicationCache() {
+        if (Jenkins.getInstanceOrNull() == null) {
+            return null;
+        }
+        ReplicationQueueTaskDispatcher dispatcher =
+                ExtensionList.lookup(QueueTaskDispatcher.class).get(ReplicationQueueTaskDispatcher.class);
+        if (dispatcher == null) {
+            return null;
+        }
+        return dispatcher.getReplicationCache();
+    }
+
+    @Override
+    public String getDisplayName() {
+        return Messages.StatisticsReport_DisplayName();
+    }
+}
@@ -32,6 +32,7 @@ import hudson.ExtensionPoint;
 import hudson.model.Result;
 
 import com.sonymobile.tools.gerrit.gerritevents.dto.events.GerritTriggeredEvent;
+import com.sonyericsson.hudson.plugins.gerrit.trigger.gerritnotifier.BuildsVerdict;
 import com.sonyericsson.hudson.plugins.gerrit.trigger.gerritnotifier.model.BuildMemory.MemoryImprint;
 
 /**
@@ -103,6 +104,23 @@ public abstract class GerritTriggeredBuildListener implements ExtensionPoint {
          }
      }
 
+     /**
+      * Fire onCompleted.
+      *
+      * @param verdict the verdict of the builds.
+      * @param command the command.
+      */
+     public static void fireOnCompleted(BuildsVerdict verdict, String command) {
+         Result result = verdict.getResult();
+         for (GerritTriggeredBuildListener listener : all()) {
+             try {
+                 listener.onCompleted(result, verdict.getMemoryImprint().getEvent(), command);
+             } catch (Exception ex) {
+                 logger.warn(ex.getMessage());
+             }
+         }
+     }
+
      /**
       * Gets all listeners.
       *
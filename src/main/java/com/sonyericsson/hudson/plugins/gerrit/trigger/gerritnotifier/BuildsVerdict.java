@@ -0,0 +1,376 @@
+/*
+ *  The MIT License
+ *
+ *  Copyright 2026 Sony Mobile Communications Inc. All rights reserved.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.sonyericsson.hudson.plugins.gerrit.trigger.gerritnotifier;
+
+import com.sonyericsson.hudson.plugins.gerrit.trigger.gerritnotifier.model.BuildMemory.MemoryImprint;
+import com.sonyericsson.hudson.plugins.gerrit.trigger.gerritnotifier.model.BuildMemory.MemoryImprint.Entry;
+import com.sonyericsson.hudson.plugins.gerrit.trigger.hudsontrigger.GerritTrigger;
+import com.sonymobile.tools.gerrit.gerritevents.dto.rest.Notify;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.model.Job;
+import hudson.model.Result;
+import hudson.model.Run;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static com.sonyericsson.hudson.plugins.gerrit.trigger.utils.Logic.shouldSkip;
+
+/**
+ * The outcome of all the builds triggered by one event, and the votes and notification level to give for it.
+ *
+ * Everything is computed in one pass over the entries of the memory, looking up the build and the trigger
+ * of each entry only once, so that the same verdict can be used for all the commands and messages sent
+ * for the event.
+ *
+ * @see ParameterExpander#getVerdict(MemoryImprint)
+ */
+public final class BuildsVerdict {
+
+    private static final int ONLY_BUILT = 0;
+    private static final int ALL = 1;
+
+    private final MemoryImprint memoryImprint;
+    private final List<TriggeredBuild> builds;
+    @CheckForNull
+    private final Run firstBuild;
+    private final boolean allSuccessful;
+    private final boolean anyFailed;
+    private final boolean anyUnstable;
+    private final boolean allNotBuilt;
+    private final boolean anyAborted;
+    private final int[] verified = {Integer.MAX_VALUE, Integer.MAX_VALUE};
+    private final int[] codeReview = {Integer.MAX_VALUE, Integer.MAX_VALUE};
+    private final Notify[] notificationLevel = {Notify.NONE, Notify.NONE};
+
+    /**
+     * Constructor.
+     *
+     * @param memoryImprint the memory of the builds.
+     * @param expander      the expander with the configured votes.
+     */
+    BuildsVerdict(@NonNull MemoryImprint memoryImprint, @NonNull ParameterExpander expander) {
+        this.memoryImprint = memoryImprint;
+        Entry[] entries = memoryImprint.getEntries();
+        List<TriggeredBuild> list = new ArrayList<>(entries.length);
+        Run first = null;
+        boolean allSkippedSoFar = true;
+        boolean allSuccessSoFar = true;
+        boolean allSuccessOrSkippedSoFar = true;
+        boolean allNotBuiltSoFar = true;
+        boolean failed = false;
+        boolean unstable = false;
+        boolean aborted = false;
+        for (int i = 0; i < entries.length; i++) {
+            Entry entry = entries[i];
+            if (entry == null) {
+                continue;
+            }
+            Run build = entry.getBuild();
+            if (i == 0) {
+                first = build;
+            }
+            GerritTrigger trigger = null;
+            Result result = null;
+            boolean skipped = false;
+            boolean completed = false;
+            if (build != null) {
+                Job project = entry.getProject();
+                trigger = GerritTrigger.getTrigger(project);
+                result = build.getResult();
+                skipped = trigger != null && shouldSkip(trigger.getSkipVote(), result);
+                completed = entry.isBuildCompleted();
+                list.add(new TriggeredBuild(entry, build, trigger));
+            }
+
+            allSkippedSoFar &= completed && skipped;
+            allSuccessSoFar &= completed && result == Result.SUCCESS;
+            allSuccessOrSkippedSoFar &= completed && (result == Result.SUCCESS || skipped);
+            allNotBuiltSoFar &= entry.isCancelled() || (completed && result == Result.NOT_BUILT);
+            failed |= completed && result == Result.FAILURE;
+            unstable |= completed && result == Result.UNSTABLE;
+            aborted |= completed && result == Result.ABORTED;
+
+            if (trigger != null && !skipped) {
+                addVotes(expander, trigger, result);
+            }
+        }
+        builds = Collections.unmodifiableList(list);
+        firstBuild = first;
+        if (allSkippedSoFar) {
+            allSuccessful = allSuccessSoFar;
+        } else {
+            allSuccessful = allSuccessOrSkippedSoFar;
+        }
+        anyFailed = failed;
+        anyUnstable = unstable;
+        allNotBuilt = allNotBuiltSoFar;
+        anyAborted = aborted;
+    }
+
+    /**
+     * Adds the votes and notification level of a build that isn't skipped.
+     *
+     * @param expander the expander with the configured votes.
+     * @param trigger  the trigger of the build.
+     * @param result   the result of the build.
+     */
+    private void addVotes(ParameterExpander expander, GerritTrigger trigger, Result result) {
+        Integer verifiedValue = expander.getVerifiedValue(result, trigger);
+        Integer codeReviewValue = expander.getCodeReviewValue(result, trigger);
+        Notify level = expander.getNotificationLevel(trigger);
+        int from = ONLY_BUILT;
+        if (result == Result.NOT_BUILT) {
+            from = ALL;
+        }
+        for (int i = from; i <= ALL; i++) {
+            if (verifiedValue != null) {
+                verified[i] = Math.min(verified[i], verifiedValue);
+            }
+            if (codeReviewValue != null) {
+                codeReview[i] = Math.min(codeReview[i], codeReviewValue);
+            }
+            if (level != null && level.compareTo(notificationLevel[i]) > 0) {
+                notificationLevel[i] = level;
+            }
+        }
+    }
+
+    /**
+     * The memory of the builds.
+     *
+     * @return the memory.
+     */
+    @NonNull
+    public MemoryImprint getMemoryImprint() {
+        return memoryImprint;
+    }
+
+    /**
+     * The started builds, in the order they were triggered.
+     *
+     * @return the builds.
+     */
+    @NonNull
+    public List<TriggeredBuild> getBuilds() {
+        return builds;
+    }
+
+    /**
+     * The build of the first triggered project, if it has started.
+     *
+     * @return the build.
+     */
+    @CheckForNull
+    public Run getFirstBuild() {
+        return firstBuild;
+    }
+
+    /**
+     * Tells if all builds were successful, or skipped.
+     *
+     * @return true if so.
+     * @see MemoryImprint#wereAllBuildsSuccessful()
+     */
+    public boolean wereAllBuildsSuccessful() {
+        return allSuccessful;
+    }
+
+    /**
+     * Tells if any completed build failed.
+     *
+     * @return true if so.
+     * @see MemoryImprint#wereAnyBuildsFailed()
+     */
+    public boolean wereAnyBuildsFailed() {
+        return anyFailed;
+    }
+
+    /**
+     * Tells if any completed build was unstable.
+     *
+     * @return true if so.
+     * @see MemoryImprint#wereAnyBuildsUnstable()
+     */
+    public boolean wereAnyBuildsUnstable() {
+        return anyUnstable;
+    }
+
+    /**
+     * Tells if all builds that weren't cancelled were not built.
+     *
+     * @return true if so.
+     * @see MemoryImprint#wereAllBuildsNotBuilt()
+     */
+    public boolean wereAllBuildsNotBuilt() {
+        return allNotBuilt;
+    }
+
+    /**
+     * Tells if any completed build was aborted.
+     *
+     * @return true if so.
+     * @see MemoryImprint#wereAnyBuildsAborted()
+     */
+    public boolean wereAnyBuildsAborted() {
+        return anyAborted;
+    }
+
+    /**
+     * The overall result of the builds, in the order of precedence of the build completed commands.
+     *
+     * @return the result, {@link Result#FAILURE} if no other result applies.
+     */
+    @NonNull
+    public Result getResult() {
+        if (allSuccessful) {
+            return Result.SUCCESS;
+        } else if (anyFailed) {
+            return Result.FAILURE;
+        } else if (anyUnstable) {
+            return Result.UNSTABLE;
+        } else if (allNotBuilt) {
+            return Result.NOT_BUILT;
+        } else if (anyAborted) {
+            return Result.ABORTED;
+        }
+        return Result.FAILURE;
+    }
+
+    /**
+     * The minimum verified vote of the builds that aren't skipped.
+     *
+     * @param onlyBuilt only count builds that completed (no NOT_BUILT builds)
+     * @return the lowest verified value, or null if no build has one.
+     */
+    @CheckForNull
+    public Integer getMinimumVerifiedValue(boolean onlyBuilt) {
+        return valueOf(verified[index(onlyBuilt)]);
+    }
+
+    /**
+     * The minimum code review vote of the builds that aren't skipped.
+     *
+     * @param onlyBuilt only count builds that completed (no NOT_BUILT builds)
+     * @return the lowest code review value, or null if no build has one.
+     */
+    @CheckForNull
+    public Integer getMinimumCodeReviewValue(boolean onlyBuilt) {
+        return valueOf(codeReview[index(onlyBuilt)]);
+    }
+
+    /**
+     * The highest configured notification level of the builds that aren't skipped.
+     *
+     * @param onlyBuilt only count builds that completed (no NOT_BUILT builds)
+     * @return the highest level, {@link Notify#NONE} if there is none.
+     */
+    @NonNull
+    public Notify getHighestNotificationLevel(boolean onlyBuilt) {
+        return notificationLevel[index(onlyBuilt)];
+    }
+
+    /**
+     * The index of the votes to use.
+     *
+     * @param onlyBuilt only count builds that completed.
+     * @return the index.
+     */
+    private static int index(boolean onlyBuilt) {
+        if (onlyBuilt) {
+            return ONLY_BUILT;
+        }
+        return ALL;
+    }
+
+    /**
+     * A minimum vote, if there is one.
+     *
+     * @param vote the vote.
+     * @return the vote, or null if there is none.
+     */
+    @CheckForNull
+    private static Integer valueOf(int vote) {
+        if (vote == Integer.MAX_VALUE) {
+            return null;
+        }
+        return vote;
+    }
+
+    /**
+     * An entry of the memory with its build and trigger.
+     */
+    public static final class TriggeredBuild {
+        private final Entry entry;
+        private final Run build;
+        @CheckForNull
+        private final GerritTrigger trigger;
+
+        /**
+         * Constructor.
+         *
+         * @param entry   the entry.
+         * @param build   the build of the entry.
+         * @param trigger the trigger of the project.
+         */
+        private TriggeredBuild(Entry entry, Run build, @CheckForNull GerritTrigger trigger) {
+            this.entry = entry;
+            this.build = build;
+            this.trigger = trigger;
+        }
+
+        /**
+         * The entry.
+         *
+         * @return the entry.
+         */
+        @NonNull
+        public Entry getEntry() {
+            return entry;
+        }
+
+        /**
+         * The build.
+         *
+         * @return the build.
+         */
+        @NonNull
+        public Run getBuild() {
+            return build;
+        }
+
+        /**
+         * The trigger of the project.
+         *
+         * @return the trigger, or null if the project has none.
+         */
+        @CheckForNull
+        public GerritTrigger getTrigger() {
+            return trigger;
+        }
+    }
+}
@@ -139,12 +139,12 @@ public class GerritNotifier {
         try {
             /* Without a change, it doesn't make sense to notify gerrit */
             if (memoryImprint.getEvent() instanceof ChangeBasedEvent) {
-                Notification notification = new NotificationBuildCompleted(
+                NotificationBuildCompleted notification = new NotificationBuildCompleted(
                         memoryImprint, listener, parameterExpander);
                 if (notification.isValid()) {
                     send(notification);
                     String command = notification.getCommands().getCommand();
-                    GerritTriggeredBuildListener.fireOnCompleted(memoryImprint, command);
+                    GerritTriggeredBuildListener.fireOnCompleted(notification.getVerdict(), command);
                 } else {
                     logger.error("Notification commands object is not valid. "
                             + "Something went wrong during parameter extraction. "
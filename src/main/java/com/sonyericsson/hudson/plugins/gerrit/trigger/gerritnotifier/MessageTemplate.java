@@ -0,0 +1,198 @@
+/*
+ *  The MIT License
+ *
+ *  Copyright 2026 Sony Mobile Communications Inc. All rights reserved.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.sonyericsson.hudson.plugins.gerrit.trigger.gerritnotifier;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.EnvVars;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A command or message template with &lt;PARAMETERS&gt; and $ENV_VARS, split into its parts once.
+ *
+ * The templates come from the server and job configs, so there are only a few of them and each one is
+ * rendered for every notification. Rendering appends the parts to a builder in one pass instead of
+ * searching the whole text again for every parameter.
+ */
+final class MessageTemplate {
+
+    /**
+     * The maximum number of templates to keep.
+     */
+    private static final int CACHE_SIZE = Integer.getInteger(MessageTemplate.class.getName() + ".cacheSize",
+            1024);
+    private static final Cache<String, MessageTemplate> CACHE = Caffeine.newBuilder()
+            .maximumSize(CACHE_SIZE)
+            .build();
+    private static final Pattern PARAMETER = Pattern.compile("<([A-Z_]+)>");
+    /**
+     * The vote options that are left out when there is no vote to give.
+     */
+    private static final String[] VOTE_OPTIONS = {"--code-review ", "--verified "};
+    private static final String NO_VOTE = String.valueOf(Integer.MAX_VALUE);
+
+    /**
+     * The text between the parameters, one more than there are parameters.
+     */
+    private final String[] literals;
+    /**
+     * If the literal with the same index has an environment variable to expand.
+     */
+    private final boolean[] expandable;
+    private final String[] names;
+    private final int literalLength;
+    private final boolean usingEnvironment;
+
+    /**
+     * Constructor.
+     *
+     * @param template the template.
+     */
+    private MessageTemplate(String template) {
+        List<String> literalList = new ArrayList<>();
+        List<String> nameList = new ArrayList<>();
+        Matcher matcher = PARAMETER.matcher(template);
+        int start = 0;
+        while (matcher.find()) {
+            literalList.add(template.substring(start, matcher.start()));
+            nameList.add(matcher.group(1));
+            start = matcher.end();
+        }
+        literalList.add(template.substring(start));
+        literals = literalList.toArray(new String[0]);
+        names = nameList.toArray(new String[0]);
+        expandable = new boolean[literals.length];
+        boolean anyExpandable = false;
+        int length = 0;
+        for (int i = 0; i < literals.length; i++) {
+            expandable[i] = literals[i].indexOf('$') >= 0;
+            anyExpandable |= expandable[i];
+            length += literals[i].length();
+        }
+        literalLength = length;
+        usingEnvironment = anyExpandable;
+    }
+
+    /**
+     * The compiled template for a text, compiling it the first time it is seen.
+     *
+     * @param template the template.
+     * @return the compiled template.
+     */
+    @NonNull
+    static MessageTemplate of(@NonNull String template) {
+        return CACHE.get(template, MessageTemplate::new);
+    }
+
+    /**
+     * If the template has environment variables to expand.
+     *
+     * @return true if so.
+     */
+    boolean isUsingEnvironment() {
+        return usingEnvironment;
+    }
+
+    /**
+     * Appends the template to a builder, with the parameters and environment variables expanded.
+     * Parameters that have no value are left as they are. A <code>--code-review</code> or
+     * <code>--verified</code> option that gets no vote is left out.
+     *
+     * @param out        the builder to append to.
+     * @param env        the environment variables, or null to not expand them.
+     * @param parameters the values of the &lt;parameters&gt;.
+     */
+    void render(@NonNull StringBuilder out, @CheckForNull EnvVars env, @NonNull Map<String, String> parameters) {
+        int start = out.length();
+        int capacity = literalLength;
+        for (String name : names) {
+            String value = parameters.get(name);
+            if (value != null) {
+                capacity += value.length();
+            }
+        }
+        out.ensureCapacity(start + capacity);
+        for (int i = 0; i < names.length; i++) {
+            appendLiteral(out, i, env);
+            String value = parameters.get(names[i]);
+            if (value == null) {
+                out.append('<').append(names[i]).append('>');
+            } else if (!isNoVote(value) || !removeVoteOption(out, start)) {
+                out.append(value);
+            }
+        }
+        appendLiteral(out, names.length, env);
+    }
+
+    /**
+     * Appends a literal part of the template.
+     *
+     * @param out   the builder to append to.
+     * @param index the index of the literal.
+     * @param env   the environment variables, or null to not expand them.
+     */
+    private void appendLiteral(StringBuilder out, int index, @CheckForNull EnvVars env) {
+        if (env != null && expandable[index]) {
+            out.append(env.expand(literals[index]));
+        } else {
+            out.append(literals[index]);
+        }
+    }
+
+    /**
+     * If a vote parameter has no vote to give.
+     *
+     * @param value the value of the parameter.
+     * @return true if so.
+     */
+    private static boolean isNoVote(String value) {
+        return "null".equals(value) || NO_VOTE.equals(value);
+    }
+
+    /**
+     * Removes a vote option that was just appended by this rendering, if there is one.
+     *
+     * @param out   the builder.
+     * @param start where this rendering started in the builder.
+     * @return true if it was removed.
+     */
+    private static boolean removeVoteOption(StringBuilder out, int start) {
+        for (String option : VOTE_OPTIONS) {
+            int from = out.length() - option.length();
+            if (from >= start && out.indexOf(option, from) == from) {
+                out.setLength(from);
+                return true;
+            }
+        }
+        return false;
+    }
+}
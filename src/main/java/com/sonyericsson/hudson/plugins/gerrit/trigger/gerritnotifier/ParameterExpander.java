@@ -37,14 +37,17 @@ import com.sonymobile.tools.gerrit.gerritevents.dto.events.GerritTriggeredEvent;
 import com.sonymobile.tools.gerrit.gerritevents.dto.rest.Notify;
 
 import edu.umd.cs.findbugs.annotations.CheckForNull;
+import hudson.EnvVars;
 import hudson.model.Result;
 import hudson.model.Run;
 import hudson.model.TaskListener;
 
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
 
 import jenkins.model.Jenkins;
@@ -75,6 +78,12 @@ public class ParameterExpander {
     public static final String MESSAGE_DELIMITER = " : ";
 
     private static final Logger logger = LoggerFactory.getLogger(ParameterExpander.class);
+
+    /**
+     * Sorts builds with the worst results first.
+     */
+    private static final Comparator<BuildsVerdict.TriggeredBuild> BY_BUILD_RESULT_DESCENDING =
+            Comparator.comparingInt(ParameterExpander::resultOrdinal).reversed();
     private IGerritHudsonTriggerConfig config;
     private Jenkins jenkins;
 
@@ -113,13 +122,15 @@ public class ParameterExpander {
                 getBuildStartedCodeReviewValue(r),
                 getBuildStartedVerifiedValue(r),
                 Notify.ALL.name());
+        Map<Run, EnvVars> environments = new IdentityHashMap<>();
         StringBuilder startedStats = new StringBuilder();
         if (stats.getTotalBuildsToStart() > 1) {
             startedStats.append(stats);
         }
         String buildStartMessage = trigger.getBuildStartMessage();
         if (buildStartMessage != null && !buildStartMessage.isEmpty()) {
-            startedStats.append("\n\n").append(expandParameters(buildStartMessage, r, taskListener, parameters));
+            startedStats.append("\n\n");
+            expandParameters(startedStats, buildStartMessage, r, taskListener, parameters, environments);
         }
 
         if (config.isEnablePluginMessages()) {
@@ -133,7 +144,7 @@ public class ParameterExpander {
 
         parameters.put("STARTED_STATS", startedStats.toString());
 
-        return expandParameters(gerritCmd, r, taskListener, parameters);
+        return expandParameters(gerritCmd, r, taskListener, parameters, environments);
     }
 
     /**
@@ -255,30 +266,48 @@ public class ParameterExpander {
      * @param r the build containing the environment vars.
      * @param taskListener the taskListener
      * @param parameters the &lt;parameters&gt; from the trigger.
+     * @param environments the environments of the builds already expanded for the same command.
      * @return the expanded string.
      */
     private String expandParameters(String gerritCommand, Run r, TaskListener taskListener,
-            Map<String, String> parameters) {
-        String command = gerritCommand;
-        if (r != null && taskListener != null) {
-            try {
-                command = r.getEnvironment(taskListener).expand(command);
-            } catch (Exception ex) {
-                logger.error("Failed to expand env vars into gerrit cmd. Gerrit won't be notified!!", ex);
-                return null;
-            }
+            Map<String, String> parameters, Map<Run, EnvVars> environments) {
+        StringBuilder command = new StringBuilder();
+        if (!expandParameters(command, gerritCommand, r, taskListener, parameters, environments)) {
+            return null;
         }
+        return command.toString();
+    }
 
-        for (Map.Entry<String, String> param : parameters.entrySet()) {
-            command = command.replace("<" + param.getKey() + ">", param.getValue());
+    /**
+     * Expands all types of parameters in the string and appends the result.
+     * The environment of a build is only created if the string has environment variables,
+     * and only once for all the strings of the same command.
+     * @param out the builder to append to.
+     * @param gerritCommand the command "template"
+     * @param r the build containing the environment vars.
+     * @param taskListener the taskListener
+     * @param parameters the &lt;parameters&gt; from the trigger.
+     * @param environments the environments of the builds already expanded for the same command.
+     * @return false if the environment vars couldn't be expanded, in which case nothing is appended.
+     */
+    private boolean expandParameters(StringBuilder out, String gerritCommand, Run r, TaskListener taskListener,
+            Map<String, String> parameters, Map<Run, EnvVars> environments) {
+        MessageTemplate template = MessageTemplate.of(gerritCommand);
+        EnvVars env = null;
+        if (r != null && taskListener != null && template.isUsingEnvironment()) {
+            env = environments.get(r);
+            if (env == null) {
+                try {
+                    env = Objects.requireNonNull(r.getEnvironment(taskListener), "environment");
+                } catch (Exception ex) {
+                    logger.error("Failed to expand env vars into gerrit cmd. Gerrit won't be notified!!", ex);
+                    return false;
+                }
+                environments.put(r, env);
+            }
         }
-        //replace null and Integer.MAX_VALUE code review value
-        command = command.replace("--code-review null", "");
-        command = command.replace("--code-review " + Integer.MAX_VALUE, "");
-        command = command.replace("--verified null", "");
-        command = command.replace("--verified " + Integer.MAX_VALUE, "");
-
-        return command;
+        template.render(out, env, parameters);
+        return true;
     }
 
     /**
@@ -375,6 +404,16 @@ public class ParameterExpander {
         }
     }
 
+    /**
+     * Computes the outcome of the builds in the memory, with the votes and notification levels to give for it.
+     *
+     * @param memoryImprint the memory.
+     * @return the verdict.
+     */
+    public BuildsVerdict getVerdict(MemoryImprint memoryImprint) {
+        return new BuildsVerdict(memoryImprint, this);
+    }
+
     /**
      * Returns the minimum verified value for the build results in the memory.
      * If no builds have contributed to verified value, this method returns null
@@ -383,38 +422,29 @@ public class ParameterExpander {
      * @param onlyBuilt        only count builds that completed (no NOT_BUILT builds)
      * @param maxAllowedVerifiedValue Upper boundary on verified value.
      * @return the lowest verified value.
+     * @see BuildsVerdict#getMinimumVerifiedValue(boolean)
      */
     @CheckForNull
     public Integer getMinimumVerifiedValue(MemoryImprint memoryImprint, boolean onlyBuilt,
                                            Integer maxAllowedVerifiedValue) {
-        int verified = Integer.MAX_VALUE;
-        for (Entry entry : memoryImprint.getEntries()) {
-            if (entry == null) {
-                continue;
-            }
-            Run build = entry.getBuild();
-            if (build == null) {
-                continue;
-            }
-            Result result = build.getResult();
-            if (onlyBuilt && result == Result.NOT_BUILT) {
-                continue;
-            }
-
-            GerritTrigger trigger = GerritTrigger.getTrigger(entry.getProject());
-            if (shouldSkip(trigger.getSkipVote(), result)) {
-                continue;
-            }
-            Integer verifiedObj = getVerifiedValue(result, trigger);
-            if (verifiedObj != null) {
-                verified = Math.min(verified, verifiedObj);
-            }
-        }
+        return getMinimumVerifiedValue(getVerdict(memoryImprint), onlyBuilt, maxAllowedVerifiedValue);
+    }
 
-        if (verified == Integer.MAX_VALUE) {
+    /**
+     * Returns the minimum verified value of a verdict, within an upper boundary.
+     *
+     * @param verdict          the verdict.
+     * @param onlyBuilt        only count builds that completed (no NOT_BUILT builds)
+     * @param maxAllowedVerifiedValue Upper boundary on verified value.
+     * @return the lowest verified value, or null if no builds have contributed to it.
+     */
+    @CheckForNull
+    private static Integer getMinimumVerifiedValue(BuildsVerdict verdict, boolean onlyBuilt,
+                                                   Integer maxAllowedVerifiedValue) {
+        Integer verified = verdict.getMinimumVerifiedValue(onlyBuilt);
+        if (verified == null) {
             return null;
         }
-
         return Math.min(verified, maxAllowedVerifiedValue);
     }
 
@@ -424,35 +454,11 @@ public class ParameterExpander {
      * @param memoryImprint the memory
      * @param onlyBuilt only count builds that completed (no NOT_BUILT builds)
      * @return the lowest code review value.
+     * @see BuildsVerdict#getMinimumCodeReviewValue(boolean)
      */
     @CheckForNull
     public Integer getMinimumCodeReviewValue(MemoryImprint memoryImprint, boolean onlyBuilt) {
-        int codeReview = Integer.MAX_VALUE;
-        for (Entry entry : memoryImprint.getEntries()) {
-            Run build = entry.getBuild();
-            if (build == null) {
-                continue;
-            }
-            Result result = build.getResult();
-            if (onlyBuilt && result == Result.NOT_BUILT) {
-                continue;
-            }
-
-            GerritTrigger trigger = GerritTrigger.getTrigger(entry.getProject());
-            if (shouldSkip(trigger.getSkipVote(), result)) {
-                continue;
-            }
-            Integer codeReviewObj = getCodeReviewValue(result, trigger);
-            if (codeReviewObj != null) {
-                codeReview = Math.min(codeReview, codeReviewObj);
-            }
-        }
-
-        if (codeReview == Integer.MAX_VALUE) {
-            return null;
-        }
-
-        return codeReview;
+        return getVerdict(memoryImprint).getMinimumCodeReviewValue(onlyBuilt);
     }
 
     /**
@@ -461,33 +467,10 @@ public class ParameterExpander {
      * @param memoryImprint the memory
      * @param onlyBuilt only count builds that completed (no NOT_BUILT builds)
      * @return the highest configured notification level.
+     * @see BuildsVerdict#getHighestNotificationLevel(boolean)
      */
     public Notify getHighestNotificationLevel(MemoryImprint memoryImprint, boolean onlyBuilt) {
-        Notify highestLevel = Notify.NONE;
-        for (Entry entry : memoryImprint.getEntries()) {
-            if (entry == null) {
-                continue;
-            }
-            Run build = entry.getBuild();
-            if (build == null) {
-                continue;
-            }
-            Result result = build.getResult();
-            if (onlyBuilt && result == Result.NOT_BUILT) {
-                continue;
-            }
-
-            GerritTrigger trigger = GerritTrigger.getTrigger(entry.getProject());
-            if (trigger == null || shouldSkip(trigger.getSkipVote(), result)) {
-                continue;
-            }
-
-            Notify level = getNotificationLevel(trigger);
-            if (level != null && level.compareTo(highestLevel) > 0) {
-                highestLevel = level;
-            }
-        }
-        return highestLevel;
+        return getVerdict(memoryImprint).getHighestNotificationLevel(onlyBuilt);
     }
 
     /**
@@ -518,7 +501,20 @@ public class ParameterExpander {
      */
     public String getBuildCompletedCommand(MemoryImprint memoryImprint, TaskListener listener,
                                            GerritTriggeredEvent gerritEvent) {
+        return getBuildCompletedCommand(getVerdict(memoryImprint), listener, gerritEvent);
+    }
 
+    /**
+     * Gets the "expanded" build completed command to send to gerrit.
+     *
+     * @param verdict     the verdict of the builds.
+     * @param listener    the taskListener
+     * @param gerritEvent the event, or null for the event of the builds.
+     * @return the command.
+     */
+    public String getBuildCompletedCommand(BuildsVerdict verdict, TaskListener listener,
+                                           GerritTriggeredEvent gerritEvent) {
+        MemoryImprint memoryImprint = verdict.getMemoryImprint();
         GerritTriggeredEvent event;
         if (gerritEvent == null) {
             event = memoryImprint.getEvent();
@@ -532,16 +528,16 @@ public class ParameterExpander {
         // verified/code review value for the NOT_BUILT ones too.
         boolean onlyCountBuilt = true;
         Integer maxAllowedVerifiedValue = Integer.MAX_VALUE;
-        if (memoryImprint.wereAllBuildsSuccessful()) {
+        if (verdict.wereAllBuildsSuccessful()) {
             command = config.getGerritCmdBuildSuccessful();
-        } else if (memoryImprint.wereAnyBuildsFailed()) {
+        } else if (verdict.wereAnyBuildsFailed()) {
             command = config.getGerritCmdBuildFailed();
-        } else if (memoryImprint.wereAnyBuildsUnstable()) {
+        } else if (verdict.wereAnyBuildsUnstable()) {
             command = config.getGerritCmdBuildUnstable();
-        } else if (memoryImprint.wereAllBuildsNotBuilt()) {
+        } else if (verdict.wereAllBuildsNotBuilt()) {
             onlyCountBuilt = false;
             command = config.getGerritCmdBuildNotBuilt();
-        } else if (memoryImprint.wereAnyBuildsAborted()) {
+        } else if (verdict.wereAnyBuildsAborted()) {
             command = config.getGerritCmdBuildAborted();
         } else {
             //Just as bad as failed for now.
@@ -556,9 +552,9 @@ public class ParameterExpander {
         Integer codeReview = null;
         Notify notifyLevel = Notify.ALL;
         if (memoryImprint.getEvent().isScorable()) {
-            verified = getMinimumVerifiedValue(memoryImprint, onlyCountBuilt, maxAllowedVerifiedValue);
-            codeReview = getMinimumCodeReviewValue(memoryImprint, onlyCountBuilt);
-            notifyLevel = getHighestNotificationLevel(memoryImprint, onlyCountBuilt);
+            verified = getMinimumVerifiedValue(verdict, onlyCountBuilt, maxAllowedVerifiedValue);
+            codeReview = verdict.getMinimumCodeReviewValue(onlyCountBuilt);
+            notifyLevel = verdict.getHighestNotificationLevel(onlyCountBuilt);
         }
 
         Map<String, String> parameters = createStandardParameters(null, event,
@@ -566,115 +562,110 @@ public class ParameterExpander {
 
         // escapes ' as '"'"' in order to avoid breaking command line param
         // Details: http://stackoverflow.com/a/26165123/99834
-        parameters.put("BUILDS_STATS", createBuildsStats(memoryImprint,
-                listener, parameters).replaceAll("'", "'\"'\"'"));
+        Map<Run, EnvVars> environments = new IdentityHashMap<>();
+        parameters.put("BUILDS_STATS", createBuildsStats(verdict,
+                listener, parameters, environments).replace("'", "'\"'\"'"));
 
-        Run build = null;
-        Entry[] entries = memoryImprint.getEntries();
-        if (entries.length > 0 && entries[0].getBuild() != null) {
-            build = entries[0].getBuild();
-        }
-
-        return expandParameters(command, build, listener, parameters);
+        return expandParameters(command, verdict.getFirstBuild(), listener, parameters, environments);
     }
 
     /**
      * Creates the BUILD_STATS string to send in a message,
      * it contains the status of every build with its URL.
-     * @param memoryImprint the memory of all the builds.
+     * @param verdict the verdict of all the builds.
      * @param listener the taskListener
      * @param parameters the &lt;parameters&gt; from the trigger.
+     * @param environments the environments of the builds already expanded for the same command.
      * @return the string.
      */
-    private String createBuildsStats(MemoryImprint memoryImprint, TaskListener listener,
-            Map<String, String> parameters) {
+    private String createBuildsStats(BuildsVerdict verdict, TaskListener listener,
+            Map<String, String> parameters, Map<Run, EnvVars> environments) {
         StringBuilder str = new StringBuilder();
         final String rootUrl = jenkins.getRootUrl();
 
         String unsuccessfulMessage = null;
 
-        Entry[] entries = memoryImprint.getEntries();
-
-        /* Sort entries with worst results first so the attention is drawn on them.
+        /* Sort builds with worst results first so the attention is drawn on them.
          * Otherwise users may e.g. miss an UNSTABLE result because they see SUCCESS first.
          */
-        Arrays.sort(entries, EntryByBuildResultComparator.DESCENDING);
+        List<BuildsVerdict.TriggeredBuild> builds = new ArrayList<>(verdict.getBuilds());
+        builds.sort(BY_BUILD_RESULT_DESCENDING);
 
         // In Gerrit, all lines before the first empty line are used as the summary.
         // For the summary all single linefeeds will be removed (only in Gerrit, not sent mails).
         // Hence, for the multi-builds, we will add a double linefeed before actually listing
         // the build results.
-        if (entries.length > 0) {
-            for (Entry entry : entries) {
-                if (entry == null) {
-                    continue;
+        if (!builds.isEmpty()) {
+            Iterable<GerritMessageProvider> messageProviders = null;
+            if (config.isEnablePluginMessages()) {
+                messageProviders = emptyIfNull(GerritMessageProvider.all());
+            }
+            for (BuildsVerdict.TriggeredBuild triggered : builds) {
+                Entry entry = triggered.getEntry();
+                Run build = triggered.getBuild();
+                GerritTrigger trigger = triggered.getTrigger();
+                Result res = build.getResult();
+                if (res == null) {
+                    res = Result.NOT_BUILT;
+                }
+                /* Gerrit comments cannot contain single-newlines, as they will be joined
+                 * together. Double newlines are interpreted as paragraph breaks. Lines that
+                 * begin with a space (even if the space occurs somewhere in the middle of
+                 * a multi-line paragraph) are interpreted as code blocks.
+                 */
+                str.append("\n\n");
+
+                if (entry.getCustomUrl() != null && !entry.getCustomUrl().isEmpty()) {
+                    expandParameters(str, entry.getCustomUrl(), build, listener, parameters, environments);
+                } else if (trigger.getCustomUrl() != null && !trigger.getCustomUrl().isEmpty()) {
+                    expandParameters(str, trigger.getCustomUrl(), build, listener, parameters, environments);
+                } else {
+                    str.append(rootUrl).append(build.getUrl());
+                }
+                str.append(MESSAGE_DELIMITER);
+
+                String customMessage = null;
+                if (res == Result.SUCCESS) {
+                    customMessage = trigger.getBuildSuccessfulMessage();
+                } else if (res == Result.FAILURE) {
+                    customMessage = trigger.getBuildFailureMessage();
+                } else if (res == Result.UNSTABLE) {
+                    customMessage = trigger.getBuildUnstableMessage();
+                } else if (res == Result.NOT_BUILT) {
+                    customMessage = trigger.getBuildNotBuiltMessage();
+                } else if (res == Result.ABORTED) {
+                    customMessage = trigger.getBuildAbortedMessage();
+                } else {
+                    customMessage = trigger.getBuildFailureMessage();
                 }
-                Run build = entry.getBuild();
-                if (build != null) {
-                    GerritTrigger trigger = GerritTrigger.getTrigger(build.getParent());
-                    Result res = build.getResult();
-                    if (res == null) {
-                        res = Result.NOT_BUILT;
-                    }
-                    /* Gerrit comments cannot contain single-newlines, as they will be joined
-                     * together. Double newlines are interpreted as paragraph breaks. Lines that
-                     * begin with a space (even if the space occurs somewhere in the middle of
-                     * a multi-line paragraph) are interpreted as code blocks.
-                     */
-                    str.append("\n\n");
-
-                    if (entry.getCustomUrl() != null && !entry.getCustomUrl().isEmpty()) {
-                        str.append(expandParameters(entry.getCustomUrl(), build, listener, parameters));
-                    } else if (trigger.getCustomUrl() != null && !trigger.getCustomUrl().isEmpty()) {
-                        str.append(expandParameters(trigger.getCustomUrl(), build, listener, parameters));
-                    } else {
-                        str.append(rootUrl).append(build.getUrl());
-                    }
-                    str.append(MESSAGE_DELIMITER);
-
-                    String customMessage = null;
-                    if (res == Result.SUCCESS) {
-                        customMessage = trigger.getBuildSuccessfulMessage();
-                    } else if (res == Result.FAILURE) {
-                        customMessage = trigger.getBuildFailureMessage();
-                    } else if (res == Result.UNSTABLE) {
-                        customMessage = trigger.getBuildUnstableMessage();
-                    } else if (res == Result.NOT_BUILT) {
-                        customMessage = trigger.getBuildNotBuiltMessage();
-                    } else if (res == Result.ABORTED) {
-                        customMessage = trigger.getBuildAbortedMessage();
-                    } else {
-                        customMessage = trigger.getBuildFailureMessage();
-                    }
 
-                    // If the user has specified a message, use it
-                    // otherwise use a generic indicator
-                    if (customMessage == null || customMessage.isEmpty()) {
-                        str.append(res);
-                        if (shouldSkip(trigger.getSkipVote(), res)) {
-                            str.append(" (skipped)");
-                        }
-                    } else {
-                        str.append(expandParameters(customMessage, build, listener, parameters));
+                // If the user has specified a message, use it
+                // otherwise use a generic indicator
+                if (customMessage == null || customMessage.isEmpty()) {
+                    str.append(res);
+                    if (shouldSkip(trigger.getSkipVote(), res)) {
+                        str.append(" (skipped)");
                     }
+                } else {
+                    expandParameters(str, customMessage, build, listener, parameters, environments);
+                }
 
-                    if (res.isWorseThan(Result.SUCCESS)) {
-                        unsuccessfulMessage = entry.getUnsuccessfulMessage();
+                if (res.isWorseThan(Result.SUCCESS)) {
+                    unsuccessfulMessage = entry.getUnsuccessfulMessage();
 
-                        if (null != unsuccessfulMessage && !unsuccessfulMessage.isEmpty()) {
-                            logger.trace("Using unsuccessful message.");
-                            str.append(" <<<\n");
-                            str.append(unsuccessfulMessage.trim());
-                            str.append("\n>>>");
-                        }
+                    if (null != unsuccessfulMessage && !unsuccessfulMessage.isEmpty()) {
+                        logger.trace("Using unsuccessful message.");
+                        str.append(" <<<\n");
+                        str.append(unsuccessfulMessage.trim());
+                        str.append("\n>>>");
                     }
+                }
 
-                    if (config.isEnablePluginMessages()) {
-                        for (GerritMessageProvider messageProvider : emptyIfNull(GerritMessageProvider.all())) {
-                            String extensionMessage = messageProvider.getBuildCompletedMessage(build);
-                            if (extensionMessage != null) {
-                                str.append("\n\n").append(extensionMessage);
-                            }
+                if (messageProviders != null) {
+                    for (GerritMessageProvider messageProvider : messageProviders) {
+                        String extensionMessage = messageProvider.getBuildCompletedMessage(build);
+                        if (extensionMessage != null) {
+                            str.append("\n\n").append(extensionMessage);
                         }
                     }
                 }
@@ -694,7 +685,18 @@ public class ParameterExpander {
      * @return the message for the build completed command.
      */
     public String getBuildCompletedMessage(MemoryImprint memoryImprint, TaskListener listener) {
-        String completedCommand = getBuildCompletedCommand(memoryImprint, listener, null);
+        return getBuildCompletedMessage(getVerdict(memoryImprint), listener);
+    }
+
+    /**
+     * Returns cover message to be send after build has been completed.
+     *
+     * @param verdict the verdict of the builds.
+     * @param listener listener
+     * @return the message for the build completed command.
+     */
+    public String getBuildCompletedMessage(BuildsVerdict verdict, TaskListener listener) {
+        String completedCommand = getBuildCompletedCommand(verdict, listener, null);
         return findMessage(completedCommand);
     }
 
@@ -732,58 +734,17 @@ public class ParameterExpander {
     }
 
     /**
-     * Sorts build entries along their results.
+     * The order of a build along its result, 0 for one that has no result yet.
+     *
+     * @param triggered the build.
+     * @return the ordinal of the result.
      */
-    private static final class EntryByBuildResultComparator implements Comparator<Entry> {
-        /**
-         * Sorts with worse results first.
-         */
-        static final EntryByBuildResultComparator DESCENDING = new EntryByBuildResultComparator(true);
-
-        private boolean descending;
-        /**
-         * Creates a comparator
-         *
-         * @param descending <code>true</code> for worst results first,
-         *         <code>false</code> for best results first
-         */
-        private EntryByBuildResultComparator(boolean descending) {
-            this.descending = descending;
-        }
-
-        @Override
-        public int compare(Entry e1, Entry e2) {
-            if (e1 == null) {
-                throw new NullPointerException("e1");
-            }
-            if (e2 == null) {
-                throw new NullPointerException("e2");
-            }
-            Run b1 = e1.getBuild();
-            Run b2 = e2.getBuild();
-            if (b1 != null && b2 != null) {
-                Result r1 = b1.getResult();
-                Result r2 = b2.getResult();
-                int o1 = 0;
-                if (r1 != null) {
-                    o1 = r1.ordinal;
-                }
-                int o2 = 0;
-                if (r2 != null) {
-                    o2 = r2.ordinal;
-                }
-                if (descending) {
-                    return o2 - o1;
-                } else {
-                    return o1 - o2;
-                }
-            } else if (b1 != null) {
-                return 1;
-            } else if (b2 != null) {
-                return -1;
-            }
+    private static int resultOrdinal(BuildsVerdict.TriggeredBuild triggered) {
+        Result result = triggered.getBuild().getResult();
+        if (result == null) {
             return 0;
         }
+        return result.ordinal;
     }
 
 }
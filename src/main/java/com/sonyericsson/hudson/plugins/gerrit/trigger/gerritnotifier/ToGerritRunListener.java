@@ -23,6 +23,8 @@
  */
 package com.sonyericsson.hudson.plugins.gerrit.trigger.gerritnotifier;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.sonyericsson.hudson.plugins.gerrit.trigger.diagnostics.BuildMemoryReport;
 import com.sonymobile.tools.gerrit.gerritevents.dto.events.GerritTriggeredEvent;
 import com.sonyericsson.hudson.plugins.gerrit.trigger.events.lifecycle.GerritEventLifecycle;
@@ -38,19 +40,28 @@ import hudson.FilePath;
 import hudson.model.AbstractBuild;
 import hudson.model.Cause;
 import hudson.model.CauseAction;
+import hudson.model.Executor;
 import hudson.model.Job;
 import hudson.model.Result;
 import hudson.model.Run;
 import hudson.model.TaskListener;
+import hudson.model.listeners.ItemListener;
 import hudson.model.listeners.RunListener;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
+import jenkins.model.CauseOfInterruption;
 import jenkins.model.Jenkins;
 
 import edu.umd.cs.findbugs.annotations.CheckForNull;
@@ -69,8 +80,20 @@ public final class ToGerritRunListener extends RunListener<Run> {
      * The ordering of this extension.
      */
     public static final int ORDINAL = 10003;
+    private static final long PENDING_INTERRUPTION_SECONDS = 60;
     private static final Logger logger = LoggerFactory.getLogger(ToGerritRunListener.class);
     private final transient BuildMemory memory = new BuildMemory();
+    /**
+     * The builds that have started but not completed, by the identity of the events that caused them.
+     * Guarded by itself instead of this listener, so builds can be looked up while the memory is busy.
+     */
+    private final transient Map<GerritTriggeredEvent, List<RunningBuild>> runningBuilds = new IdentityHashMap<>();
+    /**
+     * The interruptions of builds that weren't running yet when they were asked for, by event and job name.
+     * A build may have left the queue without having started yet, so it is interrupted if it starts shortly after.
+     */
+    private final transient Cache<GerritTriggeredEvent, Map<String, CauseOfInterruption>> pendingInterruptions =
+            Caffeine.newBuilder().weakKeys().expireAfterWrite(PENDING_INTERRUPTION_SECONDS, TimeUnit.SECONDS).build();
 
     /**
      * Returns the registered instance of this class from the list of all listeners.
@@ -122,6 +145,7 @@ public final class ToGerritRunListener extends RunListener<Run> {
 
     @Override
     public synchronized void onCompleted(@NonNull Run r, @NonNull TaskListener listener) {
+        forgetRunning(r);
         GerritCause cause = getCause(r);
         logger.debug("Completed. Build: {} Cause: {}", r, cause);
         if (cause != null) {
@@ -223,6 +247,12 @@ public final class ToGerritRunListener extends RunListener<Run> {
         logger.debug("Started. Build: {} Cause: {}", r, cause);
         if (cause != null) {
             cleanUpGerritCauses(cause, r);
+            //Builds are started on their executor's thread.
+            Executor executor = Executor.currentExecutor();
+            if (executor != null && executor.getCurrentExecutable() != r) {
+                executor = null;
+            }
+            interruptIfPending(rememberRunning(r, executor));
             setThisBuild(r);
             if (cause.getEvent() != null) {
                 if (cause.getEvent() instanceof GerritEventLifecycle) {
@@ -247,6 +277,151 @@ public final class ToGerritRunListener extends RunListener<Run> {
         }
     }
 
+    /**
+     * The builds caused by an event that have started but not completed yet.
+     *
+     * @param event the event, matched by <i>identity</i>, not <i>equality</i>.
+     * @return the builds, empty if there are none.
+     */
+    @NonNull
+    public List<RunningBuild> getRunningBuilds(GerritTriggeredEvent event) {
+        synchronized (runningBuilds) {
+            List<RunningBuild> builds = runningBuilds.get(event);
+            if (builds == null) {
+                return Collections.emptyList();
+            }
+            return new ArrayList<>(builds);
+        }
+    }
+
+    /**
+     * Remembers a running build for each of the events that caused it,
+     * together with the executor it runs on.
+     *
+     * @param r the build.
+     * @param executor the executor, or null if it isn't known.
+     * @return the remembered build.
+     */
+    private RunningBuild rememberRunning(Run r, @CheckForNull Executor executor) {
+        RunningBuild build = new RunningBuild(r, executor);
+        synchronized (runningBuilds) {
+            for (Object cause : r.getCauses()) {
+                if (cause instanceof GerritCause gerritCause && gerritCause.getEvent() != null) {
+                    List<RunningBuild> builds =
+                            runningBuilds.computeIfAbsent(gerritCause.getEvent(), k -> new ArrayList<>(1));
+                    builds.removeIf(b -> b.getRun() == r);
+                    builds.add(build);
+                }
+            }
+        }
+        return build;
+    }
+
+    /**
+     * Remembers the builds that are running without having been started through this listener,
+     * like Pipeline builds resumed after a restart, so that they can be found without searching the executors.
+     */
+    /*package*/ void rememberResumedBuilds() {
+        Jenkins jenkins = Jenkins.getInstanceOrNull();
+        if (jenkins == null) {
+            return;
+        }
+        int count = 0;
+        for (Job<?, ?> job : jenkins.allItems(Job.class)) {
+            if (GerritTrigger.getTrigger(job) == null) {
+                continue;
+            }
+            Run<?, ?> r = job.getLastBuild();
+            if (r != null && !r.isBuilding()) {
+                r = r.getPreviousBuildInProgress();
+            }
+            for (; r != null; r = r.getPreviousBuildInProgress()) {
+                if (getCause(r) != null) {
+                    rememberRunning(r, null);
+                    count++;
+                }
+            }
+        }
+        logger.debug("Remembered {} builds running since before the start", count);
+    }
+
+    /**
+     * Interrupts the running builds of a job that were caused by an event.
+     * If none of them is running, a build of the job for the event is interrupted
+     * if it starts within a short while, since it may have left the queue without having started yet.
+     *
+     * @param event the event, matched by <i>identity</i>, not <i>equality</i>.
+     * @param jobName the full name of the job.
+     * @param cause the cause of the interruption.
+     * @return the number of builds interrupted.
+     */
+    public int interruptRunningBuilds(GerritTriggeredEvent event, String jobName, CauseOfInterruption cause) {
+        boolean found = false;
+        int interrupted = 0;
+        for (RunningBuild build : getRunningBuilds(event)) {
+            if (!jobName.equals(build.getRun().getParent().getFullName())) {
+                continue;
+            }
+            found = true;
+            Executor executor = build.getExecutor();
+            if (executor != null) {
+                executor.interrupt(Result.ABORTED, cause);
+                interrupted++;
+            }
+        }
+        if (!found) {
+            pendingInterruptions.asMap().computeIfAbsent(event, k -> new ConcurrentHashMap<>()).put(jobName, cause);
+        }
+        return interrupted;
+    }
+
+    /**
+     * Interrupts a build that was asked to be interrupted before it started.
+     *
+     * @param build the started build.
+     * @see #interruptRunningBuilds(GerritTriggeredEvent, String, CauseOfInterruption)
+     */
+    private void interruptIfPending(RunningBuild build) {
+        Run r = build.getRun();
+        for (Object cause : r.getCauses()) {
+            if (cause instanceof GerritCause gerritCause && gerritCause.getEvent() != null) {
+                Map<String, CauseOfInterruption> jobs = pendingInterruptions.getIfPresent(gerritCause.getEvent());
+                if (jobs == null) {
+                    continue;
+                }
+                CauseOfInterruption interruption = jobs.remove(r.getParent().getFullName());
+                Executor executor = build.getExecutor();
+                if (interruption != null && executor != null) {
+                    logger.debug("Interrupting {} that started after being outdated", r);
+                    executor.interrupt(Result.ABORTED, interruption);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Forgets a build remembered by {@link #rememberRunning(Run)}.
+     *
+     * @param r the build.
+     */
+    private void forgetRunning(Run r) {
+        synchronized (runningBuilds) {
+            for (Object cause : r.getCauses()) {
+                if (cause instanceof GerritCause gerritCause) {
+                    GerritTriggeredEvent event = gerritCause.getEvent();
+                    List<RunningBuild> builds = runningBuilds.get(event);
+                    if (builds != null) {
+                        builds.removeIf(b -> b.getRun() == r);
+                        if (builds.isEmpty()) {
+                            runningBuilds.remove(event);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
     /**
      * Get runs triggered for event.
      *
@@ -531,4 +706,70 @@ public final class ToGerritRunListener extends RunListener<Run> {
 
         return content;
     }
+
+    /**
+     * Remembers the running builds when the jobs have been loaded.
+     */
+    @Extension
+    public static final class ResumedBuildsListener extends ItemListener {
+
+        /**
+         * Called by Jenkins when all items are loaded.
+         */
+        @Override
+        public void onLoaded() {
+            ToGerritRunListener listener = getInstance();
+            if (listener != null) {
+                listener.rememberResumedBuilds();
+            }
+        }
+    }
+
+    /**
+     * A build that has started but not completed, and the executor it runs on.
+     */
+    public static final class RunningBuild {
+        private final Run run;
+        private volatile Executor executor;
+
+        /**
+         * Standard constructor.
+         *
+         * @param run      the build.
+         * @param executor the executor, or null if it wasn't known when the build started.
+         */
+        /*package*/ RunningBuild(@NonNull Run run, @CheckForNull Executor executor) {
+            this.run = run;
+            this.executor = executor;
+        }
+
+        /**
+         * The build.
+         *
+         * @return the build.
+         */
+        @NonNull
+        public Run getRun() {
+            return run;
+        }
+
+        /**
+         * The executor running the build.
+         * Looked up among all executors, and then remembered, if it wasn't known when the build started.
+         *
+         * @return the executor, or null if the build doesn't run on one anymore.
+         */
+        @CheckForNull
+        public Executor getExecutor() {
+            Executor known = executor;
+            if (known != null && known.getCurrentExecutable() == run) {
+                return known;
+            }
+            known = run.getExecutor();
+            if (known != null) {
+                executor = known;
+            }
+            return known;
+        }
+    }
 }
@@ -28,6 +28,7 @@ import com.sonymobile.tools.gerrit.gerritevents.dto.events.ChangeBasedEvent;
 import com.sonymobile.tools.gerrit.gerritevents.workers.rest.AbstractRestCommandJob;
 import com.sonyericsson.hudson.plugins.gerrit.trigger.config.Constants;
 import com.sonyericsson.hudson.plugins.gerrit.trigger.config.IGerritHudsonTriggerConfig;
+import com.sonyericsson.hudson.plugins.gerrit.trigger.gerritnotifier.BuildsVerdict;
 import com.sonyericsson.hudson.plugins.gerrit.trigger.gerritnotifier.GerritMessageProvider;
 import com.sonyericsson.hudson.plugins.gerrit.trigger.gerritnotifier.ParameterExpander;
 import com.sonyericsson.hudson.plugins.gerrit.trigger.gerritnotifier.model.BuildMemory;
@@ -36,6 +37,7 @@ import com.sonymobile.tools.gerrit.gerritevents.dto.rest.Notify;
 import com.sonymobile.tools.gerrit.gerritevents.dto.rest.ReviewInput;
 import com.sonymobile.tools.gerrit.gerritevents.dto.rest.ReviewLabel;
 
+import hudson.model.Run;
 import hudson.model.TaskListener;
 import hudson.security.ACL;
 import hudson.security.ACLContext;
@@ -78,11 +80,12 @@ public class BuildCompletedRestCommandJob extends AbstractRestCommandJob {
     @Override
     protected ReviewInput createReview() {
         try (ACLContext ctx = ACL.as2(ACL.SYSTEM2)) {
-            String message = parameterExpander.getBuildCompletedMessage(memoryImprint, listener);
+            BuildsVerdict verdict = parameterExpander.getVerdict(memoryImprint);
+            String message = parameterExpander.getBuildCompletedMessage(verdict, listener);
             Collection<ReviewLabel> scoredLabels = new ArrayList<>();
             if (memoryImprint.getEvent().isScorable()) {
                 if (config.isRestCodeReview()) {
-                    Integer crValue = parameterExpander.getMinimumCodeReviewValue(memoryImprint, true);
+                    Integer crValue = verdict.getMinimumCodeReviewValue(true);
                     if (crValue != null && crValue != Integer.MAX_VALUE) {
                         scoredLabels.add(new ReviewLabel(
                                 LABEL_CODEREVIEW,
@@ -90,7 +93,7 @@ public class BuildCompletedRestCommandJob extends AbstractRestCommandJob {
                     }
                 }
                 if (config.isRestVerified()) {
-                    Integer verValue = parameterExpander.getMinimumVerifiedValue(memoryImprint, true, Integer.MAX_VALUE);
+                    Integer verValue = verdict.getMinimumVerifiedValue(true);
                     if (verValue != null && verValue != Integer.MAX_VALUE) {
                         scoredLabels.add(new ReviewLabel(
                                 LABEL_VERIFIED,
@@ -98,20 +101,15 @@ public class BuildCompletedRestCommandJob extends AbstractRestCommandJob {
                     }
                 }
             }
-            Notify notificationLevel = parameterExpander.getHighestNotificationLevel(memoryImprint, true);
+            Notify notificationLevel = verdict.getHighestNotificationLevel(true);
             List<GerritMessageProvider> gerritMessageProviders = GerritMessageProvider.all();
             Collection<CommentedFile> commentedFiles = new ArrayList<>();
             if (gerritMessageProviders != null) {
-                for (GerritMessageProvider gerritMessageProvider : gerritMessageProviders) {
-                    for (BuildMemory.MemoryImprint.Entry e : memoryImprint.getEntries()) {
-                        try {
-                            commentedFiles.addAll(gerritMessageProvider.getFileComments(e.getBuild()));
-                        } catch (Exception ef) {
-                            listener.error(ef.getMessage());
-
-                        }
-                    }
+                List<Run> builds = new ArrayList<>();
+                for (BuildsVerdict.TriggeredBuild triggered : verdict.getBuilds()) {
+                    builds.add(triggered.getBuild());
                 }
+                commentedFiles = FileCommentCollector.getInstance().collect(gerritMessageProviders, builds, listener);
             }
 
             return new ReviewInput(message, scoredLabels, commentedFiles).setNotify(notificationLevel)
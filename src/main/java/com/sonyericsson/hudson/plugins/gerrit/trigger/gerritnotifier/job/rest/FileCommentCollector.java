@@ -0,0 +1,316 @@
+/*
+ *  The MIT License
+ *
+ *  Copyright 2026 Sony Mobile Communications Inc. All rights reserved.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.sonyericsson.hudson.plugins.gerrit.trigger.gerritnotifier.job.rest;
+
+import com.sonyericsson.hudson.plugins.gerrit.trigger.gerritnotifier.GerritMessageProvider;
+import com.sonymobile.tools.gerrit.gerritevents.dto.rest.CommentedFile;
+import com.sonymobile.tools.gerrit.gerritevents.dto.rest.LineComment;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.security.ACL;
+import hudson.security.ACLContext;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Collects the file comments of all {@link GerritMessageProvider}s for the builds of a review.
+ *
+ * Providers often parse large reports from the build directories, so they are called on a small pool of threads,
+ * and a call that runs longer than the timeout is given up on without holding back the review.
+ * Each call is timed from when it starts running, so a slow provider doesn't use up the time of the others.
+ * Builds of the same change often report the very same comments, so those are only posted once,
+ * and the total number of comments in a review is capped.
+ */
+final class FileCommentCollector {
+    /**
+     * The default maximum number of providers called at the same time.
+     * Can be tuned with the system property
+     * <code>com.sonyericsson.hudson.plugins.gerrit.trigger.gerritnotifier.job.rest.FileCommentCollector.threads</code>.
+     */
+    static final int DEFAULT_THREADS = 4;
+    /**
+     * The default number of seconds to wait for the comments of a provider for a build, once the call has started.
+     * Can be tuned with the system property <code>...FileCommentCollector.timeoutSeconds</code>.
+     */
+    static final int DEFAULT_TIMEOUT_SECONDS = 60;
+    /**
+     * The default maximum number of line comments in a review.
+     * Can be tuned with the system property <code>...FileCommentCollector.maxComments</code>.
+     */
+    static final int DEFAULT_MAX_COMMENTS = 1000;
+    private static final long IDLE_THREAD_KEEP_ALIVE_SECONDS = 60;
+    private static final Logger logger = LoggerFactory.getLogger(FileCommentCollector.class);
+    private static final FileCommentCollector INSTANCE = new FileCommentCollector(createExecutor(),
+            TimeUnit.SECONDS.toMillis(Integer.getInteger(FileCommentCollector.class.getName() + ".timeoutSeconds",
+                    DEFAULT_TIMEOUT_SECONDS)),
+            Integer.getInteger(FileCommentCollector.class.getName() + ".maxComments", DEFAULT_MAX_COMMENTS));
+
+    private final ExecutorService executor;
+    private final long timeoutMillis;
+    private final int maxComments;
+
+    /**
+     * Constructor.
+     *
+     * @param executor      calls the providers.
+     * @param timeoutMillis how long to wait for the comments of a provider for a build, once the call has started.
+     * @param maxComments   the maximum number of line comments to return.
+     */
+    FileCommentCollector(ExecutorService executor, long timeoutMillis, int maxComments) {
+        this.executor = executor;
+        this.timeoutMillis = timeoutMillis;
+        this.maxComments = maxComments;
+    }
+
+    /**
+     * The shared collector.
+     *
+     * @return the instance.
+     */
+    static FileCommentCollector getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Creates the bounded pool to call the providers on.
+     *
+     * @return the pool.
+     */
+    private static ExecutorService createExecutor() {
+        int threads = Math.max(1, Integer.getInteger(FileCommentCollector.class.getName() + ".threads",
+                DEFAULT_THREADS));
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads,
+                IDLE_THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                new NamingThreadFactory(new DaemonThreadFactory(), "Gerrit file comment collector"));
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    /**
+     * Collects the file comments of the providers for the builds, without duplicates.
+     * Failures and timeouts are reported to the listener, and the comments that were collected are still returned.
+     *
+     * @param providers the providers.
+     * @param builds    the builds.
+     * @param listener  the listener to report failures to, if any.
+     * @return the comments, in the order of the providers and builds.
+     */
+    @NonNull
+    List<CommentedFile> collect(@NonNull List<GerritMessageProvider> providers, @NonNull List<Run> builds,
+                                      @CheckForNull TaskListener listener) {
+        if (providers.isEmpty() || builds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Call> calls = new ArrayList<>(providers.size() * builds.size());
+        for (GerritMessageProvider provider : providers) {
+            for (Run build : builds) {
+                Call call = new Call(provider, build);
+                call.future = executor.submit(call);
+                calls.add(call);
+            }
+        }
+        Merged merged = new Merged();
+        // the calls that can't start because the pool is stuck are given up on when all of them could have timed out
+        long giveUp = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis) * calls.size();
+        for (Call call : calls) {
+            try {
+                merged.addAll(call.get(giveUp));
+            } catch (TimeoutException e) {
+                call.future.cancel(true);
+                String state;
+                if (call.running) {
+                    state = " after " + timeoutMillis + " ms";
+                } else {
+                    state = " that didn't get to start";
+                }
+                report(listener, "Gave up on the file comments of " + call.provider.getClass().getName()
+                        + " for " + call.build + state, null);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                String message = cause.getMessage();
+                if (message == null) {
+                    message = cause.toString();
+                }
+                report(listener, message, cause);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                calls.forEach(c -> c.future.cancel(true));
+                return merged.toList();
+            }
+        }
+        if (merged.dropped > 0) {
+            report(listener, "Left out " + merged.dropped + " file comments over the limit of " + maxComments, null);
+        }
+        return merged.toList();
+    }
+
+    /**
+     * Reports a problem collecting the comments.
+     *
+     * @param listener the listener, if any.
+     * @param message  the message.
+     * @param cause    the cause, if any.
+     */
+    private static void report(@CheckForNull TaskListener listener, String message, @CheckForNull Throwable cause) {
+        logger.warn(message, cause);
+        if (listener != null) {
+            listener.error(message);
+        }
+    }
+
+    /**
+     * A call of a provider for a build, timed from when it starts running.
+     */
+    private final class Call implements Callable<Collection<CommentedFile>> {
+        private final GerritMessageProvider provider;
+        private final Run build;
+        private Future<Collection<CommentedFile>> future;
+        private volatile long started;
+        private volatile boolean running;
+
+        /**
+         * Constructor.
+         *
+         * @param provider the provider.
+         * @param build    the build.
+         */
+        private Call(GerritMessageProvider provider, Run build) {
+            this.provider = provider;
+            this.build = build;
+        }
+
+        @Override
+        public Collection<CommentedFile> call() throws Exception {
+            started = System.nanoTime();
+            running = true;
+            try (ACLContext ctx = ACL.as2(ACL.SYSTEM2)) {
+                return provider.getFileComments(build);
+            }
+        }
+
+        /**
+         * Waits for the comments until the call has run for the timeout,
+         * or until the given time if it hasn't started by then.
+         *
+         * @param giveUp when to stop waiting for the call to start, in {@link System#nanoTime()}.
+         * @return the comments.
+         * @throws InterruptedException if interrupted while waiting.
+         * @throws ExecutionException   if the provider failed.
+         * @throws TimeoutException     if the call didn't finish in time.
+         */
+        Collection<CommentedFile> get(long giveUp) throws InterruptedException, ExecutionException,
+                TimeoutException {
+            long timeout = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+            while (true) {
+                long wait;
+                if (running) {
+                    wait = started + timeout - System.nanoTime();
+                } else {
+                    wait = Math.min(timeout, giveUp - System.nanoTime());
+                }
+                try {
+                    return future.get(Math.max(0, wait), TimeUnit.NANOSECONDS);
+                } catch (TimeoutException e) {
+                    boolean hasStarted = running;
+                    long now = System.nanoTime();
+                    if (hasStarted ? now - started >= timeout : now - giveUp >= 0) {
+                        throw e;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * The comments collected so far, by file.
+     */
+    private final class Merged {
+        private final Map<String, List<LineComment>> files = new LinkedHashMap<>();
+        private final Set<String> seen = new HashSet<>();
+        private int count;
+        private int dropped;
+
+        /**
+         * Adds the comments that haven't been seen yet, while below the limit.
+         *
+         * @param commentedFiles the comments, or null if the provider has none.
+         */
+        void addAll(@CheckForNull Collection<CommentedFile> commentedFiles) {
+            if (commentedFiles == null) {
+                return;
+            }
+            for (CommentedFile file : commentedFiles) {
+                List<LineComment> comments = files.computeIfAbsent(file.getFileName(), k -> new ArrayList<>());
+                if (file.getLineComments() == null) {
+                    continue;
+                }
+                for (LineComment comment : file.getLineComments()) {
+                    if (!seen.add(file.getFileName() + '\n' + comment.getLine() + '\n' + comment.getMessage())) {
+                        continue;
+                    }
+                    if (count < maxComments) {
+                        comments.add(comment);
+                        count++;
+                    } else {
+                        dropped++;
+                    }
+                }
+            }
+        }
+
+        /**
+         * The merged comments.
+         *
+         * @return a file for each file name.
+         */
+        List<CommentedFile> toList() {
+            List<CommentedFile> list = new ArrayList<>(files.size());
+            for (Map.Entry<String, List<LineComment>> file : files.entrySet()) {
+                list.add(new CommentedFile(file.getKey(), file.getValue()));
+            }
+            return list;
+        }
+    }
+}
@@ -24,6 +24,7 @@
  */
 package com.sonyericsson.hudson.plugins.gerrit.trigger.gerritnotifier.notification;
 
+import com.sonyericsson.hudson.plugins.gerrit.trigger.gerritnotifier.BuildsVerdict;
 import com.sonyericsson.hudson.plugins.gerrit.trigger.gerritnotifier.ParameterExpander;
 import com.sonyericsson.hudson.plugins.gerrit.trigger.gerritnotifier.model.BuildMemory;
 import com.sonymobile.tools.gerrit.gerritevents.dto.GerritChangeStatus;
@@ -46,6 +47,7 @@ public class NotificationBuildCompleted extends Notification {
     private static final Logger logger = LoggerFactory.getLogger(NotificationBuildCompleted.class);
     private final BuildMemory.MemoryImprint memoryImprint;
     private final TaskListener listener;
+    private BuildsVerdict verdict;
     private NotificationCommands commands;
 
     /**
@@ -68,8 +70,9 @@ public class NotificationBuildCompleted extends Notification {
      */
     private void initCommands() {
         ChangeBasedEvent event = (ChangeBasedEvent)gerritEvent;
+        verdict = parameterExpander.getVerdict(memoryImprint);
         String command = parameterExpander.getBuildCompletedCommand(
-                memoryImprint, listener, null);
+                verdict, listener, null);
 
         this.commands = new NotificationCommands(command);
         Topic topic = event.getChange().getTopicObject();
@@ -98,12 +101,21 @@ public class NotificationBuildCompleted extends Notification {
             // So that ParameterExpander takes this event into account.
             GerritTriggeredEvent eventTopicChange = createEventTopicChange(event, change, patchSet);
             String topicChangeCommand = parameterExpander.getBuildCompletedCommand(
-                    memoryImprint, listener, eventTopicChange);
+                    verdict, listener, eventTopicChange);
 
             this.commands.addTopicChangeCommand(topicChangeCommand);
         }
     }
 
+    /**
+     * The verdict of the builds that the commands were created from.
+     *
+     * @return the verdict.
+     */
+    public BuildsVerdict getVerdict() {
+        return verdict;
+    }
+
     @Override
     public NotificationCommands getCommands() {
         return commands;
@@ -0,0 +1,132 @@
+/*
+ *  The MIT License
+ *
+ *  Copyright 2026 Sony Mobile Communications Inc. All rights reserved.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.sonyericsson.hudson.plugins.gerrit.trigger.hudsontrigger;
+
+import hudson.model.BooleanParameterDefinition;
+import hudson.model.ChoiceParameterDefinition;
+import hudson.model.Job;
+import hudson.model.ParameterDefinition;
+import hudson.model.ParameterValue;
+import hudson.model.ParametersDefinitionProperty;
+import hudson.model.StringParameterDefinition;
+import hudson.model.TextParameterDefinition;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * The default parameter values of a job, kept between the builds it triggers.
+ *
+ * The defaults of the core parameter types are fixed by the job config, so they are computed once
+ * and reused until the job is saved again. The defaults of other parameter types may depend on
+ * when they are asked for and are still computed for every build.
+ * The parameter definitions of a job are replaced when it is reconfigured, so they are also
+ * what the defaults are cached by.
+ */
+final class DefaultParameters {
+
+    /**
+     * The parameter definitions that have a default value that only depends on their config.
+     * Subclasses are not included since they may compute it differently.
+     */
+    private static final Set<Class<? extends ParameterDefinition>> FIXED_DEFAULT_TYPES = Set.of(
+            StringParameterDefinition.class,
+            TextParameterDefinition.class,
+            BooleanParameterDefinition.class,
+            ChoiceParameterDefinition.class);
+
+    private static final Map<ParametersDefinitionProperty, DefaultParameters> CACHE =
+            Collections.synchronizedMap(new WeakHashMap<>());
+
+    private final ParameterDefinition[] definitions;
+    /**
+     * The default values of the definitions with a fixed one, null for the others.
+     */
+    private final ParameterValue[] values;
+
+    /**
+     * Constructor.
+     *
+     * @param property the parameter definitions of the job.
+     */
+    private DefaultParameters(ParametersDefinitionProperty property) {
+        List<ParameterDefinition> list = property.getParameterDefinitions();
+        definitions = list.toArray(new ParameterDefinition[0]);
+        values = new ParameterValue[definitions.length];
+        for (int i = 0; i < definitions.length; i++) {
+            if (FIXED_DEFAULT_TYPES.contains(definitions[i].getClass())) {
+                values[i] = definitions[i].getDefaultParameterValue();
+            }
+        }
+    }
+
+    /**
+     * Retrieves all default parameter values for a project, in a new list that also has room for the
+     * Gerrit parameters.
+     *
+     * @param project the project.
+     * @return the default parameter values.
+     * @see GerritTriggerParameters#setOrCreateParameters(
+     *      com.sonymobile.tools.gerrit.gerritevents.dto.events.GerritTriggeredEvent, Job, List)
+     */
+    @NonNull
+    static List<ParameterValue> of(@NonNull Job project) {
+        ParametersDefinitionProperty property =
+                (ParametersDefinitionProperty)project.getProperty(ParametersDefinitionProperty.class);
+        int gerritParameters = GerritTriggerParameters.values().length;
+        if (property == null) {
+            return new ArrayList<>(gerritParameters);
+        }
+        DefaultParameters defaults = CACHE.computeIfAbsent(property, DefaultParameters::new);
+        List<ParameterValue> parameters = new ArrayList<>(defaults.definitions.length + gerritParameters);
+        for (int i = 0; i < defaults.definitions.length; i++) {
+            ParameterValue value = defaults.values[i];
+            if (value == null) {
+                value = defaults.definitions[i].getDefaultParameterValue();
+            }
+            if (value != null) {
+                parameters.add(value);
+            }
+        }
+        return parameters;
+    }
+
+    /**
+     * Forgets the default parameter values of a project, when it has been saved.
+     *
+     * @param project the project.
+     */
+    static void invalidate(@NonNull Job project) {
+        ParametersDefinitionProperty property =
+                (ParametersDefinitionProperty)project.getProperty(ParametersDefinitionProperty.class);
+        if (property != null) {
+            CACHE.remove(property);
+        }
+    }
+}
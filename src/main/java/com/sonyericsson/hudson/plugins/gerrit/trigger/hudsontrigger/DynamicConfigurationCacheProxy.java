@@ -1,66 +1,234 @@
 package com.sonyericsson.hudson.plugins.gerrit.trigger.hudsontrigger;
 
 import com.sonyericsson.hudson.plugins.gerrit.trigger.hudsontrigger.data.GerritProject;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.text.ParseException;
 import java.util.Iterator;
-import java.util.concurrent.TimeUnit;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Keeps map between url and dynamic trigger configuration.
  * It's used to speed up execution time during updating
  * trigger jobs and reduce number of connections for the duplicated configs.
+ *
+ * Configurations are fetched on a small pool of threads, at most one fetch per URL at a time,
+ * so a slow configuration server only delays the jobs that use it.
+ * An expired configuration keeps being served while it is refreshed in the background.
+ * Only the very first fetch of a URL is waited for.
+ * Refreshes are conditional, so a config that hasn't changed isn't read and parsed again
+ * and the jobs keep the very same project list.
  */
 final class DynamicConfigurationCacheProxy {
+    /**
+     * The default maximum number of configurations fetched at the same time.
+     * Can be tuned with the system property
+     * <code>com.sonyericsson.hudson.plugins.gerrit.trigger.hudsontrigger.DynamicConfigurationCacheProxy.threads</code>.
+     */
+    static final int DEFAULT_FETCH_THREADS = 4;
+    private static final long IDLE_THREAD_KEEP_ALIVE_SECONDS = 60;
     private static final DynamicConfigurationCacheProxy CACHE_PROXY = new DynamicConfigurationCacheProxy();
-    private final Map<String, List<GerritProject>> cache = new HashMap<>();
     private static final Logger logger = LoggerFactory.getLogger(DynamicConfigurationCacheProxy.class);
-    private final Map<String, Long> ttl = new HashMap<>();
+    private final ConcurrentMap<String, Entry> cache = new ConcurrentHashMap<>();
+    private final Fetcher fetcher;
+    private final Executor executor;
 
     /**
      * Private constructor.
      */
     private DynamicConfigurationCacheProxy() {
+        this(GerritDynamicUrlProcessor::fetch, createExecutor());
+    }
+
+    /**
+     * Constructor for tests.
+     *
+     * @param fetcher  fetches a configuration.
+     * @param executor runs the fetches.
+     */
+    DynamicConfigurationCacheProxy(Fetcher fetcher, Executor executor) {
+        this.fetcher = fetcher;
+        this.executor = executor;
+    }
+
+    /**
+     * Creates the bounded pool to fetch configurations on.
+     *
+     * @return the pool.
+     */
+    private static Executor createExecutor() {
+        int threads = Math.max(1, Integer.getInteger(DynamicConfigurationCacheProxy.class.getName() + ".threads",
+                DEFAULT_FETCH_THREADS));
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads,
+                IDLE_THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                new NamingThreadFactory(new DaemonThreadFactory(), "Gerrit dynamic trigger config fetcher"));
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
     }
 
     /**
      * Returns dynamic trigger config from the cache if it's available.
-     * Otherwise send query.
+     * If it has expired, a refresh is started and the expired config is returned.
+     * Otherwise, when the URL hasn't been fetched yet, waits for it to be.
      *
      * @param url url to dynamic trigger config.
      * @return list of gerrit projects.
-     * @throws IOException if so.
-     * @throws ParseException if so.
+     * @throws IOException if so, or if the last refresh of an expired config failed.
+     * @throws ParseException if so, or if the last refresh of an expired config failed.
      */
-    synchronized List<GerritProject> fetchThroughCache(String url) throws IOException, ParseException {
-        if (cache.containsKey(url) && !isExpired(url)) {
-            logger.debug("Get dynamic projects from cache for URL: " + url);
-            // Maintain cache while not fetching from URL
-            Iterator<String> iterator = ttl.keySet().iterator();
-            while (iterator.hasNext()) {
-                String keyUrl = iterator.next();
-                if (isExpired(keyUrl)) {
-                    iterator.remove();
-                    cache.remove(keyUrl);
-                    logger.trace("Removing {} from cache", keyUrl);
+    List<GerritProject> fetchThroughCache(String url) throws IOException, ParseException {
+        long now = System.currentTimeMillis();
+        Entry entry = cache.computeIfAbsent(url, k -> new Entry());
+        List<GerritProject> cached = null;
+        CompletableFuture<List<GerritProject>> fetching;
+        synchronized (entry) {
+            entry.requested = now;
+            boolean expired = entry.projects == null || isExpired(entry.fetched, now);
+            if (expired && entry.fetching == null) {
+                startFetch(url, entry);
+            }
+            if (entry.projects != null) {
+                if (entry.error != null && isExpired(entry.fetched, now)) {
+                    rethrow(entry.error);
                 }
+                cached = entry.projects;
+            } else if (entry.fetching == null) {
+                //The first fetch has already failed, in this thread.
+                rethrow(entry.error);
             }
+            fetching = entry.fetching;
+        }
+        if (cached != null) {
+            logger.debug("Get dynamic projects from cache for URL: {}", url);
+            evictUnused(entry, now);
+            return cached;
+        }
+        try {
+            return fetching.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while fetching " + url, e);
+        } catch (ExecutionException e) {
+            rethrow(e.getCause());
+            return null;
+        }
+    }
 
-            return cache.get(url);
+    /**
+     * Fetches the config of a URL now, unless it is already being fetched, and waits for it.
+     * Used by the refresh shared by the jobs of the URL before they get the config through the cache.
+     * A failure is logged and rethrown to them by {@link #fetchThroughCache(String)}.
+     *
+     * @param url url to dynamic trigger config.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    void refresh(String url) throws InterruptedException {
+        Entry entry = cache.computeIfAbsent(url, k -> new Entry());
+        CompletableFuture<List<GerritProject>> fetching;
+        synchronized (entry) {
+            entry.requested = System.currentTimeMillis();
+            fetching = entry.fetching;
+            if (fetching == null) {
+                fetching = startFetch(url, entry);
+            }
+        }
+        try {
+            fetching.get();
+        } catch (ExecutionException e) {
+            logger.debug("Refresh of dynamic projects failed for URL: {}", url);
         }
+    }
+
+    /**
+     * Fetches the config of a URL on the executor.
+     * Must be called while holding the lock on the entry and only if it isn't already being fetched.
+     *
+     * @param url   the URL.
+     * @param entry the entry to update when done.
+     * @return the fetch.
+     */
+    private CompletableFuture<List<GerritProject>> startFetch(String url, Entry entry) {
+        CompletableFuture<List<GerritProject>> future = new CompletableFuture<>();
+        GerritDynamicUrlProcessor.Fetched previous = entry.result;
+        entry.fetching = future;
+        executor.execute(() -> {
+            logger.info("Get dynamic projects directly for URL: {}", url);
+            try {
+                GerritDynamicUrlProcessor.Fetched result = fetcher.fetch(url, previous);
+                List<GerritProject> projects = result.getProjects();
+                synchronized (entry) {
+                    entry.result = result;
+                    entry.projects = projects;
+                    entry.fetched = System.currentTimeMillis();
+                    entry.error = null;
+                    entry.fetching = null;
+                }
+                future.complete(projects);
+            } catch (Exception e) {
+                logger.warn("Failed to fetch dynamic projects for URL: {}", url, e);
+                synchronized (entry) {
+                    entry.error = e;
+                    entry.fetching = null;
+                }
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
 
-        logger.info("Get dynamic projects directly for URL: {}", url);
-        List<GerritProject> gerritProjects = GerritDynamicUrlProcessor.fetch(url);
-        ttl.put(url, System.currentTimeMillis());
-        cache.put(url, gerritProjects);
+    /**
+     * Removes the configs that no job has asked for in two refresh intervals, unless they are being fetched.
+     *
+     * @param current the config that was just asked for.
+     * @param now the current time.
+     */
+    private void evictUnused(Entry current, long now) {
+        Iterator<ConcurrentMap.Entry<String, Entry>> iterator = cache.entrySet().iterator();
+        while (iterator.hasNext()) {
+            ConcurrentMap.Entry<String, Entry> next = iterator.next();
+            Entry entry = next.getValue();
+            if (entry == current) {
+                continue;
+            }
+            synchronized (entry) {
+                if (entry.fetching == null && now - entry.requested > 2 * getRefreshIntervalMillis()) {
+                    iterator.remove();
+                    logger.trace("Removing {} from cache", next.getKey());
+                }
+            }
+        }
+    }
 
-        return gerritProjects;
+    /**
+     * Rethrows the failure of a fetch.
+     *
+     * @param t the failure.
+     * @throws IOException if it is one, or if it is a checked exception of another kind.
+     * @throws ParseException if it is one.
+     */
+    private static void rethrow(Throwable t) throws IOException, ParseException {
+        if (t instanceof IOException) {
+            throw (IOException)t;
+        } else if (t instanceof ParseException) {
+            throw (ParseException)t;
+        } else if (t instanceof RuntimeException) {
+            throw (RuntimeException)t;
+        } else if (t instanceof Error) {
+            throw (Error)t;
+        }
+        throw new IOException(t);
     }
 
     /**
@@ -73,26 +241,62 @@ final class DynamicConfigurationCacheProxy {
     }
 
     /**
-     * Check the need to update specified url.
+     * Check the need to update something last updated at the given time.
      *
-     * @param url url.
-     * @return true if cached value is expired.
+     * @param lastTimeUpdated the time of the last update.
+     * @param now the current time.
+     * @return true if it is expired.
      */
-    private boolean isExpired(String url) {
-        Long lastTimeUpdated = ttl.get(url);
-        if (lastTimeUpdated == null) {
-            lastTimeUpdated = System.currentTimeMillis();
-        }
+    private static boolean isExpired(long lastTimeUpdated, long now) {
+        long updateInterval = GerritTriggerTimer.getInstance().calculateAverageDynamicConfigRefreshInterval();
+        return TimeUnit.MILLISECONDS.toSeconds(now - lastTimeUpdated) > updateInterval;
+    }
 
+    /**
+     * The refresh interval.
+     *
+     * @return the interval in milliseconds.
+     */
+    private static long getRefreshIntervalMillis() {
         long updateInterval = GerritTriggerTimer.getInstance().calculateAverageDynamicConfigRefreshInterval();
-        return TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis() - lastTimeUpdated) > updateInterval;
+        return TimeUnit.SECONDS.toMillis(updateInterval);
     }
 
     /**
      * Clears the cache.
      */
     void clear() {
-        ttl.clear();
         cache.clear();
     }
+
+    /**
+     * Fetches a dynamic trigger config.
+     */
+    @FunctionalInterface
+    interface Fetcher {
+        /**
+         * Fetches the config.
+         *
+         * @param url the URL of the config.
+         * @param previous the result of the previous fetch, if any.
+         * @return the result, <code>previous</code> if the config hasn't changed.
+         * @throws IOException if so.
+         * @throws ParseException if so.
+         * @see GerritDynamicUrlProcessor#fetch(String, GerritDynamicUrlProcessor.Fetched)
+         */
+        GerritDynamicUrlProcessor.Fetched fetch(String url, GerritDynamicUrlProcessor.Fetched previous)
+                throws IOException, ParseException;
+    }
+
+    /**
+     * The cached config of a URL. Guarded by itself.
+     */
+    private static final class Entry {
+        private GerritDynamicUrlProcessor.Fetched result;
+        private List<GerritProject> projects;
+        private long fetched;
+        private long requested;
+        private Exception error;
+        private CompletableFuture<List<GerritProject>> fetching;
+    }
 }
@@ -24,6 +24,7 @@
 package com.sonyericsson.hudson.plugins.gerrit.trigger.hudsontrigger;
 
 import com.sonyericsson.hudson.plugins.gerrit.trigger.config.IGerritHudsonTriggerConfig;
+import com.sonyericsson.hudson.plugins.gerrit.trigger.dependency.DependencyGraph;
 import com.sonyericsson.hudson.plugins.gerrit.trigger.events.ManualPatchsetCreated;
 import com.sonyericsson.hudson.plugins.gerrit.trigger.events.lifecycle.GerritEventLifecycle;
 import com.sonyericsson.hudson.plugins.gerrit.trigger.gerritnotifier.ToGerritRunListener;
@@ -37,10 +38,8 @@ import com.sonymobile.tools.gerrit.gerritevents.dto.events.GerritTriggeredEvent;
 import com.sonymobile.tools.gerrit.gerritevents.dto.events.RefUpdated;
 import hudson.model.CauseAction;
 import hudson.model.Job;
-import hudson.model.ParameterDefinition;
 import hudson.model.ParameterValue;
 import hudson.model.ParametersAction;
-import hudson.model.ParametersDefinitionProperty;
 import jenkins.model.Jenkins;
 import jenkins.model.ParameterizedJobMixIn;
 import org.kohsuke.accmod.Restricted;
@@ -50,13 +49,7 @@ import org.slf4j.LoggerFactory;
 
 import edu.umd.cs.findbugs.annotations.CheckForNull;
 import edu.umd.cs.findbugs.annotations.NonNull;
-import java.lang.reflect.Constructor;
-import java.lang.reflect.Field;
-import java.lang.reflect.Modifier;
-import java.util.ArrayList;
-import java.util.Collection;
 import java.util.List;
-import java.util.Locale;
 import java.util.concurrent.Future;
 
 import static com.sonyericsson.hudson.plugins.gerrit.trigger.PluginImpl.getServerConfig;
@@ -270,10 +263,15 @@ public final class EventListener implements GerritEventListener {
         if (cause instanceof GerritUserCause) {
             // it's a manual trigger, no need for a quiet period
             projectbuildDelay = 0;
-        } else if (project instanceof ParameterizedJobMixIn.ParameterizedJob abstractProject) {
-            if (abstractProject.getQuietPeriod() > projectbuildDelay) {
-                projectbuildDelay = abstractProject.getQuietPeriod();
+        } else {
+            if (project instanceof ParameterizedJobMixIn.ParameterizedJob abstractProject) {
+                if (abstractProject.getQuietPeriod() > projectbuildDelay) {
+                    projectbuildDelay = abstractProject.getQuietPeriod();
+                }
             }
+            // Let the dependencies of the job leave the quiet period before it does,
+            // so that the jobs reach the queue in the order of their dependencies.
+            projectbuildDelay += DependencyGraph.getInstance().getDepth(project);
         }
         ParametersAction parameters = createParameters(event, project);
 
@@ -332,87 +330,17 @@ public final class EventListener implements GerritEventListener {
 
     /**
      * Creates a ParameterAction and fills it with the project's default parameters + the Standard Gerrit parameters.
-     * If running on a core version that let's us specify safeParameters for the ParameterAction
-     * the Gerrit specific parameters will be specified in the safeParameters list in addition to anything the admin
-     * might have set.
-     * A warning will be printed to the log if that is not possible but SECURITY-170 appears to be in effect.
+     * The Gerrit specific parameters are specified in the safeParameters list of the ParameterAction,
+     * in addition to anything the admin might have set.
      *
      * @param event   the event.
      * @param project the project.
      * @return the ParameterAction.
      */
     protected ParametersAction createParameters(GerritTriggeredEvent event, Job project) {
-        List<ParameterValue> parameters = getDefaultParametersValues(project);
+        List<ParameterValue> parameters = DefaultParameters.of(project);
         setOrCreateParameters(event, project, parameters);
-        try {
-            Constructor<ParametersAction> constructor = ParametersAction.class.getConstructor(List.class,
-                                                                                              Collection.class);
-            return constructor.newInstance(parameters, GerritTriggerParameters.getNamesSet());
-        } catch (NoSuchMethodException e) {
-            ParametersActionInspection inspection = getParametersInspection();
-            if (inspection.isInspectionFailure()) {
-                logger.warn("Failed to inspect ParametersAction to determine "
-                                    + "if we can behave normally around SECURITY-170.\nSee "
-                                    + "https://wiki.jenkins-ci.org/display/SECURITY/Jenkins+Security+Advisory+2016-05-11"
-                                    + " for information.");
-            } else if (inspection.isHasSafeParameterConfig()) {
-                StringBuilder txt = new StringBuilder(
-                        "Running on a core with SECURITY-170 fixed but no direct way for Gerrit Trigger"
-                                + " to self-specify safe parameters.");
-                txt.append(" You should consider upgrading to a new Jenkins core version.\n");
-                if (inspection.isKeepUndefinedParameters()) {
-                    txt.append(".keepUndefinedParameters is set so the trigger should behave normally.");
-                } else if (inspection.isSafeParametersSet()) {
-                    txt.append("All Gerrit related parameters are set in .safeParameters");
-                    txt.append(" so the trigger should behave normally.");
-                } else {
-                    txt.append("No overriding system properties appears to be set,");
-                    txt.append(" your builds might not work as expected.\n");
-                    txt.append("See https://wiki.jenkins-ci.org/display/SECURITY/Jenkins+Security+Advisory+2016-05-11");
-                    txt.append(" for information.");
-                }
-                logger.warn(txt.toString());
-            } else {
-                logger.debug("Running on an old core before safe parameters, we should be safe.", e);
-            }
-        } catch (IllegalAccessException e) {
-            logger.warn("Running on a core with safe parameters fix available, but not allowed to specify them", e);
-        } catch (Exception e) {
-            logger.warn("Running on a core with safe parameters fix available, but failed to provide them", e);
-        }
-        return new ParametersAction(parameters);
-    }
-
-    /**
-     * Retrieves all default parameter values for a project.
-     * Copied from {@link hudson.model.AbstractProject#getDefaultParametersValues()}
-     * version 1.362. TODO: This is not a good way to solve the problem.
-     *
-     * @param project the project.
-     * @return the default parameter values.
-     */
-    private List<ParameterValue> getDefaultParametersValues(Job project) {
-        ParametersDefinitionProperty paramDefProp =
-                (ParametersDefinitionProperty)project.getProperty(ParametersDefinitionProperty.class);
-        List<ParameterValue> defValues = new ArrayList<>();
-
-        /*
-         * This check is made ONLY if someone calls this method even if isParametrized() is false.
-         */
-        if (paramDefProp == null) {
-            return defValues;
-        }
-
-        /* Scan for all parameters with an associated default value */
-        for (ParameterDefinition paramDefinition : paramDefProp.getParameterDefinitions()) {
-            ParameterValue defaultValue = paramDefinition.getDefaultParameterValue();
-
-            if (defaultValue != null) {
-                defValues.add(defaultValue);
-            }
-        }
-
-        return defValues;
+        return new ParametersAction(parameters, GerritTriggerParameters.getNames());
     }
 
     /**
@@ -474,113 +402,4 @@ public final class EventListener implements GerritEventListener {
     public boolean equals(Object obj) {
         return obj instanceof EventListener && ((EventListener)obj).job.equals(job);
     }
-
-    /**
-     * Inspects {@link ParametersAction} to see what kind of capabilities it has in regards to SECURITY-170.
-     * Assuming the safeParameters constructor could not be found.
-     *
-     * @return the inspection result
-     * @see #createParameters(GerritTriggeredEvent, Job)
-     */
-    private static synchronized ParametersActionInspection getParametersInspection() {
-        if (parametersInspectionCache == null) {
-            parametersInspectionCache = new ParametersActionInspection();
-        }
-        return parametersInspectionCache;
-    }
-
-    /**
-     * Stored cache of the inspection.
-     * @see #getParametersInspection()
-     */
-    private static volatile ParametersActionInspection parametersInspectionCache = null;
-
-    /**
-     * Data structure with information regarding what kind of capabilities {@link ParametersAction} has.
-     * @see #getParametersInspection()
-     * @see #createParameters(GerritTriggeredEvent, Job)
-     */
-    private static class ParametersActionInspection {
-        private static final Class<ParametersAction> KLASS = ParametersAction.class;
-        private boolean inspectionFailure;
-        private boolean safeParametersSet = false;
-        private boolean keepUndefinedParameters = false;
-        private boolean hasSafeParameterConfig = false;
-
-        /**
-         * Constructor that performs the inspection.
-         */
-        ParametersActionInspection() {
-            try {
-                for (Field field : KLASS.getDeclaredFields()) {
-                    if (Modifier.isStatic(field.getModifiers())
-                            &&  (
-                                 field.getName().equals("KEEP_UNDEFINED_PARAMETERS_SYSTEM_PROPERTY_NAME")
-                                 || field.getName().equals("SAFE_PARAMETERS_SYSTEM_PROPERTY_NAME")
-                                )
-                       ) {
-                        this.hasSafeParameterConfig = true;
-                        break;
-                    }
-                }
-                if (hasSafeParameterConfig) {
-                    if (Boolean.getBoolean(KLASS.getName() + ".keepUndefinedParameters")) {
-                        this.keepUndefinedParameters = true;
-                    }
-                    String safeParameters = System.getProperty(KLASS.getName() + ".safeParameters");
-                    if (safeParameters != null && !safeParameters.isBlank()) {
-                        safeParameters = safeParameters.toUpperCase(Locale.ENGLISH);
-                        boolean declared = true;
-                        for (GerritTriggerParameters parameter : GerritTriggerParameters.values()) {
-                            if (!safeParameters.contains(parameter.name())) {
-                                declared = false;
-                                break;
-                            }
-                        }
-                        this.safeParametersSet = declared;
-                    } else {
-                        this.safeParametersSet = false;
-                    }
-                }
-                this.inspectionFailure = false;
-            } catch (Exception e) {
-                this.inspectionFailure = true;
-            }
-        }
-
-        /**
-         * If the system property .safeParameters is set and contains all Gerrit related parameters.
-         * @return true if so.
-         */
-        boolean isSafeParametersSet() {
-            return safeParametersSet;
-        }
-
-        /**
-         * If the system property .keepUndefinedParameters is set and set to true.
-         *
-         * @return true if so.
-         */
-        boolean isKeepUndefinedParameters() {
-            return keepUndefinedParameters;
-        }
-
-        /**
-         * If any of the constant fields regarding safeParameters are declared in {@link ParametersAction}.
-         *
-         * @return true if so.
-         */
-        boolean isHasSafeParameterConfig() {
-            return hasSafeParameterConfig;
-        }
-
-        /**
-         * If there was an exception when inspecting the class.
-         *
-         * @return true if so.
-         */
-        public boolean isInspectionFailure() {
-            return inspectionFailure;
-        }
-    }
 }
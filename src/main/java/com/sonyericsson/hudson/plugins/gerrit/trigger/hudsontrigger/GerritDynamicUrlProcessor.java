@@ -31,6 +31,8 @@ import com.sonyericsson.hudson.plugins.gerrit.trigger.hudsontrigger.data.GerritP
 import com.sonyericsson.hudson.plugins.gerrit.trigger.hudsontrigger.data.Hashtag;
 import com.sonyericsson.hudson.plugins.gerrit.trigger.hudsontrigger.data.Topic;
 
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
 import org.kohsuke.accmod.Restricted;
 import org.kohsuke.accmod.restrictions.NoExternalUse;
 import org.slf4j.Logger;
@@ -40,15 +42,19 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLConnection;
 import java.nio.charset.StandardCharsets;
 import java.text.ParseException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Map;
 
 /**
  * This class handles the fetching and parsing of URLs for the Dynamic Trigger
@@ -61,12 +67,12 @@ public final class GerritDynamicUrlProcessor {
 
     private static final Logger logger = LoggerFactory.getLogger(GerritDynamicUrlProcessor.class);
 
-    private static final String SHORTNAME_PROJECT = "p";
-    private static final String SHORTNAME_BRANCH = "b";
-    private static final String SHORTNAME_TOPIC = "t";
-    private static final String SHORTNAME_HASHTAG = "h";
-    private static final String SHORTNAME_FILE = "f";
-    private static final String SHORTNAME_FORBIDDEN_FILE = "o";
+    private static final char SHORTNAME_PROJECT = 'p';
+    private static final char SHORTNAME_BRANCH = 'b';
+    private static final char SHORTNAME_TOPIC = 't';
+    private static final char SHORTNAME_HASHTAG = 'h';
+    private static final char SHORTNAME_FILE = 'f';
+    private static final char SHORTNAME_FORBIDDEN_FILE = 'o';
     private static final int SOCKET_READ_TIMEOUT = 10000;
 
     /**
@@ -76,199 +82,308 @@ public final class GerritDynamicUrlProcessor {
     }
 
     /**
-     * Build the regex pattern for matching lines in the config.
-     * @return the pattern
+     * Read and parse the dynamic trigger configuration.
+     *
+     * This is what a line in the file should look like, after all comments and
+     * leading and trailing whitespace have been removed:
+     * item: one of the characters p (for Project), b (for Branch), t (for Topic), h (for Hashtag),
+     * f (for FilePath) or o (for ForbiddenFilePath);
+     * optional whitespace;
+     * operator: one of the characters = (for Plain), ~ (for RegExp), or ^ (for ANT path);
+     * optional whitespace;
+     * the pattern: everything else on the line.
+     * Each line is tokenized in a single pass over its characters.
+     *
+     * Projects that are defined exactly like a project of the previous fetch are replaced by that instance,
+     * so only the projects that have changed are new to the trigger.
+     *
+     * @param reader stream from which to read the config
+     * @param previous the projects of the previous fetch, if any
+     *
+     * @return List of Gerrit projects
+     * @throws ParseException when the fetched content couldn't be parsed
+     * @throws IOException for all other kinds of fetch errors
      */
-    private static Pattern buildLinePattern() {
-      // This is what a line in the file should look like, after all comments and
-      // leading and trailing whitespace have been removed:
-      // item: one of the characters p (for Project), b (for Branch), t (for Topic) or f (for FilePath)
-      // optional whitespace
-      // operator: one of the characters = (for Plain), ~ (for RegExp), or ^ (for ANT path)
-      // optional whitespace
-      // the pattern: everything else on the line
-      String projectBranchFile = "^("
-              + SHORTNAME_PROJECT
-              + "|" + SHORTNAME_BRANCH
-              + "|" + SHORTNAME_TOPIC
-              + "|" + SHORTNAME_HASHTAG
-              + "|" + SHORTNAME_FILE
-              + "|" + SHORTNAME_FORBIDDEN_FILE
-              + ")";
-      StringBuilder operators = new StringBuilder("(");
-      boolean firstoperator = true;
-      for (CompareType type : CompareType.values()) {
-        if (!firstoperator) {
-          operators.append("|");
+    static List<GerritProject> readAndParseTriggerConfig(BufferedReader reader,
+                                                         @CheckForNull List<GerritProject> previous)
+            throws IOException, ParseException {
+        Map<String, Deque<GerritProject>> unchanged = indexBySignature(previous);
+
+        List<GerritProject> dynamicGerritProjects = new ArrayList<>();
+        List<Branch> branches = null;
+        List<Topic> topics = null;
+        List<Hashtag> hashtags = null;
+        List<FilePath> filePaths = null;
+        List<FilePath> forbiddenFilePaths = null;
+        GerritProject dynamicGerritProject = null;
+
+        String line;
+        int lineNr = 0;
+        while ((line = reader.readLine()) != null) {
+            ++lineNr;
+            // Skip any comment starting with a # or a ;, and leading and trailing whitespace
+            int start = 0;
+            int end = line.length();
+            for (int i = 0; i < end; i++) {
+                char c = line.charAt(i);
+                if (c == '#' || c == ';') {
+                    end = i;
+                }
+            }
+            while (start < end && line.charAt(start) <= ' ') {
+                start++;
+            }
+            while (end > start && line.charAt(end - 1) <= ' ') {
+                end--;
+            }
+            if (start == end) {
+                continue;
+            }
+
+            char item = line.charAt(start);
+            int pos = skipWhitespace(line, start + 1, end);
+            CompareType type = null;
+            if (pos < end) {
+                char operator = line.charAt(pos);
+                type = CompareType.findByOperator(operator);
+                if (type.getOperator() != operator) {
+                    // it falls back to plain for any character
+                    type = null;
+                }
+            }
+            if (type == null || !isItem(item)) {
+                throw new ParseException("Line " + lineNr + ": cannot parse '"
+                        + line.substring(start, end) + "'", lineNr);
+            }
+            pos = skipWhitespace(line, pos + 1, end);
+            if (pos == end) {
+                throw new ParseException("Line " + lineNr + ": cannot parse '"
+                        + line.substring(start, end) + "'", lineNr);
+            }
+            String text = line.substring(pos, end);
+
+            logger.trace("==> item:({}) oper:({}) text:({})", item, type.getOperator(), text);
+
+            switch (item) {
+                case SHORTNAME_PROJECT -> {
+                    // stash previous project to the list
+                    if (dynamicGerritProject != null) {
+                        dynamicGerritProjects.add(unchangedOr(dynamicGerritProject, unchanged));
+                    }
+
+                    branches = new ArrayList<>();
+                    topics = new ArrayList<>();
+                    hashtags = new ArrayList<>();
+                    filePaths = new ArrayList<>();
+                    forbiddenFilePaths = new ArrayList<>();
+                    dynamicGerritProject = new GerritProject(type, text, branches, topics,
+                            filePaths, forbiddenFilePaths, false);
+                }
+                case SHORTNAME_BRANCH -> {
+                    if (branches == null) {
+                        throw new ParseException("Line " + lineNr + ": attempt to use 'Branch' before 'Project'",
+                                lineNr);
+                    }
+                    branches.add(new Branch(type, text));
+                }
+                case SHORTNAME_TOPIC -> {
+                    if (topics == null) {
+                        throw new ParseException("Line " + lineNr + ": attempt to use 'Topic' before 'Project'",
+                                lineNr);
+                    }
+                    topics.add(new Topic(type, text));
+                }
+                case SHORTNAME_FILE -> { // FilePath
+                    if (filePaths == null) {
+                        throw new ParseException("Line " + lineNr
+                                + ": attempt to use 'FilePath' before 'Project'", lineNr);
+                    }
+                    filePaths.add(new FilePath(type, text));
+                }
+                case SHORTNAME_FORBIDDEN_FILE -> { // ForbiddenFilePath
+                    if (forbiddenFilePaths == null) {
+                        throw new ParseException("Line " + lineNr
+                                + ": attempt to use 'ForbiddenFilePath' before 'Project'", lineNr);
+                    }
+                    forbiddenFilePaths.add(new FilePath(type, text));
+                }
+                case SHORTNAME_HASHTAG -> {
+                    if (hashtags == null) {
+                        throw new ParseException("Line " + lineNr + ": attempt to use 'hashtag' before 'Project'",
+                                lineNr);
+                    }
+                    hashtags.add(new Hashtag(type, text));
+                    dynamicGerritProject.setHashtags(hashtags);
+                }
+                default -> {
+                    throw new ParseException("Line " + lineNr + ": Unknown value: " + item, lineNr);
+                }
+            }
+        }
+
+        // Finally stash the last project to the list
+        if (dynamicGerritProject != null) {
+            dynamicGerritProjects.add(unchangedOr(dynamicGerritProject, unchanged));
         }
-        operators.append(regexEscaped(type.getOperator()));
-        firstoperator = false;
-      }
-      operators.append(")");
-
-      return Pattern.compile(projectBranchFile
-              + "\\s*"
-              + operators
-              + "\\s*(.+)$");
+
+        return dynamicGerritProjects;
     }
 
     /**
-     * Escaped char for use in regex pattern.
+     * The index of the first non whitespace character of a line.
      *
-     * @param symbol to escaped char
+     * @param line the line
+     * @param from the index to start at
+     * @param end the end of the content of the line
+     * @return the index, or <code>end</code> if there is none.
+     */
+    private static int skipWhitespace(String line, int from, int end) {
+        int pos = from;
+        while (pos < end && Character.isWhitespace(line.charAt(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+
+    /**
+     * If a character is one of the items of a line.
      *
-     * @return escaped symbol
+     * @param item the character
+     * @return true if so
      */
-    private static String regexEscaped(char symbol) {
-        return switch (symbol) {
-            case '^' -> "\\^";
-            default -> String.valueOf(symbol);
+    private static boolean isItem(char item) {
+        return switch (item) {
+            case SHORTNAME_PROJECT, SHORTNAME_BRANCH, SHORTNAME_TOPIC, SHORTNAME_HASHTAG,
+                    SHORTNAME_FILE, SHORTNAME_FORBIDDEN_FILE -> true;
+            default -> false;
         };
     }
 
     /**
-     * Read and parse the dynamic trigger configuration.
-     *
-     * @param reader stream from which to read the config
+     * Indexes projects by their {@link #signature(GerritProject)}.
      *
-     * @return List of Gerrit projects
-     * @throws ParseException when the fetched content couldn't be parsed
-     * @throws IOException for all other kinds of fetch errors
+     * @param projects the projects, if any
+     * @return the projects with each signature, in order.
      */
-    private static List<GerritProject> readAndParseTriggerConfig(BufferedReader reader)
-            throws IOException, ParseException {
-      Pattern linePattern = buildLinePattern();
-
-      List<GerritProject> dynamicGerritProjects = new ArrayList<>();
-      List<Branch> branches = null;
-      List<Topic> topics = null;
-      List<Hashtag> hashtags = null;
-      List<FilePath> filePaths = null;
-      List<FilePath> forbiddenFilePaths = null;
-      GerritProject dynamicGerritProject = null;
-
-      String line = "";
-      int lineNr = 0;
-      while ((line = reader.readLine()) != null) {
-        ++lineNr;
-        // Remove any comments starting with a #
-        int commentPos = line.indexOf('#');
-        if (commentPos > -1) {
-          line = line.substring(0, commentPos);
+    private static Map<String, Deque<GerritProject>> indexBySignature(@CheckForNull List<GerritProject> projects) {
+        if (projects == null || projects.isEmpty()) {
+            return Collections.emptyMap();
         }
-
-        // Remove any comments starting with a ;
-        commentPos = line.indexOf(';');
-        if (commentPos > -1) {
-          line = line.substring(0, commentPos);
+        Map<String, Deque<GerritProject>> index = new HashMap<>();
+        for (GerritProject project : projects) {
+            index.computeIfAbsent(signature(project), k -> new ArrayDeque<>()).add(project);
         }
+        return index;
+    }
 
-        // Trim leading and trailing whitespace
-        line = line.trim();
-        if (line.isEmpty()) {
-          continue;
+    /**
+     * Takes a previous project defined like a parsed project.
+     *
+     * @param project the parsed project
+     * @param unchanged the previous projects by signature, of which the one taken is removed
+     * @return the previous project, or the parsed project if there is none.
+     */
+    private static GerritProject unchangedOr(GerritProject project, Map<String, Deque<GerritProject>> unchanged) {
+        if (unchanged.isEmpty()) {
+            return project;
         }
-
-        Matcher matcher = linePattern.matcher(line);
-        if (!matcher.matches()) {
-          throw new ParseException("Line " + lineNr + ": cannot parse '" + line + "'", lineNr);
+        Deque<GerritProject> same = unchanged.get(signature(project));
+        if (same == null || same.isEmpty()) {
+            return project;
         }
+        return same.poll();
+    }
 
-        // CS IGNORE MagicNumber FOR NEXT 3 LINES. REASON: ConstantsNotNeeded
-        String item = matcher.group(1);
-        String oper = matcher.group(2);
-        String text = matcher.group(3);
-        if (item == null || oper == null || text == null) {
-          throw new ParseException("Line " + lineNr + ": cannot parse '" + line + "'", lineNr);
+    /**
+     * The rules of a project in the form of the config, grouped by item.
+     * Two projects with the same signature trigger on the same events.
+     *
+     * @param project the project
+     * @return the signature
+     */
+    static String signature(GerritProject project) {
+        StringBuilder signature = new StringBuilder();
+        appendRule(signature, SHORTNAME_PROJECT, project.getCompareType(), project.getPattern());
+        if (project.getBranches() != null) {
+            for (Branch branch : project.getBranches()) {
+                appendRule(signature, SHORTNAME_BRANCH, branch.getCompareType(), branch.getPattern());
+            }
         }
-        char operChar = oper.charAt(0);
-        CompareType type = CompareType.findByOperator(operChar);
-
-        logger.trace("==> item:({}) oper:({}) text:({})", item, oper, text);
-
-          switch (item) {
-              case SHORTNAME_PROJECT -> {
-                  // stash previous project to the list
-                  if (dynamicGerritProject != null) {
-                      dynamicGerritProjects.add(dynamicGerritProject);
-                  }
-
-                  branches = new ArrayList<>();
-                  topics = new ArrayList<>();
-                  hashtags = new ArrayList<>();
-                  filePaths = new ArrayList<>();
-                  forbiddenFilePaths = new ArrayList<>();
-                  dynamicGerritProject = new GerritProject(type, text, branches, topics,
-                          filePaths, forbiddenFilePaths, false);
-              }
-              case SHORTNAME_BRANCH -> {
-                  if (branches == null) {
-                      throw new ParseException("Line " + lineNr + ": attempt to use 'Branch' before 'Project'", lineNr);
-                  }
-                  Branch branch = new Branch(type, text);
-                  branches.add(branch);
-                  dynamicGerritProject.setBranches(branches);
-              }
-              case SHORTNAME_TOPIC -> {
-                  if (topics == null) {
-                      throw new ParseException("Line " + lineNr + ": attempt to use 'Topic' before 'Project'", lineNr);
-                  }
-                  Topic topic = new Topic(type, text);
-                  topics.add(topic);
-                  dynamicGerritProject.setTopics(topics);
-              }
-              case SHORTNAME_FILE -> { // FilePath
-                  if (filePaths == null) {
-                      throw new ParseException("Line " + lineNr
-                              + ": attempt to use 'FilePath' before 'Project'", lineNr);
-                  }
-                  FilePath filePath = new FilePath(type, text);
-                  filePaths.add(filePath);
-                  dynamicGerritProject.setFilePaths(filePaths);
-              }
-              case SHORTNAME_FORBIDDEN_FILE -> { // ForbiddenFilePath
-                  if (forbiddenFilePaths == null) {
-                      throw new ParseException("Line " + lineNr
-                              + ": attempt to use 'ForbiddenFilePath' before 'Project'", lineNr);
-                  }
-                  FilePath filePath = new FilePath(type, text);
-                  forbiddenFilePaths.add(filePath);
-                  dynamicGerritProject.setForbiddenFilePaths(forbiddenFilePaths);
-              }
-              case SHORTNAME_HASHTAG -> {
-                  if (hashtags == null) {
-                      throw new ParseException("Line " + lineNr + ": attempt to use 'hashtag' before 'Project'", lineNr);
-                  }
-                  Hashtag hashtag = new Hashtag(type, text);
-                  hashtags.add(hashtag);
-                  dynamicGerritProject.setHashtags(hashtags);
-              }
-              default -> {
-                  throw new ParseException("Line " + lineNr + ": Unknown value: " + item, lineNr);
-              }
-          }
-      }
-
-      // Finally stash the last project to the list
-      if (dynamicGerritProject != null) {
-        dynamicGerritProjects.add(dynamicGerritProject);
-      }
+        if (project.getTopics() != null) {
+            for (Topic topic : project.getTopics()) {
+                appendRule(signature, SHORTNAME_TOPIC, topic.getCompareType(), topic.getPattern());
+            }
+        }
+        if (project.getHashtags() != null) {
+            for (Hashtag hashtag : project.getHashtags()) {
+                appendRule(signature, SHORTNAME_HASHTAG, hashtag.getCompareType(), hashtag.getPattern());
+            }
+        }
+        if (project.getFilePaths() != null) {
+            for (FilePath filePath : project.getFilePaths()) {
+                appendRule(signature, SHORTNAME_FILE, filePath.getCompareType(), filePath.getPattern());
+            }
+        }
+        if (project.getForbiddenFilePaths() != null) {
+            for (FilePath filePath : project.getForbiddenFilePaths()) {
+                appendRule(signature, SHORTNAME_FORBIDDEN_FILE, filePath.getCompareType(), filePath.getPattern());
+            }
+        }
+        if (project.isDisableStrictForbiddenFileVerification()) {
+            signature.append('!');
+        }
+        return signature.toString();
+    }
 
-      return dynamicGerritProjects;
+    /**
+     * Appends a rule as a line of the config.
+     *
+     * @param signature the signature to append to
+     * @param item the item of the rule
+     * @param type the compare type of the rule
+     * @param pattern the pattern of the rule
+     */
+    private static void appendRule(StringBuilder signature, char item, CompareType type, String pattern) {
+        signature.append(item);
+        if (type != null) {
+            signature.append(type.getOperator());
+        }
+        signature.append(pattern).append('\n');
     }
 
     /**
      * This is where the actual fetching is done. If everything goes well,
-     * it returns a list of GerritProjects. If the fetched content hasn't changed
-     * since the last fetch, it returns null.
+     * it returns a list of GerritProjects. The URL is always fetched and parsed,
+     * see {@link #fetch(String, Fetched)} to skip that when it hasn't changed since a previous fetch.
      *
      * @param gerritTriggerConfigUrl the URL to fetch
-     * @return a list of GerritProjects if successful, or null if no change
+     * @return a list of GerritProjects, never null
      * @throws ParseException when the fetched content couldn't be parsed
      * @throws IOException for all other kinds of fetch errors
      */
+    @NonNull
     public static List<GerritProject> fetch(String gerritTriggerConfigUrl)
             throws IOException, ParseException {
+        return fetch(gerritTriggerConfigUrl, null).getProjects();
+    }
+
+    /**
+     * Fetches the URL, unless it hasn't changed since the previous fetch.
+     *
+     * The validators of the previous fetch are sent as <code>If-None-Match</code> and
+     * <code>If-Modified-Since</code>. If the server answers that nothing has changed,
+     * or with the same entity tag as before, the previous result is returned as is, without reading
+     * or parsing anything.
+     *
+     * @param gerritTriggerConfigUrl the URL to fetch
+     * @param previous the result of the previous fetch of the URL, if any
+     * @return the result, the same instance as <code>previous</code> if it hasn't changed
+     * @throws ParseException when the fetched content couldn't be parsed
+     * @throws IOException for all other kinds of fetch errors
+     */
+    @NonNull
+    public static Fetched fetch(String gerritTriggerConfigUrl, @CheckForNull Fetched previous)
+            throws IOException, ParseException {
 
         if (gerritTriggerConfigUrl == null) {
           throw new MalformedURLException("The gerritTriggerConfigUrl is null");
@@ -282,11 +397,135 @@ public final class GerritDynamicUrlProcessor {
         URLConnection connection = url.openConnection();
         connection.setReadTimeout(SOCKET_READ_TIMEOUT);
         connection.setDoInput(true);
+        if (previous != null) {
+            if (previous.getEntityTag() != null) {
+                connection.setRequestProperty("If-None-Match", previous.getEntityTag());
+            }
+            if (previous.getLastModified() != null) {
+                connection.setRequestProperty("If-Modified-Since", previous.getLastModified());
+            }
+        }
+
+        if (previous != null && connection instanceof HttpURLConnection
+                && ((HttpURLConnection)connection).getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+            logger.debug("Dynamic trigger config not modified: {}", gerritTriggerConfigUrl);
+            ((HttpURLConnection)connection).disconnect();
+            return previous;
+        }
+        String entityTag = connection.getHeaderField("ETag");
+        if (previous != null && entityTag != null && isStrong(entityTag)
+                && entityTag.equals(previous.getEntityTag())) {
+            logger.debug("Dynamic trigger config has the same entity tag: {}", gerritTriggerConfigUrl);
+            connection.getInputStream().close();
+            return previous;
+        }
 
         try (InputStream instream = connection.getInputStream();
             BufferedReader reader =
                 new BufferedReader(new InputStreamReader(instream, StandardCharsets.UTF_8))) {
-          return readAndParseTriggerConfig(reader);
+          List<GerritProject> projects = readAndParseTriggerConfig(reader,
+                  previous != null ? previous.getProjects() : null);
+          String lastModified = connection.getHeaderField("Last-Modified");
+          if (previous != null && isSame(projects, previous.getProjects())) {
+              logger.debug("Dynamic trigger config has the same projects: {}", gerritTriggerConfigUrl);
+              return new Fetched(previous, entityTag, lastModified);
+          }
+          return new Fetched(projects, entityTag, lastModified);
+        }
+    }
+
+    /**
+     * If two lists hold the same instances in the same order.
+     *
+     * @param projects the projects
+     * @param others the other projects
+     * @return true if so
+     */
+    private static boolean isSame(List<GerritProject> projects, List<GerritProject> others) {
+        if (projects.size() != others.size()) {
+            return false;
+        }
+        for (int i = 0; i < projects.size(); i++) {
+            if (projects.get(i) != others.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * If an entity tag is a strong validator, i.e. equal tags mean byte for byte equal content.
+     *
+     * @param entityTag the tag
+     * @return true if so
+     */
+    private static boolean isStrong(String entityTag) {
+        return !entityTag.startsWith("W/");
+    }
+
+    /**
+     * The parsed configuration of a URL, and the validators the server sent with it.
+     */
+    public static final class Fetched {
+        private final List<GerritProject> projects;
+        private final String entityTag;
+        private final String lastModified;
+
+        /**
+         * Standard constructor.
+         *
+         * @param projects     the parsed projects.
+         * @param entityTag    the value of the <code>ETag</code> header, if any.
+         * @param lastModified the value of the <code>Last-Modified</code> header, if any.
+         */
+        public Fetched(@NonNull List<GerritProject> projects, @CheckForNull String entityTag,
+                       @CheckForNull String lastModified) {
+            this.projects = Collections.unmodifiableList(projects);
+            this.entityTag = entityTag;
+            this.lastModified = lastModified;
+        }
+
+        /**
+         * Constructor for a result with the same projects as a previous one.
+         *
+         * @param previous     the previous result.
+         * @param entityTag    the value of the <code>ETag</code> header, if any.
+         * @param lastModified the value of the <code>Last-Modified</code> header, if any.
+         */
+        private Fetched(@NonNull Fetched previous, @CheckForNull String entityTag, @CheckForNull String lastModified) {
+            this.projects = previous.projects;
+            this.entityTag = entityTag;
+            this.lastModified = lastModified;
+        }
+
+        /**
+         * The parsed projects.
+         *
+         * @return the projects.
+         */
+        @NonNull
+        public List<GerritProject> getProjects() {
+            return projects;
+        }
+
+        /**
+         * The entity tag.
+         *
+         * @return the tag, or null if the server didn't send one.
+         */
+        @CheckForNull
+        public String getEntityTag() {
+            return entityTag;
+        }
+
+        /**
+         * The last modification date.
+         *
+         * @return the date as sent by the server, or null if it didn't send one.
+         */
+        @CheckForNull
+        public String getLastModified() {
+            return lastModified;
         }
     }
 }
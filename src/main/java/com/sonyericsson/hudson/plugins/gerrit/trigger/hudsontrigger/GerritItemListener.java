@@ -36,7 +36,7 @@ import hudson.model.Item;
 import hudson.model.listeners.ItemListener;
 
 /**
- * Listens for onDeleted and onLoaded events.
+ * Listens for onDeleted, onUpdated and onLoaded events.
  * If the deleted project has a Gerrit trigger, it will be stopped
  * If all project have been loaded, start the connections to Gerrit servers.
  * Since this class has no member variables, and doesn't need any
@@ -98,6 +98,19 @@ public class GerritItemListener extends ItemListener {
         }
     }
 
+    /**
+     * Called by Jenkins when an item has been reconfigured.
+     * Forgets the cached default parameter values of the job, since they may have changed.
+     *
+     * @param item the item that was updated.
+     */
+    @Override
+    public void onUpdated(Item item) {
+        if (item instanceof Job<?, ?> project) {
+            DefaultParameters.invalidate(project);
+        }
+    }
+
     /**
      * Called by Jenkins when all items are loaded.
      */
@@ -5,6 +5,7 @@ import com.sonyericsson.hudson.plugins.gerrit.trigger.Messages;
 import com.sonyericsson.hudson.plugins.gerrit.trigger.PluginImpl;
 import com.sonyericsson.hudson.plugins.gerrit.trigger.config.Config;
 import com.sonyericsson.hudson.plugins.gerrit.trigger.config.ReplicationConfig;
+import com.sonyericsson.hudson.plugins.gerrit.trigger.dependency.DependencyGraph;
 import com.sonyericsson.hudson.plugins.gerrit.trigger.dependency.DependencyQueueTaskDispatcher;
 import com.sonyericsson.hudson.plugins.gerrit.trigger.hudsontrigger.data.CompareType;
 import com.sonyericsson.hudson.plugins.gerrit.trigger.hudsontrigger.data.GerritSlave;
@@ -18,28 +19,31 @@ import hudson.model.AutoCompletionCandidates;
 import hudson.model.Item;
 import hudson.model.ItemGroup;
 import hudson.model.Job;
+import hudson.triggers.Trigger;
 import hudson.triggers.TriggerDescriptor;
 import hudson.util.FormValidation;
 import hudson.util.ListBoxModel;
 import jenkins.model.Jenkins;
 import jenkins.model.ParameterizedJobMixIn;
+import net.sf.json.JSONObject;
 
 import org.jenkinsci.Symbol;
 import org.kohsuke.stapler.AncestorInPath;
 import org.kohsuke.stapler.QueryParameter;
+import org.kohsuke.stapler.StaplerRequest2;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.MalformedURLException;
 import java.net.URISyntaxException;
 import java.net.URL;
-import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.StringTokenizer;
 
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+
 import static com.sonyericsson.hudson.plugins.gerrit.trigger.GerritServer.ANY_SERVER;
 
 
@@ -105,46 +109,58 @@ public final class GerritTriggerDescriptor extends TriggerDescriptor {
                 }
             }
         }
-        //Check there are no cycles in the dependencies, by exploring all dependencies recursively
-        //Only way of creating a cycle is if this project is in the dependencies somewhere.
-        Set<Job> explored = new HashSet<>();
-        List<Job> directDependencies = DependencyQueueTaskDispatcher.getProjectsFromString(value,
-                project);
+        if (project instanceof Job) {
+            return checkDependencyCycles((Job)project, value);
+        }
+        return FormValidation.ok();
+    }
+
+    /**
+     * Checks that the dependency jobs do not create a cycle in the {@link DependencyGraph}.
+     *
+     * @param job the job to depend on the dependency jobs.
+     * @param value the comma separated dependency job names.
+     * @return {@link FormValidation}
+     */
+    private FormValidation checkDependencyCycles(Job job, String value) {
+        List<Job> directDependencies = DependencyQueueTaskDispatcher.getProjectsFromString(value, job);
         if (directDependencies == null) {
             // no dependencies
             return FormValidation.ok();
         }
-        for (Job directDependency : directDependencies) {
-            if (directDependency.getFullName().equals(project.getFullName())) {
-                return FormValidation.error(Messages.CannotAddSelfAsDependency());
-            }
-            java.util.Queue<Job> toExplore = new LinkedList<>();
-            toExplore.add(directDependency);
-            while (!toExplore.isEmpty()) {
-                Job currentlyExploring = toExplore.remove();
-                explored.add(currentlyExploring);
-                GerritTrigger currentTrigger = GerritTrigger.getTrigger(currentlyExploring);
-                if (currentTrigger == null) {
-                    continue;
-                }
-                String currentDependenciesString = GerritTrigger.getTrigger(currentlyExploring).getDependencyJobsNames();
-                List<Job> currentDependencies = DependencyQueueTaskDispatcher.getProjectsFromString(
-                        currentDependenciesString, project);
-                if (currentDependencies == null) {
-                    continue;
-                }
-                for (Job dependency : currentDependencies) {
-                    if (dependency.getFullName().equals(project.getFullName())) {
-                        return FormValidation.error(Messages.AddingDependentProjectWouldCreateLoop(
-                                directDependency.getFullName(), currentlyExploring.getFullName()));
-                    }
-                    if (!explored.contains(dependency)) {
-                        toExplore.add(dependency);
-                    }
+        List<Job> cycle = DependencyGraph.getInstance().findCycle(job, directDependencies);
+        if (cycle == null) {
+            return FormValidation.ok();
+        }
+        if (cycle.size() == 1 && cycle.get(0).getFullName().equals(job.getFullName())) {
+            return FormValidation.error(Messages.CannotAddSelfAsDependency());
+        }
+        return FormValidation.error(Messages.AddingDependentProjectWouldCreateLoop(
+                cycle.get(0).getFullName(), cycle.get(cycle.size() - 1).getFullName()));
+    }
+
+    /**
+     * Rejects a trigger configuration with dependency jobs that would create a cycle,
+     * since builds in a cycle would wait for each other forever.
+     *
+     * @param req the request.
+     * @param formData the form data.
+     * @return the trigger.
+     * @throws FormException if the dependencies would create a cycle.
+     */
+    @Override
+    public Trigger<?> newInstance(@Nullable StaplerRequest2 req, @NonNull JSONObject formData) throws FormException {
+        Trigger<?> trigger = super.newInstance(req, formData);
+        if (req != null && trigger instanceof GerritTrigger gerritTrigger) {
+            Job job = req.findAncestorObject(Job.class);
+            if (job != null) {
+                FormValidation validation = checkDependencyCycles(job, gerritTrigger.getDependencyJobsNames());
+                if (validation.kind == FormValidation.Kind.ERROR) {
+                    throw new FormException(validation.getMessage(), "dependencyJobsNames");
                 }
             }
         }
-        return FormValidation.ok();
+        return trigger;
     }
 
     /**
@@ -29,6 +29,7 @@ import com.sonyericsson.hudson.plugins.gerrit.trigger.Messages;
 import com.sonyericsson.hudson.plugins.gerrit.trigger.PluginImpl;
 import com.sonyericsson.hudson.plugins.gerrit.trigger.config.IGerritHudsonTriggerConfig;
 import com.sonyericsson.hudson.plugins.gerrit.trigger.hudsontrigger.parameters.Base64EncodedStringParameterValue;
+import com.sonyericsson.hudson.plugins.gerrit.trigger.hudsontrigger.parameters.GerritEventParameterValue;
 import com.sonyericsson.hudson.plugins.gerrit.trigger.utils.StringUtil;
 import com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventKeys;
 import com.sonymobile.tools.gerrit.gerritevents.dto.attr.Account;
@@ -49,13 +50,16 @@ import hudson.model.StringParameterValue;
 import hudson.model.TextParameterValue;
 import net.sf.json.JSONObject;
 import org.jvnet.localizer.Localizable;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import edu.umd.cs.findbugs.annotations.CheckForNull;
 import java.io.UnsupportedEncodingException;
-import java.lang.reflect.Constructor;
 import java.nio.charset.StandardCharsets;
 import java.util.Base64;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
@@ -297,6 +301,7 @@ public enum GerritTriggerParameters {
     GERRIT_ADDED_HASHTAGS;
 
     private static final Logger logger = LoggerFactory.getLogger(GerritTriggerParameters.class);
+    private static final Set<String> NAMES = createNames();
 
     /**
      * A set of all the declared parameter names.
@@ -305,11 +310,30 @@ public enum GerritTriggerParameters {
      * @see #name()
      */
     public static Set<String> getNamesSet() {
+        return new TreeSet<>(NAMES);
+    }
+
+    /**
+     * The declared parameter names, without making a copy of them.
+     *
+     * @return the unmodifiable names of the parameters.
+     * @see #getNamesSet()
+     */
+    static Set<String> getNames() {
+        return NAMES;
+    }
+
+    /**
+     * Creates the set of the declared parameter names.
+     *
+     * @return the unmodifiable names of the parameters.
+     */
+    private static Set<String> createNames() {
         Set<String> names = new TreeSet<>();
         for (GerritTriggerParameters p : GerritTriggerParameters.values()) {
             names.add(p.name());
         }
-        return names;
+        return Collections.unmodifiableSet(names);
     }
 
     /**
@@ -323,21 +347,18 @@ public enum GerritTriggerParameters {
      * @param clazz        the class which extends {@link hudson.model.ParameterValue}.
      */
     private void setOrCreateParameterValue(List<ParameterValue> parameters, String value, boolean escapeQuotes,
-            Class<? extends StringParameterValue> clazz) {
-        ParameterValue parameter = null;
-        for (ParameterValue p : parameters) {
-            if (p.getName().toUpperCase().equals(this.name())) {
-                parameter = p;
-                break;
-            }
-        }
+            ValueFactory factory) {
         String description = null;
-        if (parameter != null) {
-            if (parameter instanceof StringParameterValue) {
-                //Perhaps it is manually added to remind the user of what it is for.
-                description = parameter.getDescription();
+        for (int i = 0; i < parameters.size(); i++) {
+            ParameterValue parameter = parameters.get(i);
+            if (parameter.getName().equalsIgnoreCase(this.name())) {
+                if (parameter instanceof StringParameterValue) {
+                    //Perhaps it is manually added to remind the user of what it is for.
+                    description = parameter.getDescription();
+                }
+                parameters.remove(i);
+                break;
             }
-            parameters.remove(parameter);
         }
         String stringValue;
         if (escapeQuotes) {
@@ -351,16 +372,7 @@ public enum GerritTriggerParameters {
         if (description == null) {
             description = "";
         }
-        Class<?>[] types = { String.class, String.class, String.class };
-        Object[] args = { this.name(), stringValue, description };
-        Constructor<? extends StringParameterValue> constructor;
-        try {
-            constructor = clazz.getConstructor(types);
-            parameter = constructor.newInstance(args);
-            parameters.add(parameter);
-        } catch (Exception ex) {
-            parameter = null;
-        }
+        parameters.add(factory.create(this.name(), stringValue, description));
     }
 
     /**
@@ -373,7 +385,7 @@ public enum GerritTriggerParameters {
      * @param escapeQuotes if quote characters should be escaped.
      */
     public void setOrCreateStringParameterValue(List<ParameterValue> parameters, String value, boolean escapeQuotes) {
-        setOrCreateParameterValue(parameters, value, escapeQuotes, StringParameterValue.class);
+        setOrCreateParameterValue(parameters, value, escapeQuotes, StringParameterValue::new);
     }
 
     /**
@@ -386,7 +398,7 @@ public enum GerritTriggerParameters {
      * @param escapeQuotes if quote characters should be escaped.
      */
     public void setOrCreateTextParameterValue(List<ParameterValue> parameters, String value, boolean escapeQuotes) {
-        setOrCreateParameterValue(parameters, value, escapeQuotes, TextParameterValue.class);
+        setOrCreateParameterValue(parameters, value, escapeQuotes, TextParameterValue::new);
     }
 
     /**
@@ -403,7 +415,7 @@ public enum GerritTriggerParameters {
             List<ParameterValue> parameters,
             String value,
             boolean escapeQuotes) {
-        setOrCreateParameterValue(parameters, value, escapeQuotes, Base64EncodedStringParameterValue.class);
+        setOrCreateParameterValue(parameters, value, escapeQuotes, Base64EncodedStringParameterValue::new);
     }
 
     /**
@@ -620,6 +632,47 @@ public enum GerritTriggerParameters {
         }
     }
 
+    /**
+     * Reads the plain text value of this parameter from an event again,
+     * for the parameters that can be added as {@link ParameterMode#EVENT}.
+     *
+     * @param event the event.
+     * @return the value, or null if the event doesn't have it.
+     */
+    @CheckForNull
+    @Restricted(NoExternalUse.class)
+    public String readFrom(GerritTriggeredEvent event) {
+        ChangeBasedEvent changeEvent = null;
+        if (event instanceof ChangeBasedEvent) {
+            changeEvent = (ChangeBasedEvent)event;
+        }
+        switch (this) {
+            case GERRIT_CHANGE_COMMIT_MESSAGE:
+                return changeEvent != null ? changeEvent.getChange().getCommitMessage() : null;
+            case GERRIT_CHANGE_SUBJECT:
+                return changeEvent != null ? changeEvent.getChange().getSubject() : null;
+            case GERRIT_EVENT_COMMENT_TEXT:
+                return event instanceof CommentAdded ? ((CommentAdded)event).getComment() : null;
+            case GERRIT_EVENT_ACCOUNT:
+                return event.getAccount() != null ? getNameAndEmail(event.getAccount()) : null;
+            case GERRIT_CHANGE_OWNER:
+                return changeEvent != null ? getNameAndEmail(changeEvent.getChange().getOwner()) : null;
+            case GERRIT_PATCHSET_UPLOADER:
+                return changeEvent != null ? getNameAndEmail(findUploader(changeEvent)) : null;
+            case GERRIT_CHANGE_RESTORER:
+                return event instanceof ChangeRestored
+                        ? getNameAndEmail(((ChangeRestored)event).getRestorer()) : null;
+            case GERRIT_CHANGE_ABANDONER:
+                return event instanceof ChangeAbandoned
+                        ? getNameAndEmail(((ChangeAbandoned)event).getAbandoner()) : null;
+            case GERRIT_TOPIC_CHANGER:
+                return event instanceof TopicChanged
+                        ? getNameAndEmail(((TopicChanged)event).getChanger()) : null;
+            default:
+                return null;
+        }
+    }
+
     /**
      * Get the updated approvals as json string from a CommentAddedEvent.
      *
@@ -771,7 +824,7 @@ public enum GerritTriggerParameters {
                                            List<ParameterValue> parameters,
                                            String value, PlainMode mode, boolean escapeQuotes) {
                 parameter.setOrCreateParameterValue(
-                        parameters, value, escapeQuotes, mode.clazz);
+                        parameters, value, escapeQuotes, mode.factory);
             }
         },
         /**
@@ -791,6 +844,18 @@ public enum GerritTriggerParameters {
 
             }
         },
+        /**
+         * The parameter will be added as a {@link GerritEventParameterValue},
+         * which is encoded as Base64 and read from the event when the environment of the build is created.
+         */
+        EVENT(Messages._ParameterMode_EVENT()) {
+            @Override
+            void setOrCreateParameterValue(GerritTriggerParameters parameter,
+                                           List<ParameterValue> parameters,
+                                           String value, PlainMode mode, boolean escapeQuotes) {
+                parameter.setOrCreateParameterValue(parameters, value, false, GerritEventParameterValue::new);
+            }
+        },
         /**
          * The parameter will not be added.
          */
@@ -810,21 +875,21 @@ public enum GerritTriggerParameters {
             /**
              * {@link StringParameterValue}.
              */
-            STRING(StringParameterValue.class),
+            STRING(StringParameterValue::new),
             /**
              * {@link TextParameterValue}.
              */
-            TEXT(TextParameterValue.class);
+            TEXT(TextParameterValue::new);
 
-            final Class<? extends StringParameterValue> clazz;
+            final ValueFactory factory;
 
             /**
              * Constructor.
              *
-             * @param clazz what parameter value class to use for plain text.
+             * @param factory creates the parameter values to use for plain text.
              */
-            PlainMode(Class<? extends StringParameterValue> clazz) {
-                this.clazz = clazz;
+            PlainMode(ValueFactory factory) {
+                this.factory = factory;
             }
         }
 
@@ -872,4 +937,20 @@ public enum GerritTriggerParameters {
             return this.displayName.toString();
         }
     }
+
+    /**
+     * Creates a parameter value of a specific type.
+     */
+    @FunctionalInterface
+    interface ValueFactory {
+        /**
+         * Creates the parameter value.
+         *
+         * @param name        the name.
+         * @param value       the value.
+         * @param description the description.
+         * @return the parameter value.
+         */
+        ParameterValue create(String name, String value, String description);
+    }
 }
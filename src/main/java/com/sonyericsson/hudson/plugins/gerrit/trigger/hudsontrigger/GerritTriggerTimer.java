@@ -25,20 +25,26 @@ package com.sonyericsson.hudson.plugins.gerrit.trigger.hudsontrigger;
 
 import com.sonyericsson.hudson.plugins.gerrit.trigger.GerritServer;
 import com.sonyericsson.hudson.plugins.gerrit.trigger.PluginImpl;
+import com.sonyericsson.hudson.plugins.gerrit.trigger.utils.TaskScheduler;
 import com.sonymobile.tools.gerrit.gerritevents.GerritDefaultValues;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import edu.umd.cs.findbugs.annotations.CheckForNull;
 import edu.umd.cs.findbugs.annotations.NonNull;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.ScheduledFuture;
 
 /**
  * Manages the timer that is used for each GerritTrigger TimerTask that
- * is active.
+ * is active. The tasks of triggers with the same dynamic trigger config URL share one refresh.
+ * They run as blocking tasks on the {@link TaskScheduler}, since they wait for the config to be fetched.
  *
  * @author Fredrik Abrahamson &lt;fredrik.abrahamson@sonymobile.com&gt;
  */
@@ -48,6 +54,8 @@ public final class GerritTriggerTimer {
      * Wait this many milliseconds before the first call to a TimerTask.
      */
     protected static final long DELAY_MILLISECONDS = 5000;
+    private static final String FIRST_RUN_TASK_NAME = "Gerrit trigger first run";
+    private static final String REFRESH_TASK_NAME = "Gerrit trigger refresh";
     private static final Logger logger = LoggerFactory.getLogger(GerritTriggerTimer.class);
 
     /**
@@ -56,15 +64,46 @@ public final class GerritTriggerTimer {
     private static volatile GerritTriggerTimer instance = null;
 
     /**
-     * The timer handler
+     * The scheduled tasks, by {@link GerritTriggerTimerTask#toString()}.
      */
-    private Map<String, ScheduledFuture> scheduledTasks;
+    private final Map<String, GerritTriggerTimerTask> scheduledTasks;
+
+    /**
+     * The first runs of the tasks, by {@link GerritTriggerTimerTask#toString()}.
+     */
+    private final Map<String, TaskScheduler.Task> firstRuns;
+
+    /**
+     * The refreshes shared by the tasks, by trigger config URL.
+     */
+    private final Map<String, SharedRefresh> refreshes;
+
+    /**
+     * The scheduler to schedule on, or null for the shared {@link TaskScheduler}.
+     */
+    private final TaskScheduler scheduler;
 
     /**
      * The private constructor (this is a singleton class).
      */
     private GerritTriggerTimer() {
+        this(null);
+    }
+
+    /**
+     * Constructor for tests.
+     *
+     * @param executor the executor to schedule on, or null for the shared {@link TaskScheduler}.
+     */
+    GerritTriggerTimer(@CheckForNull ScheduledExecutorService executor) {
         scheduledTasks = new HashMap<>();
+        firstRuns = new HashMap<>();
+        refreshes = new HashMap<>();
+        if (executor != null) {
+            scheduler = new TaskScheduler(executor);
+        } else {
+            scheduler = null;
+        }
     }
 
     /**
@@ -79,6 +118,18 @@ public final class GerritTriggerTimer {
         return instance;
     }
 
+    /**
+     * The scheduler to schedule on.
+     *
+     * @return the scheduler.
+     */
+    private TaskScheduler getScheduler() {
+        if (scheduler != null) {
+            return scheduler;
+        }
+        return TaskScheduler.getInstance();
+    }
+
     //CS IGNORE LineLength FOR NEXT 5 LINES. REASON: JavaDoc
 
     /**
@@ -133,18 +184,33 @@ public final class GerritTriggerTimer {
     /**
      * Schedule a TimerTask according to the two constants above.
      *
+     * The task is first run after {@link #DELAY_MILLISECONDS}, and then every time
+     * the config of its URL is refreshed. The config is refreshed once for all tasks with the same URL,
+     * at the shortest interval of their triggers, and the refreshes of different URLs are spread
+     * over the interval so that they don't all hit the servers at the same time.
+     *
      * @param trigger the trigger associated with the task
      * @param timerTask the TimerTask to be scheduled
      */
-    public void schedule(GerritTriggerTimerTask timerTask, @NonNull GerritTrigger trigger) {
+    public synchronized void schedule(GerritTriggerTimerTask timerTask, @NonNull GerritTrigger trigger) {
         long timerPeriod = TimeUnit.SECONDS.toMillis(calculateDynamicConfigRefreshInterval(trigger));
         try {
             cancel(timerTask);
+            String url = getUrl(timerTask);
+            SharedRefresh refresh = refreshes.get(url);
+            if (refresh == null) {
+                refresh = new SharedRefresh(url);
+                refreshes.put(url, refresh);
+            }
             logger.debug("Schedule task " + timerTask + " for every " + timerPeriod + "ms");
-            scheduledTasks.put(timerTask.toString(),
-                               jenkins.util.Timer.get().scheduleWithFixedDelay(
-                                                  timerTask, DELAY_MILLISECONDS, timerPeriod,
-                                                            TimeUnit.MILLISECONDS));
+            firstRuns.put(timerTask.toString(),
+                    getScheduler().scheduleBlocking(FIRST_RUN_TASK_NAME, timerTask, DELAY_MILLISECONDS,
+                            TimeUnit.MILLISECONDS));
+            refresh.tasks.add(timerTask);
+            scheduledTasks.put(timerTask.toString(), timerTask);
+            if (refresh.future == null || timerPeriod < refresh.period) {
+                refresh.schedule(timerPeriod);
+            }
         } catch (IllegalArgumentException iae) {
             logger.error("Attempted use of negative delay", iae);
         } catch (IllegalStateException ise) {
@@ -157,12 +223,105 @@ public final class GerritTriggerTimer {
      *
      * @param timerTask the TimerTask to cancel
      */
-    public void cancel(GerritTriggerTimerTask timerTask) {
-        if (scheduledTasks.get(timerTask.toString()) != null) {
-           boolean mayNotInterruptIfRunning = true;
-           scheduledTasks.get(timerTask.toString()).cancel(!mayNotInterruptIfRunning);
-           scheduledTasks.remove(timerTask.toString());
-           logger.debug("Canceling and removing timer for " + timerTask);
+    public synchronized void cancel(GerritTriggerTimerTask timerTask) {
+        GerritTriggerTimerTask scheduled = scheduledTasks.remove(timerTask.toString());
+        TaskScheduler.Task firstRun = firstRuns.remove(timerTask.toString());
+        if (firstRun != null) {
+            firstRun.cancel();
+        }
+        if (scheduled != null) {
+            String url = getUrl(scheduled);
+            SharedRefresh refresh = refreshes.get(url);
+            if (refresh != null) {
+                refresh.tasks.remove(scheduled);
+                if (refresh.tasks.isEmpty()) {
+                    refresh.cancel();
+                    refreshes.remove(url);
+                }
+            }
+            logger.debug("Canceling and removing timer for " + timerTask);
+        }
+    }
+
+    /**
+     * The number of refreshes that are scheduled.
+     *
+     * @return the number of distinct trigger config URLs.
+     */
+    synchronized int getScheduledRefreshes() {
+        return refreshes.size();
+    }
+
+    /**
+     * The key of the refresh of a task.
+     *
+     * @param timerTask the task.
+     * @return the trigger config URL of it, or an empty string.
+     */
+    private static String getUrl(GerritTriggerTimerTask timerTask) {
+        return Objects.toString(timerTask.getTriggerConfigURL(), "");
+    }
+
+    /**
+     * The periodic refresh of a trigger config URL, shared by the tasks of all triggers using it.
+     * It fetches the config once and then runs the tasks, which get it from the
+     * {@link DynamicConfigurationCacheProxy}.
+     */
+    private final class SharedRefresh implements Runnable {
+        private final String url;
+        private final List<GerritTriggerTimerTask> tasks = new CopyOnWriteArrayList<>();
+        private TaskScheduler.Task future;
+        private long period;
+
+        /**
+         * Constructor.
+         *
+         * @param url the trigger config URL.
+         */
+        private SharedRefresh(String url) {
+            this.url = url;
+        }
+
+        /**
+         * (Re)schedules the refresh, first at a random time within the period.
+         * Must be called while holding the lock on the timer.
+         *
+         * @param timerPeriod the period in ms.
+         */
+        private void schedule(long timerPeriod) {
+            cancel();
+            period = timerPeriod;
+            long jitter = ThreadLocalRandom.current().nextLong(Math.max(1, timerPeriod));
+            future = getScheduler().scheduleBlockingWithFixedDelay(REFRESH_TASK_NAME, this,
+                    DELAY_MILLISECONDS + jitter, timerPeriod, TimeUnit.MILLISECONDS);
+        }
+
+        /**
+         * Cancels the refresh.
+         * Must be called while holding the lock on the timer.
+         */
+        private void cancel() {
+            if (future != null) {
+                future.cancel();
+                future = null;
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                if (!url.isEmpty()) {
+                    DynamicConfigurationCacheProxy.getInstance().refresh(url);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                logger.error("Failed to refresh dynamic trigger config " + url, e);
+            }
+            for (GerritTriggerTimerTask task : tasks) {
+                task.run();
+            }
         }
     }
 }
@@ -40,6 +40,7 @@ import jenkins.model.Jenkins;
 public class GerritTriggerTimerTask extends SafeTimerTask {
     //TODO possible need to handle renames
     private String job;
+    private String triggerConfigURL;
 
     /**
      * Constructor
@@ -48,9 +49,21 @@ public class GerritTriggerTimerTask extends SafeTimerTask {
      */
     GerritTriggerTimerTask(@NonNull GerritTrigger gerritTrigger) {
         job = gerritTrigger.getJob().getFullName();
+        triggerConfigURL = gerritTrigger.getTriggerConfigURL();
         GerritTriggerTimer.getInstance().schedule(this, gerritTrigger);
     }
 
+    /**
+     * The URL of the dynamic trigger configuration when the task was created.
+     * Tasks with the same URL share the refresh of it.
+     *
+     * @return the URL.
+     */
+    @CheckForNull
+    public String getTriggerConfigURL() {
+        return triggerConfigURL;
+    }
+
     /**
      * Called periodically by the GerritTriggerTimer according to its schedule.
      */
@@ -4,43 +4,47 @@ package com.sonyericsson.hudson.plugins.gerrit.trigger.hudsontrigger;
 import static com.sonyericsson.hudson.plugins.gerrit.trigger.PluginImpl.getServerConfig;
 import com.sonyericsson.hudson.plugins.gerrit.trigger.config.IGerritHudsonTriggerConfig;
 import com.sonyericsson.hudson.plugins.gerrit.trigger.events.ManualPatchsetCreated;
+import com.sonyericsson.hudson.plugins.gerrit.trigger.gerritnotifier.ToGerritRunListener;
 import com.sonyericsson.hudson.plugins.gerrit.trigger.hudsontrigger.data.BuildCancellationPolicy;
 import com.sonymobile.tools.gerrit.gerritevents.dto.attr.Change;
 import com.sonymobile.tools.gerrit.gerritevents.dto.events.ChangeAbandoned;
 import com.sonymobile.tools.gerrit.gerritevents.dto.events.ChangeBasedEvent;
 import com.sonymobile.tools.gerrit.gerritevents.dto.events.GerritTriggeredEvent;
+import com.sonymobile.tools.gerrit.gerritevents.dto.events.TopicChanged;
 import hudson.model.Cause;
-import hudson.model.Computer;
-import hudson.model.Executor;
 import hudson.model.Item;
 import hudson.model.Job;
 import hudson.model.Queue;
-import hudson.model.Result;
-import hudson.model.Run;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import jenkins.model.CauseOfInterruption;
-import jenkins.model.Jenkins;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
 * Class for maintaining and synchronizing the runningJobs info.
 * Association between patches and the jobs that we're running for them.
+*
+* The running events are indexed by change number and topic,
+* so only the events that can be outdated by a new event are checked when it is scheduled.
 */
 public class RunningJobs {
 
    private final GerritTrigger trigger;
    private Item job;
 
-   private final Set<GerritTriggeredEvent> runningJobs =
-           Collections.synchronizedSet(new HashSet<>());
+   //The running events, mapped to themselves to be able to find the indexed instance.
+   //All three maps are guarded by runningJobs.
+   private final Map<ChangeBasedEvent, ChangeBasedEvent> runningJobs = new HashMap<>();
+   private final Map<String, Set<ChangeBasedEvent>> runningJobsByChange = new HashMap<>();
+   private final Map<String, Set<ChangeBasedEvent>> runningJobsByTopic = new HashMap<>();
    private static final Logger logger = LoggerFactory.getLogger(RunningJobs.class);
 
    /**
@@ -98,7 +102,7 @@ public class RunningJobs {
    public void scheduled(ChangeBasedEvent event) {
        IGerritHudsonTriggerConfig serverConfig = getServerConfig(event);
        if (serverConfig == null) {
-           runningJobs.add(event);
+           add(event);
            return;
        }
 
@@ -106,7 +110,7 @@ public class RunningJobs {
        if (!serverBuildCurrentPatchesOnly.isEnabled()
                || (event instanceof ManualPatchsetCreated
                && !serverBuildCurrentPatchesOnly.isAbortManualPatchsets())) {
-           runningJobs.add(event);
+           add(event);
            return;
        }
 
@@ -124,19 +128,15 @@ public class RunningJobs {
        CauseOfInterruption cause = new NewPatchSetInterruption();
 
        synchronized (runningJobs) {
-           Iterator<GerritTriggeredEvent> it = runningJobs.iterator();
-           while (it.hasNext()) {
-               GerritTriggeredEvent runningEvent = it.next();
-               if (!(runningEvent instanceof ChangeBasedEvent runningChangeBasedEvent)) {
-                   continue;
-               }
-
+           for (ChangeBasedEvent runningChangeBasedEvent : getCandidates(event)) {
                if (shouldIgnoreEvent(event, policy, runningChangeBasedEvent)) {
                    continue;
                }
 
                outdatedEvents.add(runningChangeBasedEvent);
-               it.remove();
+           }
+           for (ChangeBasedEvent outdatedEvent : outdatedEvents) {
+               removeRunning(outdatedEvent);
            }
 
            // add our new job
@@ -144,13 +144,17 @@ public class RunningJobs {
                if (trigger.isOnlyAbortRunningBuild(event)) {
                    cause = new AbandonedPatchsetInterruption();
                } else {
-                   runningJobs.add(event);
+                   addRunning(event);
                }
            }
        }
 
        // This step can't be done under the lock, because cancelling the jobs needs a lock on higher level.
        for (ChangeBasedEvent outdatedEvent : outdatedEvents) {
+           if (SupersededBuildsCanceller.getInstance().defer(event, outdatedEvent, jobName, cause)) {
+               logger.debug("Cancelling build for {} when all jobs have seen {}", outdatedEvent, event);
+               continue;
+           }
            logger.debug("Cancelling build for " + outdatedEvent);
            try {
                cancelMatchingJobs(outdatedEvent, jobName, cause);
@@ -161,6 +165,100 @@ public class RunningJobs {
        }
    }
 
+   /**
+    * The running events that can be outdated by an event:
+    * those for the same change number and those with the topic that the event can abort.
+    * Must be called while holding the lock on {@link #runningJobs}.
+    *
+    * @param event the new event
+    * @return the candidates, the rest of the running events are never outdated by the event
+    */
+   private Collection<ChangeBasedEvent> getCandidates(ChangeBasedEvent event) {
+       Set<ChangeBasedEvent> sameChange = runningJobsByChange.get(event.getChange().getNumber());
+       String topic = getTopicToAbort(event);
+       Set<ChangeBasedEvent> sameTopic = null;
+       if (topic != null && !topic.isEmpty()) {
+           sameTopic = runningJobsByTopic.get(topic);
+       }
+       if (sameTopic == null) {
+           if (sameChange == null) {
+               return Collections.emptyList();
+           }
+           return sameChange;
+       }
+       Set<ChangeBasedEvent> candidates = new HashSet<>(sameTopic);
+       if (sameChange != null) {
+           candidates.addAll(sameChange);
+       }
+       return candidates;
+   }
+
+   /**
+    * The topic of the running events that an event can abort,
+    * as decided by {@link GerritTrigger#abortBecauseOfTopic}.
+    *
+    * @param event the event
+    * @return the topic, or null if the change has none
+    */
+   private static String getTopicToAbort(ChangeBasedEvent event) {
+       if (event instanceof TopicChanged) {
+           return ((TopicChanged)event).getOldTopic();
+       }
+       return event.getChange().getTopic();
+   }
+
+   /**
+    * Adds an event to the running events and indexes it, unless an equal event is already running.
+    * Must be called while holding the lock on {@link #runningJobs}.
+    *
+    * @param event the event
+    */
+   private void addRunning(ChangeBasedEvent event) {
+       if (runningJobs.putIfAbsent(event, event) != null) {
+           return;
+       }
+       runningJobsByChange.computeIfAbsent(event.getChange().getNumber(), k -> new HashSet<>()).add(event);
+       String topic = event.getChange().getTopic();
+       if (topic != null && !topic.isEmpty()) {
+           runningJobsByTopic.computeIfAbsent(topic, k -> new HashSet<>()).add(event);
+       }
+   }
+
+   /**
+    * Removes an event from the running events and the indexes.
+    * Must be called while holding the lock on {@link #runningJobs}.
+    *
+    * @param event the event
+    * @return true if it was running
+    */
+   private boolean removeRunning(ChangeBasedEvent event) {
+       ChangeBasedEvent running = runningJobs.remove(event);
+       if (running == null) {
+           return false;
+       }
+       removeFromIndex(runningJobsByChange, running.getChange().getNumber(), running);
+       String topic = running.getChange().getTopic();
+       if (topic != null && !topic.isEmpty()) {
+           removeFromIndex(runningJobsByTopic, topic, running);
+       }
+       return true;
+   }
+
+   /**
+    * Removes an event from an index, dropping the key when no events are left for it.
+    *
+    * @param index the index
+    * @param key the key of the event in the index
+    * @param event the event
+    */
+   private static void removeFromIndex(Map<String, Set<ChangeBasedEvent>> index, String key,
+                                       ChangeBasedEvent event) {
+       Set<ChangeBasedEvent> events = index.get(key);
+       if (events != null && events.remove(event) && events.isEmpty()) {
+           index.remove(key);
+       }
+   }
+
    /**
     * Determines if event should be ignored due to policy
     *
@@ -216,6 +314,10 @@ public class RunningJobs {
     * build while it was running. (This was the previous implementation)
     * <p>
     * We look in both the build queue and currently executing jobs.
+    * The executing jobs are looked up in the builds that {@link ToGerritRunListener} knows are running
+    * for the event, instead of searching all executors. A build that has left the queue but not started yet
+    * is interrupted by it when it starts, see
+    * {@link ToGerritRunListener#interruptRunningBuilds(GerritTriggeredEvent, String, CauseOfInterruption)}.
     * This extra work is required due to race conditions when calling
     * Future.cancel() - see
     * https://issues.jenkins-ci.org/browse/JENKINS-13829
@@ -243,25 +345,9 @@ public class RunningJobs {
            }
 
            // Interrupt any currently running jobs.
-           Jenkins jenkins = Jenkins.get();
-           for (Computer c : jenkins.getComputers()) {
-               for (Executor e : c.getAllExecutors()) {
-                   Queue.Executable currentExecutable = e.getCurrentExecutable();
-                   if (!(currentExecutable instanceof Run<?, ?> run)) {
-                       continue;
-                   }
-
-                   if (!checkCausedByGerrit(event, run.getCauses())) {
-                       continue;
-                   }
-
-                   String runningJobName = run.getParent().getFullName();
-                   if (!jobName.equals(runningJobName)) {
-                       continue;
-                   }
-
-                   e.interrupt(Result.ABORTED, cause);
-               }
+           ToGerritRunListener runListener = ToGerritRunListener.getInstance();
+           if (runListener != null) {
+               runListener.interruptRunningBuilds(event, jobName, cause);
            }
        } catch (Exception e) {
            // Ignore any problems with canceling the job.
@@ -277,7 +363,7 @@ public class RunningJobs {
     * @param causes the list of causes. Only {@link GerritCause}s are considered.
     * @return true if the list of causes contains a {@link GerritCause}.
     */
-   private boolean checkCausedByGerrit(GerritTriggeredEvent event, Collection<Cause> causes) {
+   private static boolean checkCausedByGerrit(GerritTriggeredEvent event, Collection<Cause> causes) {
        for (Cause c : causes) {
            if (!(c instanceof GerritCause gc)) {
                continue;
@@ -295,7 +381,9 @@ public class RunningJobs {
      * @param event The ChangeBasedEvent.
      */
    public void add(ChangeBasedEvent event) {
-       runningJobs.add(event);
+       synchronized (runningJobs) {
+           addRunning(event);
+       }
    }
 
    /**
@@ -306,6 +394,19 @@ public class RunningJobs {
     */
    public boolean remove(ChangeBasedEvent event) {
        logger.debug("Removing future job associated with " + event.getChange().getId());
-       return runningJobs.remove(event);
+       synchronized (runningJobs) {
+           return removeRunning(event);
+       }
+   }
+
+   /**
+    * The number of running events.
+    *
+    * @return the number.
+    */
+   /*package*/ int size() {
+       synchronized (runningJobs) {
+           return runningJobs.size();
+       }
    }
 }
@@ -0,0 +1,323 @@
+/*
+ *  The MIT License
+ *
+ *  Copyright 2026 Sony Mobile Communications Inc. All rights reserved.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.sonyericsson.hudson.plugins.gerrit.trigger.hudsontrigger;
+
+import com.sonyericsson.hudson.plugins.gerrit.trigger.events.lifecycle.GerritEventLifecycleListener;
+import com.sonyericsson.hudson.plugins.gerrit.trigger.gerritnotifier.ToGerritRunListener;
+import com.sonymobile.tools.gerrit.gerritevents.dto.GerritEvent;
+import com.sonymobile.tools.gerrit.gerritevents.dto.events.ChangeBasedEvent;
+import com.sonymobile.tools.gerrit.gerritevents.dto.events.GerritTriggeredEvent;
+import hudson.model.Cause;
+import hudson.model.Computer;
+import hudson.model.Executor;
+import hudson.model.Job;
+import hudson.model.Queue;
+import hudson.model.Result;
+import hudson.model.Run;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import jenkins.model.CauseOfInterruption;
+import jenkins.model.Jenkins;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Cancels the builds that are outdated by an event across all jobs at once.
+ *
+ * While the {@link com.sonyericsson.hudson.plugins.gerrit.trigger.JenkinsAwareGerritHandler} notifies
+ * the jobs of an event, each job's {@link RunningJobs} only tells which of its builds are outdated.
+ * When all jobs have been notified, the queue is searched once for all of them and the running builds
+ * are looked up in {@link ToGerritRunListener}, instead of once for every job.
+ * If it doesn't know the running build of a job whose queue item wasn't cancelled either,
+ * the executors are searched once for all such jobs.
+ * Events that are not delivered through the handler are not batched and each job cancels its own builds.
+ */
+public final class SupersededBuildsCanceller implements GerritEventLifecycleListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(SupersededBuildsCanceller.class);
+    private static final SupersededBuildsCanceller INSTANCE = new SupersededBuildsCanceller();
+
+    /**
+     * The outdated builds found so far for each event that is being scanned, by identity of the event.
+     */
+    private final Map<GerritEvent, Batch> batches = Collections.synchronizedMap(new IdentityHashMap<>());
+
+    /**
+     * Constructor use by {@link #getInstance()} and for unit tests.
+     */
+    /*package*/ SupersededBuildsCanceller() {
+    }
+
+    /**
+     * The instance registered to the handler.
+     *
+     * @return the instance.
+     */
+    @NonNull
+    public static SupersededBuildsCanceller getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Defers cancelling the builds of a job that are outdated by an event until all jobs have been notified of it.
+     *
+     * @param event         the new event.
+     * @param outdatedEvent the event of the outdated builds.
+     * @param jobName       the full name of the job.
+     * @param cause         the cause of interruption of the running builds.
+     * @return true if the builds will be cancelled when all jobs have been notified,
+     *         false if the event isn't being scanned and the caller should cancel them itself.
+     */
+    public boolean defer(@NonNull ChangeBasedEvent event, @NonNull GerritTriggeredEvent outdatedEvent,
+                         @NonNull String jobName, @NonNull CauseOfInterruption cause) {
+        Batch batch = batches.get(event);
+        if (batch == null || ToGerritRunListener.getInstance() == null) {
+            return false;
+        }
+        batch.add(outdatedEvent, jobName, cause);
+        return true;
+    }
+
+    @Override
+    public void triggerScanStarting(GerritEvent event) {
+        if (event instanceof ChangeBasedEvent) {
+            batches.put(event, new Batch());
+        }
+    }
+
+    @Override
+    public void triggerScanDone(GerritEvent event) {
+        Batch batch = batches.remove(event);
+        if (batch == null || batch.isEmpty()) {
+            return;
+        }
+        CancellationResult result = batch.cancel();
+        logger.info("Cancelled {} queued and {} running builds of {} jobs outdated by {}",
+                result.getQueued(), result.getRunning(), result.getJobs(), event);
+    }
+
+    @Override
+    public void projectTriggered(GerritEvent event, Job project) {
+    }
+
+    @Override
+    public void buildStarted(GerritEvent event, Run build) {
+    }
+
+    @Override
+    public void buildCompleted(GerritEvent event, Run build) {
+    }
+
+    @Override
+    public void allBuildsCompleted(GerritEvent event) {
+    }
+
+    /**
+     * The outdated builds of an event, by outdated event and job name.
+     */
+    /*package*/ static final class Batch {
+        private final Map<GerritTriggeredEvent, Map<String, CauseOfInterruption>> outdated = new IdentityHashMap<>();
+
+        /**
+         * Adds the builds of a job for an outdated event.
+         *
+         * @param outdatedEvent the outdated event.
+         * @param jobName       the full name of the job.
+         * @param cause         the cause of interruption.
+         */
+        synchronized void add(GerritTriggeredEvent outdatedEvent, String jobName, CauseOfInterruption cause) {
+            outdated.computeIfAbsent(outdatedEvent, k -> new HashMap<>()).put(jobName, cause);
+        }
+
+        /**
+         * If no builds are outdated.
+         *
+         * @return true if so.
+         */
+        synchronized boolean isEmpty() {
+            return outdated.isEmpty();
+        }
+
+        /**
+         * Cancels the queued items and interrupts the running builds of the outdated events.
+         *
+         * @return how many.
+         */
+        synchronized CancellationResult cancel() {
+            CancellationResult result = new CancellationResult();
+            Set<String> jobNames = new HashSet<>();
+            for (Map<String, CauseOfInterruption> jobs : outdated.values()) {
+                jobNames.addAll(jobs.keySet());
+            }
+            result.jobs = jobNames.size();
+            //The builds that may be running, those cancelled in the queue just now are not.
+            Map<GerritTriggeredEvent, Map<String, CauseOfInterruption>> missing = new IdentityHashMap<>();
+            for (Map.Entry<GerritTriggeredEvent, Map<String, CauseOfInterruption>> entry : outdated.entrySet()) {
+                missing.put(entry.getKey(), new HashMap<>(entry.getValue()));
+            }
+            try {
+                Queue queue = Queue.getInstance();
+                for (Queue.Item item : queue.getItems()) {
+                    if (!(item.task instanceof Job)) {
+                        continue;
+                    }
+                    String jobName = ((Job)item.task).getFullName();
+                    GerritTriggeredEvent event = findOutdatedEvent(outdated, item.getCauses(), jobName);
+                    if (event != null) {
+                        queue.cancel(item);
+                        result.queued++;
+                        missing.get(event).remove(jobName);
+                    }
+                }
+            } catch (Exception e) {
+                // Ignore any problems with canceling the job.
+                logger.error("Error canceling queued builds", e);
+            }
+            ToGerritRunListener runListener = ToGerritRunListener.getInstance();
+            if (runListener != null) {
+                for (Map.Entry<GerritTriggeredEvent, Map<String, CauseOfInterruption>> entry : outdated.entrySet()) {
+                    for (ToGerritRunListener.RunningBuild build : runListener.getRunningBuilds(entry.getKey())) {
+                        String jobName = build.getRun().getParent().getFullName();
+                        CauseOfInterruption cause = entry.getValue().get(jobName);
+                        if (cause == null) {
+                            continue;
+                        }
+                        missing.get(entry.getKey()).remove(jobName);
+                        interrupt(build.getExecutor(), cause, result);
+                    }
+                }
+            }
+            missing.values().removeIf(Map::isEmpty);
+            if (!missing.isEmpty()) {
+                //Builds that didn't start through the listener, like resumed ones,
+                //are searched for on all executors at once.
+                try {
+                    for (Computer computer : Jenkins.get().getComputers()) {
+                        for (Executor executor : computer.getAllExecutors()) {
+                            if (!(executor.getCurrentExecutable() instanceof Run<?, ?> run)) {
+                                continue;
+                            }
+                            String jobName = run.getParent().getFullName();
+                            GerritTriggeredEvent event = findOutdatedEvent(missing, run.getCauses(), jobName);
+                            if (event != null) {
+                                interrupt(executor, missing.get(event).get(jobName), result);
+                            }
+                        }
+                    }
+                } catch (Exception e) {
+                    // Ignore any problems with canceling the job.
+                    logger.error("Error canceling running builds", e);
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Interrupts an outdated build and counts it.
+         *
+         * @param executor the executor of the build, or null if it doesn't run on one anymore.
+         * @param cause    the cause of interruption.
+         * @param result   the result to count it in.
+         */
+        private static void interrupt(@CheckForNull Executor executor, CauseOfInterruption cause,
+                                      CancellationResult result) {
+            if (executor == null) {
+                return;
+            }
+            try {
+                executor.interrupt(Result.ABORTED, cause);
+                result.running++;
+            } catch (Exception e) {
+                // Ignore any problems with canceling the job.
+                logger.error("Error canceling running build", e);
+            }
+        }
+
+        /**
+         * Finds the outdated event that a job's build was caused by.
+         *
+         * @param events  the jobs to cancel the builds of, by outdated event.
+         * @param causes  the causes of the build.
+         * @param jobName the full name of the job.
+         * @return the outdated event, or null if the build isn't outdated.
+         */
+        @CheckForNull
+        private static GerritTriggeredEvent findOutdatedEvent(
+                Map<GerritTriggeredEvent, Map<String, CauseOfInterruption>> events, Iterable<? extends Cause> causes,
+                String jobName) {
+            for (Cause c : causes) {
+                if (c instanceof GerritCause gc) {
+                    Map<String, CauseOfInterruption> jobs = events.get(gc.getEvent());
+                    if (jobs != null && jobs.containsKey(jobName)) {
+                        return gc.getEvent();
+                    }
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * How many builds were cancelled.
+     */
+    /*package*/ static final class CancellationResult {
+        private int queued;
+        private int running;
+        private int jobs;
+
+        /**
+         * The number of queued items that were cancelled.
+         *
+         * @return the number.
+         */
+        int getQueued() {
+            return queued;
+        }
+
+        /**
+         * The number of running builds that were interrupted.
+         *
+         * @return the number.
+         */
+        int getRunning() {
+            return running;
+        }
+
+        /**
+         * The number of jobs that had outdated builds.
+         *
+         * @return the number.
+         */
+        int getJobs() {
+            return jobs;
+        }
+    }
+}
@@ -27,16 +27,21 @@ package com.sonyericsson.hudson.plugins.gerrit.trigger.hudsontrigger.data;
 import static com.sonyericsson.hudson.plugins.gerrit.trigger.GerritServer.ANY_SERVER;
 import hudson.Extension;
 import hudson.RelativePath;
+import hudson.Util;
+import hudson.model.AutoCompletionCandidates;
 import hudson.model.Describable;
 import hudson.model.Descriptor;
 import hudson.model.Item;
+import hudson.model.Job;
 import hudson.util.ComboBoxModel;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.TreeSet;
 import java.util.function.Supplier;
 
 import jenkins.model.Jenkins;
@@ -47,6 +52,7 @@ import org.kohsuke.stapler.QueryParameter;
 
 import com.sonyericsson.hudson.plugins.gerrit.trigger.GerritServer;
 import com.sonyericsson.hudson.plugins.gerrit.trigger.PluginImpl;
+import com.sonyericsson.hudson.plugins.gerrit.trigger.hudsontrigger.GerritTrigger;
 import com.sonymobile.tools.gerrit.gerritevents.dto.attr.Change;
 
 /**
@@ -385,6 +391,18 @@ public class GerritProject implements Describable<GerritProject> {
     @Extension
     public static final class DescriptorImpl extends Descriptor<GerritProject> {
 
+        //CS IGNORE LineLength FOR NEXT 5 LINES. REASON: JavaDoc
+
+        /**
+         * The default maximum number of projects suggested when auto-completing a project pattern.
+         * Can be tuned with the system property
+         * <code>com.sonyericsson.hudson.plugins.gerrit.trigger.hudsontrigger.data.GerritProject.autoCompleteLimit</code>.
+         */
+        static final int DEFAULT_AUTO_COMPLETE_LIMIT = 100;
+
+        private static final int AUTO_COMPLETE_LIMIT = Integer.getInteger(
+                GerritProject.class.getName() + ".autoCompleteLimit", DEFAULT_AUTO_COMPLETE_LIMIT);
+
         /**
          * Used to fill the project pattern combobox with AJAX.
          * The filled values will depend on the server that the user has chosen from the dropdown.
@@ -416,6 +434,62 @@ public class GerritProject implements Describable<GerritProject> {
             }
             return new ComboBoxModel(projects);
         }
+
+        /**
+         * Used to auto-complete the project pattern with the Gerrit projects that start with what has been typed.
+         * The projects are those of the server of the job's trigger, or of all servers if it isn't set yet.
+         * At most {@link #DEFAULT_AUTO_COMPLETE_LIMIT} projects are suggested.
+         *
+         * @param project the current project.
+         * @param value what the user has typed.
+         * @return the matching Gerrit Projects.
+         */
+        public AutoCompletionCandidates doAutoCompletePattern(@AncestorInPath Item project,
+                                                              @QueryParameter String value) {
+            if (project == null) {
+                Jenkins.get().checkPermission(Jenkins.ADMINISTER);
+            } else {
+                project.checkPermission(Item.CONFIGURE);
+            }
+            String serverName = ANY_SERVER;
+            if (project instanceof Job) {
+                GerritTrigger trigger = GerritTrigger.getTrigger((Job)project);
+                if (trigger != null && trigger.getServerName() != null) {
+                    serverName = trigger.getServerName();
+                }
+            }
+            AutoCompletionCandidates candidates = new AutoCompletionCandidates();
+            for (String name : findProjects(serverName, Util.fixNull(value), AUTO_COMPLETE_LIMIT)) {
+                candidates.add(name);
+            }
+            return candidates;
+        }
+
+        /**
+         * Finds the Gerrit projects of a server that start with a prefix.
+         *
+         * @param serverName the name of the server, or {@link GerritServer#ANY_SERVER} for all of them.
+         * @param prefix the prefix.
+         * @param limit the maximum number of projects to find.
+         * @return the first <code>limit</code> projects in order.
+         */
+        static Collection<String> findProjects(String serverName, String prefix, int limit) {
+            if (!ANY_SERVER.equals(serverName)) {
+                GerritServer server = PluginImpl.getServer_(serverName);
+                if (server == null) {
+                    return Collections.emptyList();
+                }
+                return server.getGerritProjects(prefix, limit);
+            }
+            TreeSet<String> projects = new TreeSet<>();
+            for (GerritServer server : PluginImpl.getServers_()) {
+                projects.addAll(server.getGerritProjects(prefix, limit));
+                while (projects.size() > limit) {
+                    projects.pollLast();
+                }
+            }
+            return projects;
+        }
         @Override
         public String getDisplayName() {
             return "";
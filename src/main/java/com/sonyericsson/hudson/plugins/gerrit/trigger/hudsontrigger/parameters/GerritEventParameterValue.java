@@ -0,0 +1,127 @@
+/*
+ *  The MIT License
+ *
+ *  Copyright 2026 Sony Mobile Communications Inc. All rights reserved.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.sonyericsson.hudson.plugins.gerrit.trigger.hudsontrigger.parameters;
+
+import com.sonyericsson.hudson.plugins.gerrit.trigger.hudsontrigger.GerritCause;
+import com.sonyericsson.hudson.plugins.gerrit.trigger.hudsontrigger.GerritTriggerParameters;
+import com.sonymobile.tools.gerrit.gerritevents.dto.events.GerritTriggeredEvent;
+import hudson.EnvVars;
+import hudson.model.AbstractBuild;
+import hudson.model.ParameterValue;
+import hudson.model.Run;
+import hudson.util.VariableResolver;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import java.io.Serial;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * A Base64 encoded Gerrit parameter that isn't stored in the build but read from the event that triggered it,
+ * when the environment of the build is created.
+ *
+ * All the builds triggered by an event share the text of the event, instead of each having an encoded copy
+ * of it in memory while queued and in its <code>build.xml</code> afterwards.
+ * The event is already stored with the {@link GerritCause} of the build.
+ */
+public class GerritEventParameterValue extends ParameterValue {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The text from the event, while it is in memory.
+     */
+    private transient String text;
+
+    /**
+     * Constructor.
+     *
+     * @param name        the name, one of {@link GerritTriggerParameters}.
+     * @param text        the text from the event.
+     * @param description the description.
+     */
+    public GerritEventParameterValue(String name, String text, String description) {
+        super(name, description);
+        this.text = text;
+    }
+
+    /**
+     * The encoded value for a build.
+     *
+     * @param build the build, to read the event of if the text isn't in memory.
+     * @return the encoded value, or null if it can't be found.
+     */
+    @CheckForNull
+    public String getValue(@CheckForNull Run<?, ?> build) {
+        String plain = text;
+        if (plain == null && build != null) {
+            GerritCause cause = build.getCause(GerritCause.class);
+            if (cause != null) {
+                GerritTriggeredEvent event = cause.getEvent();
+                if (event != null) {
+                    plain = GerritTriggerParameters.valueOf(name).readFrom(event);
+                }
+            }
+        }
+        if (plain == null) {
+            return null;
+        }
+        return Base64.getEncoder().encodeToString(plain.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * The encoded value, if the text is in memory.
+     *
+     * @return the encoded value, or null if it has to be read from the event of the build.
+     * @see #getValue(Run)
+     */
+    @Override
+    public Object getValue() {
+        return getValue(null);
+    }
+
+    @Override
+    public void buildEnvironment(Run<?, ?> build, EnvVars env) {
+        String value = getValue(build);
+        if (value != null) {
+            env.put(name, value);
+        }
+    }
+
+    @Override
+    public VariableResolver<String> createVariableResolver(AbstractBuild<?, ?> build) {
+        return variable -> name.equals(variable) ? getValue(build) : null;
+    }
+
+    @Override
+    public String getShortDescription() {
+        return name + "=<Base64 Encoded String from the Gerrit event>";
+    }
+
+    @Override
+    public String toString() {
+        return "(GerritEventParameterValue) " + getName();
+    }
+}
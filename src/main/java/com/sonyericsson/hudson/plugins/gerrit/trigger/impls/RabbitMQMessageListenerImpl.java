@@ -88,27 +88,7 @@ public class RabbitMQMessageListenerImpl extends MessageQueueListener {
     public void onReceive(String queueName, String contentType, Map<String, Object> headers, byte[] body) {
         if (queueNames.contains(queueName) && JSON_CONTENTTYPE.equals(contentType)) {
             logger.debug("Message received.");
-            Provider provider = new Provider();
-            if (headers != null) {
-                if (headers.containsKey(GERRIT_NAME)) {
-                    provider.setName(headers.get(GERRIT_NAME).toString());
-                }
-                if (headers.containsKey(GERRIT_HOST)) {
-                    provider.setHost(headers.get(GERRIT_HOST).toString());
-                }
-                if (headers.containsKey(GERRIT_SCHEME)) {
-                    provider.setScheme(headers.get(GERRIT_SCHEME).toString());
-                }
-                if (headers.containsKey(GERRIT_PORT)) {
-                    provider.setPort(headers.get(GERRIT_PORT).toString());
-                }
-                if (headers.containsKey(GERRIT_FRONT_URL)) {
-                    provider.setUrl(headers.get(GERRIT_FRONT_URL).toString());
-                }
-                if (headers.containsKey(GERRIT_VERSION)) {
-                    provider.setVersion(headers.get(GERRIT_VERSION).toString());
-                }
-            }
+            Provider provider = createProvider(headers);
 
             if (api == null) {
                 api = new GerritTriggerApi();
@@ -123,4 +103,39 @@ public class RabbitMQMessageListenerImpl extends MessageQueueListener {
             logger.debug("Message from unknown queue or unknown content type. This will be discarded.");
         }
     }
+
+    /**
+     * Creates the provider of a message from its headers.
+     * Each event gets a provider of its own, since the triggers may set its name.
+     *
+     * @param headers the headers of the message, may be null.
+     * @return the provider.
+     */
+    private static Provider createProvider(Map<String, Object> headers) {
+        if (headers == null) {
+            return new Provider();
+        }
+        return new Provider(
+                header(headers, GERRIT_NAME),
+                header(headers, GERRIT_HOST),
+                header(headers, GERRIT_PORT),
+                header(headers, GERRIT_SCHEME),
+                header(headers, GERRIT_FRONT_URL),
+                header(headers, GERRIT_VERSION));
+    }
+
+    /**
+     * The value of a header as text.
+     *
+     * @param headers the headers.
+     * @param name the name of the header.
+     * @return the value, or null if the header isn't there.
+     */
+    private static String header(Map<String, Object> headers, String name) {
+        Object value = headers.get(name);
+        if (value != null) {
+            return value.toString();
+        }
+        return null;
+    }
 }
@@ -24,16 +24,29 @@
 package com.sonyericsson.hudson.plugins.gerrit.trigger.replication;
 
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.sonymobile.tools.gerrit.gerritevents.dto.attr.Provider;
 import com.sonymobile.tools.gerrit.gerritevents.dto.events.RefReplicated;
 
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+
 /**
  * Replication cache for RefReplicated events.
  *
@@ -73,7 +86,34 @@ public class ReplicationCache {
          * @return the instance of {@link ReplicationCache} or null.
          */
         public static ReplicationCache createCache(long expiration, TimeUnit unit) {
-            ReplicationCache cache = new ReplicationCache(expiration, unit);
+            return createCache(expiration, unit, null);
+        }
+
+        /**
+         * Create {@link ReplicationCache} that is restored from and persisted to the given store.
+         *
+         * @param expiration Cache expiration
+         * @param unit the unit that expiration is expressed in
+         * @param store the persistent store, or null to only keep the cache in memory
+         * @return the instance of {@link ReplicationCache} or null.
+         */
+        public static ReplicationCache createCache(long expiration, TimeUnit unit,
+                                                   @CheckForNull ReplicationCacheStore store) {
+            return createCache(expiration, unit, DEFAULT_MAXIMUM_SIZE, store);
+        }
+
+        /**
+         * Create a size bounded {@link ReplicationCache} that is optionally restored from and persisted to a store.
+         *
+         * @param expiration Cache expiration
+         * @param unit the unit that expiration is expressed in
+         * @param maximumSize the maximum number of events to keep
+         * @param store the persistent store, or null to only keep the cache in memory
+         * @return the instance of {@link ReplicationCache} or null.
+         */
+        public static ReplicationCache createCache(long expiration, TimeUnit unit, long maximumSize,
+                                                   @CheckForNull ReplicationCacheStore store) {
+            ReplicationCache cache = new ReplicationCache(expiration, unit, maximumSize, store);
             if (!cache.initialize()) {
                 logger.info("Initialized replication cache with default settings.");
                 cache = new ReplicationCache();
@@ -88,11 +128,28 @@ public class ReplicationCache {
      */
     public static final int DEFAULT_EXPIRATION_IN_MINUTES = (int)TimeUnit.HOURS.toMinutes(6);
 
+    /**
+     * Default maximum number of events in the cache.
+     * When reached the least likely to be used events are evicted before they expire.
+     */
+    public static final long DEFAULT_MAXIMUM_SIZE = 500000;
+
+    /**
+     * How long after a restart an item waits for the replication events that may have been sent while
+     * Jenkins was down, when the cache is persistent.
+     */
+    private static final long DOWNTIME_GRACE_MILLIS = TimeUnit.SECONDS.toMillis(
+            Long.getLong(ReplicationCache.class.getName() + ".downtimeGraceSeconds", 300));
+
     private static final Logger logger = LoggerFactory.getLogger(ReplicationCache.class);
     private final long expiration;
     private final TimeUnit unit;
+    private final long maximumSize;
+    private final ReplicationCacheStore store;
+    private final NameDictionary names = new NameDictionary();
     private long creationTime;
-    private Cache<RefReplicatedId, RefReplicated> events = null;
+    private volatile long downtimeEnd = 0;
+    private Cache<RefReplicatedId, ReplicationState> events = null;
 
     /**
      * Default constructor.
@@ -108,6 +165,36 @@ public class ReplicationCache {
      * @param unit the unit that expiration is expressed in
      */
     public ReplicationCache(long expiration, TimeUnit unit) {
+        this(expiration, unit, null);
+    }
+
+    /**
+     * Constructor for a cache that is restored from and persisted to a store.
+     *
+     * @param expiration Cache expiration
+     * @param unit the unit that expiration is expressed in
+     * @param store the persistent store, or null to only keep the cache in memory
+     */
+    public ReplicationCache(long expiration, TimeUnit unit, @CheckForNull ReplicationCacheStore store) {
+        this(expiration, unit, DEFAULT_MAXIMUM_SIZE, store);
+    }
+
+    /**
+     * Constructor for a cache bounded in size that is optionally restored from and persisted to a store.
+     *
+     * @param expiration Cache expiration
+     * @param unit the unit that expiration is expressed in
+     * @param maximumSize the maximum number of events to keep
+     * @param store the persistent store, or null to only keep the cache in memory
+     */
+    public ReplicationCache(long expiration, TimeUnit unit, long maximumSize,
+                            @CheckForNull ReplicationCacheStore store) {
+        this.store = store;
+        if (maximumSize > 0) {
+            this.maximumSize = maximumSize;
+        } else {
+            this.maximumSize = DEFAULT_MAXIMUM_SIZE;
+        }
         if (expiration >= 0) {
             this.expiration = expiration;
         } else {
@@ -119,10 +206,17 @@ public class ReplicationCache {
 
     /**
      * Set creation time for Replication Cache.
+     * If the cache was restored from a persistent store, the creation time is instead
+     * the time since when the store has been recording events, if that is earlier.
+     * The events received while Jenkins was down are still unknown, see {@link #getMissedReplicationDeadline(long)}.
      * @param time when cache was created
      */
     public void setCreationTime(long time) {
-        this.creationTime = time;
+        if (store != null && events != null) {
+            this.creationTime = Math.min(time, store.getSince());
+        } else {
+            this.creationTime = time;
+        }
     }
 
     /**
@@ -133,9 +227,13 @@ public class ReplicationCache {
         if (events == null) {
             try {
                 events = Caffeine.newBuilder()
-                        .expireAfterWrite(expiration, unit)
+                        .maximumSize(maximumSize)
+                        .expireAfter(new ExpireAfterWrite(unit.toNanos(expiration)))
+                        .recordStats()
                         .build();
-                logger.info("initialized replication cache with expiration in {}: {}", unit, expiration);
+                logger.info("initialized replication cache with expiration in {}: {} and maximum size: {}",
+                        unit, expiration, maximumSize);
+                restore();
             } catch (Exception ex) {
                 logger.warn("initialize failure in {}: {}", unit, expiration);
                 return false;
@@ -144,16 +242,69 @@ public class ReplicationCache {
         return true;
     }
 
+    /**
+     * Restore the events from the persistent store, if any,
+     * letting them live for what remains of their expiration time.
+     */
+    private void restore() {
+        if (store == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long expirationMillis = unit.toMillis(expiration);
+        for (ReplicationCacheStore.Entry entry : store.load(now, expirationMillis, this::getLiveEntries)) {
+            long remaining = expirationMillis - (now - entry.getWritten());
+            RefReplicated refReplicated = entry.toRefReplicated();
+            events.policy().expireVariably().ifPresent(v -> v.put(
+                    idOf(refReplicated), stateOf(refReplicated),
+                    remaining, TimeUnit.MILLISECONDS));
+        }
+        downtimeEnd = store.getDowntimeEnd();
+    }
+
     /**
      * Cache the specified RefReplicated.
      * @param refReplicated the event to cache
      */
     public void put(RefReplicated refReplicated) {
         if (events != null) {
-            events.put(RefReplicatedId.fromRefReplicated(refReplicated), refReplicated);
+            events.put(idOf(refReplicated), stateOf(refReplicated));
+            if (store != null) {
+                store.append(ReplicationCacheStore.Entry.fromRefReplicated(System.currentTimeMillis(),
+                        refReplicated));
+            }
+        }
+    }
+
+    /**
+     * Writes the events still queued for the persistent store, if any, and closes it.
+     */
+    public void close() {
+        if (store != null) {
+            store.close();
         }
     }
 
+    /**
+     * The events currently in the cache, to rewrite the persistent store with.
+     * The time each event was written is derived from the time it has left to live.
+     * @return the entries
+     */
+    private Collection<ReplicationCacheStore.Entry> getLiveEntries() {
+        long now = System.currentTimeMillis();
+        long expirationNanos = unit.toNanos(expiration);
+        List<ReplicationCacheStore.Entry> live = new ArrayList<>();
+        events.policy().expireVariably().ifPresent(v -> {
+            for (Map.Entry<RefReplicatedId, ReplicationState> e : events.asMap().entrySet()) {
+                v.getExpiresAfter(e.getKey(), TimeUnit.NANOSECONDS).ifPresent(left -> live.add(
+                        ReplicationCacheStore.Entry.fromRefReplicated(
+                                now - TimeUnit.NANOSECONDS.toMillis(expirationNanos - left),
+                                toRefReplicated(e.getKey(), e.getValue()))));
+            }
+        });
+        return live;
+    }
+
     /**
      * Returns if the specified time stamp is expired.
      * Note that we also need to check if the event would
@@ -167,6 +318,22 @@ public class ReplicationCache {
                 || timestamp < creationTime;
     }
 
+    /**
+     * The point in time until when an item caused by an event received at the given time should wait for
+     * replication events it doesn't find in the cache.
+     * If the cache was restored after Jenkins was down, the replication events of an event received before
+     * the restart may have been sent while Jenkins was down and never be received. Whether they were is
+     * unknown, so such items only wait for a grace period after the restart instead of forever.
+     * @param timestamp the time stamp of the event
+     * @return the time in milliseconds, or -1 if all replication events since the time stamp are received
+     */
+    public long getMissedReplicationDeadline(long timestamp) {
+        if (downtimeEnd > 0 && timestamp < downtimeEnd) {
+            return downtimeEnd + DOWNTIME_GRACE_MILLIS;
+        }
+        return -1;
+    }
+
     /**
      * Return the cached RefReplicated associated with the specified parameters, if found.
      * @param gerritServer The gerritServer
@@ -177,47 +344,248 @@ public class ReplicationCache {
      */
     public RefReplicated getIfPresent(String gerritServer, String gerritProject, String ref, String slaveHost) {
         if (events != null) {
-            RefReplicatedId refReplicatedId = new RefReplicatedId(gerritServer, gerritProject, ref, slaveHost);
-            return events.getIfPresent(refReplicatedId);
-        } else {
-            return null;
+            RefReplicatedId refReplicatedId = new RefReplicatedId(names.find(gerritServer), names.find(gerritProject),
+                    ref, names.find(slaveHost));
+            ReplicationState state = events.getIfPresent(refReplicatedId);
+            if (state != null) {
+                return toRefReplicated(refReplicatedId, state);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Create a RefReplicatedId for the specified RefReplicated.
+     * @param refReplicated The RefReplicated
+     * @return the RefReplicatedId
+     */
+    private RefReplicatedId idOf(RefReplicated refReplicated) {
+        String gerritServer = null;
+        if (refReplicated.getProvider() != null) {
+            gerritServer = refReplicated.getProvider().getName();
+        }
+        return new RefReplicatedId(names.idOf(gerritServer), names.idOf(refReplicated.getProject()),
+                refReplicated.getRef(), names.idOf(refReplicated.getTargetNode()));
+    }
+
+    /**
+     * Create the cached state of the specified RefReplicated, the rest of it is in its id.
+     * @param refReplicated The RefReplicated
+     * @return the state
+     */
+    private ReplicationState stateOf(RefReplicated refReplicated) {
+        return new ReplicationState(names.idOf(refReplicated.getStatus()), refReplicated.getReceivedOn());
+    }
+
+    /**
+     * Recreate a cached RefReplicated event from its id and state.
+     * @param id the id
+     * @param state the state
+     * @return the event
+     */
+    private RefReplicated toRefReplicated(RefReplicatedId id, ReplicationState state) {
+        RefReplicated refReplicated = new RefReplicated();
+        refReplicated.setProject(names.nameOf(id.project));
+        refReplicated.setRef(id.ref);
+        refReplicated.setTargetNode(names.nameOf(id.targetNode));
+        refReplicated.setStatus(names.nameOf(state.status));
+        refReplicated.setReceivedOn(state.receivedOn);
+        String gerritServer = names.nameOf(id.gerritServer);
+        if (gerritServer != null) {
+            refReplicated.setProvider(new Provider(gerritServer, null, null, null, null, null));
+        }
+        return refReplicated;
+    }
+
+    /**
+     * The statistics of the cache since it was initialized.
+     * @return the statistics
+     */
+    @NonNull
+    public CacheStats getStats() {
+        if (events != null) {
+            return events.stats();
+        }
+        return CacheStats.empty();
+    }
+
+    /**
+     * The approximate number of events in the cache.
+     * @return the number of events
+     */
+    public long getEstimatedSize() {
+        if (events != null) {
+            return events.estimatedSize();
+        }
+        return 0;
+    }
+
+    /**
+     * The maximum number of events kept in the cache.
+     * @return the maximum size
+     */
+    public long getMaximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * The number of distinct server, project, node and status names of the cached events.
+     * @return the number of names
+     */
+    public int getNameCount() {
+        return names.size();
+    }
+
+    /**
+     * Expires entries a fixed time after they were created or updated, just like
+     * {@link Caffeine#expireAfterWrite(long, TimeUnit)}, but also allows restored entries
+     * to be put with what remains of their time.
+     */
+    private static final class ExpireAfterWrite implements Expiry<RefReplicatedId, ReplicationState> {
+        private final long nanos;
+
+        /**
+         * Standard constructor.
+         * @param nanos the time in nanoseconds an entry lives after being written
+         */
+        ExpireAfterWrite(long nanos) {
+            this.nanos = nanos;
+        }
+
+        @Override
+        public long expireAfterCreate(RefReplicatedId key, ReplicationState value, long currentTime) {
+            return nanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(RefReplicatedId key, ReplicationState value,
+                                      long currentTime, long currentDuration) {
+            return nanos;
+        }
+
+        @Override
+        public long expireAfterRead(RefReplicatedId key, ReplicationState value,
+                                    long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+
+    /**
+     * Dictionary handing out compact int ids for the server, project, node and status names of the cached events.
+     * These are few compared to the number of events, so each name is kept only once.
+     */
+    private static final class NameDictionary {
+        /**
+         * The id of a name that is not in the dictionary.
+         */
+        static final int UNKNOWN = -1;
+        /**
+         * The id of null.
+         */
+        static final int NULL = 0;
+
+        private final ConcurrentMap<String, Integer> ids = new ConcurrentHashMap<>();
+        private final ConcurrentMap<Integer, String> names = new ConcurrentHashMap<>();
+        private final AtomicInteger next = new AtomicInteger(NULL + 1);
+
+        /**
+         * The id of the name, adding it to the dictionary if needed.
+         * @param name the name
+         * @return the id
+         */
+        int idOf(@CheckForNull String name) {
+            if (name == null) {
+                return NULL;
+            }
+            return ids.computeIfAbsent(name, k -> {
+                int id = next.getAndIncrement();
+                names.put(id, k);
+                return id;
+            });
+        }
+
+        /**
+         * The name with the id.
+         * @param id the id
+         * @return the name, or null if the id is {@link #NULL} or unknown
+         */
+        @CheckForNull
+        String nameOf(int id) {
+            return names.get(id);
+        }
+
+        /**
+         * The id of the name, if it is in the dictionary.
+         * @param name the name
+         * @return the id, or {@link #UNKNOWN} if the name has not been added
+         */
+        int find(@CheckForNull String name) {
+            if (name == null) {
+                return NULL;
+            }
+            return ids.getOrDefault(name, UNKNOWN);
+        }
+
+        /**
+         * The number of names in the dictionary.
+         * @return the size
+         */
+        int size() {
+            return ids.size();
+        }
+    }
+
+    /**
+     * What is cached of a RefReplicated event besides its {@link RefReplicatedId}:
+     * the status, as an id from the {@link NameDictionary}, and when it was received.
+     * The event itself is not kept since it has its own copies of all the names.
+     */
+    private static final class ReplicationState {
+        private final int status;
+        private final long receivedOn;
+
+        /**
+         * Standard constructor.
+         * @param status the status id
+         * @param receivedOn when the event was received
+         */
+        ReplicationState(int status, long receivedOn) {
+            this.status = status;
+            this.receivedOn = receivedOn;
         }
     }
 
     /**
      * Id of RefReplicated to identify a RefReplicated event in the cache.
+     * The server, project and target node are ids from the {@link NameDictionary}.
+     * The ref is kept as is since refs are as many as the events.
      */
-    private static class RefReplicatedId {
-        private String gerritServer;
-        private String project;
-        private String ref;
-        private String targetNode;
+    private static final class RefReplicatedId {
+        private final int gerritServer;
+        private final int project;
+        private final String ref;
+        private final int targetNode;
+        private final int hash;
 
         /**
          * Standard constructor.
-         * @param gerritServer The gerrit server
-         * @param project the project
+         * @param gerritServer The gerrit server id
+         * @param project the project id
          * @param ref the ref
-         * @param targetNode the target node
+         * @param targetNode the target node id
          */
-        RefReplicatedId(String gerritServer, String project, String ref, String targetNode) {
+        RefReplicatedId(int gerritServer, int project, String ref, int targetNode) {
             this.gerritServer = gerritServer;
             this.project = project;
             this.ref = ref;
             this.targetNode = targetNode;
+            //CS IGNORE MagicNumber FOR NEXT 1 LINES. REASON: hash prime.
+            this.hash = 31 * (31 * (31 * gerritServer + project) + Objects.hashCode(ref)) + targetNode;
         }
 
         @Override
         public int hashCode() {
-            //CS IGNORE MagicNumber FOR NEXT 6 LINES. REASON: Autogenerated Code.
-            //CS IGNORE AvoidInlineConditionals FOR NEXT 6 LINES. REASON: Autogenerated Code.
-            final int prime = 31;
-            int result = 1;
-            result = prime * result + ((gerritServer == null) ? 0 : gerritServer.hashCode());
-            result = prime * result + ((project == null) ? 0 : project.hashCode());
-            result = prime * result + ((ref == null) ? 0 : ref.hashCode());
-            result = prime * result + ((targetNode == null) ? 0 : targetNode.hashCode());
-            return result;
+            return hash;
         }
 
         @Override
@@ -225,53 +593,14 @@ public class ReplicationCache {
             if (this == obj) {
                 return true;
             }
-            if (obj == null) {
-                return false;
-            }
-            if (getClass() != obj.getClass()) {
+            if (!(obj instanceof RefReplicatedId)) {
                 return false;
             }
             RefReplicatedId other = (RefReplicatedId)obj;
-            if (gerritServer == null) {
-                if (other.gerritServer != null) {
-                    return false;
-                }
-            } else if (!gerritServer.equals(other.gerritServer)) {
-                return false;
-            }
-            if (project == null) {
-                if (other.project != null) {
-                    return false;
-                }
-            } else if (!project.equals(other.project)) {
-                return false;
-            }
-            if (ref == null) {
-                if (other.ref != null) {
-                    return false;
-                }
-            } else if (!ref.equals(other.ref)) {
-                return false;
-            }
-            if (targetNode == null) {
-                return other.targetNode == null;
-            } else {
-                return targetNode.equals(other.targetNode);
-            }
-        }
-
-        /**
-         * Create a RefReplicatedId for the specified RefReplicated.
-         * @param refReplicated The RefReplicated
-         * @return the RefReplicatedId
-         */
-        private static RefReplicatedId fromRefReplicated(RefReplicated refReplicated) {
-            String gerritServer = null;
-            if (refReplicated.getProvider() != null) {
-                gerritServer = refReplicated.getProvider().getName();
-            }
-            return new RefReplicatedId(gerritServer, refReplicated.getProject(), refReplicated.getRef(),
-                    refReplicated.getTargetNode());
+            return gerritServer == other.gerritServer
+                    && project == other.project
+                    && targetNode == other.targetNode
+                    && Objects.equals(ref, other.ref);
         }
     }
 }
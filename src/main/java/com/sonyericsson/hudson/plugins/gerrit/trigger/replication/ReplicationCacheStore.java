@@ -0,0 +1,584 @@
+/*
+ *  The MIT License
+ *
+ *  Copyright 2026 Sony Mobile Communications Inc. All rights reserved.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.sonyericsson.hudson.plugins.gerrit.trigger.replication;
+
+import com.sonymobile.tools.gerrit.gerritevents.dto.attr.Provider;
+import com.sonymobile.tools.gerrit.gerritevents.dto.events.RefReplicated;
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import net.sf.json.JSONException;
+import net.sf.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Append only log of the {@link RefReplicated} events put into a {@link ReplicationCache},
+ * so that the cache can be restored after a restart of Jenkins.
+ *
+ * Each line in the file is a JSON object describing one event and the time it was written to the cache.
+ * The first line holds the point in time since when the log has been recording events.
+ * The events received while Jenkins was down are not in the log, the gap is recorded when it is loaded,
+ * see {@link #getDowntimeEnd()}.
+ *
+ * The file is only written by one writer thread, so that the Gerrit event thread only queues the entries.
+ * The writer appends the queued entries in batches, and rewrites the log with only the live entries
+ * when it has grown by {@link #getMaxEntries()} records since the last rewrite, dropping the oldest entries
+ * if there are more than {@link #getMaxEntries()} of them or if they weigh more than {@link #getMaxWeight()} bytes.
+ */
+public class ReplicationCacheStore {
+
+    /**
+     * The name of the file in the Jenkins root directory.
+     */
+    public static final String FILE_NAME = "gerrit-trigger-replication-cache.log";
+    /**
+     * Default max number of entries to keep.
+     */
+    public static final int DEFAULT_MAX_ENTRIES = 100000;
+    /**
+     * Default max total weight in bytes of the entries to keep.
+     */
+    public static final long DEFAULT_MAX_WEIGHT = 64L * 1024 * 1024;
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicationCacheStore.class);
+    private static final long IDLE_THREAD_KEEP_ALIVE_SECONDS = 60;
+    private static final long CLOSE_TIMEOUT_SECONDS = 10;
+    private static final String KEY_SINCE = "since";
+    private static final String KEY_WRITTEN = "written";
+    private static final String KEY_RECEIVED = "received";
+    private static final String KEY_SERVER = "server";
+    private static final String KEY_PROJECT = "project";
+    private static final String KEY_REF = "ref";
+    private static final String KEY_NODE = "node";
+    private static final String KEY_STATUS = "status";
+
+    private final File file;
+    private final int maxEntries;
+    private final long maxWeight;
+    private final Executor writerExecutor;
+    private final Queue<Entry> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean writeScheduled = new AtomicBoolean(false);
+    private Supplier<Collection<Entry>> liveEntries = Collections::emptyList;
+    private long since;
+    private long downtimeStart = 0;
+    private long downtimeEnd = 0;
+    private int appendedSinceCompaction = 0;
+    private Writer writer;
+
+    /**
+     * Standard constructor.
+     *
+     * @param file the log file
+     * @param maxEntries the max number of entries to keep
+     * @param maxWeight the max total weight in bytes of the entries to keep
+     */
+    public ReplicationCacheStore(@NonNull File file, int maxEntries, long maxWeight) {
+        this(file, maxEntries, maxWeight, createWriterExecutor());
+    }
+
+    /**
+     * Constructor for unit tests.
+     *
+     * @param file the log file
+     * @param maxEntries the max number of entries to keep
+     * @param maxWeight the max total weight in bytes of the entries to keep
+     * @param writerExecutor the executor that the file is written on, it must run one task at a time
+     */
+    ReplicationCacheStore(@NonNull File file, int maxEntries, long maxWeight, @NonNull Executor writerExecutor) {
+        this.file = file;
+        if (maxEntries > 0) {
+            this.maxEntries = maxEntries;
+        } else {
+            this.maxEntries = DEFAULT_MAX_ENTRIES;
+        }
+        if (maxWeight > 0) {
+            this.maxWeight = maxWeight;
+        } else {
+            this.maxWeight = DEFAULT_MAX_WEIGHT;
+        }
+        this.writerExecutor = writerExecutor;
+        this.since = System.currentTimeMillis();
+    }
+
+    /**
+     * Creates the single thread that writes the log file, which stops when idle.
+     *
+     * @return the executor
+     */
+    private static Executor createWriterExecutor() {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(1, 1,
+                IDLE_THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                new NamingThreadFactory(new DaemonThreadFactory(), "Gerrit replication cache writer"));
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    /**
+     * The log file.
+     *
+     * @return the file
+     */
+    @NonNull
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * The max number of entries to keep.
+     *
+     * @return the max number of entries
+     */
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     * The max total weight in bytes of the entries to keep.
+     *
+     * @return the max weight
+     */
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+    /**
+     * The point in time since when the log has been recording events.
+     * Any event received before this time is not known by the store,
+     * nor are those received while Jenkins was down, see {@link #getDowntimeEnd()}.
+     *
+     * @return the time in milliseconds
+     */
+    public synchronized long getSince() {
+        return since;
+    }
+
+    /**
+     * The last point in time that the loaded log is known to have recorded until,
+     * before Jenkins was stopped.
+     *
+     * @return the time in milliseconds, or 0 if no log was loaded.
+     */
+    public synchronized long getDowntimeStart() {
+        return downtimeStart;
+    }
+
+    /**
+     * The point in time when the log was loaded again after Jenkins was down.
+     * Events received between {@link #getDowntimeStart()} and this time were not recorded,
+     * so whether a ref was replicated before this time is unknown if the log doesn't have it.
+     *
+     * @return the time in milliseconds, or 0 if no log was loaded.
+     */
+    public synchronized long getDowntimeEnd() {
+        return downtimeEnd;
+    }
+
+    /**
+     * Read the entries from the log that was written before they expire.
+     * The log is then rewritten with only those entries and opened for appending.
+     *
+     * @param now the current time in milliseconds
+     * @param expirationMillis the time in milliseconds entries live after being written
+     * @param live the entries currently in the cache, for when the log is compacted
+     * @return the live entries, oldest first
+     */
+    @NonNull
+    public synchronized List<Entry> load(long now, long expirationMillis, @NonNull Supplier<Collection<Entry>> live) {
+        liveEntries = live;
+        List<Entry> entries = new ArrayList<>();
+        long loadedSince = now;
+        boolean loaded = false;
+        long lastRecorded = 0;
+        if (file.isFile()) {
+            try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+                String line = reader.readLine();
+                if (line != null) {
+                    loadedSince = JSONObject.fromObject(line).optLong(KEY_SINCE, now);
+                    loaded = true;
+                    lastRecorded = loadedSince;
+                }
+                while ((line = reader.readLine()) != null) {
+                    Entry entry = Entry.fromJson(line);
+                    if (entry == null) {
+                        continue;
+                    }
+                    lastRecorded = Math.max(lastRecorded, entry.getWritten());
+                    if (now - entry.getWritten() < expirationMillis) {
+                        entries.add(entry);
+                    }
+                }
+            } catch (IOException | JSONException e) {
+                logger.warn("Unable to read the replication cache from {}, starting with an empty cache.", file, e);
+                entries.clear();
+                loadedSince = now;
+                loaded = false;
+            }
+        }
+        since = Math.max(loadedSince, now - expirationMillis);
+        if (loaded) {
+            downtimeStart = Math.min(lastRecorded, now);
+            downtimeEnd = now;
+            logger.info("Replication events received between {} and {} were not recorded in {}",
+                    downtimeStart, downtimeEnd, file);
+        }
+        entries.sort(Comparator.comparingLong(Entry::getWritten));
+        entries = compact(entries);
+        logger.info("Restored {} replication events from {}", entries.size(), file);
+        return entries;
+    }
+
+    /**
+     * Queues an entry to be appended to the log by the writer thread.
+     * The log is compacted with the entries currently in the cache once it has grown enough.
+     *
+     * @param entry the entry
+     * @see #compact(Collection)
+     */
+    public void append(@NonNull Entry entry) {
+        pending.add(entry);
+        if (writeScheduled.compareAndSet(false, true)) {
+            try {
+                writerExecutor.execute(this::write);
+            } catch (RejectedExecutionException e) {
+                writeScheduled.set(false);
+                logger.warn("Unable to schedule the write of the replication cache to {}", file, e);
+            }
+        }
+    }
+
+    /**
+     * Appends the queued entries to the log on the writer thread, with one flush for all of them,
+     * and compacts the log if it has grown enough.
+     */
+    private synchronized void write() {
+        //Entries queued from now on need another write.
+        writeScheduled.set(false);
+        int written = 0;
+        try {
+            Entry entry;
+            while ((entry = pending.poll()) != null) {
+                if (writer == null) {
+                    writer = openWriter(StandardOpenOption.APPEND);
+                }
+                writer.write(entry.toJson());
+                writer.write('\n');
+                written++;
+            }
+            if (writer != null) {
+                writer.flush();
+            }
+        } catch (IOException e) {
+            logger.warn("Unable to persist replication events to {}", file, e);
+            closeWriter();
+        }
+        appendedSinceCompaction += written;
+        if (appendedSinceCompaction >= maxEntries) {
+            //Entries queued while the cache is read are both in it and appended after the rewrite,
+            //so none are lost, at worst they are there twice until the next rewrite.
+            compact(liveEntries.get());
+        }
+    }
+
+    /**
+     * Rewrite the log with only the given entries, oldest first,
+     * evicting the oldest ones if they exceed the max number of entries or the max weight.
+     * Only called on the writer thread, or when loading before anything is appended.
+     *
+     * @param live the live entries
+     * @return the entries that are kept, oldest first
+     */
+    @NonNull
+    synchronized List<Entry> compact(@NonNull Collection<Entry> live) {
+        List<Entry> kept = new ArrayList<>(live);
+        kept.sort(Comparator.comparingLong(Entry::getWritten));
+        int first = Math.max(0, kept.size() - maxEntries);
+        long weight = 0;
+        for (int i = kept.size() - 1; i >= first; i--) {
+            weight += kept.get(i).getWeight();
+            if (weight > maxWeight) {
+                first = i + 1;
+                break;
+            }
+        }
+        if (first > 0) {
+            // the evicted entries are no longer known, so the log only covers what comes after them
+            since = Math.max(since, kept.get(first - 1).getWritten() + 1);
+            logger.debug("Evicting {} replication events from the persisted cache", first);
+            kept = new ArrayList<>(kept.subList(first, kept.size()));
+        }
+        closeWriter();
+        File tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+        try (Writer out = Files.newBufferedWriter(tmp.toPath(), StandardCharsets.UTF_8)) {
+            out.write(new JSONObject().element(KEY_SINCE, since).toString());
+            out.write('\n');
+            for (Entry entry : kept) {
+                out.write(entry.toJson());
+                out.write('\n');
+            }
+        } catch (IOException e) {
+            logger.warn("Unable to write the replication cache to {}", tmp, e);
+            return kept;
+        }
+        try {
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warn("Unable to replace the replication cache {}", file, e);
+        }
+        appendedSinceCompaction = 0;
+        return kept;
+    }
+
+    /**
+     * Writes the queued entries and closes the log, waiting a while for the writer thread to be done.
+     */
+    public void close() {
+        CountDownLatch done = new CountDownLatch(1);
+        try {
+            writerExecutor.execute(() -> {
+                write();
+                synchronized (this) {
+                    closeWriter();
+                }
+                done.countDown();
+            });
+            if (!done.await(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                logger.warn("Timed out writing the replication cache to {}", file);
+            }
+        } catch (RejectedExecutionException e) {
+            logger.warn("Unable to write the replication cache to {}", file, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Opens the writer of the log file.
+     *
+     * @param option how to open the file
+     * @return the writer
+     * @throws IOException if so
+     */
+    private BufferedWriter openWriter(StandardOpenOption option) throws IOException {
+        return Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, option);
+    }
+
+    /**
+     * Closes the writer of the log file if open.
+     */
+    private void closeWriter() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                logger.debug("Failed to close {}", file, e);
+            }
+            writer = null;
+        }
+    }
+
+    /**
+     * A persisted {@link RefReplicated} event.
+     */
+    public static final class Entry {
+        private final long written;
+        private final long received;
+        private final String server;
+        private final String project;
+        private final String ref;
+        private final String targetNode;
+        private final String status;
+
+        /**
+         * Standard constructor.
+         *
+         * @param written the time the event was written to the cache
+         * @param received the time the event was received
+         * @param server the name of the Gerrit server
+         * @param project the project
+         * @param ref the ref
+         * @param targetNode the target node
+         * @param status the replication status
+         */
+        Entry(long written, long received, String server, String project, String ref,
+              String targetNode, String status) {
+            this.written = written;
+            this.received = received;
+            this.server = server;
+            this.project = project;
+            this.ref = ref;
+            this.targetNode = targetNode;
+            this.status = status;
+        }
+
+        /**
+         * Create an entry for the event.
+         *
+         * @param written the time the event was written to the cache
+         * @param refReplicated the event
+         * @return the entry
+         */
+        @NonNull
+        public static Entry fromRefReplicated(long written, @NonNull RefReplicated refReplicated) {
+            String server = null;
+            if (refReplicated.getProvider() != null) {
+                server = refReplicated.getProvider().getName();
+            }
+            return new Entry(written, refReplicated.getReceivedOn(), server, refReplicated.getProject(),
+                    refReplicated.getRef(), refReplicated.getTargetNode(), refReplicated.getStatus());
+        }
+
+        /**
+         * The time the event was written to the cache.
+         *
+         * @return the time in milliseconds
+         */
+        public long getWritten() {
+            return written;
+        }
+
+        /**
+         * Approximate size in bytes of the entry.
+         *
+         * @return the weight
+         */
+        public int getWeight() {
+            //CS IGNORE MagicNumber FOR NEXT 2 LINES. REASON: two longs and the json syntax.
+            return 64 + length(server) + length(project) + length(ref) + length(targetNode) + length(status);
+        }
+
+        /**
+         * Recreate the event.
+         *
+         * @return the event
+         */
+        @NonNull
+        public RefReplicated toRefReplicated() {
+            RefReplicated refReplicated = new RefReplicated();
+            refReplicated.setProject(project);
+            refReplicated.setRef(ref);
+            refReplicated.setTargetNode(targetNode);
+            refReplicated.setStatus(status);
+            refReplicated.setReceivedOn(received);
+            if (server != null) {
+                refReplicated.setProvider(new Provider(server, null, null, null, null, null));
+            }
+            return refReplicated;
+        }
+
+        /**
+         * Serialize to one line of JSON.
+         *
+         * @return the JSON string
+         */
+        String toJson() {
+            JSONObject json = new JSONObject();
+            json.element(KEY_WRITTEN, written);
+            json.element(KEY_RECEIVED, received);
+            json.elementOpt(KEY_SERVER, server);
+            json.elementOpt(KEY_PROJECT, project);
+            json.elementOpt(KEY_REF, ref);
+            json.elementOpt(KEY_NODE, targetNode);
+            json.elementOpt(KEY_STATUS, status);
+            return json.toString();
+        }
+
+        /**
+         * Deserialize from a line of JSON.
+         *
+         * @param line the line
+         * @return the entry or null if the line is not a valid entry
+         */
+        @CheckForNull
+        static Entry fromJson(String line) {
+            try {
+                JSONObject json = JSONObject.fromObject(line);
+                if (!json.has(KEY_WRITTEN)) {
+                    return null;
+                }
+                return new Entry(json.getLong(KEY_WRITTEN), json.optLong(KEY_RECEIVED),
+                        optString(json, KEY_SERVER), optString(json, KEY_PROJECT), optString(json, KEY_REF),
+                        optString(json, KEY_NODE), optString(json, KEY_STATUS));
+            } catch (JSONException e) {
+                logger.debug("Skipping malformed replication cache entry: {}", line, e);
+                return null;
+            }
+        }
+
+        /**
+         * Get a string value that may be absent.
+         *
+         * @param json the object
+         * @param key the key
+         * @return the value or null
+         */
+        private static String optString(JSONObject json, String key) {
+            if (json.has(key)) {
+                return json.getString(key);
+            }
+            return null;
+        }
+
+        /**
+         * Null safe length of a string.
+         *
+         * @param s the string
+         * @return the length
+         */
+        private static int length(String s) {
+            if (s == null) {
+                return 0;
+            }
+            return s.length();
+        }
+    }
+}
@@ -27,18 +27,24 @@ import com.sonyericsson.hudson.plugins.gerrit.trigger.config.PluginConfig;
 import hudson.Extension;
 import hudson.model.Job;
 import hudson.model.Cause;
-import hudson.model.Queue;
 import hudson.model.Queue.Item;
 import hudson.model.queue.QueueTaskDispatcher;
 import hudson.model.queue.CauseOfBlockage;
 
+import java.io.File;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 
+import jenkins.model.Jenkins;
+
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -56,6 +62,8 @@ import com.sonyericsson.hudson.plugins.gerrit.trigger.PluginImpl;
 import com.sonyericsson.hudson.plugins.gerrit.trigger.hudsontrigger.GerritCause;
 import com.sonyericsson.hudson.plugins.gerrit.trigger.hudsontrigger.GerritTrigger;
 import com.sonyericsson.hudson.plugins.gerrit.trigger.hudsontrigger.data.GerritSlave;
+import com.sonyericsson.hudson.plugins.gerrit.trigger.utils.QueueMaintenanceScheduler;
+import com.sonyericsson.hudson.plugins.gerrit.trigger.utils.TaskScheduler;
 
 import edu.umd.cs.findbugs.annotations.CheckForNull;
 import edu.umd.cs.findbugs.annotations.NonNull;
@@ -68,16 +76,22 @@ import edu.umd.cs.findbugs.annotations.NonNull;
 @Extension
 public class ReplicationQueueTaskDispatcher extends QueueTaskDispatcher implements GerritEventListener {
 
+    private static final String TIMEOUT_CHECK_TASK_NAME = "Replication timeout check";
     private static final Logger logger = LoggerFactory.getLogger(ReplicationQueueTaskDispatcher.class);
     private final Map<Long, BlockedItem> blockedItems;
+    private final ConcurrentMap<RefKey, Map<Long, BlockedItem>> blockedItemsByRef;
     private final ReplicationCache replicationCache;
+    private final QueueMaintenanceScheduler maintenanceScheduler;
+    private final TaskScheduler timeoutScheduler;
 
     /**
      * Default constructor.
      */
     public ReplicationQueueTaskDispatcher() {
         this(PluginImpl.getHandler_(),
-                createDefaultCache());
+                createDefaultCache(),
+                QueueMaintenanceScheduler.getInstance(),
+                TaskScheduler.getInstance());
     }
 
     /**
@@ -90,12 +104,24 @@ public class ReplicationQueueTaskDispatcher extends QueueTaskDispatcher implemen
     private static ReplicationCache createDefaultCache() {
         PluginConfig config = PluginImpl.getPluginConfig_();
         int expiration = ReplicationCache.DEFAULT_EXPIRATION_IN_MINUTES;
+        long maximumSize = ReplicationCache.DEFAULT_MAXIMUM_SIZE;
+        ReplicationCacheStore store = null;
         if (config != null) {
             expiration = config.getReplicationCacheExpirationInMinutes();
+            maximumSize = config.getReplicationCacheMaximumSize();
+            Jenkins jenkins = Jenkins.getInstanceOrNull();
+            if (config.isReplicationCachePersistent() && jenkins != null) {
+                store = new ReplicationCacheStore(new File(jenkins.getRootDir(), ReplicationCacheStore.FILE_NAME),
+                        config.getReplicationCacheMaxPersistedEntries(),
+                        Long.getLong(ReplicationCacheStore.class.getName() + ".maxWeight",
+                                ReplicationCacheStore.DEFAULT_MAX_WEIGHT));
+            }
         }
         return ReplicationCache.Factory.createCache(
                 expiration,
-                TimeUnit.MINUTES);
+                TimeUnit.MINUTES,
+                maximumSize,
+                store);
     }
 
     /**
@@ -103,11 +129,18 @@ public class ReplicationQueueTaskDispatcher extends QueueTaskDispatcher implemen
      *
      * @param gerritHandler the handler
      * @param replicationCache the replication cache
+     * @param maintenanceScheduler the scheduler of queue maintenances when items are unblocked
+     * @param timeoutScheduler the scheduler to schedule the replication timeout checks on
      */
     ReplicationQueueTaskDispatcher(@CheckForNull GerritHandler gerritHandler,
-                                   @NonNull ReplicationCache replicationCache) {
+                                   @NonNull ReplicationCache replicationCache,
+                                   @NonNull QueueMaintenanceScheduler maintenanceScheduler,
+                                   @NonNull TaskScheduler timeoutScheduler) {
         blockedItems = new ConcurrentHashMap<>();
+        blockedItemsByRef = new ConcurrentHashMap<>();
         this.replicationCache = replicationCache;
+        this.maintenanceScheduler = maintenanceScheduler;
+        this.timeoutScheduler = timeoutScheduler;
         if (gerritHandler != null) {
             gerritHandler.addListener(this);
         } else {
@@ -117,6 +150,17 @@ public class ReplicationQueueTaskDispatcher extends QueueTaskDispatcher implemen
         logger.debug("Registered to gerrit events");
     }
 
+    /**
+     * The cache of replication events that blocked items are checked against.
+     *
+     * @return the cache.
+     */
+    @Restricted(NoExternalUse.class)
+    @NonNull
+    public ReplicationCache getReplicationCache() {
+        return replicationCache;
+    }
+
     @Override
     public CauseOfBlockage canRun(Item item) {
         //we do not block item when it reached the buildable state, a buildable item is an item that
@@ -134,7 +178,7 @@ public class ReplicationQueueTaskDispatcher extends QueueTaskDispatcher implemen
                 } else {
                     logger.trace("{} can now run with no timeout check.", blockedItem.getEventDescription());
                 }
-                blockedItems.remove(itemId);
+                removeBlockedItem(itemId, blockedItem);
                 return null;
             } else {
                 logger.trace(blockedItem.getEventDescription()
@@ -146,11 +190,14 @@ public class ReplicationQueueTaskDispatcher extends QueueTaskDispatcher implemen
         } else {
             BlockedItem blockedItem = getBlockedItem(item);
             if (blockedItem != null) {
-                //before blocking the build, lets check if we already received the replication events
-                updateFromReplicationCache(blockedItem);
                 // store the info to be able to unblock the build
                 // later without having to iterate through all the builds in the queue
-                blockedItems.put(itemId, blockedItem);
+                addBlockedItem(itemId, blockedItem);
+                //before blocking the build, lets check if we already received the replication events
+                updateFromReplicationCache(blockedItem);
+                if (!blockedItem.canRun && !blockedItem.checkTimeout(System.currentTimeMillis())) {
+                    scheduleTimeoutCheck(itemId, blockedItem);
+                }
                 return canRun(item);
             } else {
                 logger.debug("blockedItem null for {}!", item.getId());
@@ -159,6 +206,77 @@ public class ReplicationQueueTaskDispatcher extends QueueTaskDispatcher implemen
         return null;
     }
 
+    /**
+     * Store the blocked item and index it by the ref it is waiting replication for.
+     * @param itemId the id of the queue item
+     * @param blockedItem the blocked item
+     */
+    private void addBlockedItem(Long itemId, BlockedItem blockedItem) {
+        blockedItems.put(itemId, blockedItem);
+        blockedItemsByRef.computeIfAbsent(blockedItem.refKey, k -> new ConcurrentHashMap<>())
+                .put(itemId, blockedItem);
+    }
+
+    /**
+     * Forget about the blocked item and remove it from the ref index.
+     * @param itemId the id of the queue item
+     * @param blockedItem the blocked item
+     */
+    private void removeBlockedItem(Long itemId, BlockedItem blockedItem) {
+        blockedItems.remove(itemId);
+        TaskScheduler.Task timeoutCheck = blockedItem.timeoutCheck;
+        if (timeoutCheck != null) {
+            timeoutCheck.cancel();
+        }
+        blockedItemsByRef.computeIfPresent(blockedItem.refKey, (k, items) -> {
+            items.remove(itemId);
+            if (items.isEmpty()) {
+                return null;
+            }
+            return items;
+        });
+    }
+
+    /**
+     * Schedule a check of the blocked item for when the next of its slaves reaches its replication timeout.
+     * So that {@link #canRun(Item)} doesn't need to check the timeouts on every queue maintenance.
+     * @param itemId the id of the queue item
+     * @param blockedItem the blocked item
+     */
+    private void scheduleTimeoutCheck(Long itemId, BlockedItem blockedItem) {
+        long deadline = blockedItem.getNextDeadline();
+        if (deadline == BlockedItem.NO_DEADLINE) {
+            return;
+        }
+        long delay = Math.max(0, deadline - System.currentTimeMillis()) + 1;
+        try {
+            blockedItem.timeoutCheck = timeoutScheduler.schedule(TIMEOUT_CHECK_TASK_NAME,
+                    () -> checkTimeout(itemId, blockedItem), delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            logger.warn("Unable to schedule the replication timeout check for {}", blockedItem.getEventDescription());
+        }
+    }
+
+    /**
+     * Performs the scheduled timeout check of the blocked item,
+     * requesting a queue maintenance if the item timed out.
+     * The slave that the check was scheduled for might have been replicated to since,
+     * in that case a new check is scheduled for the next slave with a timeout.
+     * @param itemId the id of the queue item
+     * @param blockedItem the blocked item
+     */
+    private void checkTimeout(Long itemId, BlockedItem blockedItem) {
+        if (blockedItem.canRun || blockedItems.get(itemId) != blockedItem) {
+            return;
+        }
+        if (blockedItem.checkTimeout(System.currentTimeMillis())) {
+            logger.debug("{} timed out waiting for replication", blockedItem.getEventDescription());
+            maintenanceScheduler.requestMaintenance();
+        } else {
+            scheduleTimeoutCheck(itemId, blockedItem);
+        }
+    }
+
     /**
      * Update the blocked item with any cached RefReplicated that are interesting to that item.
      * @param blockedItem The blocked item to update
@@ -269,13 +387,20 @@ public class ReplicationQueueTaskDispatcher extends QueueTaskDispatcher implemen
                 // The same is true for ChangeMerged events, as the expected
                 // ref is 'refs/heads/<branch>'.
                 logger.debug(eventDesc + " is blocked");
-                return new BlockedItem(repositoryModifiedEvent.getModifiedProject(),
+                BlockedItem blockedItem = new BlockedItem(repositoryModifiedEvent.getModifiedProject(),
                         reference,
                         gerritServer,
                         slaves,
                         gerritCause.getEvent().getReceivedOn(),
                         eventDesc,
                         useTimestampWhenProcessingRefReplicatedEvent);
+                long missedDeadline = replicationCache.getMissedReplicationDeadline(
+                        gerritCause.getEvent().getReceivedOn());
+                if (missedDeadline > 0) {
+                    // replication events may have been missed while Jenkins was down, so only wait a while
+                    blockedItem.missedReplicationDeadline = missedDeadline;
+                }
+                return blockedItem;
             }
         }
         return null;
@@ -307,8 +432,16 @@ public class ReplicationQueueTaskDispatcher extends QueueTaskDispatcher implemen
     public void gerritEvent(RefReplicated refReplicated) {
         logger.trace("Cache received event {}", refReplicated.toString());
         replicationCache.put(refReplicated);
+        if (refReplicated.getProvider() == null) {
+            return;
+        }
+        Map<Long, BlockedItem> affectedItems = blockedItemsByRef.get(new RefKey(refReplicated.getProvider().getName(),
+                refReplicated.getProject(), refReplicated.getRef()));
+        if (affectedItems == null) {
+            return;
+        }
         boolean queueMaintenanceRequired = false;
-        for (BlockedItem blockedItem : blockedItems.values()) {
+        for (BlockedItem blockedItem : affectedItems.values()) {
             if (!blockedItem.canRun) {
                 blockedItem.processRefReplicatedEvent(refReplicated);
                 if (blockedItem.canRun) {
@@ -317,8 +450,50 @@ public class ReplicationQueueTaskDispatcher extends QueueTaskDispatcher implemen
             }
         }
         if (queueMaintenanceRequired) {
-            // force a maintenance of the queue to unblock builds
-            Queue.getInstance().maintain();
+            // request a maintenance of the queue to unblock builds,
+            // bursts of replication events are coalesced into one maintenance
+            maintenanceScheduler.requestMaintenance();
+        }
+    }
+
+    /**
+     * Key identifying a replicated ref on a specific Gerrit server,
+     * used to find the blocked items affected by a RefReplicated event.
+     */
+    private static final class RefKey {
+        private final String gerritServer;
+        private final String project;
+        private final String ref;
+
+        /**
+         * Standard constructor.
+         * @param gerritServer The gerrit server
+         * @param project the project
+         * @param ref the ref
+         */
+        RefKey(String gerritServer, String project, String ref) {
+            this.gerritServer = gerritServer;
+            this.project = project;
+            this.ref = ref;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(gerritServer, project, ref);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof RefKey)) {
+                return false;
+            }
+            RefKey other = (RefKey)obj;
+            return Objects.equals(gerritServer, other.gerritServer)
+                    && Objects.equals(project, other.project)
+                    && Objects.equals(ref, other.ref);
         }
     }
 
@@ -327,15 +502,28 @@ public class ReplicationQueueTaskDispatcher extends QueueTaskDispatcher implemen
      * @author Hugo Arès &lt;hugo.ares@ericsson.com&gt;
      */
     private static class BlockedItem {
+        /**
+         * Returned by {@link #getNextDeadline()} when none of the slaves waited for has a timeout.
+         */
+        static final long NO_DEADLINE = -1;
+
         private String gerritProject;
         private String ref;
         private String gerritServer;
+        private RefKey refKey;
         private ConcurrentMap<String, GerritSlave> slavesWaitingFor;
-        private boolean canRun = false;
+        private volatile boolean canRun = false;
+        private volatile boolean timedOut = false;
+        private volatile TaskScheduler.Task timeoutCheck;
         private long eventTimeStamp;
         private String eventDescription;
-        private String replicationFailedMessage;
+        private volatile String replicationFailedMessage;
         private boolean useTimestampWhenProcessingRefReplicatedEvent = false;
+        /**
+         * When to stop waiting for replication events that may have been missed while Jenkins was down,
+         * or {@link #NO_DEADLINE}.
+         */
+        private long missedReplicationDeadline = NO_DEADLINE;
 
         /**
          * Standard constructor.
@@ -354,6 +542,7 @@ public class ReplicationQueueTaskDispatcher extends QueueTaskDispatcher implemen
             this.gerritProject = gerritProject;
             this.ref = ref;
             this.gerritServer = gerritServer;
+            this.refKey = new RefKey(gerritServer, gerritProject, ref);
             this.slavesWaitingFor = new ConcurrentHashMap<>(gerritSlaves.size());
             for (GerritSlave gerritSlave : gerritSlaves) {
                 slavesWaitingFor.put(gerritSlave.getHost(), gerritSlave);
@@ -378,24 +567,72 @@ public class ReplicationQueueTaskDispatcher extends QueueTaskDispatcher implemen
          * or if we reached the wait time out for a slave. If a replication failed or if time out is reached,
          * replicationFailedMessage will be set with message.
          *
+         * The timeouts are not checked here, that is done by {@link #checkTimeout(long)} when the deadline
+         * of a slave is reached.
+         *
          * @return true if ready to run, otherwise false
          */
         public boolean canRunWithTimeoutCheck() {
-            if (canRun) {
+            return canRun || timedOut;
+        }
+
+        /**
+         * Check if any of the slaves still waited for has reached its timeout,
+         * or if the item has waited long enough for replication events that may have been missed.
+         * If so the item is marked as timed out and replicationFailedMessage is set.
+         *
+         * @param now the current time in milliseconds
+         * @return true if timed out, otherwise false
+         */
+        public boolean checkTimeout(long now) {
+            if (timedOut) {
+                return true;
+            }
+            if (missedReplicationDeadline != NO_DEADLINE && now > missedReplicationDeadline) {
+                replicationFailedMessage = Messages.WaitingForReplicationUnknown(ref);
+                timedOut = true;
                 return true;
             }
-            // check if any Gerrit Slave reached its timeout
             for (GerritSlave slave : slavesWaitingFor.values()) {
                 if (slave.getTimeoutInSeconds() != GerritSlave.DISABLED_TIMEOUT_VALUE
-                        && TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis() - eventTimeStamp) > slave
-                        .getTimeoutInSeconds()) {
+                        && now > getDeadline(slave)) {
                     replicationFailedMessage = Messages.WaitingForReplicationTimeout(ref, slave.getName());
+                    timedOut = true;
                     return true;
                 }
             }
             return false;
         }
 
+        /**
+         * The earliest point in time when any of the slaves still waited for reaches its timeout,
+         * or when the item stops waiting for replication events that may have been missed.
+         *
+         * @return the time in milliseconds or {@link #NO_DEADLINE} if there is no timeout.
+         */
+        public long getNextDeadline() {
+            long next = missedReplicationDeadline;
+            for (GerritSlave slave : slavesWaitingFor.values()) {
+                if (slave.getTimeoutInSeconds() != GerritSlave.DISABLED_TIMEOUT_VALUE) {
+                    long deadline = getDeadline(slave);
+                    if (next == NO_DEADLINE || deadline < next) {
+                        next = deadline;
+                    }
+                }
+            }
+            return next;
+        }
+
+        /**
+         * The point in time when the slave reaches its timeout for this item.
+         *
+         * @param slave the slave
+         * @return the time in milliseconds
+         */
+        private long getDeadline(GerritSlave slave) {
+            return eventTimeStamp + TimeUnit.SECONDS.toMillis(slave.getTimeoutInSeconds());
+        }
+
         /**
          * Process the RefReplicated to and if related to this blocked item, update the slaves
          * list and canRun flag accordingly.
@@ -0,0 +1,205 @@
+/*
+ *  The MIT License
+ *
+ *  Copyright 2026 Sony Mobile Communications Inc. All rights reserved.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.sonyericsson.hudson.plugins.gerrit.trigger.utils;
+
+import hudson.model.Queue;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces requests for a {@link Queue#maintain()}.
+ *
+ * Queue task dispatchers that unblock items outside of the normal queue maintenance cycle
+ * need to poke the queue so the items can start. A burst of such unblocks, like a flood of
+ * ref-replicated events, would otherwise result in one full queue pass per unblocked item.
+ * All requests made within {@link #getWindowMillis()} of each other are served by a single maintenance.
+ */
+public class QueueMaintenanceScheduler {
+
+    /**
+     * The default time window in milliseconds within which maintenance requests are coalesced.
+     */
+    public static final long DEFAULT_WINDOW_MILLIS = 250;
+
+    private static final String TASK_NAME = "Queue maintenance";
+    private static final Logger logger = LoggerFactory.getLogger(QueueMaintenanceScheduler.class);
+    private static volatile QueueMaintenanceScheduler instance = null;
+
+    private final Runnable maintenance;
+    private final TaskScheduler scheduler;
+    private final long windowMillis;
+    private final AtomicBoolean pending = new AtomicBoolean(false);
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong maintenanceCount = new AtomicLong();
+
+    /**
+     * Constructor.
+     *
+     * @param maintenance  the actual maintenance to perform, normally {@link Queue#maintain()}.
+     * @param executor     the executor to schedule the maintenance on.
+     * @param windowMillis the time window in milliseconds to coalesce requests within.
+     */
+    @Restricted(NoExternalUse.class)
+    public QueueMaintenanceScheduler(@NonNull Runnable maintenance, @NonNull ScheduledExecutorService executor,
+                                     long windowMillis) {
+        this(maintenance, () -> executor, windowMillis);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param maintenance  the actual maintenance to perform, normally {@link Queue#maintain()}.
+     * @param executor     looks up the executor to schedule the maintenance on, each time one is scheduled,
+     *                     since the executor may be replaced.
+     * @param windowMillis the time window in milliseconds to coalesce requests within.
+     */
+    @Restricted(NoExternalUse.class)
+    public QueueMaintenanceScheduler(@NonNull Runnable maintenance,
+                                     @NonNull Supplier<ScheduledExecutorService> executor, long windowMillis) {
+        this(maintenance, new TaskScheduler(executor, executor), windowMillis);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param maintenance  the actual maintenance to perform, normally {@link Queue#maintain()}.
+     * @param scheduler    the scheduler to schedule the maintenance as a task on.
+     * @param windowMillis the time window in milliseconds to coalesce requests within.
+     */
+    @Restricted(NoExternalUse.class)
+    public QueueMaintenanceScheduler(@NonNull Runnable maintenance, @NonNull TaskScheduler scheduler,
+                                     long windowMillis) {
+        this.maintenance = maintenance;
+        this.scheduler = scheduler;
+        this.windowMillis = Math.max(0, windowMillis);
+    }
+
+    /**
+     * The shared instance, maintaining the Jenkins queue as a task on the shared {@link TaskScheduler}.
+     *
+     * The coalescing window can be tuned with the system property
+     * <code>com.sonyericsson.hudson.plugins.gerrit.trigger.utils.QueueMaintenanceScheduler.windowMillis</code>.
+     *
+     * @return the instance.
+     */
+    @NonNull
+    public static QueueMaintenanceScheduler getInstance() {
+        if (instance == null) {
+            synchronized (QueueMaintenanceScheduler.class) {
+                if (instance == null) {
+                    instance = new QueueMaintenanceScheduler(() -> Queue.getInstance().maintain(),
+                            TaskScheduler.getInstance(),
+                            Long.getLong(QueueMaintenanceScheduler.class.getName() + ".windowMillis",
+                                    DEFAULT_WINDOW_MILLIS));
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Request a maintenance of the queue.
+     *
+     * If a maintenance is already scheduled this request will be served by that one,
+     * otherwise a new maintenance is scheduled at the end of the coalescing window.
+     */
+    public void requestMaintenance() {
+        requestCount.incrementAndGet();
+        if (pending.compareAndSet(false, true)) {
+            logger.trace("Scheduling queue maintenance in {}ms", windowMillis);
+            try {
+                scheduler.schedule(TASK_NAME, this::maintain, windowMillis, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // let the next request schedule it again
+                pending.set(false);
+                logger.warn("Unable to schedule a queue maintenance.", e);
+            }
+        }
+    }
+
+    /**
+     * Performs the maintenance, any request arriving after this point schedules a new one.
+     */
+    private void maintain() {
+        pending.set(false);
+        maintenanceCount.incrementAndGet();
+        try {
+            maintenance.run();
+        } catch (Exception e) {
+            logger.warn("Queue maintenance failed.", e);
+        }
+    }
+
+    /**
+     * The time window in milliseconds that requests are coalesced within.
+     *
+     * @return the window.
+     */
+    public long getWindowMillis() {
+        return windowMillis;
+    }
+
+    /**
+     * The total number of maintenance requests received.
+     *
+     * @return the number of requests.
+     */
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    /**
+     * The number of queue maintenances actually performed.
+     *
+     * @return the number of maintenances.
+     */
+    public long getMaintenanceCount() {
+        return maintenanceCount.get();
+    }
+
+    /**
+     * The number of queue maintenances that were avoided by coalescing requests.
+     * A request waiting for a scheduled maintenance is not counted until that maintenance has been performed.
+     *
+     * @return the number of avoided maintenances.
+     */
+    public long getAvoidedCount() {
+        long performed = maintenanceCount.get();
+        long requests = requestCount.get();
+        if (pending.get()) {
+            requests--;
+        }
+        return Math.max(0, requests - performed);
+    }
+}
@@ -0,0 +1,384 @@
+/*
+ *  The MIT License
+ *
+ *  Copyright 2026 Sony Mobile Communications Inc. All rights reserved.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.sonyericsson.hudson.plugins.gerrit.trigger.utils;
+
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Runs the periodic and delayed work of the plugin as named tasks on one shared scheduled executor,
+ * instead of each server or job having threads of its own.
+ * Work that blocks for long, like reading from a server, is scheduled as a blocking task
+ * and runs on a small pool of its own, so that it doesn't hold up the threads of the shared executor.
+ *
+ * A failing run of a periodic task is logged and doesn't stop the next runs.
+ * While a task runs, its name is appended to the name of the thread, and the number of runs,
+ * failures and time spent are counted for the statistics.
+ */
+public class TaskScheduler {
+
+    /**
+     * The default number of threads running blocking tasks.
+     */
+    public static final int DEFAULT_BLOCKING_THREADS = 4;
+    private static final long IDLE_THREAD_KEEP_ALIVE_SECONDS = 60;
+    private static final Logger logger = LoggerFactory.getLogger(TaskScheduler.class);
+    private static volatile TaskScheduler instance = null;
+
+    private final Supplier<ScheduledExecutorService> executor;
+    private final Supplier<ScheduledExecutorService> blockingExecutor;
+    private final Set<Task> active = ConcurrentHashMap.newKeySet();
+    private final AtomicLong scheduledCount = new AtomicLong();
+    private final AtomicLong runCount = new AtomicLong();
+    private final AtomicLong failureCount = new AtomicLong();
+    private final AtomicLong cancelledCount = new AtomicLong();
+
+    /**
+     * Constructor.
+     *
+     * @param executor the executor to schedule all tasks on, blocking or not.
+     */
+    @Restricted(NoExternalUse.class)
+    public TaskScheduler(@NonNull ScheduledExecutorService executor) {
+        this(() -> executor, () -> executor);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param executor         looks up the executor to schedule the tasks on, each time one is scheduled,
+     *                         since the executor may be replaced.
+     * @param blockingExecutor looks up the executor to schedule the blocking tasks on.
+     */
+    @Restricted(NoExternalUse.class)
+    public TaskScheduler(@NonNull Supplier<ScheduledExecutorService> executor,
+                         @NonNull Supplier<ScheduledExecutorService> blockingExecutor) {
+        this.executor = executor;
+        this.blockingExecutor = blockingExecutor;
+    }
+
+    /**
+     * The shared instance, scheduling on {@link jenkins.util.Timer}.
+     * The timer is looked up for each task, since Jenkins replaces it when it is shut down.
+     *
+     * The number of threads running blocking tasks can be tuned with the system property
+     * <code>com.sonyericsson.hudson.plugins.gerrit.trigger.utils.TaskScheduler.blockingThreads</code>.
+     *
+     * @return the instance.
+     */
+    @NonNull
+    public static TaskScheduler getInstance() {
+        if (instance == null) {
+            synchronized (TaskScheduler.class) {
+                if (instance == null) {
+                    ScheduledExecutorService blocking = createBlockingExecutor();
+                    instance = new TaskScheduler(jenkins.util.Timer::get, () -> blocking);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Creates the bounded pool to run the blocking tasks on.
+     *
+     * @return the pool.
+     */
+    private static ScheduledExecutorService createBlockingExecutor() {
+        int threads = Math.max(1, Integer.getInteger(TaskScheduler.class.getName() + ".blockingThreads",
+                DEFAULT_BLOCKING_THREADS));
+        ScheduledThreadPoolExecutor pool = new ScheduledThreadPoolExecutor(threads,
+                new NamingThreadFactory(new DaemonThreadFactory(), "Gerrit blocking task"));
+        pool.setKeepAliveTime(IDLE_THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS);
+        pool.allowCoreThreadTimeOut(true);
+        pool.setRemoveOnCancelPolicy(true);
+        return pool;
+    }
+
+    /**
+     * Runs a task once after a delay.
+     *
+     * @param name  the name of the task.
+     * @param task  the task.
+     * @param delay the delay.
+     * @param unit  the unit of the delay.
+     * @return the scheduled task.
+     */
+    @NonNull
+    public Task schedule(@NonNull String name, @NonNull Runnable task, long delay, @NonNull TimeUnit unit) {
+        return schedule(executor.get(), name, task, delay, unit);
+    }
+
+    /**
+     * Runs a task that blocks for long once after a delay, on the pool of blocking tasks.
+     *
+     * @param name  the name of the task.
+     * @param task  the task.
+     * @param delay the delay.
+     * @param unit  the unit of the delay.
+     * @return the scheduled task.
+     */
+    @NonNull
+    public Task scheduleBlocking(@NonNull String name, @NonNull Runnable task, long delay, @NonNull TimeUnit unit) {
+        return schedule(blockingExecutor.get(), name, task, delay, unit);
+    }
+
+    /**
+     * Runs a task once after a delay.
+     *
+     * @param on    the executor to run it on.
+     * @param name  the name of the task.
+     * @param task  the task.
+     * @param delay the delay.
+     * @param unit  the unit of the delay.
+     * @return the scheduled task.
+     */
+    private Task schedule(ScheduledExecutorService on, String name, Runnable task, long delay, TimeUnit unit) {
+        Task scheduled = new Task(name, task, false);
+        scheduled.start(() -> on.schedule(scheduled::run, delay, unit));
+        return scheduled;
+    }
+
+    /**
+     * Runs a task periodically, with a fixed delay between the end of a run and the start of the next one.
+     *
+     * @param name         the name of the task.
+     * @param task         the task.
+     * @param initialDelay the delay before the first run.
+     * @param delay        the delay between runs.
+     * @param unit         the unit of the delays.
+     * @return the scheduled task.
+     */
+    @NonNull
+    public Task scheduleWithFixedDelay(@NonNull String name, @NonNull Runnable task, long initialDelay, long delay,
+                                       @NonNull TimeUnit unit) {
+        return scheduleWithFixedDelay(executor.get(), name, task, initialDelay, delay, unit);
+    }
+
+    /**
+     * Runs a task that blocks for long periodically, on the pool of blocking tasks,
+     * with a fixed delay between the end of a run and the start of the next one.
+     *
+     * @param name         the name of the task.
+     * @param task         the task.
+     * @param initialDelay the delay before the first run.
+     * @param delay        the delay between runs.
+     * @param unit         the unit of the delays.
+     * @return the scheduled task.
+     */
+    @NonNull
+    public Task scheduleBlockingWithFixedDelay(@NonNull String name, @NonNull Runnable task, long initialDelay,
+                                               long delay, @NonNull TimeUnit unit) {
+        return scheduleWithFixedDelay(blockingExecutor.get(), name, task, initialDelay, delay, unit);
+    }
+
+    /**
+     * Runs a task periodically, with a fixed delay between the end of a run and the start of the next one.
+     *
+     * @param on           the executor to run it on.
+     * @param name         the name of the task.
+     * @param task         the task.
+     * @param initialDelay the delay before the first run.
+     * @param delay        the delay between runs.
+     * @param unit         the unit of the delays.
+     * @return the scheduled task.
+     */
+    private Task scheduleWithFixedDelay(ScheduledExecutorService on, String name, Runnable task, long initialDelay,
+                                        long delay, TimeUnit unit) {
+        Task scheduled = new Task(name, task, true);
+        scheduled.start(() -> on.scheduleWithFixedDelay(scheduled::run, initialDelay, delay, unit));
+        return scheduled;
+    }
+
+    /**
+     * The tasks that are scheduled and not yet done or cancelled.
+     *
+     * @return the tasks.
+     */
+    @NonNull
+    public List<Task> getActiveTasks() {
+        return new ArrayList<>(active);
+    }
+
+    /**
+     * The total number of tasks scheduled.
+     *
+     * @return the number of tasks.
+     */
+    public long getScheduledCount() {
+        return scheduledCount.get();
+    }
+
+    /**
+     * The total number of runs of all tasks.
+     *
+     * @return the number of runs.
+     */
+    public long getRunCount() {
+        return runCount.get();
+    }
+
+    /**
+     * The total number of runs that failed.
+     *
+     * @return the number of failed runs.
+     */
+    public long getFailureCount() {
+        return failureCount.get();
+    }
+
+    /**
+     * The total number of tasks that were cancelled.
+     *
+     * @return the number of cancelled tasks.
+     */
+    public long getCancelledCount() {
+        return cancelledCount.get();
+    }
+
+    /**
+     * A named task that is scheduled.
+     */
+    public final class Task {
+        private final String name;
+        private final Runnable runnable;
+        private final boolean periodic;
+        private final AtomicLong runs = new AtomicLong();
+        private final AtomicLong nanos = new AtomicLong();
+        private volatile ScheduledFuture<?> future;
+
+        /**
+         * Constructor.
+         *
+         * @param name     the name.
+         * @param runnable the work.
+         * @param periodic if it runs more than once.
+         */
+        private Task(String name, Runnable runnable, boolean periodic) {
+            this.name = name;
+            this.runnable = runnable;
+            this.periodic = periodic;
+        }
+
+        /**
+         * Schedules the task and tracks it until it is done.
+         *
+         * @param scheduling schedules the task on the executor.
+         */
+        private void start(Supplier<ScheduledFuture<?>> scheduling) {
+            active.add(this);
+            try {
+                future = scheduling.get();
+            } catch (RuntimeException e) {
+                active.remove(this);
+                throw e;
+            }
+            scheduledCount.incrementAndGet();
+        }
+
+        /**
+         * Runs the task once.
+         */
+        private void run() {
+            Thread thread = Thread.currentThread();
+            String threadName = thread.getName();
+            thread.setName(threadName + " - " + name);
+            long start = System.nanoTime();
+            try {
+                runnable.run();
+            } catch (Exception e) {
+                failureCount.incrementAndGet();
+                logger.error("Scheduled task {} failed", name, e);
+            } finally {
+                nanos.addAndGet(System.nanoTime() - start);
+                runs.incrementAndGet();
+                runCount.incrementAndGet();
+                thread.setName(threadName);
+                if (!periodic) {
+                    active.remove(this);
+                }
+            }
+        }
+
+        /**
+         * Cancels the task. A run that has already started is allowed to finish.
+         */
+        public void cancel() {
+            if (active.remove(this)) {
+                cancelledCount.incrementAndGet();
+            }
+            if (future != null) {
+                future.cancel(false);
+            }
+        }
+
+        /**
+         * The name of the task.
+         *
+         * @return the name.
+         */
+        @NonNull
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * The number of times the task has run.
+         *
+         * @return the number of runs.
+         */
+        public long getRuns() {
+            return runs.get();
+        }
+
+        /**
+         * The average time of a run.
+         *
+         * @return the time in milliseconds, 0 if it hasn't run.
+         */
+        public long getAverageMillis() {
+            long count = runs.get();
+            if (count == 0) {
+                return 0;
+            }
+            return TimeUnit.NANOSECONDS.toMillis(nanos.get() / count);
+        }
+    }
+}
@@ -44,6 +44,7 @@ l.layout(title: _("Build Coordination - Gerrit Trigger Diagnostics"), norefresh:
         l.tasks {
             l.task(icon: "symbol-clipboard-outline plugin-ionicons-api", href: ".", title: Messages.BuildMemoryReport_DisplayName())
             l.task(icon: "symbol-clipboard-outline plugin-ionicons-api", href: "../eventListeners", title: Messages.EventListenersReport_DisplayName())
+            l.task(icon: "symbol-clipboard-outline plugin-ionicons-api", href: "../statistics", title: Messages.StatisticsReport_DisplayName())
         }
     }
     l.'main-panel' {
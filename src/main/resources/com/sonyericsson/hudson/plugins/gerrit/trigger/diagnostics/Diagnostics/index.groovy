@@ -36,6 +36,7 @@ l.layout(title: _("Gerrit Trigger Diagnostics"), norefresh: false, permission: D
         l.tasks {
             l.task(icon: "symbol-clipboard-outline plugin-ionicons-api", href: "buildMemory", title: Messages.BuildMemoryReport_DisplayName())
             l.task(icon: "symbol-clipboard-outline plugin-ionicons-api", href: "eventListeners", title: Messages.EventListenersReport_DisplayName())
+            l.task(icon: "symbol-clipboard-outline plugin-ionicons-api", href: "statistics", title: Messages.StatisticsReport_DisplayName())
             if (diag.isDebugMode()) {
                 l.task(icon: "symbol-warning plugin-ionicons-api", href: "triggerDebugEvent", title: "Trigger Event", post: false, requiresConfirmation: true)
             }
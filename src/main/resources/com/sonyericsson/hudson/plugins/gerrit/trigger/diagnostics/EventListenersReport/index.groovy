@@ -44,6 +44,7 @@ l.layout(title: _("${report.getDisplayName()} - Gerrit Trigger Diagnostics"), no
         l.tasks {
             l.task(icon: "symbol-clipboard-outline plugin-ionicons-api", href: "../buildMemory", title: Messages.BuildMemoryReport_DisplayName())
             l.task(icon: "symbol-clipboard-outline plugin-ionicons-api", href: ".", title: Messages.EventListenersReport_DisplayName())
+            l.task(icon: "symbol-clipboard-outline plugin-ionicons-api", href: "../statistics", title: Messages.StatisticsReport_DisplayName())
         }
     }
     l.'main-panel' {
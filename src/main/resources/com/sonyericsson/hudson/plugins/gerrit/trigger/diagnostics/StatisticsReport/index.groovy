@@ -0,0 +1,36 @@
+package com.sonyericsson.hudson.plugins.gerrit.trigger.diagnostics.StatisticsReport
+
+import com.sonyericsson.hudson.plugins.gerrit.trigger.Messages
+import com.sonyericsson.hudson.plugins.gerrit.trigger.diagnostics.Diagnostics
+import com.sonyericsson.hudson.plugins.gerrit.trigger.diagnostics.StatisticsReport
+
+StatisticsReport report = my
+
+def l = namespace(lib.LayoutTagLib)
+
+l.layout(title: _("${report.getDisplayName()} - Gerrit Trigger Diagnostics"), norefresh: false, permission: Diagnostics.requiredPermission) {
+    l.'side-panel' {
+        l.tasks {
+            l.task(icon: "symbol-clipboard-outline plugin-ionicons-api", href: "../buildMemory", title: Messages.BuildMemoryReport_DisplayName())
+            l.task(icon: "symbol-clipboard-outline plugin-ionicons-api", href: "../eventListeners", title: Messages.EventListenersReport_DisplayName())
+            l.task(icon: "symbol-clipboard-outline plugin-ionicons-api", href: ".", title: Messages.StatisticsReport_DisplayName())
+        }
+    }
+    l.'main-panel' {
+        h1(report.getDisplayName())
+        p(style: "font-style: italic;", _("blurb"))
+        report.sections.each { section ->
+            h3(section.key)
+            table(class: "jenkins-table jenkins-table--small") {
+                tbody {
+                    section.value.each { stat ->
+                        tr {
+                            td(stat.key)
+                            td(String.valueOf(stat.value))
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
@@ -23,13 +23,30 @@
  */
 package com.sonyericsson.hudson.plugins.gerrit.trigger;
 
+import com.sonyericsson.hudson.plugins.gerrit.trigger.config.IGerritHudsonTriggerConfig;
+import com.sonyericsson.hudson.plugins.gerrit.trigger.utils.TaskScheduler;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.MockedStatic;
 
 import java.io.IOException;
 import java.io.StringReader;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 /**
  * Test class for the GerritProjectListUpdater.
@@ -63,4 +80,92 @@ public class GerritProjectListUpdaterTest {
             "tools/gerrit",
         });
     }
+
+    /**
+     * Tests that the projects are kept sorted and without duplicates.
+     */
+    @Test
+    public void testProjectsAreSortedAndUnique() {
+        GerritProjectListUpdater updater = new GerritProjectListUpdater("server");
+        updater.setGerritProjects(Arrays.asList("tools/gerrit", "a/b", "tools/gerrit", "tools/hello/jenkins"));
+        assertEquals(Arrays.asList("a/b", "tools/gerrit", "tools/hello/jenkins"), updater.getGerritProjects());
+
+        updater.addGerritProject("tools/a");
+        updater.addGerritProject("tools/gerrit");
+        updater.addGerritProject("z");
+        assertEquals(Arrays.asList("a/b", "tools/a", "tools/gerrit", "tools/hello/jenkins", "z"),
+                updater.getGerritProjects());
+    }
+
+    /**
+     * Tests finding the projects that start with a prefix.
+     */
+    @Test
+    public void testProjectsWithPrefix() {
+        GerritProjectListUpdater updater = new GerritProjectListUpdater("server");
+        updater.setGerritProjects(Arrays.asList("tools/gerrit", "platform/b", "platform/a", "platform", "tools"));
+
+        assertEquals(Arrays.asList("platform", "platform/a", "platform/b"), updater.getGerritProjects("platform", 10));
+        assertEquals(Arrays.asList("platform/a", "platform/b"), updater.getGerritProjects("platform/", 10));
+        assertEquals(Arrays.asList("platform"), updater.getGerritProjects("p", 1));
+        assertEquals(Arrays.asList("platform", "platform/a"), updater.getGerritProjects("", 2));
+        assertEquals(0, updater.getGerritProjects("x", 10).size());
+    }
+
+    /**
+     * Tests that the projects are read into an index that shares the names already known.
+     * @throws IOException IOException
+     */
+    @Test
+    public void testReadProjectIndex() throws IOException {
+        GerritProjectListUpdater updater = new GerritProjectListUpdater("server");
+        String known = new String("tools/gerrit");
+        updater.setGerritProjects(Arrays.asList(known));
+
+        String[] projects = updater.readProjectIndex(
+                new StringReader("tools/hello\ntools/gerrit\n\ntools/gerrit\na\n"));
+
+        assertArrayEquals(new String[] {"a", "tools/gerrit", "tools/hello"}, projects);
+        assertSame(known, projects[1]);
+    }
+
+    /**
+     * Tests that the update scheduled when the connection is restored
+     * is cancelled together with the periodic update.
+     */
+    @Test
+    public void testCancelStopsUpdateScheduledOnReconnect() {
+        PluginImpl plugin = mock(PluginImpl.class);
+        GerritServer server = mock(GerritServer.class);
+        IGerritHudsonTriggerConfig config = mock(IGerritHudsonTriggerConfig.class);
+        when(plugin.getServer("server")).thenReturn(server);
+        when(server.getConfig()).thenReturn(config);
+        when(config.isEnableProjectAutoCompletion()).thenReturn(true);
+        ScheduledExecutorService executor = mock(ScheduledExecutorService.class);
+        ScheduledFuture<?> periodic = mock(ScheduledFuture.class);
+        ScheduledFuture<?> reload = mock(ScheduledFuture.class);
+        doReturn(periodic).when(executor).scheduleWithFixedDelay(any(Runnable.class), anyLong(), anyLong(),
+                any(TimeUnit.class));
+        doReturn(reload).when(executor).schedule(any(Runnable.class), anyLong(), any(TimeUnit.class));
+        TaskScheduler scheduler = new TaskScheduler(executor);
+        try (MockedStatic<PluginImpl> pluginStatic = mockStatic(PluginImpl.class);
+             MockedStatic<TaskScheduler> schedulerStatic = mockStatic(TaskScheduler.class)) {
+            pluginStatic.when(PluginImpl::getInstance).thenReturn(plugin);
+            schedulerStatic.when(TaskScheduler::getInstance).thenReturn(scheduler);
+            GerritProjectListUpdater updater = new GerritProjectListUpdater("server");
+            updater.initProjectListUpdater();
+            ArgumentCaptor<Runnable> update = ArgumentCaptor.forClass(Runnable.class);
+            verify(executor).scheduleWithFixedDelay(update.capture(), anyLong(), anyLong(), any(TimeUnit.class));
+            // not connected, so the update is missed
+            update.getValue().run();
+
+            updater.connectionEstablished();
+            verify(executor).schedule(any(Runnable.class), anyLong(), any(TimeUnit.class));
+            updater.cancelProjectListUpdater();
+
+            verify(periodic).cancel(false);
+            verify(reload).cancel(false);
+            assertEquals(0, scheduler.getActiveTasks().size());
+        }
+    }
 }
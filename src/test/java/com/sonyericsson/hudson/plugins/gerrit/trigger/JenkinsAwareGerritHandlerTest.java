@@ -28,6 +28,8 @@ package com.sonyericsson.hudson.plugins.gerrit.trigger;
 import static com.sonymobile.tools.gerrit.gerritevents.GerritDefaultValues.DEFAULT_NR_OF_RECEIVING_WORKER_THREADS;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 
 import org.junit.After;
@@ -99,4 +101,48 @@ public class JenkinsAwareGerritHandlerTest {
         inOrder.verify(lifecycleListenerMock).triggerScanDone(manualPatchset);
     }
 
+    /**
+     * Tests that JenkinsAwareGerritHandler notifies scan listeners of events without a lifecycle,
+     * before and after the GerritEventListeners.
+     */
+    @Test
+    public void shouldNotifyScanListenerOfAllEvents() {
+        GerritEventLifecycleListener scanListenerMock = mock(GerritEventLifecycleListener.class);
+        GerritEventListener eventListenerMock = mock(GerritEventListener.class);
+        gerritHandler.addScanListener(scanListenerMock);
+        gerritHandler.addListener(eventListenerMock);
+        PatchsetCreated patchset = Setup.createPatchsetCreated();
+
+        gerritHandler.notifyListeners(patchset);
+
+        InOrder inOrder = inOrder(scanListenerMock, eventListenerMock);
+        inOrder.verify(scanListenerMock).triggerScanStarting(patchset);
+        inOrder.verify(eventListenerMock).gerritEvent(patchset);
+        inOrder.verify(scanListenerMock).triggerScanDone(patchset);
+
+        gerritHandler.removeScanListener(scanListenerMock);
+        PatchsetCreated other = Setup.createPatchsetCreated();
+        gerritHandler.notifyListeners(other);
+        verify(scanListenerMock, never()).triggerScanStarting(other);
+    }
+
+    /**
+     * Tests that the scan is done even if a scan listener fails when it starts.
+     */
+    @Test
+    public void shouldNotifyScanDoneWhenListenerFails() {
+        GerritEventLifecycleListener failingListenerMock = mock(GerritEventLifecycleListener.class);
+        GerritEventLifecycleListener scanListenerMock = mock(GerritEventLifecycleListener.class);
+        PatchsetCreated patchset = Setup.createPatchsetCreated();
+        doThrow(new IllegalStateException("Expected")).when(failingListenerMock).triggerScanStarting(patchset);
+        gerritHandler.addScanListener(failingListenerMock);
+        gerritHandler.addScanListener(scanListenerMock);
+
+        gerritHandler.notifyListeners(patchset);
+
+        verify(scanListenerMock).triggerScanStarting(patchset);
+        verify(failingListenerMock).triggerScanDone(patchset);
+        verify(scanListenerMock).triggerScanDone(patchset);
+    }
+
 }
@@ -0,0 +1,109 @@
+/*
+ *  The MIT License
+ *
+ *  Copyright 2026 Sony Mobile Communications Inc. All rights reserved.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.sonyericsson.hudson.plugins.gerrit.trigger;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sonyericsson.hudson.plugins.gerrit.trigger.config.IGerritHudsonTriggerConfig;
+import com.sonymobile.tools.gerrit.gerritevents.ssh.SshConnection;
+
+/**
+ * Tests for {@link SshCommandSession}.
+ */
+public class SshCommandSessionTest {
+
+    private IGerritHudsonTriggerConfig config;
+    private List<SshConnection> opened;
+    private SshCommandSession session;
+
+    /**
+     * Creates a session that records the connections it opens.
+     */
+    @Before
+    public void setUp() {
+        config = mock(IGerritHudsonTriggerConfig.class);
+        opened = new ArrayList<>();
+        session = new SshCommandSession("server", c -> opened.get(opened.size() - 1));
+    }
+
+    /**
+     * Tests that the connection is reused by the commands.
+     *
+     * @throws Exception if so.
+     */
+    @Test
+    public void shouldReuseConnection() throws Exception {
+        SshConnection connection = mockConnection();
+        when(connection.executeCommandReader("cmd"))
+                .thenReturn(new StringReader("first"), new StringReader("second"));
+
+        assertEquals("first", session.execute(config, "cmd", r -> new BufferedReader(r).readLine()));
+        assertEquals("second", session.execute(config, "cmd", r -> new BufferedReader(r).readLine()));
+        verify(connection, times(2)).executeCommandReader("cmd");
+    }
+
+    /**
+     * Tests that a command that can't be started on the kept connection is run on a new one.
+     *
+     * @throws Exception if so.
+     */
+    @Test
+    public void shouldReconnectWhenConnectionIsLost() throws Exception {
+        SshConnection lost = mockConnection();
+        when(lost.executeCommandReader("cmd"))
+                .thenReturn(new StringReader("first"))
+                .thenThrow(new IOException("lost"));
+        assertEquals("first", session.execute(config, "cmd", r -> new BufferedReader(r).readLine()));
+
+        SshConnection connection = mockConnection();
+        when(connection.executeCommandReader("cmd")).thenReturn(new StringReader("second"));
+        assertEquals("second", session.execute(config, "cmd", r -> new BufferedReader(r).readLine()));
+        verify(lost).disconnect();
+    }
+
+    /**
+     * Creates the connection the session opens next.
+     *
+     * @return the connection.
+     */
+    private SshConnection mockConnection() {
+        SshConnection connection = mock(SshConnection.class);
+        when(connection.isConnected()).thenReturn(true);
+        opened.add(connection);
+        return connection;
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ *  The MIT License
+ *
+ *  Copyright 2026 Sony Mobile Communications Inc. All rights reserved.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.sonyericsson.hudson.plugins.gerrit.trigger.dependency;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import hudson.model.AbstractProject;
+import hudson.model.Item;
+import hudson.model.Job;
+import jenkins.model.Jenkins;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.MockedStatic;
+
+import com.sonyericsson.hudson.plugins.gerrit.trigger.hudsontrigger.GerritTrigger;
+
+//CS IGNORE MagicNumber FOR NEXT 200 LINES. REASON: testdata.
+
+/**
+ * Tests {@link DependencyGraph}.
+ */
+public class DependencyGraphTest {
+
+    private MockedStatic<Jenkins> jenkinsMockedStatic;
+    private MockedStatic<GerritTrigger> gerritTriggerMockedStatic;
+    private Jenkins jenkinsMock;
+    private DependencyGraph graph;
+
+    /**
+     * Mocks Jenkins for resolving job names.
+     */
+    @Before
+    public void setUp() {
+        jenkinsMock = mock(Jenkins.class);
+        jenkinsMockedStatic = mockStatic(Jenkins.class);
+        jenkinsMockedStatic.when(Jenkins::get).thenReturn(jenkinsMock);
+        gerritTriggerMockedStatic = mockStatic(GerritTrigger.class);
+        graph = new DependencyGraph();
+    }
+
+    /**
+     * Closes the static mocks.
+     */
+    @After
+    public void tearDown() {
+        jenkinsMockedStatic.close();
+        gerritTriggerMockedStatic.close();
+    }
+
+    /**
+     * Tests that the depth is the length of the longest chain of dependencies.
+     */
+    @Test
+    public void testDepth() {
+        Job a = job("a", null);
+        Job b = job("b", "a");
+        Job c = job("c", "a, b");
+        Job d = job("d", "c,a");
+        assertEquals(0, graph.getDepth(a));
+        assertEquals(1, graph.getDepth(b));
+        assertEquals(2, graph.getDepth(c));
+        assertEquals(3, graph.getDepth(d));
+    }
+
+    /**
+     * Tests that the depth follows a changed configuration once the graph is invalidated.
+     */
+    @Test
+    public void testDepthAfterInvalidate() {
+        Job a = job("a", null);
+        Job b = job("b", "a");
+        assertEquals(1, graph.getDepth(b));
+        setDependencies(a, "x");
+        job("x", null);
+        graph.invalidate();
+        assertEquals(2, graph.getDepth(b));
+    }
+
+    /**
+     * Tests that only the dependencies of an updated job are resolved again.
+     */
+    @Test
+    public void testDepthAfterInvalidateJob() {
+        Job a = job("a", null);
+        Job b = job("b", "a");
+        Job c = job("c", "b");
+        assertEquals(2, graph.getDepth(c));
+        setDependencies(a, "x");
+        job("x", null);
+        graph.invalidate(a);
+        assertEquals(3, graph.getDepth(c));
+        verify(jenkinsMock, times(1)).getItem(eq("a"), any(Item.class), eq(Item.class));
+        verify(jenkinsMock, times(1)).getItem(eq("b"), any(Item.class), eq(Item.class));
+    }
+
+    /**
+     * Tests that only the dependencies that didn't resolve to a job are resolved again when a job is created.
+     */
+    @Test
+    public void testDepthAfterInvalidateUnresolved() {
+        Job a = job("a", null);
+        Job b = job("b", "a, y");
+        Job c = job("c", "a");
+        assertEquals(1, graph.getDepth(b));
+        assertEquals(1, graph.getDepth(c));
+        job("y", "c");
+        graph.invalidateUnresolved();
+        assertEquals(3, graph.getDepth(b));
+        assertEquals(1, graph.getDepth(c));
+        verify(jenkinsMock, times(3)).getItem(eq("a"), any(Item.class), eq(Item.class));
+    }
+
+    /**
+     * Tests that an existing cycle does not make the depth recurse forever.
+     */
+    @Test
+    public void testDepthWithCycle() {
+        Job a = job("a", "b");
+        Job b = job("b", "a");
+        assertEquals(1, graph.getDepth(a));
+        assertTrue(graph.getDepth(b) > 0);
+    }
+
+    /**
+     * Tests that cycles are found together with the chain that closes them.
+     */
+    @Test
+    public void testFindCycle() {
+        Job a = job("a", null);
+        Job b = job("b", "a");
+        Job c = job("c", "b");
+        assertNull(graph.findCycle(c, Collections.singletonList(b)));
+        assertNull(graph.findCycle(a, Collections.emptyList()));
+        assertEquals(Collections.singletonList(a), graph.findCycle(a, Collections.singletonList(a)));
+        List<Job> cycle = graph.findCycle(a, Collections.singletonList(c));
+        assertEquals(2, cycle.size());
+        assertEquals(c, cycle.get(0));
+        assertEquals(b, cycle.get(1));
+    }
+
+    /**
+     * Creates a job with a trigger.
+     *
+     * @param name the name of the job
+     * @param dependencies the dependency names of the trigger
+     * @return the job
+     */
+    private Job job(String name, String dependencies) {
+        AbstractProject job = mock(AbstractProject.class, name);
+        when(job.getFullName()).thenReturn(name);
+        when(jenkinsMock.getItem(eq(name), any(Item.class), eq(Item.class))).thenReturn(job);
+        GerritTrigger trigger = mock(GerritTrigger.class);
+        gerritTriggerMockedStatic.when(() -> GerritTrigger.getTrigger(same(job))).thenReturn(trigger);
+        when(trigger.getDependencyJobsNames()).thenReturn(dependencies);
+        return job;
+    }
+
+    /**
+     * Changes the dependency names of the trigger of a job.
+     *
+     * @param job the job
+     * @param dependencies the new dependency names
+     */
+    private void setDependencies(Job job, String dependencies) {
+        when(GerritTrigger.getTrigger(job).getDependencyJobsNames()).thenReturn(dependencies);
+    }
+}
@@ -26,6 +26,7 @@ package com.sonyericsson.hudson.plugins.gerrit.trigger.dependency;
 import static org.hamcrest.core.IsInstanceOf.instanceOf;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.same;
@@ -34,6 +35,7 @@ import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -41,6 +43,7 @@ import static org.mockito.Mockito.when;
 
 import com.sonyericsson.hudson.plugins.gerrit.trigger.hudsontrigger.GerritTriggerDescriptor;
 import hudson.EnvVars;
+import hudson.Extension;
 import hudson.ExtensionList;
 import hudson.model.AbstractBuild;
 import hudson.model.AbstractProject;
@@ -74,15 +77,16 @@ import org.mockito.MockedStatic;
 import org.mockito.Mockito;
 
 import com.sonymobile.tools.gerrit.gerritevents.GerritDefaultValues;
-import com.sonymobile.tools.gerrit.gerritevents.GerritHandler;
 import com.sonymobile.tools.gerrit.gerritevents.dto.events.GerritTriggeredEvent;
 import com.sonymobile.tools.gerrit.gerritevents.dto.events.PatchsetCreated;
+import com.sonyericsson.hudson.plugins.gerrit.trigger.JenkinsAwareGerritHandler;
 import com.sonyericsson.hudson.plugins.gerrit.trigger.events.ManualPatchsetCreated;
 import com.sonyericsson.hudson.plugins.gerrit.trigger.gerritnotifier.ToGerritRunListener;
 import com.sonyericsson.hudson.plugins.gerrit.trigger.hudsontrigger.GerritCause;
 import com.sonyericsson.hudson.plugins.gerrit.trigger.hudsontrigger.GerritManualCause;
 import com.sonyericsson.hudson.plugins.gerrit.trigger.hudsontrigger.GerritTrigger;
 import com.sonyericsson.hudson.plugins.gerrit.trigger.mock.Setup;
+import com.sonyericsson.hudson.plugins.gerrit.trigger.utils.QueueMaintenanceScheduler;
 
 /**
  * Tests {@link com.sonyericsson.hudson.plugins.gerrit.trigger.dependency.DependencyQueueTaskDispatcher}.
@@ -92,7 +96,7 @@ public class DependencyQueueTaskDispatcherTest {
 
     private DependencyQueueTaskDispatcher dispatcher;
     private Queue queueMock;
-    private GerritHandler gerritHandlerMock;
+    private JenkinsAwareGerritHandler gerritHandlerMock;
     private Map<TriggerDescriptor, Trigger<?>> triggers;
     private GerritTrigger gerritTriggerMock;
     private AbstractProject<?, ?> abstractProjectMock;
@@ -101,14 +105,16 @@ public class DependencyQueueTaskDispatcherTest {
     private ToGerritRunListener toGerritRunListenerMock;
     private MockedStatic<Jenkins> jenkinsMockedStatic;
     private MockedStatic<ToGerritRunListener> runListenerMockedStatic;
+    private QueueMaintenanceScheduler maintenanceSchedulerMock;
 
     /**
-     * Create DependencyQueueTaskDispatcher with a mocked GerritHandler.
+     * Create DependencyQueueTaskDispatcher with a mocked JenkinsAwareGerritHandler.
      */
     @Before
     public void setUp() {
-        gerritHandlerMock = mock(GerritHandler.class);
-        dispatcher = new DependencyQueueTaskDispatcher(gerritHandlerMock);
+        gerritHandlerMock = mock(JenkinsAwareGerritHandler.class);
+        maintenanceSchedulerMock = mock(QueueMaintenanceScheduler.class);
+        dispatcher = new DependencyQueueTaskDispatcher(gerritHandlerMock, maintenanceSchedulerMock);
         gerritTriggerMock = mock(GerritTrigger.class);
         triggers = new HashMap<>();
         triggers.put(new GerritTriggerDescriptor(), gerritTriggerMock);
@@ -134,11 +140,11 @@ public class DependencyQueueTaskDispatcherTest {
     }
 
     /**
-     * Test that it should register as event listener on init.
+     * Test that it should register as scan listener on init.
      */
     @Test
-    public void shouldRegisterAsEventListenerOnInit() {
-        verify(gerritHandlerMock, times(1)).addListener(dispatcher);
+    public void shouldRegisterAsScanListenerOnInit() {
+        verify(gerritHandlerMock, times(1)).addScanListener(dispatcher);
     }
 
     /**
@@ -240,10 +246,56 @@ public class DependencyQueueTaskDispatcherTest {
 
         //Setting the dependency as "triggered and built"
         setBuilding(patchsetCreated, false);
+        dispatcher.onBuildEnded(patchsetCreated, abstractProjectDependencyMock);
         cause = dispatcher.canRun(item);
         assertNull("Build should not be blocked", cause);
     }
 
+    /**
+     * Test that a blocked item is not checked against the build memory again until a build of the event has ended,
+     * and that the queue is maintained when that happens.
+     */
+    @Test
+    public void shouldOnlyCheckBlockedItemAgainWhenBuildEnded() {
+        PatchsetCreated patchsetCreated = Setup.createPatchsetCreated("someGerritServer", "someProject",
+                "refs/changes/1/1/1");
+        Queue.Item item = createItem(patchsetCreated, "upstream");
+        setBuilding(patchsetCreated, true);
+        assertNotNull("Build should be blocked", dispatcher.canRun(item));
+
+        setBuilding(patchsetCreated, false);
+        assertNotNull("Build should still be blocked", dispatcher.canRun(item));
+        verify(toGerritRunListenerMock, times(1)).isBuilding(abstractProjectDependencyMock, patchsetCreated);
+
+        dispatcher.onBuildEnded(Setup.createPatchsetCreated("someGerritServer", "someProject",
+                "refs/changes/2/2/1"), abstractProjectDependencyMock);
+        verify(maintenanceSchedulerMock, never()).requestMaintenance();
+        assertNotNull("Build should still be blocked", dispatcher.canRun(item));
+
+        dispatcher.onBuildEnded(patchsetCreated, abstractProjectDependencyMock);
+        verify(maintenanceSchedulerMock, times(1)).requestMaintenance();
+        assertNull("Build should not be blocked", dispatcher.canRun(item));
+        verify(toGerritRunListenerMock, times(2)).isBuilding(abstractProjectDependencyMock, patchsetCreated);
+    }
+
+    /**
+     * Test that the dependencies of a job are only resolved once.
+     */
+    @Test
+    public void shouldResolveDependenciesOnce() {
+        PatchsetCreated patchsetCreated = Setup.createPatchsetCreated("someGerritServer", "someProject",
+                "refs/changes/1/1/1");
+        Queue.Item item = createItem(patchsetCreated, "upstream");
+        GerritTrigger upstreamTrigger = makeGerritInterestedInEvent(patchsetCreated);
+        setTriggered(patchsetCreated, false);
+        assertNotNull("Build should be blocked", dispatcher.canRun(item));
+        dispatcher.onBuildEnded(patchsetCreated, abstractProjectDependencyMock);
+        assertNotNull("Build should be blocked", dispatcher.canRun(item));
+
+        verify(jenkinsMock, times(1)).getItem(eq("upstream"), any(Item.class), same(Item.class));
+        verify(upstreamTrigger, times(1)).isInteresting(patchsetCreated);
+    }
+
     /**
      * Test that an job is waiting for parent if parent was not triggered, but is interested in event.
      */
@@ -264,14 +316,16 @@ public class DependencyQueueTaskDispatcherTest {
     /**
      * Sets GerritTrigger interested in specifed gerrit event.
      * @param patchsetCreated patch set.
+     * @return the trigger of the dependency.
      */
-    public void makeGerritInterestedInEvent(PatchsetCreated patchsetCreated) {
+    public GerritTrigger makeGerritInterestedInEvent(PatchsetCreated patchsetCreated) {
         GerritTrigger upstreamGerritTriggerMock = mock(GerritTrigger.class);
         when(abstractProjectDependencyMock.getTriggers()).thenReturn(
                 Collections.singletonMap(
                         new GerritTriggerDescriptor(), upstreamGerritTriggerMock));
         when(abstractProjectDependencyMock.getTrigger(GerritTrigger.class)).thenReturn(upstreamGerritTriggerMock);
         when(upstreamGerritTriggerMock.isInteresting(patchsetCreated)).thenReturn(true);
+        return upstreamGerritTriggerMock;
     }
 
     /**
@@ -349,17 +403,15 @@ public class DependencyQueueTaskDispatcherTest {
      */
     @Test
     public void shouldBlockTriggeringManualPatchsetCreated() {
-        ManualPatchsetCreated manualPatchsetCreated = spy(Setup.createManualPatchsetCreated());
-        //Event notification
-        dispatcher.gerritEvent(manualPatchsetCreated);
-        //Lifecycle handler should be notified of listening intent
-        verify(manualPatchsetCreated, times(1)).addListener(dispatcher);
+        ManualPatchsetCreated manualPatchsetCreated = Setup.createManualPatchsetCreated();
+        //The handler starts notifying its listeners
+        dispatcher.triggerScanStarting(manualPatchsetCreated);
         Queue.Item item = createItem(manualPatchsetCreated, "upstream");
         CauseOfBlockage cause = dispatcher.canRun(item);
         assertNotNull("Build should be blocked", cause);
+        //The handler is done notifying its listeners
         dispatcher.triggerScanDone(manualPatchsetCreated);
-        //Lifecycle handler should be notified of remove listener
-        verify(manualPatchsetCreated, times(1)).removeListener(dispatcher);
+        verify(maintenanceSchedulerMock).requestMaintenance();
         //Setting the dependency as "triggered but not built"
         setBuilding(manualPatchsetCreated, true);
         cause = dispatcher.canRun(item);
@@ -367,10 +419,23 @@ public class DependencyQueueTaskDispatcherTest {
         //Setting the dependency as "triggered and built"
         doReturn(false).when(toGerritRunListenerMock).
                 isBuilding(abstractProjectDependencyMock, manualPatchsetCreated);
+        dispatcher.onBuildEnded(manualPatchsetCreated, abstractProjectDependencyMock);
         cause = dispatcher.canRun(item);
         assertNull("Build should not be blocked", cause);
     }
 
+    /**
+     * Test that the listener releasing the blocked items is notified after the build memory is updated,
+     * since Jenkins notifies the listeners with the highest ordinal first.
+     */
+    @Test
+    public void shouldReleaseAfterBuildMemoryIsUpdated() {
+        double releasing = DependencyQueueTaskDispatcher.BuildEndedRunListener.class
+                .getAnnotation(Extension.class).ordinal();
+        double recording = ToGerritRunListener.class.getAnnotation(Extension.class).ordinal();
+        assertTrue(releasing < recording);
+    }
+
     /**
      * Create a queue item caused by the specified gerritEvent.
      * @param gerritEvent The gerritEvent
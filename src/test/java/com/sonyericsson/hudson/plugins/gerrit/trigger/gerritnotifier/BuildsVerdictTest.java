@@ -0,0 +1,125 @@
+/*
+ *  The MIT License
+ *
+ *  Copyright 2026 Sony Mobile Communications Inc. All rights reserved.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.sonyericsson.hudson.plugins.gerrit.trigger.gerritnotifier;
+
+import com.sonyericsson.hudson.plugins.gerrit.trigger.gerritnotifier.model.BuildMemory.MemoryImprint;
+import com.sonyericsson.hudson.plugins.gerrit.trigger.mock.Setup;
+
+import hudson.model.Result;
+
+import jenkins.model.Jenkins;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.MockedStatic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.when;
+
+//CS IGNORE MagicNumber FOR NEXT 100 LINES. REASON: TestData.
+
+/**
+ * Tests for {@link BuildsVerdict}.
+ */
+public class BuildsVerdictTest {
+
+    private MockedStatic<Jenkins> jenkinsMockedStatic;
+    private ParameterExpander expander;
+
+    /**
+     * Mock Jenkins.
+     */
+    @Before
+    public void setup() {
+        jenkinsMockedStatic = mockStatic(Jenkins.class);
+        Jenkins jenkins = mock(Jenkins.class);
+        jenkinsMockedStatic.when(Jenkins::get).thenReturn(jenkins);
+        expander = new ParameterExpander(Setup.createConfig(), jenkins);
+    }
+
+    /**
+     * Close the Jenkins mock.
+     */
+    @After
+    public void tearDown() {
+        jenkinsMockedStatic.close();
+    }
+
+    /**
+     * Tests that a skipped failure still makes the outcome failed, but doesn't vote.
+     */
+    @Test
+    public void testSkippedFailure() {
+        BuildsVerdict verdict = expander.getVerdict(createMemoryImprint(
+                Setup.createAndSetupMemoryImprintEntry(Result.SUCCESS, 2, 1, false),
+                Setup.createAndSetupMemoryImprintEntry(Result.UNSTABLE, -1, 0, false),
+                Setup.createAndSetupMemoryImprintEntry(Result.FAILURE, -2, -1, true)));
+        assertFalse(verdict.wereAllBuildsSuccessful());
+        assertTrue(verdict.wereAnyBuildsFailed());
+        assertTrue(verdict.wereAnyBuildsUnstable());
+        assertEquals(Result.FAILURE, verdict.getResult());
+        assertEquals(Integer.valueOf(0), verdict.getMinimumVerifiedValue(true));
+        assertEquals(Integer.valueOf(-1), verdict.getMinimumCodeReviewValue(true));
+        assertEquals(3, verdict.getBuilds().size());
+    }
+
+    /**
+     * Tests that the builds are successful if the only other results are skipped,
+     * but not if all results are skipped.
+     */
+    @Test
+    public void testAllSuccessfulWithSkippedResults() {
+        BuildsVerdict verdict = expander.getVerdict(createMemoryImprint(
+                Setup.createAndSetupMemoryImprintEntry(Result.SUCCESS, 1, 1, false),
+                Setup.createAndSetupMemoryImprintEntry(Result.UNSTABLE, -1, -1, true)));
+        assertTrue(verdict.wereAllBuildsSuccessful());
+        assertEquals(Result.SUCCESS, verdict.getResult());
+        assertEquals(Integer.valueOf(1), verdict.getMinimumVerifiedValue(true));
+
+        verdict = expander.getVerdict(createMemoryImprint(
+                Setup.createAndSetupMemoryImprintEntry(Result.SUCCESS, 1, 1, true),
+                Setup.createAndSetupMemoryImprintEntry(Result.UNSTABLE, -1, -1, true)));
+        assertFalse(verdict.wereAllBuildsSuccessful());
+        assertEquals(Result.UNSTABLE, verdict.getResult());
+        assertNull(verdict.getMinimumVerifiedValue(true));
+        assertNull(verdict.getMinimumCodeReviewValue(true));
+    }
+
+    /**
+     * Creates a memory with some entries.
+     *
+     * @param entries the entries.
+     * @return the memory.
+     */
+    private static MemoryImprint createMemoryImprint(MemoryImprint.Entry... entries) {
+        MemoryImprint memoryImprint = mock(MemoryImprint.class);
+        when(memoryImprint.getEntries()).thenReturn(entries);
+        return memoryImprint;
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ *  The MIT License
+ *
+ *  Copyright 2026 Sony Mobile Communications Inc. All rights reserved.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.sonyericsson.hudson.plugins.gerrit.trigger.gerritnotifier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import hudson.EnvVars;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link MessageTemplate}.
+ */
+public class MessageTemplateTest {
+
+    /**
+     * Tests that parameters and environment variables are expanded, unknown parameters are kept
+     * and the vote options without a vote are left out.
+     */
+    @Test
+    public void testRender() {
+        MessageTemplate template = MessageTemplate.of(
+                "review <CHANGE>,<PATCHSET> --verified <VERIFIED> --code-review <CODE_REVIEW> <UNKNOWN> on $NODE");
+        assertSame(template, MessageTemplate.of(
+                "review <CHANGE>,<PATCHSET> --verified <VERIFIED> --code-review <CODE_REVIEW> <UNKNOWN> on $NODE"));
+        assertTrue(template.isUsingEnvironment());
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put("CHANGE", "1000");
+        parameters.put("PATCHSET", "1");
+        parameters.put("VERIFIED", "null");
+        parameters.put("CODE_REVIEW", String.valueOf(Integer.MAX_VALUE));
+        EnvVars env = new EnvVars("NODE", "agent");
+
+        StringBuilder out = new StringBuilder("--verified ");
+        template.render(out, env, parameters);
+        assertEquals("--verified review 1000,1   <UNKNOWN> on agent", out.toString());
+
+        parameters.put("VERIFIED", "1");
+        out.setLength(0);
+        template.render(out, null, parameters);
+        assertEquals("review 1000,1 --verified 1  <UNKNOWN> on $NODE", out.toString());
+    }
+
+    /**
+     * Tests that a template without environment variables doesn't need the environment.
+     */
+    @Test
+    public void testPlainTemplate() {
+        MessageTemplate template = MessageTemplate.of("<BUILDURL> done");
+        assertFalse(template.isUsingEnvironment());
+        StringBuilder out = new StringBuilder();
+        template.render(out, null, Map.of("BUILDURL", "http://localhost/job/1/"));
+        assertEquals("http://localhost/job/1/ done", out.toString());
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ *  The MIT License
+ *
+ *  Copyright 2026 Sony Mobile Communications Inc. All rights reserved.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.sonyericsson.hudson.plugins.gerrit.trigger.gerritnotifier;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import java.util.concurrent.TimeUnit;
+
+import hudson.EnvVars;
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+import hudson.model.Result;
+import hudson.model.TaskListener;
+import jenkins.model.Jenkins;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sonyericsson.hudson.plugins.gerrit.trigger.gerritnotifier.model.BuildMemory.MemoryImprint;
+import com.sonyericsson.hudson.plugins.gerrit.trigger.hudsontrigger.GerritTrigger;
+import com.sonyericsson.hudson.plugins.gerrit.trigger.hudsontrigger.data.SkipVote;
+import com.sonyericsson.hudson.plugins.gerrit.trigger.mock.MockGerritHudsonTriggerConfig;
+import com.sonymobile.tools.gerrit.gerritevents.dto.events.PatchsetCreated;
+
+//CS IGNORE MagicNumber FOR NEXT 100 LINES. REASON: testdata.
+
+/**
+ * Benchmark of {@link ParameterExpander#getBuildCompletedCommand(MemoryImprint, TaskListener,
+ * com.sonymobile.tools.gerrit.gerritevents.dto.events.GerritTriggeredEvent)} for an event that
+ * triggered {@link #BUILDS} builds, each with a custom message using parameters and environment variables.
+ * Run with {@link com.sonyericsson.hudson.plugins.gerrit.trigger.BenchmarkRunner}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ParameterExpanderBenchmark {
+
+    /**
+     * The number of builds of the event.
+     */
+    static final int BUILDS = 50;
+
+    private ParameterExpander expander;
+    private MemoryImprint memoryImprint;
+    private TaskListener listener;
+
+    /**
+     * Creates the memory of the completed builds.
+     * The mocks are stub only, so that they don't record the calls of every iteration.
+     *
+     * @throws Exception if so
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        Jenkins jenkins = mock(Jenkins.class, withSettings().stubOnly());
+        when(jenkins.getRootUrl()).thenReturn("http://localhost/");
+        MockGerritHudsonTriggerConfig config = new MockGerritHudsonTriggerConfig() {
+            @Override
+            public boolean isEnablePluginMessages() {
+                return false;
+            }
+        };
+        expander = new ParameterExpander(config, jenkins);
+        listener = mock(TaskListener.class, withSettings().stubOnly());
+
+        PatchsetCreated event = com.sonyericsson.hudson.plugins.gerrit.trigger.mock.Setup.createPatchsetCreated();
+        MemoryImprint.Entry[] entries = new MemoryImprint.Entry[BUILDS];
+        for (int i = 0; i < BUILDS; i++) {
+            GerritTrigger trigger = mock(GerritTrigger.class, withSettings().stubOnly());
+            when(trigger.getGerritBuildSuccessfulVerifiedValue()).thenReturn(1);
+            when(trigger.getGerritBuildSuccessfulCodeReviewValue()).thenReturn(1);
+            when(trigger.getSkipVote()).thenReturn(new SkipVote(false, false, false, false, false));
+            when(trigger.getBuildSuccessfulMessage())
+                    .thenReturn("Verified <CHANGE>/<PATCHSET> on $NODE_NAME, see ${BUILD_URL}console");
+            AbstractProject project = mock(AbstractProject.class, withSettings().stubOnly());
+            com.sonyericsson.hudson.plugins.gerrit.trigger.mock.Setup.setTrigger(trigger, project);
+
+            EnvVars env = com.sonyericsson.hudson.plugins.gerrit.trigger.mock.Setup.createEnvVars();
+            env.put("NODE_NAME", "agent-" + i);
+            env.put("BUILD_URL", "http://localhost/job/job-" + i + "/1/");
+            AbstractBuild build = mock(AbstractBuild.class, withSettings().stubOnly());
+            when(build.getUrl()).thenReturn("job/job-" + i + "/1/");
+            when(build.getParent()).thenReturn(project);
+            when(build.getResult()).thenReturn(Result.SUCCESS);
+            when(build.getEnvironment(listener)).thenReturn(env);
+
+            MemoryImprint.Entry entry = mock(MemoryImprint.Entry.class, withSettings().stubOnly());
+            when(entry.getBuild()).thenReturn(build);
+            when(entry.getProject()).thenReturn(project);
+            when(entry.isBuildCompleted()).thenReturn(true);
+            entries[i] = entry;
+        }
+        memoryImprint = mock(MemoryImprint.class, withSettings().stubOnly());
+        when(memoryImprint.getEvent()).thenReturn(event);
+        when(memoryImprint.getEntries()).thenReturn(entries);
+    }
+
+    /**
+     * Creates the command to send when all the builds are completed.
+     *
+     * @return the command
+     */
+    @Benchmark
+    public String getBuildCompletedCommand() {
+        return expander.getBuildCompletedCommand(memoryImprint, listener, null);
+    }
+}
@@ -673,16 +673,13 @@ public class ParameterExpanderTest {
                 when(r.getResult()).thenReturn(expectedBuildResults[i]);
             }
             entries[i] = Setup.createImprintEntry(project, r);
+            // Builds that were never created are the ones that got cancelled.
+            when(entries[i].isCancelled()).thenReturn(!createBuild);
         }
 
         MemoryImprint memoryImprint = mock(MemoryImprint.class);
         when(memoryImprint.getEvent()).thenReturn(event);
 
-        when(memoryImprint.wereAllBuildsSuccessful()).thenReturn(allAreOfType(Result.SUCCESS, expectedBuildResults));
-        when(memoryImprint.wereAllBuildsNotBuilt()).thenReturn(allAreOfType(Result.NOT_BUILT, expectedBuildResults));
-        when(memoryImprint.wereAnyBuildsFailed()).thenReturn(anyIsOfType(Result.FAILURE, expectedBuildResults));
-        when(memoryImprint.wereAnyBuildsUnstable()).thenReturn(anyIsOfType(Result.UNSTABLE, expectedBuildResults));
-
         when(memoryImprint.getEntries()).thenReturn(entries);
 
         assertThat("Event should be a ChangeBasedEvent", event, instanceOf(ChangeBasedEvent.class));
@@ -765,10 +762,6 @@ public class ParameterExpanderTest {
         MemoryImprint memoryImprint = mock(MemoryImprint.class);
         when(memoryImprint.getEvent()).thenReturn(event);
 
-        when(memoryImprint.wereAllBuildsSuccessful()).thenReturn(true);
-        when(memoryImprint.wereAnyBuildsFailed()).thenReturn(false);
-        when(memoryImprint.wereAnyBuildsUnstable()).thenReturn(false);
-
         MemoryImprint.Entry[] entries = { Setup.createImprintEntry(project, r) };
 
         if (unsuccessfulMessage != null && !unsuccessfulMessage.isEmpty()) {
@@ -827,10 +820,6 @@ public class ParameterExpanderTest {
         MemoryImprint memoryImprint = mock(MemoryImprint.class);
         when(memoryImprint.getEvent()).thenReturn(event);
 
-        when(memoryImprint.wereAllBuildsSuccessful()).thenReturn(true);
-        when(memoryImprint.wereAnyBuildsFailed()).thenReturn(false);
-        when(memoryImprint.wereAnyBuildsUnstable()).thenReturn(false);
-
         MemoryImprint.Entry[] entries = { Setup.createImprintEntry(project, r) };
 
         when(entries[0].getUnsuccessfulMessage()).thenReturn("This Build has Failed");
@@ -853,33 +842,6 @@ public class ParameterExpanderTest {
         }
     }
 
-    /**
-     * Whether all of the given results equal to the given result.
-     *
-     * @param query the result to check
-     * @param all all results
-     * @return true if all are the same
-     */
-    private static boolean allAreOfType(Result query, Result[] all) {
-        for (Result result : all) {
-            if (!result.equals(query)) {
-                return false;
-            }
-        }
-        return true;
-    }
-
-    /**
-     * Whether any of the given results equals to the given result.
-     *
-     * @param query the result to check
-     * @param all all results
-     * @return true if any is the same
-     */
-    private static boolean anyIsOfType(Result query, Result[] all) {
-        return Arrays.asList(all).contains(query);
-    }
-
     /**
      * Extension implementing GerritMessageProvider to provide a custom build message.
      */
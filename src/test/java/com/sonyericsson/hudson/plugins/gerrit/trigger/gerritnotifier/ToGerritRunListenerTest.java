@@ -35,6 +35,7 @@ import com.sonyericsson.hudson.plugins.gerrit.trigger.gerritnotifier.model.Build
 import com.sonyericsson.hudson.plugins.gerrit.trigger.gerritnotifier.model.BuildsStartedStats;
 import com.sonyericsson.hudson.plugins.gerrit.trigger.hudsontrigger.GerritCause;
 import com.sonyericsson.hudson.plugins.gerrit.trigger.hudsontrigger.GerritManualCause;
+import com.sonyericsson.hudson.plugins.gerrit.trigger.hudsontrigger.GerritTrigger;
 import com.sonyericsson.hudson.plugins.gerrit.trigger.mock.Setup;
 
 import hudson.EnvVars;
@@ -43,9 +44,12 @@ import hudson.model.AbstractBuild;
 import hudson.model.AbstractProject;
 import hudson.model.Cause;
 import hudson.model.CauseAction;
+import hudson.model.Executor;
 import hudson.model.Job;
 import hudson.model.Result;
 import hudson.model.TaskListener;
+import hudson.triggers.TriggerDescriptor;
+import jenkins.model.CauseOfInterruption;
 import jenkins.model.Jenkins;
 import org.junit.After;
 import org.junit.Before;
@@ -60,6 +64,7 @@ import java.util.HashMap;
 import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.mockito.AdditionalMatchers.or;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
@@ -361,6 +366,119 @@ public class ToGerritRunListenerTest {
         verifyNoMoreInteractions(mockNotifier);
     }
 
+    /**
+     * Tests that a build is known as running for its event from when it started until it completed.
+     *
+     * @throws Exception if so.
+     */
+    @Test
+    public void testRunningBuilds() throws Exception {
+        AbstractBuild build = mockBuild("projectX", 2);
+        ManualPatchsetCreated event = Setup.createManualPatchsetCreated();
+        GerritCause cause = new GerritCause(event, true);
+        when(build.getCause(GerritCause.class)).thenReturn(cause);
+        when(build.getCauses()).thenReturn(Collections.singletonList(cause));
+        CauseAction causeAction = mock(CauseAction.class);
+        when(causeAction.getCauses()).thenReturn(Collections.singletonList(cause));
+        when(build.getAction(CauseAction.class)).thenReturn(causeAction);
+
+        ToGerritRunListener toGerritRunListener = new ToGerritRunListener();
+        assertEquals(0, toGerritRunListener.getRunningBuilds(event).size());
+
+        toGerritRunListener.onStarted(build, mock(TaskListener.class));
+        List<ToGerritRunListener.RunningBuild> running = toGerritRunListener.getRunningBuilds(event);
+        assertEquals(1, running.size());
+        assertSame(build, running.get(0).getRun());
+        assertEquals(0, toGerritRunListener.getRunningBuilds(Setup.createManualPatchsetCreated()).size());
+
+        toGerritRunListener.onCompleted(build, mock(TaskListener.class));
+        assertEquals(0, toGerritRunListener.getRunningBuilds(event).size());
+    }
+
+    /**
+     * Tests that the running builds of a job are interrupted through the builds known to be running.
+     *
+     * @throws Exception if so.
+     */
+    @Test
+    public void testInterruptRunningBuilds() throws Exception {
+        ManualPatchsetCreated event = Setup.createManualPatchsetCreated();
+        AbstractBuild build = mockBuild(event, "projectX");
+        Executor executor = mock(Executor.class);
+        when(build.getExecutor()).thenReturn(executor);
+        CauseOfInterruption interruption = mock(CauseOfInterruption.class);
+        ToGerritRunListener toGerritRunListener = new ToGerritRunListener();
+        toGerritRunListener.onStarted(build, mock(TaskListener.class));
+
+        assertEquals(0, toGerritRunListener.interruptRunningBuilds(event, "projectY", interruption));
+        assertEquals(1, toGerritRunListener.interruptRunningBuilds(event, "projectX", interruption));
+        verify(executor).interrupt(Result.ABORTED, interruption);
+    }
+
+    /**
+     * Tests that a build that starts shortly after it was asked to be interrupted is interrupted when it starts,
+     * since it may have left the queue before it could be cancelled there.
+     *
+     * @throws Exception if so.
+     */
+    @Test
+    public void testInterruptBuildStartingAfterBeingOutdated() throws Exception {
+        ManualPatchsetCreated event = Setup.createManualPatchsetCreated();
+        AbstractBuild build = mockBuild(event, "projectX");
+        Executor executor = mock(Executor.class);
+        when(build.getExecutor()).thenReturn(executor);
+        CauseOfInterruption interruption = mock(CauseOfInterruption.class);
+        ToGerritRunListener toGerritRunListener = new ToGerritRunListener();
+
+        assertEquals(0, toGerritRunListener.interruptRunningBuilds(event, "projectX", interruption));
+        verify(executor, never()).interrupt(any(Result.class), any(CauseOfInterruption.class));
+        toGerritRunListener.onStarted(build, mock(TaskListener.class));
+        verify(executor).interrupt(Result.ABORTED, interruption);
+    }
+
+    /**
+     * Tests that the builds running when the jobs are loaded, like resumed Pipeline builds,
+     * are known without having started through the listener.
+     *
+     * @throws Exception if so.
+     */
+    @Test
+    public void testRememberResumedBuilds() throws Exception {
+        ManualPatchsetCreated event = Setup.createManualPatchsetCreated();
+        AbstractBuild build = mockBuild(event, "projectX");
+        when(build.isBuilding()).thenReturn(true);
+        AbstractProject project = build.getProject();
+        doReturn(build).when(project).getLastBuild();
+        doReturn(Collections.singletonMap(mock(TriggerDescriptor.class), mock(GerritTrigger.class)))
+                .when(project).getTriggers();
+        doReturn(Collections.singletonList(project)).when(jenkins).allItems(Job.class);
+        ToGerritRunListener toGerritRunListener = new ToGerritRunListener();
+
+        toGerritRunListener.rememberResumedBuilds();
+        List<ToGerritRunListener.RunningBuild> running = toGerritRunListener.getRunningBuilds(event);
+        assertEquals(1, running.size());
+        assertSame(build, running.get(0).getRun());
+    }
+
+    /**
+     * Returns a mocked build caused by an event, with a silent {@link GerritCause}.
+     *
+     * @param event the event.
+     * @param projectFullName the full name of the project of the build.
+     * @return the build.
+     * @throws Exception if so.
+     */
+    private AbstractBuild mockBuild(ManualPatchsetCreated event, String projectFullName) throws Exception {
+        AbstractBuild build = mockBuild(projectFullName, 1);
+        GerritCause cause = new GerritCause(event, true);
+        when(build.getCause(GerritCause.class)).thenReturn(cause);
+        when(build.getCauses()).thenReturn(Collections.singletonList(cause));
+        CauseAction causeAction = mock(CauseAction.class);
+        when(causeAction.getCauses()).thenReturn(Collections.singletonList(cause));
+        when(build.getAction(CauseAction.class)).thenReturn(causeAction);
+        return build;
+    }
+
     /**
      * Tests {@link ToGerritRunListener#onTriggered(hudson.model.Job,
      * com.sonymobile.tools.gerrit.gerritevents.dto.events.GerritTriggeredEvent)}.
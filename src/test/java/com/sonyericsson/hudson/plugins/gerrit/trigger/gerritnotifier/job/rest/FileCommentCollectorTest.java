@@ -0,0 +1,232 @@
+/*
+ *  The MIT License
+ *
+ *  Copyright 2026 Sony Mobile Communications Inc. All rights reserved.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.sonyericsson.hudson.plugins.gerrit.trigger.gerritnotifier.job.rest;
+
+import com.sonyericsson.hudson.plugins.gerrit.trigger.gerritnotifier.GerritMessageProvider;
+import com.sonymobile.tools.gerrit.gerritevents.dto.rest.CommentedFile;
+import com.sonymobile.tools.gerrit.gerritevents.dto.rest.LineComment;
+
+import hudson.model.Run;
+import hudson.model.TaskListener;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+//CS IGNORE MagicNumber FOR NEXT 250 LINES. REASON: testdata.
+
+/**
+ * Tests for {@link FileCommentCollector}.
+ */
+public class FileCommentCollectorTest {
+
+    private ExecutorService executor;
+    private TaskListener listener;
+
+    /**
+     * Creates the pool and the listener.
+     */
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(2);
+        listener = mock(TaskListener.class);
+    }
+
+    /**
+     * Stops the pool.
+     */
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Tests that the same comment reported for several builds is only returned once,
+     * and that the comments over the limit are left out.
+     */
+    @Test
+    public void testDuplicatesAreMergedAndCapped() {
+        GerritMessageProvider provider = new Provider(new CommentedFile("Main.java", Arrays.asList(
+                new LineComment(1, "unused import"), new LineComment(7, "missing javadoc"))));
+        GerritMessageProvider other = new Provider(new CommentedFile("Main.java", Arrays.asList(
+                new LineComment(1, "unused import"), new LineComment(9, "magic number"),
+                new LineComment(12, "line too long"))));
+        FileCommentCollector collector = new FileCommentCollector(executor, 10000, 3);
+
+        Collection<CommentedFile> files = collector.collect(Arrays.asList(provider, other),
+                Arrays.asList(mock(Run.class), mock(Run.class)), listener);
+
+        assertEquals(1, files.size());
+        CommentedFile file = files.iterator().next();
+        assertEquals("Main.java", file.getFileName());
+        Iterator<LineComment> comments = file.getLineComments().iterator();
+        assertEquals(1, comments.next().getLine());
+        assertEquals(7, comments.next().getLine());
+        assertEquals(9, comments.next().getLine());
+        assertFalse(comments.hasNext());
+    }
+
+    /**
+     * Tests that a provider that doesn't answer in time is left out without losing the comments of the others.
+     *
+     * @throws Exception if so
+     */
+    @Test
+    public void testSlowProviderIsGivenUpOn() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        GerritMessageProvider slow = new GerritMessageProvider() {
+            @Override
+            public Collection<CommentedFile> getFileComments(Run build) {
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return Collections.singletonList(new CommentedFile("Slow.java",
+                        Collections.singletonList(new LineComment(1, "late"))));
+            }
+        };
+        GerritMessageProvider fast = new Provider(new CommentedFile("Fast.java",
+                Collections.singletonList(new LineComment(2, "in time"))));
+        FileCommentCollector collector = new FileCommentCollector(executor, 200, 100);
+
+        List<CommentedFile> files = collector.collect(Arrays.asList(slow, fast),
+                Collections.singletonList(mock(Run.class)), listener);
+        release.countDown();
+
+        assertEquals(1, files.size());
+        assertEquals("Fast.java", files.get(0).getFileName());
+        verify(listener).error(startsWith("Gave up"));
+    }
+
+    /**
+     * Tests that each call is timed from when it starts, so providers that run one after the other
+     * are all waited for as long as they each stay within the timeout.
+     */
+    @Test
+    public void testTimeoutIsPerCall() {
+        ExecutorService single = Executors.newSingleThreadExecutor();
+        try {
+            GerritMessageProvider first = new SlowProvider(new CommentedFile("First.java",
+                    Collections.singletonList(new LineComment(1, "first"))));
+            GerritMessageProvider second = new SlowProvider(new CommentedFile("Second.java",
+                    Collections.singletonList(new LineComment(2, "second"))));
+            FileCommentCollector collector = new FileCommentCollector(single, 1000, 100);
+
+            List<CommentedFile> files = collector.collect(Arrays.asList(first, second),
+                    Collections.singletonList(mock(Run.class)), listener);
+
+            assertEquals(2, files.size());
+            verify(listener, never()).error(anyString());
+        } finally {
+            single.shutdownNow();
+        }
+    }
+
+    /**
+     * Tests that a provider failing without a message is reported by its exception.
+     */
+    @Test
+    public void testFailureWithoutMessageIsReported() {
+        GerritMessageProvider failing = new GerritMessageProvider() {
+            @Override
+            public Collection<CommentedFile> getFileComments(Run build) {
+                throw new IllegalStateException();
+            }
+        };
+        FileCommentCollector collector = new FileCommentCollector(executor, 10000, 100);
+
+        List<CommentedFile> files = collector.collect(Collections.singletonList(failing),
+                Collections.singletonList(mock(Run.class)), listener);
+
+        assertTrue(files.isEmpty());
+        verify(listener).error(IllegalStateException.class.getName());
+    }
+
+    /**
+     * A provider that takes more than half of the timeout to return its comments.
+     */
+    private static final class SlowProvider extends GerritMessageProvider {
+        private final List<CommentedFile> files;
+
+        /**
+         * Constructor.
+         *
+         * @param files the comments.
+         */
+        private SlowProvider(CommentedFile... files) {
+            this.files = Arrays.asList(files);
+        }
+
+        @Override
+        public Collection<CommentedFile> getFileComments(Run build) {
+            try {
+                Thread.sleep(600);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return files;
+        }
+    }
+
+    /**
+     * A provider that returns the same comments for every build.
+     */
+    private static final class Provider extends GerritMessageProvider {
+        private final List<CommentedFile> files;
+
+        /**
+         * Constructor.
+         *
+         * @param files the comments.
+         */
+        private Provider(CommentedFile... files) {
+            this.files = Arrays.asList(files);
+        }
+
+        @Override
+        public Collection<CommentedFile> getFileComments(Run build) {
+            return files;
+        }
+    }
+}
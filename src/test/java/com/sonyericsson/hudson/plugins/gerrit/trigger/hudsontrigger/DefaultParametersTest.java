@@ -0,0 +1,80 @@
+/*
+ *  The MIT License
+ *
+ *  Copyright 2026 Sony Mobile Communications Inc. All rights reserved.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.sonyericsson.hudson.plugins.gerrit.trigger.hudsontrigger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import hudson.model.Job;
+import hudson.model.ParameterDefinition;
+import hudson.model.ParameterValue;
+import hudson.model.ParametersDefinitionProperty;
+import hudson.model.StringParameterDefinition;
+import hudson.model.StringParameterValue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link DefaultParameters}.
+ */
+public class DefaultParametersTest {
+
+    /**
+     * Tests that the fixed default values are reused until the job is saved,
+     * while the others are computed for every build.
+     */
+    @Test
+    public void testFixedDefaultsAreReusedUntilSaved() {
+        ParameterDefinition dynamic = mock(ParameterDefinition.class);
+        when(dynamic.getDefaultParameterValue()).thenAnswer(i -> new StringParameterValue("DYNAMIC", "now"));
+        ParametersDefinitionProperty property = mock(ParametersDefinitionProperty.class);
+        when(property.getParameterDefinitions())
+                .thenReturn(Arrays.asList(new StringParameterDefinition("FIXED", "value"), dynamic));
+        Job project = mock(Job.class);
+        when(project.getProperty(ParametersDefinitionProperty.class)).thenReturn(property);
+
+        List<ParameterValue> first = DefaultParameters.of(project);
+        List<ParameterValue> second = DefaultParameters.of(project);
+        assertEquals(2, first.size());
+        assertEquals("FIXED", first.get(0).getName());
+        assertEquals("DYNAMIC", first.get(1).getName());
+        assertSame(first.get(0), second.get(0));
+        assertNotSame(first.get(1), second.get(1));
+        verify(dynamic, times(2)).getDefaultParameterValue();
+        verify(property, times(1)).getParameterDefinitions();
+
+        DefaultParameters.invalidate(project);
+        List<ParameterValue> saved = DefaultParameters.of(project);
+        assertNotSame(first.get(0), saved.get(0));
+        assertEquals(first.get(0), saved.get(0));
+    }
+}
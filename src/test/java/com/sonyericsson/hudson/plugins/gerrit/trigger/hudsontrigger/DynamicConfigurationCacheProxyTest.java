@@ -6,11 +6,17 @@ import org.junit.Before;
 import org.junit.Test;
 import org.mockito.MockedStatic;
 
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.mockStatic;
@@ -26,14 +32,15 @@ public class DynamicConfigurationCacheProxyTest {
     private static final int REFRESH_INTERNAL_P = 1000;
     private MockedStatic<GerritDynamicUrlProcessor> dynamicUrlProcessorMockedStatic;
     private MockedStatic<GerritTriggerTimer> gerritTriggerTimerMockedStatic;
+    private DynamicConfigurationCacheProxy proxy;
 
     /**
-     * Cleans the cache and sets mocks before every test.
+     * Creates a cache that fetches in the calling thread and sets mocks before every test.
      * @throws Exception if so.
      */
     @Before
     public void setUp() throws Exception {
-        DynamicConfigurationCacheProxy.getInstance().clear();
+        proxy = new DynamicConfigurationCacheProxy(DynamicConfigurationCacheProxyTest::fetch, Runnable::run);
         dynamicUrlProcessorMockedStatic = mockStatic(GerritDynamicUrlProcessor.class);
         gerritTriggerTimerMockedStatic = mockStatic(GerritTriggerTimer.class);
     }
@@ -63,7 +70,7 @@ public class DynamicConfigurationCacheProxyTest {
         List<GerritProject> expected = Collections.singletonList(mock(GerritProject.class));
         when(GerritDynamicUrlProcessor.fetch(anyString())).thenReturn(expected);
 
-        List<GerritProject> actual = DynamicConfigurationCacheProxy.getInstance().fetchThroughCache("someUrl");
+        List<GerritProject> actual = proxy.fetchThroughCache("someUrl");
 
         assertEquals(expected, actual);
     }
@@ -81,8 +88,8 @@ public class DynamicConfigurationCacheProxyTest {
                 .thenReturn(gerritProjects2);
         setRefreshInternal(REFRESH_INTERVAL_N);
 
-        List<GerritProject> res1 = DynamicConfigurationCacheProxy.getInstance().fetchThroughCache("someUrl");
-        List<GerritProject> res2 = DynamicConfigurationCacheProxy.getInstance().fetchThroughCache("someUrl");
+        List<GerritProject> res1 = proxy.fetchThroughCache("someUrl");
+        List<GerritProject> res2 = proxy.fetchThroughCache("someUrl");
 
         assertNotEquals(res1, res2);
         assertEquals(gerritProjects1, res1);
@@ -102,8 +109,8 @@ public class DynamicConfigurationCacheProxyTest {
                 .when(() -> GerritDynamicUrlProcessor.fetch(anyString()))
                 .thenReturn(gerritProjects1, gerritProjects2);
         setRefreshInternal(REFRESH_INTERNAL_P);
-        List<GerritProject> res1 = DynamicConfigurationCacheProxy.getInstance().fetchThroughCache("someUrl");
-        List<GerritProject> res2 = DynamicConfigurationCacheProxy.getInstance().fetchThroughCache("someUrl");
+        List<GerritProject> res1 = proxy.fetchThroughCache("someUrl");
+        List<GerritProject> res2 = proxy.fetchThroughCache("someUrl");
 
         assertEquals(gerritProjects1, res1);
         assertEquals(gerritProjects1, res2);
@@ -112,4 +119,120 @@ public class DynamicConfigurationCacheProxyTest {
         dynamicUrlProcessorMockedStatic
                 .verify(() -> GerritDynamicUrlProcessor.fetch(anyString()), times(1));
     }
+
+    /**
+     * Tests that an expired record is returned while it is refreshed, and that it is refreshed only once at a time.
+     * @throws Exception if so.
+     */
+    @Test
+    public void fetchStaleWhileRefreshing() throws Exception {
+        List<GerritProject> gerritProjects1 = Collections.singletonList(mock(GerritProject.class));
+        List<GerritProject> gerritProjects2 = Collections.singletonList(mock(GerritProject.class));
+        dynamicUrlProcessorMockedStatic
+                .when(() -> GerritDynamicUrlProcessor.fetch(anyString()))
+                .thenReturn(gerritProjects1, gerritProjects2);
+        setRefreshInternal(REFRESH_INTERVAL_N);
+        List<Runnable> fetches = new ArrayList<>();
+        //The first fetch is waited for, so it is run right away, the others when the test says so.
+        DynamicConfigurationCacheProxy seeded = new DynamicConfigurationCacheProxy(
+                DynamicConfigurationCacheProxyTest::fetch, command -> {
+                    fetches.add(command);
+                    if (fetches.size() == 1) {
+                        command.run();
+                    }
+                });
+
+        assertEquals(gerritProjects1, seeded.fetchThroughCache("someUrl"));
+        assertEquals(gerritProjects1, seeded.fetchThroughCache("someUrl"));
+        assertEquals(gerritProjects1, seeded.fetchThroughCache("someUrl"));
+        assertEquals("One refresh in flight", 2, fetches.size());
+        dynamicUrlProcessorMockedStatic.verify(() -> GerritDynamicUrlProcessor.fetch(anyString()), times(1));
+
+        fetches.get(1).run();
+        assertEquals(gerritProjects2, seeded.fetchThroughCache("someUrl"));
+    }
+
+    /**
+     * Tests that a failed refresh of an expired record is reported, and that the record is kept.
+     * @throws Exception if so.
+     */
+    @Test
+    public void fetchFailedRefresh() throws Exception {
+        List<GerritProject> gerritProjects1 = Collections.singletonList(mock(GerritProject.class));
+        dynamicUrlProcessorMockedStatic
+                .when(() -> GerritDynamicUrlProcessor.fetch(anyString()))
+                .thenReturn(gerritProjects1)
+                .thenThrow(new IOException("Expected"))
+                .thenReturn(gerritProjects1);
+        setRefreshInternal(REFRESH_INTERNAL_P);
+
+        assertEquals(gerritProjects1, proxy.fetchThroughCache("someUrl"));
+        setRefreshInternal(REFRESH_INTERVAL_N);
+        try {
+            proxy.fetchThroughCache("someUrl");
+            fail("The failed refresh should be reported");
+        } catch (IOException e) {
+            assertEquals("Expected", e.getMessage());
+        }
+        assertEquals(gerritProjects1, proxy.fetchThroughCache("someUrl"));
+    }
+
+    /**
+     * Tests that the previous result is passed on to the next fetch and that the projects are kept
+     * if the config hasn't changed.
+     * @throws Exception if so.
+     */
+    @Test
+    public void fetchConditionally() throws Exception {
+        List<GerritProject> gerritProjects = Collections.singletonList(mock(GerritProject.class));
+        GerritDynamicUrlProcessor.Fetched first = new GerritDynamicUrlProcessor.Fetched(gerritProjects, "\"1\"", null);
+        List<GerritDynamicUrlProcessor.Fetched> previous = new ArrayList<>();
+        proxy = new DynamicConfigurationCacheProxy((url, prev) -> {
+            previous.add(prev);
+            return first;
+        }, Runnable::run);
+        setRefreshInternal(REFRESH_INTERVAL_N);
+
+        List<GerritProject> res1 = proxy.fetchThroughCache("someUrl");
+        List<GerritProject> res2 = proxy.fetchThroughCache("someUrl");
+
+        assertSame(res1, res2);
+        assertEquals(2, previous.size());
+        assertNull(previous.get(0));
+        assertSame(first, previous.get(1));
+    }
+
+    /**
+     * Tests that a refresh fetches a config that is still valid, and that the jobs then get the refreshed one.
+     * @throws Exception if so.
+     */
+    @Test
+    public void refreshValidRecord() throws Exception {
+        List<GerritProject> gerritProjects1 = Collections.singletonList(mock(GerritProject.class));
+        List<GerritProject> gerritProjects2 = Collections.singletonList(mock(GerritProject.class));
+        dynamicUrlProcessorMockedStatic
+                .when(() -> GerritDynamicUrlProcessor.fetch(anyString()))
+                .thenReturn(gerritProjects1, gerritProjects2);
+        setRefreshInternal(REFRESH_INTERNAL_P);
+
+        assertEquals(gerritProjects1, proxy.fetchThroughCache("someUrl"));
+        proxy.refresh("someUrl");
+        assertEquals(gerritProjects2, proxy.fetchThroughCache("someUrl"));
+        dynamicUrlProcessorMockedStatic
+                .verify(() -> GerritDynamicUrlProcessor.fetch(anyString()), times(2));
+    }
+
+    /**
+     * Fetches through the static {@link GerritDynamicUrlProcessor#fetch(String)}, which the tests mock.
+     *
+     * @param url the url.
+     * @param previous ignored.
+     * @return the result.
+     * @throws IOException if so.
+     * @throws ParseException if so.
+     */
+    private static GerritDynamicUrlProcessor.Fetched fetch(String url, GerritDynamicUrlProcessor.Fetched previous)
+            throws IOException, ParseException {
+        return new GerritDynamicUrlProcessor.Fetched(GerritDynamicUrlProcessor.fetch(url), null, null);
+    }
 }
@@ -0,0 +1,126 @@
+/*
+ *  The MIT License
+ *
+ *  Copyright 2026 Sony Mobile Communications Inc. All rights reserved.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.sonyericsson.hudson.plugins.gerrit.trigger.hudsontrigger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.text.ParseException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sonyericsson.hudson.plugins.gerrit.trigger.hudsontrigger.data.GerritProject;
+
+//CS IGNORE MagicNumber FOR NEXT 90 LINES. REASON: testdata.
+
+/**
+ * Benchmark of parsing a dynamic trigger config of {@link #LINES} lines,
+ * from scratch and against the projects of a previous fetch where a tenth of them have changed.
+ * Run with {@link com.sonyericsson.hudson.plugins.gerrit.trigger.BenchmarkRunner}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class GerritDynamicUrlProcessorBenchmark {
+
+    /**
+     * The number of lines of the config.
+     */
+    static final int LINES = 20000;
+    private static final int LINES_PER_PROJECT = 5;
+
+    private String config;
+    private List<GerritProject> previous;
+
+    /**
+     * Creates the config, of projects with a comment, branches and file paths,
+     * and the projects of a previous fetch where every tenth project had another branch.
+     *
+     * @throws Exception if so.
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        StringBuilder builder = new StringBuilder();
+        int projects = LINES / LINES_PER_PROJECT;
+        for (int i = 0; i < projects; i++) {
+            builder.append("# project ").append(i).append('\n')
+                    .append("p=platform/project-").append(i).append('\n')
+                    .append("b ^ refs/heads/**\n")
+                    .append("b~release-").append(i % 10).append("\\..*\n")
+                    .append("f^src/**/*.java ; sources only\n");
+        }
+        config = builder.toString();
+        previous = parse(config.replace("release-9", "other"), null);
+    }
+
+    /**
+     * Parses the config without a previous fetch.
+     *
+     * @return the projects.
+     * @throws Exception if so.
+     */
+    @Benchmark
+    public List<GerritProject> parse() throws Exception {
+        return parse(config, null);
+    }
+
+    /**
+     * Parses the config, keeping the unchanged projects of the previous fetch.
+     *
+     * @return the projects.
+     * @throws Exception if so.
+     */
+    @Benchmark
+    public List<GerritProject> parseAgainstPrevious() throws Exception {
+        return parse(config, previous);
+    }
+
+    /**
+     * Parses a config.
+     *
+     * @param content the config.
+     * @param previousProjects the projects of the previous fetch, if any.
+     * @return the projects.
+     * @throws IOException if so.
+     * @throws ParseException if so.
+     */
+    private static List<GerritProject> parse(String content, List<GerritProject> previousProjects)
+            throws IOException, ParseException {
+        return GerritDynamicUrlProcessor.readAndParseTriggerConfig(
+                new BufferedReader(new StringReader(content)), previousProjects);
+    }
+}
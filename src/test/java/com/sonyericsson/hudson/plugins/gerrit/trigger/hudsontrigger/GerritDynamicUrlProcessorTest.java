@@ -5,16 +5,28 @@ import com.sonyericsson.hudson.plugins.gerrit.trigger.hudsontrigger.data.GerritP
 
 import org.junit.Test;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.StringReader;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.MalformedURLException;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
+import com.sun.net.httpserver.HttpServer;
+
 import static java.lang.System.lineSeparator;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThrows;
 
 /**
@@ -157,6 +169,94 @@ public class GerritDynamicUrlProcessorTest {
 
     }
 
+    /**
+     * Test {@link GerritDynamicUrlProcessor#fetch(String, GerritDynamicUrlProcessor.Fetched)}
+     * sends the validators of the previous fetch and keeps its result when the server says it is not modified.
+     *
+     * @throws IOException    if so.
+     * @throws ParseException if so.
+     */
+    @Test
+    public void testConditionalFetch() throws IOException, ParseException {
+        byte[] content = newLine("p=" + PROJECT).getBytes(StandardCharsets.UTF_8);
+        List<String> ifNoneMatch = new ArrayList<>();
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/config", exchange -> {
+            String tag = exchange.getRequestHeaders().getFirst("If-None-Match");
+            ifNoneMatch.add(tag);
+            exchange.getResponseHeaders().add("ETag", "\"v1\"");
+            if ("\"v1\"".equals(tag)) {
+                exchange.sendResponseHeaders(HttpURLConnection.HTTP_NOT_MODIFIED, -1);
+            } else {
+                exchange.sendResponseHeaders(HttpURLConnection.HTTP_OK, content.length);
+                exchange.getResponseBody().write(content);
+            }
+            exchange.close();
+        });
+        server.start();
+        try {
+            String url = "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort()
+                    + "/config";
+            GerritDynamicUrlProcessor.Fetched first = GerritDynamicUrlProcessor.fetch(url, null);
+            assertEquals(1, first.getProjects().size());
+            assertEquals(PROJECT, first.getProjects().get(0).getPattern());
+            assertEquals("\"v1\"", first.getEntityTag());
+
+            GerritDynamicUrlProcessor.Fetched second = GerritDynamicUrlProcessor.fetch(url, first);
+            assertSame(first, second);
+            assertEquals(Arrays.asList(null, "\"v1\""), ifNoneMatch);
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    /**
+     * Test that whitespace around the operator and trailing comments are skipped.
+     *
+     * @throws IOException    if so.
+     * @throws ParseException if so.
+     */
+    @Test
+    public void testParseWhitespaceAndComments() throws IOException, ParseException {
+        String config = "  p \t= " + PROJECT + " # comment\n"
+                + "b~ " + BRANCH + ";comment\n"
+                + "t ^" + TOPIC + "\n";
+        List<GerritProject> projects = GerritDynamicUrlProcessor.readAndParseTriggerConfig(
+                new BufferedReader(new StringReader(config)), null);
+
+        assertEquals(1, projects.size());
+        assertEquals(CompareType.PLAIN, projects.get(0).getCompareType());
+        assertEquals(PROJECT, projects.get(0).getPattern());
+        assertEquals(CompareType.REG_EXP, projects.get(0).getBranches().get(0).getCompareType());
+        assertEquals(BRANCH, projects.get(0).getBranches().get(0).getPattern());
+        assertEquals(CompareType.ANT, projects.get(0).getTopics().get(0).getCompareType());
+        assertEquals(TOPIC, projects.get(0).getTopics().get(0).getPattern());
+
+        assertThrows(ParseException.class, () -> GerritDynamicUrlProcessor.readAndParseTriggerConfig(
+                new BufferedReader(new StringReader("p = # nothing")), null));
+    }
+
+    /**
+     * Test that the projects that are defined like in the previous fetch are the previous instances.
+     *
+     * @throws IOException    if so.
+     * @throws ParseException if so.
+     */
+    @Test
+    public void testReuseUnchangedProjects() throws IOException, ParseException {
+        String config = "p=p1\nb=b1\np=p2\nb=b2\n";
+        List<GerritProject> previous = GerritDynamicUrlProcessor.readAndParseTriggerConfig(
+                new BufferedReader(new StringReader(config)), null);
+        String changed = "p=p1\nb=b1\np=p2\nb=b3\n";
+        List<GerritProject> projects = GerritDynamicUrlProcessor.readAndParseTriggerConfig(
+                new BufferedReader(new StringReader(changed)), previous);
+
+        assertEquals(2, projects.size());
+        assertSame(previous.get(0), projects.get(0));
+        assertNotSame(previous.get(1), projects.get(1));
+        assertEquals("b3", projects.get(1).getBranches().get(0).getPattern());
+    }
+
     /**
      * Generate a file with dynamic trigger config content.
      *
@@ -31,8 +31,11 @@ import com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventKeys;
 import com.sonymobile.tools.gerrit.gerritevents.dto.events.CommentAdded;
 import com.sonymobile.tools.gerrit.gerritevents.dto.events.HashtagsChanged;
 import com.sonymobile.tools.gerrit.gerritevents.dto.events.PatchsetCreated;
+import com.sonyericsson.hudson.plugins.gerrit.trigger.hudsontrigger.parameters.GerritEventParameterValue;
+import hudson.EnvVars;
 import hudson.model.AbstractProject;
 import hudson.model.ParameterValue;
+import hudson.model.Run;
 import hudson.model.StringParameterValue;
 import net.sf.json.JSONArray;
 import net.sf.json.JSONObject;
@@ -42,6 +45,8 @@ import org.junit.Test;
 import org.jvnet.hudson.test.JenkinsRule;
 import org.jvnet.hudson.test.WithoutJenkins;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
@@ -51,6 +56,8 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 /**
  * Tests for {@link GerritTriggerParameters}.
@@ -211,6 +218,35 @@ public class GerritTriggerParametersTest {
                 .collect(Collectors.joining(",")), removedHashtags.getValue());
     }
 
+    /**
+     * Tests that a parameter added as {@link GerritTriggerParameters.ParameterMode#EVENT}
+     * is read from the event of the build when it isn't in memory, as when loaded from disk.
+     */
+    @Test @WithoutJenkins
+    public void testEventModeReadsFromEvent() {
+        PatchsetCreated created = Setup.createPatchsetCreated();
+        created.getChange().setCommitMessage("Subject\n\nA \"long\" body");
+        String encoded = Base64.getEncoder().encodeToString(
+                created.getChange().getCommitMessage().getBytes(StandardCharsets.UTF_8));
+        List<ParameterValue> parameters = new LinkedList<>();
+        GerritTriggerParameters.ParameterMode.EVENT.setOrCreateParameterValue(
+                GerritTriggerParameters.GERRIT_CHANGE_COMMIT_MESSAGE, parameters,
+                created.getChange().getCommitMessage(), GerritTriggerParameters.ParameterMode.PlainMode.TEXT, true);
+        assertEquals(1, parameters.size());
+        assertEquals(encoded, parameters.get(0).getValue());
+
+        GerritEventParameterValue loaded = new GerritEventParameterValue(
+                GerritTriggerParameters.GERRIT_CHANGE_COMMIT_MESSAGE.name(), null, "");
+        assertNull(loaded.getValue());
+        GerritCause cause = mock(GerritCause.class);
+        when(cause.getEvent()).thenReturn(created);
+        Run run = mock(Run.class);
+        when(run.getCause(GerritCause.class)).thenReturn(cause);
+        EnvVars env = new EnvVars();
+        loaded.buildEnvironment(run, env);
+        assertEquals(encoded, env.get(GerritTriggerParameters.GERRIT_CHANGE_COMMIT_MESSAGE.name()));
+    }
+
     /**
      * Finds the given parameter in the list.
      *
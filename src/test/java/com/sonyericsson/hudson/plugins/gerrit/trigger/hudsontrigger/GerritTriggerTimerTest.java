@@ -0,0 +1,128 @@
+/*
+ *  The MIT License
+ *
+ *  Copyright 2026 Sony Mobile Communications Inc. All rights reserved.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.sonyericsson.hudson.plugins.gerrit.trigger.hudsontrigger;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.MockedStatic;
+
+/**
+ * Tests for {@link GerritTriggerTimer}.
+ */
+public class GerritTriggerTimerTest {
+
+    private ScheduledExecutorService executor;
+    private ScheduledFuture<?> refreshFuture;
+    private GerritTriggerTimer timer;
+
+    /**
+     * Creates a timer scheduling on a mocked executor.
+     */
+    @Before
+    public void setUp() {
+        executor = mock(ScheduledExecutorService.class);
+        refreshFuture = mock(ScheduledFuture.class);
+        doReturn(refreshFuture).when(executor)
+                .scheduleWithFixedDelay(any(Runnable.class), anyLong(), anyLong(), any(TimeUnit.class));
+        doReturn(mock(ScheduledFuture.class)).when(executor)
+                .schedule(any(Runnable.class), anyLong(), any(TimeUnit.class));
+        timer = new GerritTriggerTimer(executor);
+    }
+
+    /**
+     * Tests that the jobs with the same trigger config URL share one refresh that runs all of their tasks,
+     * and that it is cancelled with the last of them.
+     *
+     * @throws Exception if so.
+     */
+    @Test
+    public void shouldShareRefreshOfSameUrl() throws Exception {
+        GerritTrigger trigger = mock(GerritTrigger.class);
+        GerritTriggerTimerTask first = createTask("a", "http://config/1");
+        GerritTriggerTimerTask second = createTask("b", "http://config/1");
+        GerritTriggerTimerTask other = createTask("c", "http://config/2");
+        timer.schedule(first, trigger);
+        timer.schedule(second, trigger);
+        timer.schedule(other, trigger);
+
+        assertEquals(2, timer.getScheduledRefreshes());
+        ArgumentCaptor<Runnable> firstRuns = ArgumentCaptor.forClass(Runnable.class);
+        verify(executor, times(3)).schedule(firstRuns.capture(), eq(GerritTriggerTimer.DELAY_MILLISECONDS),
+                eq(TimeUnit.MILLISECONDS));
+        firstRuns.getAllValues().get(0).run();
+        verify(first).run();
+        verify(second, never()).run();
+        ArgumentCaptor<Runnable> refresh = ArgumentCaptor.forClass(Runnable.class);
+        verify(executor, times(2)).scheduleWithFixedDelay(refresh.capture(), anyLong(), anyLong(),
+                eq(TimeUnit.MILLISECONDS));
+
+        DynamicConfigurationCacheProxy proxy = mock(DynamicConfigurationCacheProxy.class);
+        try (MockedStatic<DynamicConfigurationCacheProxy> proxyMockedStatic =
+                     mockStatic(DynamicConfigurationCacheProxy.class)) {
+            proxyMockedStatic.when(DynamicConfigurationCacheProxy::getInstance).thenReturn(proxy);
+            refresh.getAllValues().get(0).run();
+        }
+        verify(proxy).refresh("http://config/1");
+        verify(first, times(2)).run();
+        verify(second).run();
+        verify(other, never()).run();
+
+        timer.cancel(first);
+        verify(refreshFuture, never()).cancel(false);
+        timer.cancel(second);
+        verify(refreshFuture).cancel(false);
+        assertEquals(1, timer.getScheduledRefreshes());
+    }
+
+    /**
+     * Creates a task.
+     *
+     * @param job the name of the job.
+     * @param url the trigger config URL.
+     * @return the task.
+     */
+    private static GerritTriggerTimerTask createTask(String job, String url) {
+        GerritTriggerTimerTask task = mock(GerritTriggerTimerTask.class);
+        when(task.toString()).thenReturn(job);
+        when(task.getTriggerConfigURL()).thenReturn(url);
+        return task;
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ *  The MIT License
+ *
+ *  Copyright 2026 Sony Mobile Communications Inc. All rights reserved.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.sonyericsson.hudson.plugins.gerrit.trigger.hudsontrigger;
+
+import static org.mockito.Mockito.mockStatic;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import jenkins.model.Jenkins;
+
+import org.mockito.MockedStatic;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sonyericsson.hudson.plugins.gerrit.trigger.hudsontrigger.data.BuildCancellationPolicy;
+import com.sonymobile.tools.gerrit.gerritevents.dto.events.PatchsetCreated;
+
+//CS IGNORE MagicNumber FOR NEXT 110 LINES. REASON: testdata.
+
+/**
+ * Benchmark of scheduling events on a {@link RunningJobs} that tracks {@link #EVENTS} running events.
+ *
+ * Every scheduled event is checked against the running events it could outdate,
+ * which used to be all of them.
+ * Run with {@link com.sonyericsson.hudson.plugins.gerrit.trigger.BenchmarkRunner}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class RunningJobsBenchmark {
+
+    /**
+     * The number of running events of the job.
+     */
+    static final int EVENTS = 10000;
+    private static final int CHANGES_PER_TOPIC = 10;
+
+    private BuildCancellationPolicy policy;
+    private RunningJobs runningJobs;
+    private PatchsetCreated[] running;
+    private PatchsetCreated[] newChanges;
+    private int next;
+
+    /**
+     * Creates the running jobs, tracking one event for each of {@link #EVENTS} changes,
+     * some of them sharing topics.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        GerritTrigger trigger;
+        try (MockedStatic<Jenkins> jenkins = mockStatic(Jenkins.class)) {
+            trigger = new GerritTrigger(Collections.emptyList());
+        }
+        //Topics are looked up but don't abort, or the running events would be cancelled by each other.
+        policy = new BuildCancellationPolicy(false, false, false, false);
+        runningJobs = new RunningJobs(trigger, null);
+        running = new PatchsetCreated[EVENTS];
+        newChanges = new PatchsetCreated[EVENTS];
+        for (int i = 0; i < EVENTS; i++) {
+            String topic = null;
+            if (i % 2 == 0) {
+                topic = "topic-" + (i / CHANGES_PER_TOPIC);
+            }
+            running[i] = RunningJobsTest.createEvent(String.valueOf(i), "1", topic);
+            newChanges[i] = RunningJobsTest.createEvent(String.valueOf(EVENTS + i), "1", null);
+            runningJobs.add(running[i]);
+        }
+    }
+
+    /**
+     * Schedules an event equal to one that is running, which outdates nothing.
+     *
+     * @return the running jobs
+     */
+    @Benchmark
+    public RunningJobs scheduleRunning() {
+        PatchsetCreated event = running[next];
+        next = (next + 1) % EVENTS;
+        runningJobs.cancelTriggeredJob(event, "job", policy);
+        return runningJobs;
+    }
+
+    /**
+     * Schedules an event of a change that isn't running and removes it again when it is done.
+     *
+     * @return the running jobs
+     */
+    @Benchmark
+    public RunningJobs scheduleNewChange() {
+        PatchsetCreated event = newChanges[next];
+        next = (next + 1) % EVENTS;
+        runningJobs.cancelTriggeredJob(event, "job", policy);
+        runningJobs.remove(event);
+        return runningJobs;
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ *  The MIT License
+ *
+ *  Copyright 2026 Sony Mobile Communications Inc. All rights reserved.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.sonyericsson.hudson.plugins.gerrit.trigger.hudsontrigger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.CALLS_REAL_METHODS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import hudson.model.Item;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sonyericsson.hudson.plugins.gerrit.trigger.hudsontrigger.data.BuildCancellationPolicy;
+import com.sonyericsson.hudson.plugins.gerrit.trigger.mock.Setup;
+import com.sonymobile.tools.gerrit.gerritevents.dto.events.PatchsetCreated;
+
+/**
+ * Tests for {@link RunningJobs}.
+ */
+public class RunningJobsTest {
+
+    private RunningJobs runningJobs;
+
+    /**
+     * Creates the running jobs of a job that isn't a task, so nothing is actually cancelled.
+     */
+    @Before
+    public void setUp() {
+        GerritTrigger trigger = mock(GerritTrigger.class, CALLS_REAL_METHODS);
+        Item job = mock(Item.class);
+        when(job.getName()).thenReturn("job");
+        when(job.getFullName()).thenReturn("job");
+        runningJobs = new RunningJobs(trigger, job);
+    }
+
+    /**
+     * Tests that a new patchset outdates the running older patchset of the same change only.
+     */
+    @Test
+    public void shouldOutdateOlderPatchsetOfSameChange() {
+        BuildCancellationPolicy policy = new BuildCancellationPolicy(false, false, false, false);
+        PatchsetCreated first = createEvent("1", "1", null);
+        PatchsetCreated other = createEvent("2", "1", null);
+        PatchsetCreated second = createEvent("1", "2", null);
+        runningJobs.cancelTriggeredJob(first, "job", policy);
+        runningJobs.cancelTriggeredJob(other, "job", policy);
+        runningJobs.cancelTriggeredJob(second, "job", policy);
+
+        assertEquals(2, runningJobs.size());
+        assertFalse(runningJobs.remove(first));
+        assertTrue(runningJobs.remove(other));
+        assertTrue(runningJobs.remove(second));
+        assertEquals(0, runningJobs.size());
+    }
+
+    /**
+     * Tests that an event outdates the running events of other changes with the same topic.
+     */
+    @Test
+    public void shouldOutdateSameTopic() {
+        BuildCancellationPolicy policy = new BuildCancellationPolicy(false, false, true, false);
+        PatchsetCreated first = createEvent("1", "1", "topic");
+        PatchsetCreated otherTopic = createEvent("2", "1", "other");
+        PatchsetCreated second = createEvent("3", "1", "topic");
+        runningJobs.cancelTriggeredJob(first, "job", policy);
+        runningJobs.cancelTriggeredJob(otherTopic, "job", policy);
+        runningJobs.cancelTriggeredJob(second, "job", policy);
+
+        assertFalse(runningJobs.remove(first));
+        assertTrue(runningJobs.remove(otherTopic));
+        assertTrue(runningJobs.remove(second));
+    }
+
+    /**
+     * Creates a patchset created event.
+     *
+     * @param changeNumber the change number.
+     * @param patchsetNumber the patchset number.
+     * @param topic the topic of the change.
+     * @return the event.
+     */
+    static PatchsetCreated createEvent(String changeNumber, String patchsetNumber, String topic) {
+        PatchsetCreated event = Setup.createPatchsetCreated("server", "project",
+                "refs/changes/" + changeNumber + "/" + patchsetNumber);
+        event.getChange().setNumber(changeNumber);
+        event.getChange().setId("I" + changeNumber);
+        event.getChange().setTopic(topic);
+        event.getPatchSet().setNumber(patchsetNumber);
+        return event;
+    }
+}
@@ -0,0 +1,245 @@
+/*
+ *  The MIT License
+ *
+ *  Copyright 2026 Sony Mobile Communications Inc. All rights reserved.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.sonyericsson.hudson.plugins.gerrit.trigger.hudsontrigger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import hudson.ExtensionList;
+import hudson.model.Action;
+import hudson.model.Cause;
+import hudson.model.CauseAction;
+import hudson.model.Computer;
+import hudson.model.Executor;
+import hudson.model.FreeStyleProject;
+import hudson.model.Queue;
+import hudson.model.Result;
+import hudson.model.Run;
+import hudson.model.TransientActionFactory;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import jenkins.model.CauseOfInterruption;
+import jenkins.model.Jenkins;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.MockedStatic;
+
+import com.sonyericsson.hudson.plugins.gerrit.trigger.gerritnotifier.ToGerritRunListener;
+import com.sonymobile.tools.gerrit.gerritevents.dto.events.PatchsetCreated;
+
+/**
+ * Tests for {@link SupersededBuildsCanceller}.
+ */
+public class SupersededBuildsCancellerTest {
+
+    private Queue queueMock;
+    private Jenkins jenkinsMock;
+    private ToGerritRunListener runListenerMock;
+    private MockedStatic<Jenkins> jenkinsMockedStatic;
+    private MockedStatic<ToGerritRunListener> runListenerMockedStatic;
+    private SupersededBuildsCanceller canceller;
+
+    /**
+     * Mocks the queue and the run listener.
+     */
+    @Before
+    public void setUp() {
+        queueMock = mock(Queue.class);
+        jenkinsMock = mock(Jenkins.class);
+        when(jenkinsMock.getQueue()).thenReturn(queueMock);
+        ExtensionList<TransientActionFactory> list = mock(ExtensionList.class);
+        Iterator<TransientActionFactory> iterator = Collections.<TransientActionFactory>emptyList().iterator();
+        when(list.iterator()).thenReturn(iterator);
+        when(jenkinsMock.getExtensionList(same(TransientActionFactory.class))).thenReturn(list);
+        jenkinsMockedStatic = mockStatic(Jenkins.class);
+        jenkinsMockedStatic.when(Jenkins::get).thenReturn(jenkinsMock);
+        jenkinsMockedStatic.when(Jenkins::getInstanceOrNull).thenReturn(jenkinsMock);
+        runListenerMock = mock(ToGerritRunListener.class);
+        runListenerMockedStatic = mockStatic(ToGerritRunListener.class);
+        runListenerMockedStatic.when(ToGerritRunListener::getInstance).thenReturn(runListenerMock);
+        canceller = new SupersededBuildsCanceller();
+    }
+
+    /**
+     * Closes the static mocks.
+     */
+    @After
+    public void tearDown() {
+        jenkinsMockedStatic.close();
+        runListenerMockedStatic.close();
+    }
+
+    /**
+     * Tests that the outdated builds of all jobs are cancelled once the scan of the new event is done,
+     * including a build that the run listener doesn't know of, like a resumed one.
+     */
+    @Test
+    public void shouldCancelOutdatedBuildsOfAllJobsWhenScanIsDone() {
+        PatchsetCreated outdated = RunningJobsTest.createEvent("1", "1", null);
+        PatchsetCreated unrelated = RunningJobsTest.createEvent("2", "1", null);
+        PatchsetCreated event = RunningJobsTest.createEvent("1", "2", null);
+        Queue.Item queuedA = createItem("a", outdated);
+        Queue.Item queuedB = createItem("b", outdated);
+        Queue.Item queuedOther = createItem("c", outdated);
+        Queue.Item queuedUnrelated = createItem("a", unrelated);
+        when(queueMock.getItems()).thenReturn(new Queue.Item[] {queuedA, queuedB, queuedOther, queuedUnrelated});
+        Executor executor = mock(Executor.class);
+        ToGerritRunListener.RunningBuild running = mockRunningBuild("a", executor);
+        when(runListenerMock.getRunningBuilds(same(outdated))).thenReturn(List.of(running));
+        Executor resumedExecutor = mockExecutor("d", outdated);
+        Computer computer = mock(Computer.class);
+        when(computer.getAllExecutors()).thenReturn(List.of(executor, resumedExecutor));
+        when(jenkinsMock.getComputers()).thenReturn(new Computer[] {computer});
+        CauseOfInterruption cause = new NewPatchSetInterruption();
+
+        assertFalse("Not scanning yet", canceller.defer(event, outdated, "a", cause));
+        canceller.triggerScanStarting(event);
+        assertTrue(canceller.defer(event, outdated, "a", cause));
+        assertTrue(canceller.defer(event, outdated, "b", cause));
+        assertTrue(canceller.defer(event, outdated, "d", cause));
+        verify(queueMock, never()).cancel(any(Queue.Item.class));
+
+        canceller.triggerScanDone(event);
+        verify(queueMock).cancel(queuedA);
+        verify(queueMock).cancel(queuedB);
+        verify(queueMock, never()).cancel(queuedOther);
+        verify(queueMock, never()).cancel(queuedUnrelated);
+        verify(queueMock, times(1)).getItems();
+        verify(executor).interrupt(Result.ABORTED, cause);
+        verify(resumedExecutor).interrupt(Result.ABORTED, cause);
+        verify(jenkinsMock, times(1)).getComputers();
+        assertFalse("Done scanning", canceller.defer(event, outdated, "a", cause));
+    }
+
+    /**
+     * Tests that the executors are searched once for the builds of all outdated events that the run listener
+     * doesn't know of, and that the builds interrupted there are counted.
+     */
+    @Test
+    public void shouldSearchExecutorsOnceForAllUnknownBuilds() {
+        PatchsetCreated first = RunningJobsTest.createEvent("1", "1", null);
+        PatchsetCreated second = RunningJobsTest.createEvent("2", "1", null);
+        when(queueMock.getItems()).thenReturn(new Queue.Item[0]);
+        Executor firstExecutor = mockExecutor("a", first);
+        Executor secondExecutor = mockExecutor("b", second);
+        Executor otherExecutor = mockExecutor("c", second);
+        Computer computer = mock(Computer.class);
+        when(computer.getAllExecutors()).thenReturn(List.of(firstExecutor, secondExecutor, otherExecutor));
+        when(jenkinsMock.getComputers()).thenReturn(new Computer[] {computer});
+        CauseOfInterruption cause = new NewPatchSetInterruption();
+        SupersededBuildsCanceller.Batch batch = new SupersededBuildsCanceller.Batch();
+        batch.add(first, "a", cause);
+        batch.add(second, "b", cause);
+
+        SupersededBuildsCanceller.CancellationResult result = batch.cancel();
+        verify(firstExecutor).interrupt(Result.ABORTED, cause);
+        verify(secondExecutor).interrupt(Result.ABORTED, cause);
+        verify(otherExecutor, never()).interrupt(any(Result.class), any(CauseOfInterruption.class));
+        verify(jenkinsMock, times(1)).getComputers();
+        assertEquals(2, result.getRunning());
+        assertEquals(0, result.getQueued());
+    }
+
+    /**
+     * Tests that the executors aren't searched for a build whose queue item was just cancelled.
+     */
+    @Test
+    public void shouldNotSearchExecutorsForCancelledQueueItems() {
+        PatchsetCreated outdated = RunningJobsTest.createEvent("1", "1", null);
+        Queue.Item queued = createItem("a", outdated);
+        when(queueMock.getItems()).thenReturn(new Queue.Item[] {queued});
+        CauseOfInterruption cause = new NewPatchSetInterruption();
+        SupersededBuildsCanceller.Batch batch = new SupersededBuildsCanceller.Batch();
+        batch.add(outdated, "a", cause);
+
+        SupersededBuildsCanceller.CancellationResult result = batch.cancel();
+        verify(queueMock).cancel(queued);
+        verify(jenkinsMock, never()).getComputers();
+        assertEquals(1, result.getQueued());
+        assertEquals(0, result.getRunning());
+    }
+
+    /**
+     * Creates a queued item of a job.
+     *
+     * @param jobName the full name of the job.
+     * @param event the event causing the item.
+     * @return the item.
+     */
+    private Queue.Item createItem(String jobName, PatchsetCreated event) {
+        FreeStyleProject project = mock(FreeStyleProject.class);
+        when(project.getFullName()).thenReturn(jobName);
+        List<Action> actions = Collections.singletonList(new CauseAction(new GerritCause(event, false)));
+        return new Queue.WaitingItem(Calendar.getInstance(), project, actions);
+    }
+
+    /**
+     * Creates a running build of a job.
+     *
+     * @param jobName the full name of the job.
+     * @param executor the executor it runs on.
+     * @return the running build.
+     */
+    private ToGerritRunListener.RunningBuild mockRunningBuild(String jobName, Executor executor) {
+        FreeStyleProject project = mock(FreeStyleProject.class);
+        when(project.getFullName()).thenReturn(jobName);
+        Run run = mock(Run.class);
+        when(run.getParent()).thenReturn(project);
+        ToGerritRunListener.RunningBuild build = mock(ToGerritRunListener.RunningBuild.class);
+        when(build.getRun()).thenReturn(run);
+        when(build.getExecutor()).thenReturn(executor);
+        return build;
+    }
+
+    /**
+     * Creates an executor running a build of a job that the run listener doesn't know of.
+     *
+     * @param jobName the full name of the job.
+     * @param event the event causing the build.
+     * @return the executor.
+     */
+    private Executor mockExecutor(String jobName, PatchsetCreated event) {
+        FreeStyleProject project = mock(FreeStyleProject.class);
+        when(project.getFullName()).thenReturn(jobName);
+        Run run = mock(Run.class);
+        when(run.getParent()).thenReturn(project);
+        when(run.getCauses()).thenReturn(Collections.<Cause>singletonList(new GerritCause(event, false)));
+        Executor executor = mock(Executor.class);
+        when(executor.getCurrentExecutable()).thenReturn(run);
+        return executor;
+    }
+}
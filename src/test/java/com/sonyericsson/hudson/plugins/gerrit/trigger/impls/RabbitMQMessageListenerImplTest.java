@@ -26,10 +26,13 @@ package com.sonyericsson.hudson.plugins.gerrit.trigger.impls;
 import java.util.HashMap;
 import java.util.Map;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.fail;
 
 import com.sonyericsson.jenkins.plugins.bfa.test.utils.Whitebox;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
@@ -111,6 +114,44 @@ public class RabbitMQMessageListenerImplTest {
                         header.get("gerrit-version").toString()));
     }
 
+    /**
+     * Tests that the messages with the same headers don't share their provider,
+     * since the triggers may set the name of it.
+     *
+     * @throws PluginNotFoundException throw if plugin is not found.
+     * @throws PluginStatusException throw if plugin status is wrong.
+     */
+    @Test
+    public void onReceiveDoesNotShareProviderTest() throws PluginNotFoundException, PluginStatusException {
+        Handler handlerMock = mock(Handler.class);
+        doReturn(handlerMock).when(apiMock).getHandler();
+
+        RabbitMQMessageListenerImpl listener = new RabbitMQMessageListenerImpl();
+        Whitebox.setInternalState(listener, GerritTriggerApi.class, apiMock);
+
+        Map<String, Object> header = new HashMap<String, Object>();
+        header.put("gerrit-name", LongStringHelper.asLongString("gerrit1"));
+        header.put("gerrit-host", LongStringHelper.asLongString("gerrit1.localhost"));
+        Map<String, Object> sameHeader = new HashMap<String, Object>();
+        sameHeader.put("gerrit-name", LongStringHelper.asLongString("gerrit1"));
+        sameHeader.put("gerrit-host", LongStringHelper.asLongString("gerrit1.localhost"));
+        Map<String, Object> otherHeader = new HashMap<String, Object>();
+        otherHeader.put("gerrit-name", LongStringHelper.asLongString("gerrit2"));
+
+        listener.onBind("TEST");
+        listener.onReceive("TEST", "application/json", header, "message 1".getBytes());
+        listener.onReceive("TEST", "application/json", sameHeader, "message 2".getBytes());
+        listener.onReceive("TEST", "application/json", otherHeader, "message 3".getBytes());
+
+        ArgumentCaptor<Provider> providers = ArgumentCaptor.forClass(Provider.class);
+        verify(handlerMock, times(3)).post(anyString(), providers.capture());
+        assertNotSame(providers.getAllValues().get(0), providers.getAllValues().get(1));
+        assertEquals(providers.getAllValues().get(0), providers.getAllValues().get(1));
+        assertEquals(new Provider("gerrit1", "gerrit1.localhost", null, null, null, null),
+                providers.getAllValues().get(0));
+        assertEquals(new Provider("gerrit2", null, null, null, null, null), providers.getAllValues().get(2));
+    }
+
     /**
      * Tests if received event from unknown queue.
      *
@@ -797,6 +797,7 @@ public final class Setup {
 
     /**
      * Create an MemoryImprint.Entry for the specific build and project.
+     * The build is completed, if there is one.
      *
      * @param project the project
      * @param build the build
@@ -806,6 +807,7 @@ public final class Setup {
         MemoryImprint.Entry entry = mock(MemoryImprint.Entry.class);
         when(entry.getBuild()).thenReturn(build);
         when(entry.getProject()).thenReturn(project);
+        when(entry.isBuildCompleted()).thenReturn(build != null);
         return entry;
     }
 
@@ -0,0 +1,125 @@
+/*
+ *  The MIT License
+ *
+ *  Copyright 2026 Sony Mobile Communications Inc. All rights reserved.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.sonyericsson.hudson.plugins.gerrit.trigger.replication;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jol.info.GraphLayout;
+
+import com.sonymobile.tools.gerrit.gerritevents.dto.events.RefReplicated;
+
+//CS IGNORE MagicNumber FOR NEXT 110 LINES. REASON: testdata.
+
+/**
+ * Footprint and lookup benchmark of {@link ReplicationCache}.
+ *
+ * Filling a fresh cache with {@link #EVENTS} events, the <code>gc.alloc.rate.norm</code>
+ * of {@link #fill()} is the number of bytes allocated per cached event,
+ * the events themselves excluded since they are created up front.
+ * What the filled cache retains per event is measured once with JOL and printed at setup,
+ * since it is not something JMH measures.
+ * Run with {@link com.sonyericsson.hudson.plugins.gerrit.trigger.BenchmarkRunner}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ReplicationCacheBenchmark {
+
+    /**
+     * The number of events to fill the cache with.
+     */
+    static final int EVENTS = 100000;
+    private static final int SERVERS = 2;
+    private static final int PROJECTS = 500;
+    private static final int NODES = 10;
+
+    private RefReplicated[] events;
+    private ReplicationCache filled;
+    private int next;
+
+    /**
+     * Creates the events and a cache filled with them.
+     * Like events parsed from a stream, every event has its own instances of the names.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        events = new RefReplicated[EVENTS];
+        for (int i = 0; i < EVENTS; i++) {
+            events[i] = com.sonyericsson.hudson.plugins.gerrit.trigger.mock.Setup.createRefReplicatedEvent(
+                    "project-" + (i % PROJECTS),
+                    "refs/changes/" + (i % 100) + "/" + i + "/1",
+                    "server-" + (i % SERVERS),
+                    "node-" + (i % NODES),
+                    RefReplicated.SUCCEEDED_STATUS);
+        }
+        filled = fill();
+        ReplicationCache empty = new ReplicationCache(1, TimeUnit.HOURS, EVENTS, null);
+        empty.initialize();
+        long retained = GraphLayout.parseInstance(filled).totalSize() - GraphLayout.parseInstance(empty).totalSize();
+        System.out.println("Retained bytes per cached event: " + retained / EVENTS);
+    }
+
+    /**
+     * Fills a new cache with all the events.
+     *
+     * @return the cache
+     */
+    @Benchmark
+    @OperationsPerInvocation(EVENTS)
+    public ReplicationCache fill() {
+        ReplicationCache cache = new ReplicationCache(1, TimeUnit.HOURS, EVENTS, null);
+        cache.initialize();
+        for (RefReplicated event : events) {
+            cache.put(event);
+        }
+        return cache;
+    }
+
+    /**
+     * Looks up the events in the filled cache, as the replication dispatcher does.
+     *
+     * @param blackhole sink for the found events
+     */
+    @Benchmark
+    public void getIfPresent(Blackhole blackhole) {
+        RefReplicated event = events[next];
+        next = (next + 1) % EVENTS;
+        blackhole.consume(filled.getIfPresent(event.getProvider().getName(), event.getProject(),
+                event.getRef(), event.getTargetNode()));
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ *  The MIT License
+ *
+ *  Copyright 2026 Sony Mobile Communications Inc. All rights reserved.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.sonyericsson.hudson.plugins.gerrit.trigger.replication;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.sonymobile.tools.gerrit.gerritevents.dto.events.RefReplicated;
+import com.sonyericsson.hudson.plugins.gerrit.trigger.mock.Setup;
+
+//CS IGNORE MagicNumber FOR NEXT 250 LINES. REASON: testdata.
+
+/**
+ * Tests {@link ReplicationCacheStore}.
+ */
+public class ReplicationCacheStoreTest {
+
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+
+    /**
+     * Folder for the store.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Test that appended entries are loaded again.
+     */
+    @Test
+    public void shouldLoadAppendedEntries() {
+        File file = new File(folder.getRoot(), ReplicationCacheStore.FILE_NAME);
+        ReplicationCacheStore store = store(file, 100, 0);
+        long now = System.currentTimeMillis();
+        store.load(now, HOUR, Collections::emptyList);
+        store.append(entry(now, "refs/changes/1/1/1"));
+        store.append(entry(now, "refs/changes/2/2/2"));
+        store.close();
+
+        List<ReplicationCacheStore.Entry> loaded = store(file, 100, 0).load(now, HOUR, Collections::emptyList);
+        assertEquals(2, loaded.size());
+        assertEquals("refs/changes/1/1/1", loaded.get(0).toRefReplicated().getRef());
+        assertEquals("refs/changes/2/2/2", loaded.get(1).toRefReplicated().getRef());
+    }
+
+    /**
+     * Test that expired and malformed entries are skipped when loading.
+     * @throws Exception if so
+     */
+    @Test
+    public void shouldSkipExpiredAndMalformedEntries() throws Exception {
+        File file = new File(folder.getRoot(), ReplicationCacheStore.FILE_NAME);
+        ReplicationCacheStore store = store(file, 100, 0);
+        long now = System.currentTimeMillis();
+        store.load(now - 2 * HOUR, HOUR, Collections::emptyList);
+        store.append(entry(now - 2 * HOUR, "refs/changes/1/1/1"));
+        store.append(entry(now, "refs/changes/2/2/2"));
+        store.close();
+        Files.write(file.toPath(), "not json\n".getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.APPEND);
+
+        ReplicationCacheStore reloaded = store(file, 100, 0);
+        List<ReplicationCacheStore.Entry> loaded = reloaded.load(now, HOUR, Collections::emptyList);
+        assertEquals(1, loaded.size());
+        assertEquals("refs/changes/2/2/2", loaded.get(0).toRefReplicated().getRef());
+        assertEquals("Coverage is limited by the expiration", now - HOUR, reloaded.getSince());
+    }
+
+    /**
+     * Test that the log is compacted with the live entries after max entries appends
+     * and that it evicts the oldest entries above max entries.
+     */
+    @Test
+    public void shouldEvictOldestEntriesAboveMaxEntries() {
+        File file = new File(folder.getRoot(), ReplicationCacheStore.FILE_NAME);
+        ReplicationCacheStore store = store(file, 3, 0);
+        long now = System.currentTimeMillis();
+        List<ReplicationCacheStore.Entry> live = new ArrayList<>();
+        AtomicInteger compactions = new AtomicInteger();
+        store.load(now, HOUR, () -> {
+            compactions.incrementAndGet();
+            return new ArrayList<>(live);
+        });
+        for (int i = 0; i < 5; i++) {
+            ReplicationCacheStore.Entry entry = entry(now + i, "refs/changes/" + i + "/" + i + "/1");
+            live.add(entry);
+            store.append(entry);
+            assertEquals("Compacted after max entries appends", i < 2 ? 0 : 1, compactions.get());
+        }
+        List<ReplicationCacheStore.Entry> kept = store.compact(live);
+        assertEquals(3, kept.size());
+        assertEquals("refs/changes/2/2/1", kept.get(0).toRefReplicated().getRef());
+        assertEquals("Coverage starts after the evicted entries", now + 2, store.getSince());
+        assertEquals(3, store(file, 3, 0).load(now, HOUR, Collections::emptyList).size());
+    }
+
+    /**
+     * Test that the entries are queued by the caller and written by the writer,
+     * in one batch for the entries queued before it runs.
+     */
+    @Test
+    public void shouldWriteQueuedEntriesOnWriter() {
+        File file = new File(folder.getRoot(), ReplicationCacheStore.FILE_NAME);
+        List<Runnable> writes = new ArrayList<>();
+        ReplicationCacheStore store = new ReplicationCacheStore(file, 100, 0, writes::add);
+        long now = System.currentTimeMillis();
+        store.load(now, HOUR, Collections::emptyList);
+        store.append(entry(now, "refs/changes/1/1/1"));
+        store.append(entry(now, "refs/changes/2/2/2"));
+        assertEquals("One write for the batch", 1, writes.size());
+        assertTrue("Nothing written by the caller", store(file, 100, 0).load(now, HOUR, Collections::emptyList)
+                .isEmpty());
+
+        writes.get(0).run();
+        assertEquals(2, store(file, 100, 0).load(now, HOUR, Collections::emptyList).size());
+        store.append(entry(now, "refs/changes/3/3/3"));
+        assertEquals("A new write once the batch is written", 2, writes.size());
+    }
+
+    /**
+     * Test that loading a log written before a restart records the downtime,
+     * and that a new log doesn't.
+     */
+    @Test
+    public void shouldRecordDowntimeOnLoad() {
+        File file = new File(folder.getRoot(), ReplicationCacheStore.FILE_NAME);
+        long now = System.currentTimeMillis();
+        ReplicationCacheStore store = store(file, 100, 0);
+        store.load(now - HOUR, 2 * HOUR, Collections::emptyList);
+        assertEquals(0, store.getDowntimeEnd());
+        store.append(entry(now - HOUR + 10, "refs/changes/1/1/1"));
+        store.close();
+
+        ReplicationCacheStore restarted = store(file, 100, 0);
+        restarted.load(now, 2 * HOUR, Collections::emptyList);
+        assertEquals(now - HOUR + 10, restarted.getDowntimeStart());
+        assertEquals(now, restarted.getDowntimeEnd());
+    }
+
+    /**
+     * Test that the oldest entries are evicted when the entries weigh more than the max weight.
+     */
+    @Test
+    public void shouldEvictOldestEntriesAboveMaxWeight() {
+        File file = new File(folder.getRoot(), ReplicationCacheStore.FILE_NAME);
+        long now = System.currentTimeMillis();
+        ReplicationCacheStore.Entry first = entry(now, "refs/changes/1/1/1");
+        ReplicationCacheStore.Entry second = entry(now + 1, "refs/changes/2/2/2");
+        ReplicationCacheStore store = store(file, 100, second.getWeight() + 1);
+        store.load(now, HOUR, Collections::emptyList);
+        List<ReplicationCacheStore.Entry> live = new ArrayList<>();
+        live.add(first);
+        live.add(second);
+        List<ReplicationCacheStore.Entry> kept = store.compact(live);
+        assertEquals(1, kept.size());
+        assertEquals("refs/changes/2/2/2", kept.get(0).toRefReplicated().getRef());
+    }
+
+    /**
+     * Test that an unreadable file results in an empty store.
+     * @throws Exception if so
+     */
+    @Test
+    public void shouldStartEmptyOnCorruptFile() throws Exception {
+        File file = new File(folder.getRoot(), ReplicationCacheStore.FILE_NAME);
+        Files.write(file.toPath(), "garbage\n".getBytes(StandardCharsets.UTF_8));
+        long now = System.currentTimeMillis();
+        ReplicationCacheStore store = store(file, 100, 0);
+        assertTrue(store.load(now, HOUR, Collections::emptyList).isEmpty());
+        assertEquals(now, store.getSince());
+        assertFalse(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8).contains("garbage"));
+    }
+
+    /**
+     * Create a store that is written by the caller.
+     * @param file the log file
+     * @param maxEntries the max number of entries to keep
+     * @param maxWeight the max total weight in bytes of the entries to keep
+     * @return the store
+     */
+    private static ReplicationCacheStore store(File file, int maxEntries, long maxWeight) {
+        return new ReplicationCacheStore(file, maxEntries, maxWeight, Runnable::run);
+    }
+
+    /**
+     * Create an entry.
+     * @param written when it was written
+     * @param ref the ref
+     * @return the entry
+     */
+    private static ReplicationCacheStore.Entry entry(long written, String ref) {
+        RefReplicated refReplicated = Setup.createRefReplicatedEvent("someProject", ref, "someServer",
+                "someSlave", RefReplicated.SUCCEEDED_STATUS);
+        return ReplicationCacheStore.Entry.fromRefReplicated(written, refReplicated);
+    }
+}
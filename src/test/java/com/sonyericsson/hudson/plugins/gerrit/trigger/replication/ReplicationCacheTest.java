@@ -25,17 +25,24 @@ package com.sonyericsson.hudson.plugins.gerrit.trigger.replication;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.io.File;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import com.sonymobile.tools.gerrit.gerritevents.dto.events.RefReplicated;
 import com.sonyericsson.hudson.plugins.gerrit.trigger.mock.Setup;
 
-//CS IGNORE MagicNumber FOR NEXT 100 LINES. REASON: testdata.
+//CS IGNORE MagicNumber FOR NEXT 250 LINES. REASON: testdata.
 
 /**
  * Tests {@link com.sonyericsson.hudson.plugins.gerrit.trigger.replication.ReplicationCache}.
@@ -43,6 +50,12 @@ import com.sonyericsson.hudson.plugins.gerrit.trigger.mock.Setup;
  */
 public class ReplicationCacheTest {
 
+    /**
+     * Folder for the persistent store.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     /**
      * Test that it should return cached event.
      */
@@ -96,4 +109,137 @@ public class ReplicationCacheTest {
         assertFalse(replicationCache.isExpired(System.currentTimeMillis()));
         assertTrue(replicationCache.isExpired(System.currentTimeMillis() - 200));
     }
+
+    /**
+     * Test that a persistent cache is restored when recreated, as it would be after a restart.
+     * @throws Exception if something goes wrong
+     */
+    @Test
+    public void shouldRestorePersistedEvents() throws Exception {
+        File file = new File(folder.getRoot(), ReplicationCacheStore.FILE_NAME);
+        ReplicationCache replicationCache = ReplicationCache.Factory.createCache(1, TimeUnit.HOURS,
+                new ReplicationCacheStore(file, 100, 0, Runnable::run));
+        replicationCache.setCreationTime(System.currentTimeMillis());
+        RefReplicated refReplicated = Setup.createRefReplicatedEvent("someProject", "refs/changes/1/1/1", "someServer",
+            "someSlave", RefReplicated.SUCCEEDED_STATUS);
+        replicationCache.put(refReplicated);
+        long beforeRestart = System.currentTimeMillis();
+        Thread.sleep(10);
+
+        ReplicationCache restored = ReplicationCache.Factory.createCache(1, TimeUnit.HOURS,
+                new ReplicationCacheStore(file, 100, 0, Runnable::run));
+        restored.setCreationTime(System.currentTimeMillis());
+        RefReplicated cached = restored.getIfPresent("someServer", "someProject", "refs/changes/1/1/1",
+                "someSlave");
+        assertNotNull("Event should have been restored", cached);
+        assertEquals(RefReplicated.SUCCEEDED_STATUS, cached.getStatus());
+        assertEquals("someServer", cached.getProvider().getName());
+        assertFalse("Events from before the restart are covered by the store", restored.isExpired(beforeRestart));
+        assertTrue("Replication of events from before the restart may have been missed",
+                restored.getMissedReplicationDeadline(beforeRestart) > System.currentTimeMillis());
+        assertEquals("Replication of events after the restart is received",
+                -1, restored.getMissedReplicationDeadline(System.currentTimeMillis() + 1000));
+        assertEquals("Nothing is missed by a new cache", -1, replicationCache.getMissedReplicationDeadline(0));
+    }
+
+    /**
+     * Test that the events queued for the persistent store are written when the cache is closed.
+     * @throws Exception if something goes wrong
+     */
+    @Test
+    public void shouldWriteQueuedEventsWhenClosed() throws Exception {
+        File file = new File(folder.getRoot(), ReplicationCacheStore.FILE_NAME);
+        ExecutorService writer = Executors.newSingleThreadExecutor();
+        try {
+            ReplicationCache replicationCache = ReplicationCache.Factory.createCache(1, TimeUnit.HOURS,
+                    new ReplicationCacheStore(file, 100, 0, writer));
+            replicationCache.put(Setup.createRefReplicatedEvent("someProject", "refs/changes/1/1/1", "someServer",
+                "someSlave", RefReplicated.SUCCEEDED_STATUS));
+            replicationCache.close();
+        } finally {
+            writer.shutdown();
+        }
+
+        ReplicationCache restored = ReplicationCache.Factory.createCache(1, TimeUnit.HOURS,
+                new ReplicationCacheStore(file, 100, 0, Runnable::run));
+        assertNotNull("Event should have been written when closed",
+            restored.getIfPresent("someServer", "someProject", "refs/changes/1/1/1", "someSlave"));
+    }
+
+    /**
+     * Test that restored events expire at the same time as they would have without a restart.
+     * @throws Exception if something goes wrong
+     */
+    @Test
+    public void shouldExpireRestoredEventsWithOriginalExpiration() throws Exception {
+        File file = new File(folder.getRoot(), ReplicationCacheStore.FILE_NAME);
+        ReplicationCache replicationCache = ReplicationCache.Factory.createCache(300, TimeUnit.MILLISECONDS,
+                new ReplicationCacheStore(file, 100, 0, Runnable::run));
+        replicationCache.put(Setup.createRefReplicatedEvent("someProject", "refs/changes/1/1/1", "someServer",
+            "someSlave", RefReplicated.SUCCEEDED_STATUS));
+        Thread.sleep(200);
+
+        ReplicationCache restored = ReplicationCache.Factory.createCache(300, TimeUnit.MILLISECONDS,
+                new ReplicationCacheStore(file, 100, 0, Runnable::run));
+        assertNotNull(restored.getIfPresent("someServer", "someProject", "refs/changes/1/1/1", "someSlave"));
+        Thread.sleep(150);
+        assertNull("Event should have been evicted from the cache",
+            restored.getIfPresent("someServer", "someProject", "refs/changes/1/1/1", "someSlave"));
+    }
+
+    /**
+     * Test that the cache does not keep more events than its maximum size.
+     * @throws Exception if something goes wrong
+     */
+    @Test
+    public void shouldEvictEventsAboveMaximumSize() throws Exception {
+        ReplicationCache replicationCache = ReplicationCache.Factory.createCache(1, TimeUnit.HOURS, 10, null);
+        for (int i = 0; i < 100; i++) {
+            replicationCache.put(Setup.createRefReplicatedEvent("someProject", "refs/changes/1/" + i + "/1",
+                "someServer", "someSlave", RefReplicated.SUCCEEDED_STATUS));
+        }
+        long giveUp = System.currentTimeMillis() + 5000;
+        while (replicationCache.getEstimatedSize() > 10 && System.currentTimeMillis() < giveUp) {
+            Thread.sleep(10);
+        }
+        assertEquals(10, replicationCache.getMaximumSize());
+        assertTrue(replicationCache.getEstimatedSize() <= 10);
+        assertTrue(replicationCache.getStats().evictionCount() >= 90);
+    }
+
+    /**
+     * Test that the names of the events are only kept once, that the events themselves are not kept
+     * and that lookups are counted.
+     */
+    @Test
+    public void shouldShareNamesAndRecordStats() {
+        ReplicationCache replicationCache = ReplicationCache.Factory.createCache(1, TimeUnit.HOURS);
+        RefReplicated first = null;
+        for (int i = 0; i < 10; i++) {
+            RefReplicated event = Setup.createRefReplicatedEvent(new String("someProject"),
+                "refs/changes/1/" + i + "/1", new String("someServer"), new String("someSlave"),
+                new String(RefReplicated.SUCCEEDED_STATUS));
+            event.setReceivedOn(1000 + i);
+            replicationCache.put(event);
+            if (i == 1) {
+                first = event;
+            }
+        }
+        assertEquals(4, replicationCache.getNameCount());
+        RefReplicated cached = replicationCache.getIfPresent("someServer", "someProject", "refs/changes/1/1/1",
+                "someSlave");
+        assertNotNull(cached);
+        assertNotSame("The event is recreated from what is cached", first, cached);
+        assertEquals("someServer", cached.getProvider().getName());
+        assertEquals("someProject", cached.getProject());
+        assertEquals("refs/changes/1/1/1", cached.getRef());
+        assertEquals("someSlave", cached.getTargetNode());
+        assertEquals(RefReplicated.SUCCEEDED_STATUS, cached.getStatus());
+        assertEquals(1001, cached.getReceivedOn());
+        assertNull(replicationCache.getIfPresent("someServer", "someProject", "refs/changes/1/1/1", "otherSlave"));
+        assertNull(replicationCache.getIfPresent("someServer", "someProject", "refs/changes/1/11/1", "someSlave"));
+        assertEquals("Lookups must not add names", 4, replicationCache.getNameCount());
+        assertEquals(1, replicationCache.getStats().hitCount());
+        assertEquals(2, replicationCache.getStats().missCount());
+    }
 }
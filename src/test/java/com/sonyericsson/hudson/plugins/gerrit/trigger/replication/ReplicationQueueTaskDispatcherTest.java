@@ -28,9 +28,12 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.after;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -51,6 +54,8 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 import jenkins.model.Jenkins;
@@ -77,6 +82,8 @@ import com.sonyericsson.hudson.plugins.gerrit.trigger.hudsontrigger.GerritManual
 import com.sonyericsson.hudson.plugins.gerrit.trigger.hudsontrigger.GerritTrigger;
 import com.sonyericsson.hudson.plugins.gerrit.trigger.hudsontrigger.data.GerritSlave;
 import com.sonyericsson.hudson.plugins.gerrit.trigger.mock.Setup;
+import com.sonyericsson.hudson.plugins.gerrit.trigger.utils.QueueMaintenanceScheduler;
+import com.sonyericsson.hudson.plugins.gerrit.trigger.utils.TaskScheduler;
 import org.mockito.MockedStatic;
 
 /**
@@ -93,6 +100,8 @@ public class ReplicationQueueTaskDispatcherTest {
 
     private static final int HOURSBEFORECHANGEMERGEDFORPATCHSET = -8;
     private static final int HOURBEFOREREPLICATIONCACHECREATED = -1;
+    private static final long MAINTENANCE_WAIT = 1000;
+    private ScheduledExecutorService maintenanceExecutor;
     private MockedStatic<Jenkins> jenkinsMockedStatic;
 
     /**
@@ -101,9 +110,12 @@ public class ReplicationQueueTaskDispatcherTest {
     @Before
     public void setUp() {
         gerritHandlerMock = mock(GerritHandler.class);
-        dispatcher = new ReplicationQueueTaskDispatcher(gerritHandlerMock, ReplicationCache.Factory.createCache());
-        gerritTriggerMock = mock(GerritTrigger.class);
         queueMock = mock(Queue.class);
+        maintenanceExecutor = Executors.newSingleThreadScheduledExecutor();
+        dispatcher = new ReplicationQueueTaskDispatcher(gerritHandlerMock, ReplicationCache.Factory.createCache(),
+                new QueueMaintenanceScheduler(queueMock::maintain, maintenanceExecutor, 0),
+                new TaskScheduler(maintenanceExecutor));
+        gerritTriggerMock = mock(GerritTrigger.class);
         Jenkins jenkinsMock = mock(Jenkins.class);
         when(jenkinsMock.getQueue()).thenReturn(queueMock);
         ExtensionList<TransientActionFactory> list = mock(ExtensionList.class);
@@ -118,6 +130,7 @@ public class ReplicationQueueTaskDispatcherTest {
     @After
     public void tearDown() throws Exception {
         jenkinsMockedStatic.close();
+        maintenanceExecutor.shutdownNow();
     }
 
     /**
@@ -275,7 +288,7 @@ public class ReplicationQueueTaskDispatcherTest {
         assertNull("Item should not be blocked", dispatcher.canRun(item));
         assertNull("Item should not be tagged with replicationFailedAction",
                 item.getAction(ReplicationFailedAction.class));
-        verify(queueMock, times(1)).maintain();
+        verify(queueMock, timeout(MAINTENANCE_WAIT).times(1)).maintain();
     }
 
     /**
@@ -374,7 +387,7 @@ public class ReplicationQueueTaskDispatcherTest {
         assertNull("Item should not be blocked", dispatcher.canRun(item));
         assertNull("Item should not be tagged with replicationFailedAction",
                 item.getAction(ReplicationFailedAction.class));
-        verify(queueMock, times(1)).maintain();
+        verify(queueMock, timeout(MAINTENANCE_WAIT).times(1)).maintain();
     }
 
     /**
@@ -511,7 +524,7 @@ public class ReplicationQueueTaskDispatcherTest {
         assertNull("Item should not be blocked", dispatcher.canRun(item));
         assertNull("Item should not be tagged with replicationFailedAction",
                 item.getAction(ReplicationFailedAction.class));
-        verify(queueMock, times(1)).maintain();
+        verify(queueMock, timeout(MAINTENANCE_WAIT).times(1)).maintain();
     }
 
     /**
@@ -537,8 +550,9 @@ public class ReplicationQueueTaskDispatcherTest {
         assertTrue(cause.getShortDescription().contains("slave1"));
         assertTrue(cause.getShortDescription().contains("slave2"));
 
-        //wait to reach the timeout
+        //wait to reach the timeout, the queue is maintained as soon as it is reached
         Thread.sleep(TimeUnit.SECONDS.toMillis(2));
+        verify(queueMock, times(1)).maintain();
 
         //timeout reached
         cause = dispatcher.canRun(item);
@@ -546,7 +560,39 @@ public class ReplicationQueueTaskDispatcherTest {
         ReplicationFailedAction replicationFailedAction = item.getAction(ReplicationFailedAction.class);
         assertNotNull("Item should be tagged with replicationFailedAction", replicationFailedAction);
         assertTrue(replicationFailedAction.getReason().contains("slave2"));
-        verify(queueMock, times(0)).maintain();
+    }
+
+    /**
+     * Test that the timeout check is moved on to the next slave with a timeout
+     * when the slave with the earliest deadline has been replicated to.
+     * @throws InterruptedException if test fails
+     */
+    @Test
+    public void shouldRescheduleTimeoutWhenSlaveWithEarliestDeadlineIsReplicated() throws InterruptedException {
+        PatchsetCreated patchsetCreated = Setup.createPatchsetCreated("someGerritServer", "someProject",
+                "refs/changes/1/1/1");
+        Item item = createItem(patchsetCreated, null);
+        List<GerritSlave> gerritSlaves = new ArrayList<GerritSlave>();
+        gerritSlaves.add(new GerritSlave("slave1", "host1", 1)); // slave timeout is 1 second
+        gerritSlaves.add(new GerritSlave("slave2", "host2", 2)); // slave timeout is 2 seconds
+        when(gerritTriggerMock.gerritSlavesToWaitFor("someGerritServer")).thenReturn(gerritSlaves);
+
+        assertNotNull("the item should be blocked", dispatcher.canRun(item));
+
+        dispatcher.gerritEvent(Setup.createRefReplicatedEvent("someProject", "refs/changes/1/1/1", "someGerritServer",
+                "host1", RefReplicated.SUCCEEDED_STATUS));
+
+        //first deadline passed, but that slave is replicated
+        Thread.sleep(1500);
+        verify(queueMock, never()).maintain();
+        assertNotNull("the item should be blocked", dispatcher.canRun(item));
+
+        //second deadline passed
+        verify(queueMock, timeout(TimeUnit.SECONDS.toMillis(2)).times(1)).maintain();
+        assertNull("Item should not be blocked", dispatcher.canRun(item));
+        ReplicationFailedAction replicationFailedAction = item.getAction(ReplicationFailedAction.class);
+        assertNotNull("Item should be tagged with replicationFailedAction", replicationFailedAction);
+        assertTrue(replicationFailedAction.getReason().contains("slave2"));
     }
 
     /**
@@ -601,7 +647,7 @@ public class ReplicationQueueTaskDispatcherTest {
         cause = dispatcher.canRun(item);
         assertNull("Item should not be blocked", cause);
 
-        verify(queueMock, times(1)).maintain();
+        verify(queueMock, timeout(MAINTENANCE_WAIT).times(1)).maintain();
     }
 
     /**
@@ -626,7 +672,7 @@ public class ReplicationQueueTaskDispatcherTest {
                 "slaveA", RefReplicated.SUCCEEDED_STATUS));
 
         assertNull("Item should not be blocked", dispatcher.canRun(item));
-        verify(queueMock, times(0)).maintain();
+        verify(queueMock, after(MAINTENANCE_WAIT).never()).maintain();
     }
 
     /**
@@ -663,7 +709,7 @@ public class ReplicationQueueTaskDispatcherTest {
                 "slaveA", RefReplicated.SUCCEEDED_STATUS));
 
         assertNull("Item should not be blocked", dispatcher.canRun(item));
-        verify(queueMock, times(1)).maintain();
+        verify(queueMock, timeout(MAINTENANCE_WAIT).times(1)).maintain();
     }
 
     /**
@@ -682,7 +728,7 @@ public class ReplicationQueueTaskDispatcherTest {
                 - TimeUnit.MINUTES.toMillis(ReplicationCache.DEFAULT_EXPIRATION_IN_MINUTES));
         Item item = createItem(patchsetCreated, new String[] {"slaveA", "slaveB"});
         assertNull("Item should not be blocked", dispatcher.canRun(item));
-        verify(queueMock, times(0)).maintain();
+        verify(queueMock, after(MAINTENANCE_WAIT).never()).maintain();
     }
 
     /**
@@ -719,7 +765,39 @@ public class ReplicationQueueTaskDispatcherTest {
         assertNull("Item should not be blocked", dispatcher.canRun(item2));
         assertNull("Item should not be tagged with replicationFailedAction",
                 item2.getAction(ReplicationFailedAction.class));
-        verify(queueMock, times(1)).maintain();
+        verify(queueMock, timeout(MAINTENANCE_WAIT).times(1)).maintain();
+    }
+
+    /**
+     * Test that a replication event only unblocks the items waiting for that exact server, project and ref,
+     * and that items are no longer tracked once they have been released.
+     */
+    @Test
+    public void shouldOnlyUpdateItemsWaitingForTheReplicatedRef() {
+        Item item1 = createItem(Setup.createPatchsetCreated("someGerritServer", "someProject",
+                "refs/changes/1/1/1"), new String[] {"slaveA"});
+        Item item2 = createItem(Setup.createPatchsetCreated("someGerritServer", "someProject",
+                "refs/changes/2/2/2"), new String[] {"slaveA"});
+
+        assertNotNull("the item should be blocked", dispatcher.canRun(item1));
+        assertNotNull("the item should be blocked", dispatcher.canRun(item2));
+
+        dispatcher.gerritEvent(Setup.createRefReplicatedEvent("someProject", "refs/changes/1/1/1", "someGerritServer",
+                "slaveA", RefReplicated.SUCCEEDED_STATUS));
+
+        assertNull("Item should not be blocked", dispatcher.canRun(item1));
+        assertNotNull("the item should be blocked", dispatcher.canRun(item2));
+        verify(queueMock, timeout(MAINTENANCE_WAIT).times(1)).maintain();
+
+        //the released item is not tracked anymore, so the same event does not trigger a new maintenance
+        dispatcher.gerritEvent(Setup.createRefReplicatedEvent("someProject", "refs/changes/1/1/1", "someGerritServer",
+                "slaveA", RefReplicated.SUCCEEDED_STATUS));
+        verify(queueMock, after(MAINTENANCE_WAIT).times(1)).maintain();
+
+        dispatcher.gerritEvent(Setup.createRefReplicatedEvent("someProject", "refs/changes/2/2/2", "someGerritServer",
+                "slaveA", RefReplicated.SUCCEEDED_STATUS));
+        assertNull("Item should not be blocked", dispatcher.canRun(item2));
+        verify(queueMock, timeout(MAINTENANCE_WAIT).times(2)).maintain();
     }
 
     /**
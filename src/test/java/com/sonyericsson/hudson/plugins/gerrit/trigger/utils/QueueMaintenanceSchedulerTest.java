@@ -0,0 +1,148 @@
+/*
+ *  The MIT License
+ *
+ *  Copyright 2026 Sony Mobile Communications Inc. All rights reserved.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.sonyericsson.hudson.plugins.gerrit.trigger.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+
+//CS IGNORE MagicNumber FOR NEXT 100 LINES. REASON: testdata.
+
+/**
+ * Tests for {@link QueueMaintenanceScheduler}.
+ */
+public class QueueMaintenanceSchedulerTest {
+
+    private ScheduledExecutorService executor;
+    private AtomicInteger maintenances;
+
+    /**
+     * Creates the executor to schedule on.
+     */
+    @Before
+    public void setUp() {
+        executor = Executors.newSingleThreadScheduledExecutor();
+        maintenances = new AtomicInteger();
+    }
+
+    /**
+     * Stops the executor.
+     */
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Tests that a burst of requests within the window results in one maintenance.
+     *
+     * @throws Exception if so
+     */
+    @Test
+    public void testBurstIsCoalesced() throws Exception {
+        QueueMaintenanceScheduler scheduler =
+                new QueueMaintenanceScheduler(maintenances::incrementAndGet, executor, 200);
+        for (int i = 0; i < 10; i++) {
+            scheduler.requestMaintenance();
+        }
+        assertEquals(0, maintenances.get());
+        waitForExecutor();
+        assertEquals(1, maintenances.get());
+        assertEquals(10, scheduler.getRequestCount());
+        assertEquals(1, scheduler.getMaintenanceCount());
+        assertEquals(9, scheduler.getAvoidedCount());
+    }
+
+    /**
+     * Tests that requests arriving after a maintenance has been performed schedules a new one.
+     *
+     * @throws Exception if so
+     */
+    @Test
+    public void testNewWindowAfterMaintenance() throws Exception {
+        QueueMaintenanceScheduler scheduler =
+                new QueueMaintenanceScheduler(maintenances::incrementAndGet, executor, 10);
+        scheduler.requestMaintenance();
+        waitForExecutor();
+        scheduler.requestMaintenance();
+        waitForExecutor();
+        assertEquals(2, maintenances.get());
+        assertEquals(0, scheduler.getAvoidedCount());
+    }
+
+    /**
+     * Tests that a failing maintenance does not prevent future maintenances.
+     *
+     * @throws Exception if so
+     */
+    @Test
+    public void testFailingMaintenance() throws Exception {
+        QueueMaintenanceScheduler scheduler = new QueueMaintenanceScheduler(() -> {
+            maintenances.incrementAndGet();
+            throw new IllegalStateException("Expected");
+        }, executor, 0);
+        scheduler.requestMaintenance();
+        waitForExecutor();
+        scheduler.requestMaintenance();
+        waitForExecutor();
+        assertEquals(2, maintenances.get());
+    }
+
+    /**
+     * Tests that a maintenance that can't be scheduled, like on a timer that was shut down,
+     * doesn't prevent the next request from scheduling one on the current executor.
+     *
+     * @throws Exception if so
+     */
+    @Test
+    public void testRejectedMaintenanceIsScheduledAgain() throws Exception {
+        ScheduledExecutorService shutDown = Executors.newSingleThreadScheduledExecutor();
+        shutDown.shutdown();
+        AtomicReference<ScheduledExecutorService> current = new AtomicReference<>(shutDown);
+        QueueMaintenanceScheduler scheduler =
+                new QueueMaintenanceScheduler(maintenances::incrementAndGet, current::get, 0);
+        scheduler.requestMaintenance();
+        current.set(executor);
+        scheduler.requestMaintenance();
+        waitForExecutor();
+        assertEquals(1, maintenances.get());
+    }
+
+    /**
+     * Waits until everything scheduled so far on the executor has been run.
+     *
+     * @throws Exception if so
+     */
+    private void waitForExecutor() throws Exception {
+        executor.schedule(() -> { }, 300, TimeUnit.MILLISECONDS).get(5, TimeUnit.SECONDS);
+    }
+}
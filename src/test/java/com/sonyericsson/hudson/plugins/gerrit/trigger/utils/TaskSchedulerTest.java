@@ -0,0 +1,145 @@
+/*
+ *  The MIT License
+ *
+ *  Copyright 2026 Sony Mobile Communications Inc. All rights reserved.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.sonyericsson.hudson.plugins.gerrit.trigger.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+//CS IGNORE MagicNumber FOR NEXT 100 LINES. REASON: testdata.
+
+/**
+ * Tests for {@link TaskScheduler}.
+ */
+public class TaskSchedulerTest {
+
+    private ScheduledExecutorService executor;
+    private TaskScheduler scheduler;
+
+    /**
+     * Creates the scheduler on an executor of its own.
+     */
+    @Before
+    public void setUp() {
+        executor = Executors.newSingleThreadScheduledExecutor();
+        scheduler = new TaskScheduler(executor);
+    }
+
+    /**
+     * Stops the executor.
+     */
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Tests that a failing run of a periodic task is counted and doesn't stop the next runs,
+     * and that the task is no longer active once cancelled.
+     *
+     * @throws Exception if so
+     */
+    @Test
+    public void testFailingPeriodicTaskKeepsRunning() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch runs = new CountDownLatch(3);
+        TaskScheduler.Task task = scheduler.scheduleWithFixedDelay("failing", () -> {
+            runs.countDown();
+            if (calls.incrementAndGet() == 1) {
+                throw new IllegalStateException("first run fails");
+            }
+        }, 0, 10, TimeUnit.MILLISECONDS);
+        assertTrue(runs.await(5, TimeUnit.SECONDS));
+        assertEquals(1, scheduler.getActiveTasks().size());
+
+        task.cancel();
+        executor.submit(() -> { }).get();
+        assertEquals(0, scheduler.getActiveTasks().size());
+        assertEquals(1, scheduler.getScheduledCount());
+        assertEquals(1, scheduler.getFailureCount());
+        assertEquals(1, scheduler.getCancelledCount());
+        assertEquals(task.getRuns(), scheduler.getRunCount());
+        assertTrue(task.getRuns() >= 3);
+    }
+
+    /**
+     * Tests that the name of the task is added to the name of the thread while it runs,
+     * and that a one-shot task is no longer active when done.
+     *
+     * @throws Exception if so
+     */
+    @Test
+    public void testOneShotTaskIsNamed() throws Exception {
+        String[] threadName = new String[1];
+        scheduler.schedule("named", () -> threadName[0] = Thread.currentThread().getName(), 0, TimeUnit.SECONDS);
+        executor.submit(() -> { }).get();
+        assertTrue(threadName[0].endsWith(" - named"));
+        assertEquals(0, scheduler.getActiveTasks().size());
+        assertEquals(1, scheduler.getRunCount());
+        assertEquals(0, scheduler.getCancelledCount());
+    }
+
+    /**
+     * Tests that the executor is looked up for each task, so that a replaced executor is used,
+     * and that blocking tasks run on the executor of their own.
+     *
+     * @throws Exception if so
+     */
+    @Test
+    public void testExecutorIsLookedUpForEachTask() throws Exception {
+        ScheduledExecutorService replacement = Executors.newSingleThreadScheduledExecutor();
+        ScheduledExecutorService blocking = Executors.newSingleThreadScheduledExecutor();
+        try {
+            AtomicReference<ScheduledExecutorService> current = new AtomicReference<>(executor);
+            TaskScheduler lookingUp = new TaskScheduler(current::get, () -> blocking);
+            Thread[] threads = new Thread[3];
+            lookingUp.schedule("first", () -> threads[0] = Thread.currentThread(), 0, TimeUnit.SECONDS);
+            executor.submit(() -> { }).get();
+            current.set(replacement);
+            lookingUp.schedule("second", () -> threads[1] = Thread.currentThread(), 0, TimeUnit.SECONDS);
+            replacement.submit(() -> { }).get();
+            lookingUp.scheduleBlocking("blocking", () -> threads[2] = Thread.currentThread(), 0, TimeUnit.SECONDS);
+            blocking.submit(() -> { }).get();
+
+            assertSame(executor.submit(Thread::currentThread).get(), threads[0]);
+            assertSame(replacement.submit(Thread::currentThread).get(), threads[1]);
+            assertSame(blocking.submit(Thread::currentThread).get(), threads[2]);
+            assertEquals(3, lookingUp.getRunCount());
+        } finally {
+            replacement.shutdownNow();
+            blocking.shutdownNow();
+        }
+    }
+}